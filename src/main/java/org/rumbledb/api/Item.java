@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.List;
 
 /**
@@ -58,6 +59,7 @@ import java.util.List;
 public abstract class Item implements SerializableItem {
 
     private static final long serialVersionUID = 1L;
+    private static final char[] hexadecimalDigits = "0123456789ABCDEF".toCharArray();
 
     /**
      * Please do not use. Items are produced by a JSONiq query via the Rumble API.
@@ -287,12 +289,30 @@ public abstract class Item implements SerializableItem {
     /**
      * Returns the integer value of the item, if it is a atomic item of type integer.
      *
-     * @return the integer value as an int.
+     * @return the integer value as an int, clamped to the range of int.
      */
     public int getIntegerValue() {
         throw new OurBadException(" Item '" + this.serialize() + "' is not an integer.");
     }
 
+    /**
+     * Returns the integer value of the item, if it is a atomic item of type integer.
+     *
+     * @return the integer value as a long, clamped to the range of long.
+     */
+    public long getLongValue() {
+        throw new OurBadException(" Item '" + this.serialize() + "' is not an integer.");
+    }
+
+    /**
+     * Returns the integer value of the item, if it is a atomic item of type integer.
+     *
+     * @return the integer value as a BigInteger.
+     */
+    public BigInteger getBigIntegerValue() {
+        throw new OurBadException(" Item '" + this.serialize() + "' is not an integer.");
+    }
+
     /**
      * Returns the decimal value of the item, if it is a atomic item of type decimal.
      *
@@ -566,6 +586,88 @@ public abstract class Item implements SerializableItem {
         aOutputStream.defaultWriteObject();
     }
 
+    /**
+     * Appends the serialization of the item to a sink, such as a Writer or a StringBuilder. Objects and arrays append
+     * the serializations of their members directly, without building a string for each of them.
+     *
+     * @param sink the sink to append to.
+     * @throws IOException if the sink cannot be written to.
+     */
+    public void serialize(Appendable sink) throws IOException {
+        sink.append(serialize());
+    }
+
+    /**
+     * @return the serialization of the item, built with {@link #serialize(Appendable)}.
+     */
+    protected String serializeWithStringBuilder() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            serialize(sb);
+        } catch (IOException e) {
+            throw new OurBadException("A string builder cannot fail to append.");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends a string as a JSON string literal, escaped like StringEscapeUtils.escapeJson() does but without building
+     * the escaped string: the quotes, backslashes and slashes are escaped, as well as all characters that are not
+     * printable ASCII characters.
+     *
+     * @param value the string.
+     * @param sink the sink to append to.
+     * @throws IOException if the sink cannot be written to.
+     */
+    protected static void serializeJSONString(String value, Appendable sink) throws IOException {
+        sink.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c >= 32 && c < 0x7f && c != '"' && c != '\\' && c != '/') {
+                continue;
+            }
+            // the characters that need no escaping are appended in bulk
+            sink.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    sink.append("\\\"");
+                    break;
+                case '\\':
+                    sink.append("\\\\");
+                    break;
+                case '/':
+                    sink.append("\\/");
+                    break;
+                case '\b':
+                    sink.append("\\b");
+                    break;
+                case '\n':
+                    sink.append("\\n");
+                    break;
+                case '\t':
+                    sink.append("\\t");
+                    break;
+                case '\f':
+                    sink.append("\\f");
+                    break;
+                case '\r':
+                    sink.append("\\r");
+                    break;
+                default:
+                    sink.append("\\u")
+                        .append(hexadecimalDigits[(c >> 12) & 15])
+                        .append(hexadecimalDigits[(c >> 8) & 15])
+                        .append(hexadecimalDigits[(c >> 4) & 15])
+                        .append(hexadecimalDigits[c & 15]);
+            }
+        }
+        sink.append(value, start, length);
+        sink.append('"');
+    }
+
     /**
      * Tests for logical equality.
      *
@@ -26,6 +26,7 @@ public class SequenceOfItems {
 
     private RuntimeIterator iterator;
     private boolean isOpen;
+    private DynamicContext dynamicContext;
 
     protected SequenceOfItems(RuntimeIterator iterator) {
         this.iterator = iterator;
@@ -36,7 +37,8 @@ public class SequenceOfItems {
      * Opens the iterator.
      */
     public void open() {
-        this.iterator.open(new DynamicContext());
+        this.dynamicContext = new DynamicContext();
+        this.iterator.open(this.dynamicContext);
         this.isOpen = true;
     }
 
@@ -54,6 +56,10 @@ public class SequenceOfItems {
      */
     public void close() {
         this.iterator.close();
+        if (this.dynamicContext != null) {
+            // the intermediate results cached for the query are released
+            this.dynamicContext.unpersistQueryResults();
+        }
         this.isOpen = false;
     }
 
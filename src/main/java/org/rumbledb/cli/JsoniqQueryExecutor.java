@@ -20,33 +20,64 @@
 
 package org.rumbledb.cli;
 
+import com.jsoniter.JsonIterator;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.TaskContext;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.AnalysisException;
+import org.apache.spark.sql.DataFrameWriter;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.MapType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
 import org.rumbledb.compiler.VisitorHelpers;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.DynamicContext;
+import org.rumbledb.context.Name;
 import org.rumbledb.exceptions.CliException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.expressions.module.MainModule;
+import org.rumbledb.items.ObjectItem;
+import org.rumbledb.items.parsing.ItemParser;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.functions.base.Functions;
 import org.rumbledb.runtime.functions.input.FileSystemUtil;
 
+import sparksoniq.spark.DataFrameUtils;
 import sparksoniq.spark.SparkSessionManager;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 
 public class JsoniqQueryExecutor {
+    private static final List<String> outputFormats = Arrays.asList("json", "parquet", "avro", "csv");
+    public static final String approximateResultWarning =
+        "Warning! The query reads a sample of its input, so that its result is approximate.";
     private RumbleRuntimeConfiguration configuration;
+    private boolean isResultApproximate;
 
     public JsoniqQueryExecutor(RumbleRuntimeConfiguration configuration) {
         this.configuration = configuration;
         SparkSessionManager.COLLECT_ITEM_LIMIT = configuration.getResultSizeCap();
+        SparkSessionManager.LOCAL_FILE_SIZE_THRESHOLD = configuration.getLocalFileSizeThreshold();
+        SparkSessionManager.SCHEMA_CACHE_LOCATION = configuration.getSchemaCacheLocation();
     }
 
     private void checkOutputFile(URI outputUri) throws IOException {
@@ -71,6 +102,15 @@ public class JsoniqQueryExecutor {
         URI outputUri = null;
         if (outputPath != null) {
             outputUri = FileSystemUtil.resolveURIAgainstWorkingDirectory(outputPath, ExceptionMetadata.EMPTY_METADATA);
+            if (!outputFormats.contains(this.configuration.getOutputFormat())) {
+                throw new CliException(
+                        "Unknown output format "
+                            + this.configuration.getOutputFormat()
+                            + ". The supported formats are "
+                            + outputFormats
+                            + "."
+                );
+            }
             checkOutputFile(outputUri);
         }
 
@@ -87,34 +127,41 @@ public class JsoniqQueryExecutor {
         MainModule mainModule = VisitorHelpers.parseMainModuleFromLocation(queryUri, this.configuration);
         DynamicContext dynamicContext = VisitorHelpers.createDynamicContext(mainModule, this.configuration);
         RuntimeIterator result = VisitorHelpers.generateRuntimeIterator(mainModule);
+        this.isResultApproximate = VisitorHelpers.readsSample(mainModule);
         if (this.configuration.isPrintIteratorTree()) {
             StringBuffer sb = new StringBuffer();
             result.print(sb, 0);
             System.out.println(sb);
         }
 
-        if (result.isRDD() && outputPath != null) {
-            JavaRDD<Item> rdd = result.getRDD(dynamicContext);
-            JavaRDD<String> outputRDD = rdd.map(o -> o.serialize());
-            outputRDD.saveAsTextFile(outputPath);
-        } else {
-            outputList = new ArrayList<>();
-            long materializationCount = getIteratorOutput(result, dynamicContext, outputList);
-            List<String> lines = outputList.stream().map(x -> x.serialize()).collect(Collectors.toList());
-            if (outputPath != null) {
-                FileSystemUtil.write(outputUri, lines, ExceptionMetadata.EMPTY_METADATA);
+        try {
+            if (outputPath != null && !this.configuration.getOutputFormat().equals("json")) {
+                writeDataFrame(getOutputDataFrame(result, dynamicContext), outputPath);
+            } else if (result.isRDD() && outputPath != null) {
+                JavaRDD<Item> rdd = result.getRDD(dynamicContext);
+                JavaRDD<String> outputRDD = rdd.map(o -> o.serialize());
+                outputRDD.saveAsTextFile(outputPath);
+            } else if (outputPath != null) {
+                writeLocalOutput(result, dynamicContext, outputUri);
             } else {
-                System.out.println(String.join("\n", lines));
-            }
-            if (materializationCount != -1) {
-                System.err.println(
-                    "Warning! The output sequence contains "
-                        + materializationCount
-                        + " items but its materialization was capped at "
-                        + SparkSessionManager.COLLECT_ITEM_LIMIT
-                        + " items. This value can be configured with the --result-size parameter at startup"
-                );
+                outputList = new ArrayList<>();
+                long materializationCount = getIteratorOutput(result, dynamicContext, outputList);
+                printOutput(outputList);
+                if (materializationCount != -1) {
+                    System.err.println(
+                        "Warning! The output sequence contains "
+                            + materializationCount
+                            + " items but its materialization was capped at "
+                            + SparkSessionManager.COLLECT_ITEM_LIMIT
+                            + " items. This value can be configured with the --result-size parameter at startup"
+                    );
+                }
             }
+        } finally {
+            dynamicContext.unpersistQueryResults();
+        }
+        if (this.isResultApproximate) {
+            System.err.println(approximateResultWarning);
         }
 
         long endTime = System.currentTimeMillis();
@@ -126,24 +173,331 @@ public class JsoniqQueryExecutor {
         return outputList;
     }
 
+    /**
+     * Runs the query on the files added to the streaming input directory, in micro-batches. The query reads the new
+     * files of each micro-batch from the external variable $input, and the output of the previous micro-batch from
+     * the external variable $state, so that aggregates are maintained without reading the files already read again.
+     * The output of each micro-batch is written to a directory named after its ID in the output path, and the files
+     * of each micro-batch are recorded in the checkpoint location before it runs, so that a restarted query runs the
+     * last micro-batch again if it did not complete, and then only reads the new files.
+     */
+    public void runStreamingQuery() throws IOException {
+        String outputPath = this.configuration.getOutputPath();
+        if (outputPath == null) {
+            throw new CliException("An output path must be specified with --output-path in streaming mode.");
+        }
+        if (!this.configuration.getOutputFormat().equals("json")) {
+            throw new CliException("Only the json output format is supported in streaming mode.");
+        }
+        long interval = -1;
+        if (!this.configuration.getStreamingTrigger().equals("once")) {
+            try {
+                interval = TimeUnit.SECONDS.toMillis(Long.parseLong(this.configuration.getStreamingTrigger()));
+            } catch (NumberFormatException e) {
+                throw new CliException(
+                        "The streaming trigger must be once or a number of seconds: "
+                            + this.configuration.getStreamingTrigger()
+                );
+            }
+        }
+        URI queryUri = FileSystemUtil.resolveURIAgainstWorkingDirectory(
+            this.configuration.getQueryPath(),
+            ExceptionMetadata.EMPTY_METADATA
+        );
+        URI inputUri = FileSystemUtil.resolveURIAgainstWorkingDirectory(
+            this.configuration.getStreamingInput(),
+            ExceptionMetadata.EMPTY_METADATA
+        );
+        URI outputUri = FileSystemUtil.resolveURIAgainstWorkingDirectory(outputPath, ExceptionMetadata.EMPTY_METADATA);
+        URI checkpointUri = new Path(new Path(outputUri), "_checkpoint").toUri();
+        if (this.configuration.getCheckpointLocation() != null) {
+            checkpointUri = FileSystemUtil.resolveURIAgainstWorkingDirectory(
+                this.configuration.getCheckpointLocation(),
+                ExceptionMetadata.EMPTY_METADATA
+            );
+        }
+        URI batchesUri = new Path(new Path(checkpointUri), "batches").toUri();
+        URI commitsUri = new Path(new Path(checkpointUri), "commits").toUri();
+        // the state of the first micro-batch is empty
+        URI emptyStateUri = new Path(new Path(checkpointUri), "empty-state").toUri();
+        FileSystemUtil.createDirectory(outputUri, ExceptionMetadata.EMPTY_METADATA);
+        FileSystemUtil.createDirectory(batchesUri, ExceptionMetadata.EMPTY_METADATA);
+        FileSystemUtil.createDirectory(commitsUri, ExceptionMetadata.EMPTY_METADATA);
+        FileSystemUtil.createDirectory(emptyStateUri, ExceptionMetadata.EMPTY_METADATA);
+
+        Set<String> readFiles = new HashSet<>();
+        long lastBatchId = -1;
+        for (URI batchUri : FileSystemUtil.listFiles(batchesUri, ExceptionMetadata.EMPTY_METADATA)) {
+            readFiles.addAll(FileSystemUtil.readLines(batchUri, ExceptionMetadata.EMPTY_METADATA));
+            lastBatchId = Math.max(lastBatchId, Long.parseLong(new Path(batchUri).getName()));
+        }
+        if (
+            lastBatchId != -1
+                && !FileSystemUtil.exists(getBatchUri(commitsUri, lastBatchId), ExceptionMetadata.EMPTY_METADATA)
+        ) {
+            runMicroBatch(
+                queryUri,
+                FileSystemUtil.readLines(getBatchUri(batchesUri, lastBatchId), ExceptionMetadata.EMPTY_METADATA),
+                lastBatchId,
+                outputUri,
+                emptyStateUri
+            );
+            FileSystemUtil.write(
+                getBatchUri(commitsUri, lastBatchId),
+                Collections.emptyList(),
+                ExceptionMetadata.EMPTY_METADATA
+            );
+        }
+
+        while (true) {
+            long startTime = System.currentTimeMillis();
+            List<String> newFiles = new ArrayList<>();
+            for (URI file : FileSystemUtil.listFiles(inputUri, ExceptionMetadata.EMPTY_METADATA)) {
+                if (!readFiles.contains(file.toString())) {
+                    newFiles.add(file.toString());
+                }
+            }
+            if (!newFiles.isEmpty()) {
+                long batchId = ++lastBatchId;
+                FileSystemUtil.write(getBatchUri(batchesUri, batchId), newFiles, ExceptionMetadata.EMPTY_METADATA);
+                runMicroBatch(queryUri, newFiles, batchId, outputUri, emptyStateUri);
+                FileSystemUtil.write(
+                    getBatchUri(commitsUri, batchId),
+                    Collections.emptyList(),
+                    ExceptionMetadata.EMPTY_METADATA
+                );
+                readFiles.addAll(newFiles);
+            }
+            if (interval == -1) {
+                return;
+            }
+            try {
+                Thread.sleep(Math.max(0, startTime + interval - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void runMicroBatch(URI queryUri, List<String> files, long batchId, URI outputUri, URI emptyStateUri)
+            throws IOException {
+        URI batchOutputUri = getBatchUri(outputUri, batchId);
+        if (FileSystemUtil.exists(batchOutputUri, ExceptionMetadata.EMPTY_METADATA)) {
+            // the micro-batch did not complete before the query stopped
+            FileSystemUtil.delete(batchOutputUri, ExceptionMetadata.EMPTY_METADATA);
+        }
+        URI stateUri = getBatchUri(outputUri, batchId - 1);
+        if (batchId == 0 || !FileSystemUtil.exists(stateUri, ExceptionMetadata.EMPTY_METADATA)) {
+            stateUri = emptyStateUri;
+        }
+        this.configuration.setExternalVariableValue(
+            Name.createVariableInNoNamespace("input"),
+            String.join(",", files)
+        );
+        this.configuration.setExternalVariableValue(Name.createVariableInNoNamespace("state"), stateUri.toString());
+
+        Functions.clearUserDefinedFunctions();
+        MainModule mainModule = VisitorHelpers.parseMainModuleFromLocation(queryUri, this.configuration);
+        DynamicContext dynamicContext = VisitorHelpers.createDynamicContext(mainModule, this.configuration);
+        RuntimeIterator result = VisitorHelpers.generateRuntimeIterator(mainModule);
+        try {
+            FileSystemUtil.createDirectory(batchOutputUri, ExceptionMetadata.EMPTY_METADATA);
+            if (result.isRDD()) {
+                // each partition is written to its own file, like with saveAsTextFile
+                URI temporaryUri = new Path(new Path(batchOutputUri), "_temporary").toUri();
+                FileSystemUtil.createDirectory(temporaryUri, ExceptionMetadata.EMPTY_METADATA);
+                result.getRDD(dynamicContext).foreachPartition(items -> writePartition(items, batchOutputUri));
+                // the files of the attempts that failed or lost
+                FileSystemUtil.delete(temporaryUri, ExceptionMetadata.EMPTY_METADATA);
+            } else {
+                writeLocalOutput(result, dynamicContext, getPartUri(batchOutputUri, 0));
+            }
+        } finally {
+            dynamicContext.unpersistQueryResults();
+        }
+    }
+
+    private static URI getPartUri(URI directoryUri, int partition) {
+        return new Path(new Path(directoryUri), String.format("part-%05d", partition)).toUri();
+    }
+
+    /**
+     * Writes a partition of the output of a micro-batch to a file of its own task attempt, which is then renamed to
+     * the part file of the partition, so that a retried or speculative attempt never writes to a part file. The
+     * first attempt to complete is kept.
+     */
+    private static void writePartition(Iterator<Item> items, URI directoryUri) throws IOException {
+        TaskContext taskContext = TaskContext.get();
+        URI partUri = getPartUri(directoryUri, taskContext.partitionId());
+        URI attemptUri = new Path(
+                new Path(new Path(directoryUri), "_temporary"),
+                new Path(partUri).getName() + "-" + taskContext.taskAttemptId()
+        ).toUri();
+        writeItems(items, attemptUri);
+        if (!FileSystemUtil.rename(attemptUri, partUri, ExceptionMetadata.EMPTY_METADATA)) {
+            FileSystemUtil.delete(attemptUri, ExceptionMetadata.EMPTY_METADATA);
+        }
+    }
+
+    /**
+     * Writes items to the output file one at a time, without building a string for each of them.
+     */
+    private static void writeItems(Iterator<Item> items, URI outputUri) throws IOException {
+        try (
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(
+                            FileSystemUtil.getDataOutputStream(outputUri, ExceptionMetadata.EMPTY_METADATA),
+                            StandardCharsets.UTF_8
+                    )
+            )
+        ) {
+            while (items.hasNext()) {
+                items.next().serialize(writer);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static URI getBatchUri(URI directoryUri, long batchId) {
+        return new Path(new Path(directoryUri), Long.toString(batchId)).toUri();
+    }
+
+    /**
+     * Prints the items to the standard output, one per line, without building a string for all of them.
+     */
+    private static void printOutput(List<Item> items) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+        String separator = "";
+        for (Item item : items) {
+            writer.write(separator);
+            separator = "\n";
+            item.serialize(writer);
+        }
+        writer.write('\n');
+        // the standard output is not closed
+        writer.flush();
+    }
+
+    /**
+     * Writes a local result to the output file one item at a time, without materializing it.
+     */
+    private void writeLocalOutput(RuntimeIterator result, DynamicContext dynamicContext, URI outputUri)
+            throws IOException {
+        try (
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(
+                            FileSystemUtil.getDataOutputStream(outputUri, ExceptionMetadata.EMPTY_METADATA),
+                            StandardCharsets.UTF_8
+                    )
+            )
+        ) {
+            result.open(dynamicContext);
+            try {
+                while (result.hasNext()) {
+                    result.next().serialize(writer);
+                    writer.write('\n');
+                }
+            } finally {
+                result.close();
+            }
+        }
+    }
+
+    /**
+     * @return the result as a DataFrame. A DataFrame result is taken as is, and the schema of other results is taken
+     *         from --output-schema or inferred from the objects.
+     */
+    private Dataset<Row> getOutputDataFrame(RuntimeIterator result, DynamicContext dynamicContext) {
+        ObjectItem schemaItem = null;
+        String schema = this.configuration.getOutputSchema();
+        if (schema != null) {
+            Item item = ItemParser.getItemFromObject(JsonIterator.parse(schema), ExceptionMetadata.EMPTY_METADATA);
+            if (!item.isObject()) {
+                throw new CliException("The output schema must be an object: " + schema);
+            }
+            schemaItem = (ObjectItem) item;
+        }
+        if (result.isDataFrame()) {
+            Dataset<Row> dataFrame = result.getDataFrame(dynamicContext);
+            if (schemaItem != null) {
+                DataFrameUtils.validateSchemaItemAgainstDataFrame(schemaItem, dataFrame.schema());
+            }
+            return dataFrame;
+        }
+        if (result.isRDD()) {
+            JavaRDD<Item> rdd = result.getRDD(dynamicContext);
+            if (schemaItem != null) {
+                return DataFrameUtils.convertItemRDDToDataFrame(rdd, schemaItem);
+            }
+            return DataFrameUtils.convertItemRDDToDataFrameWithInferredSchema(rdd);
+        }
+        List<Item> items = result.materialize(dynamicContext);
+        if (schemaItem != null) {
+            return DataFrameUtils.convertLocalItemsToDataFrame(items, schemaItem);
+        }
+        return DataFrameUtils.convertLocalItemsToDataFrameWithInferredSchema(items);
+    }
+
+    private void writeDataFrame(Dataset<Row> dataFrame, String outputPath) {
+        String outputFormat = this.configuration.getOutputFormat();
+        if (outputFormat.equals("csv")) {
+            // CSV only has atomic values, so arrays and objects are written as JSON
+            for (StructField field : dataFrame.schema().fields()) {
+                DataType type = field.dataType();
+                if (type instanceof ArrayType || type instanceof StructType || type instanceof MapType) {
+                    dataFrame = dataFrame.withColumn(
+                        field.name(),
+                        functions.to_json(dataFrame.col("`" + field.name() + "`"))
+                    );
+                }
+            }
+        }
+        DataFrameWriter<Row> writer = dataFrame.write().format(outputFormat);
+        if (outputFormat.equals("csv")) {
+            writer = writer.option("header", true);
+        }
+        try {
+            writer.save(outputPath);
+        } catch (Exception e) {
+            if (e instanceof AnalysisException) {
+                throw new CliException(
+                        "The output cannot be written in the " + outputFormat + " format: " + e.getMessage()
+                );
+            }
+            throw e;
+        }
+    }
+
     public long runInteractive(String query, List<Item> resultList) throws IOException {
         // create temp file
         Functions.clearUserDefinedFunctions();
         MainModule mainModule = VisitorHelpers.parseMainModuleFromQuery(query, this.configuration);
         DynamicContext dynamicContext = VisitorHelpers.createDynamicContext(mainModule, this.configuration);
         RuntimeIterator runtimeIterator = VisitorHelpers.generateRuntimeIterator(mainModule);
+        this.isResultApproximate = VisitorHelpers.readsSample(mainModule);
         // execute locally for simple expressions
         if (this.configuration.isPrintIteratorTree()) {
             StringBuffer sb = new StringBuffer();
             runtimeIterator.print(sb, 0);
             System.out.println(sb);
         }
-        if (!runtimeIterator.isRDD()) {
-            return this.getIteratorOutput(runtimeIterator, dynamicContext, resultList);
+        try {
+            if (!runtimeIterator.isRDD()) {
+                return this.getIteratorOutput(runtimeIterator, dynamicContext, resultList);
+            }
+            resultList.clear();
+            JavaRDD<Item> rdd = runtimeIterator.getRDD(dynamicContext);
+            return SparkSessionManager.collectRDDwithLimitWarningOnly(rdd, resultList);
+        } finally {
+            dynamicContext.unpersistQueryResults();
         }
-        resultList.clear();
-        JavaRDD<Item> rdd = runtimeIterator.getRDD(dynamicContext);
-        return SparkSessionManager.collectRDDwithLimitWarningOnly(rdd, resultList);
+    }
+
+    /**
+     * @return true if the last query run reads a sample of its input, so that its result is approximate.
+     */
+    public boolean isResultApproximate() {
+        return this.isResultApproximate;
     }
 
     private long getIteratorOutput(RuntimeIterator iterator, DynamicContext dynamicContext, List<Item> resultList) {
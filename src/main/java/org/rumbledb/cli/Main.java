@@ -129,7 +129,11 @@ public class Main {
 
     private static void runQueryExecutor(RumbleRuntimeConfiguration sparksoniqConf) throws IOException {
         JsoniqQueryExecutor translator = new JsoniqQueryExecutor(sparksoniqConf);
-        translator.runQuery();
+        if (sparksoniqConf.getStreamingInput() != null) {
+            translator.runStreamingQuery();
+        } else {
+            translator.runQuery();
+        }
     }
 
     private static void initializeApplication() {
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.compiler;
+
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.control.TypeSwitchExpression;
+import org.rumbledb.expressions.control.TypeswitchCase;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.GroupByClause;
+import org.rumbledb.expressions.flowr.GroupByVariableDeclaration;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.InlineFunctionExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+import org.rumbledb.expressions.quantifiers.QuantifiedExpression;
+import org.rumbledb.expressions.quantifiers.QuantifiedExpressionVar;
+import org.rumbledb.runtime.flwor.VariablePath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the non-grouping variables of a group by clause that the rest of its FLWOR expression only uses through
+ * paths of object lookups given as the first argument of sum(), avg(), min() or max(), such as sum($x.amount), so
+ * that the group by clause can aggregate these paths instead of gathering the items of each group.
+ *
+ * Variables are matched by name, as in FieldProjectionCollector. A variable is left out if it is used in any other
+ * way, including in the body of a function, or if a variable with the same name is bound after the group by
+ * clause.
+ */
+public class AggregatedPathCollector {
+
+    private static final Map<Name, DynamicContext.VariableDependency> aggregateFunctions = new HashMap<>();
+
+    static {
+        aggregateFunctions.put(Name.createVariableInRumbleNamespace("sum"), DynamicContext.VariableDependency.SUM);
+        aggregateFunctions.put(Name.createVariableInRumbleNamespace("avg"), DynamicContext.VariableDependency.AVG);
+        aggregateFunctions.put(Name.createVariableInRumbleNamespace("min"), DynamicContext.VariableDependency.MIN);
+        aggregateFunctions.put(Name.createVariableInRumbleNamespace("max"), DynamicContext.VariableDependency.MAX);
+    }
+
+    private Set<Name> aggregatedVariables;
+    private Set<Name> excludedVariables;
+    private boolean isInFunctionBody;
+
+    private AggregatedPathCollector() {
+        this.aggregatedVariables = new HashSet<>();
+        this.excludedVariables = new HashSet<>();
+        this.isInFunctionBody = false;
+    }
+
+    /**
+     * @param groupByClause a group by clause.
+     * @return the non-grouping variables that are only used through aggregates of paths.
+     */
+    public static Set<Name> getAggregatedVariables(GroupByClause groupByClause) {
+        AggregatedPathCollector collector = new AggregatedPathCollector();
+        for (GroupByVariableDeclaration variable : groupByClause.getGroupVariables()) {
+            collector.excludedVariables.add(variable.getVariableName());
+        }
+        collector.collectFromClauses(groupByClause.getNextClause());
+        collector.aggregatedVariables.removeAll(collector.excludedVariables);
+        return collector.aggregatedVariables;
+    }
+
+    /**
+     * @param functionCall a function call.
+     * @return the aggregate of the function if it is sum(), avg(), min() or max(), or null.
+     */
+    public static DynamicContext.VariableDependency getAggregate(FunctionCallExpression functionCall) {
+        if (functionCall.getArguments().isEmpty() || functionCall.getArguments().get(0) == null) {
+            return null;
+        }
+        return aggregateFunctions.get(functionCall.getFunctionName());
+    }
+
+    /**
+     * @return the path of one or more object lookups with literal keys on a variable, or null.
+     */
+    public static VariablePath getPath(Expression expression) {
+        List<String> keys = new ArrayList<>();
+        while (
+            expression instanceof ObjectLookupExpression
+                && ((ObjectLookupExpression) expression).getLookupExpression() instanceof StringLiteralExpression
+        ) {
+            ObjectLookupExpression lookup = (ObjectLookupExpression) expression;
+            keys.add(((StringLiteralExpression) lookup.getLookupExpression()).getValue());
+            expression = lookup.getMainExpression();
+        }
+        if (keys.isEmpty() || !(expression instanceof VariableReferenceExpression)) {
+            return null;
+        }
+        Collections.reverse(keys);
+        return new VariablePath(((VariableReferenceExpression) expression).getVariableName(), keys);
+    }
+
+    private void collectFromClauses(Clause clause) {
+        for (; clause != null; clause = clause.getNextClause()) {
+            if (clause instanceof ForClause) {
+                this.excludedVariables.add(((ForClause) clause).getVariableName());
+                this.excludedVariables.add(((ForClause) clause).getPositionalVariableName());
+            } else if (clause instanceof LetClause) {
+                this.excludedVariables.add(((LetClause) clause).getVariableName());
+            } else if (clause instanceof GroupByClause) {
+                for (GroupByVariableDeclaration variable : ((GroupByClause) clause).getGroupVariables()) {
+                    this.excludedVariables.add(variable.getVariableName());
+                }
+            }
+            for (Node child : clause.getChildren()) {
+                collect(child);
+            }
+        }
+    }
+
+    private void collect(Node node) {
+        if (node == null) {
+            return;
+        }
+        if (node instanceof FunctionCallExpression && !this.isInFunctionBody) {
+            FunctionCallExpression functionCall = (FunctionCallExpression) node;
+            List<Expression> arguments = functionCall.getArguments();
+            VariablePath path = getAggregate(functionCall) == null ? null : getPath(arguments.get(0));
+            if (path != null) {
+                this.aggregatedVariables.add(path.getVariableName());
+                for (int i = 1; i < arguments.size(); i++) {
+                    collect(arguments.get(i));
+                }
+                return;
+            }
+        }
+        if (node instanceof VariableReferenceExpression) {
+            this.excludedVariables.add(((VariableReferenceExpression) node).getVariableName());
+            return;
+        }
+        if (node instanceof FlworExpression) {
+            collectFromClauses(((FlworExpression) node).getReturnClause().getFirstClause());
+            return;
+        }
+        if (node instanceof InlineFunctionExpression) {
+            // paths are not aggregated in function bodies, which only see the variables bound by the query
+            boolean isInFunctionBody = this.isInFunctionBody;
+            this.isInFunctionBody = true;
+            this.excludedVariables.addAll(((InlineFunctionExpression) node).getParams().keySet());
+            collect(((InlineFunctionExpression) node).getBody());
+            this.isInFunctionBody = isInFunctionBody;
+            return;
+        }
+        if (node instanceof QuantifiedExpression) {
+            for (QuantifiedExpressionVar variable : ((QuantifiedExpression) node).getVariables()) {
+                this.excludedVariables.add(variable.getVariableName());
+            }
+        }
+        if (node instanceof TypeSwitchExpression) {
+            for (TypeswitchCase typeswitchCase : ((TypeSwitchExpression) node).getCases()) {
+                this.excludedVariables.add(typeswitchCase.getVariableName());
+            }
+            this.excludedVariables.add(((TypeSwitchExpression) node).getDefaultCase().getVariableName());
+        }
+        for (Node child : node.getChildren()) {
+            collect(child);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.CountClause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.flowr.OrderByClause;
+import org.rumbledb.expressions.flowr.ReturnClause;
+import org.rumbledb.expressions.primary.ArrayConstructorExpression;
+import org.rumbledb.expressions.primary.BooleanLiteralExpression;
+import org.rumbledb.expressions.primary.DecimalLiteralExpression;
+import org.rumbledb.expressions.primary.DoubleLiteralExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.IntegerLiteralExpression;
+import org.rumbledb.expressions.primary.NullLiteralExpression;
+import org.rumbledb.expressions.primary.ObjectConstructorExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+
+/**
+ * Finds the function call whose items the count function can count instead of the items of its argument, because
+ * the argument returns exactly one item for each of them, such as in count(json-file("file.json")) or in
+ * count(for $x in json-file("file.json") return { "id" : $x.id }).
+ *
+ * A FLWOR expression returns one item for each item of the expression of its first for clause if its other clauses
+ * are let, order by and count clauses, and if its return expression always returns one item: the for variable, a
+ * literal, an array constructor, or an object constructor with literal keys. The item returned is not created, so
+ * that an error that creating it would raise is not raised.
+ */
+public class CountedInputFinder {
+
+    /**
+     * @param expression the argument of the count function.
+     * @return the function call returning as many items, or null if there is none.
+     */
+    public static FunctionCallExpression getCountedInput(Expression expression) {
+        if (expression instanceof FunctionCallExpression) {
+            return (FunctionCallExpression) expression;
+        }
+        if (!(expression instanceof FlworExpression)) {
+            return null;
+        }
+        ReturnClause returnClause = ((FlworExpression) expression).getReturnClause();
+        Clause firstClause = returnClause.getFirstClause();
+        // with allowing empty, a tuple is kept even if there are no items
+        if (!(firstClause instanceof ForClause) || ((ForClause) firstClause).isAllowEmpty()) {
+            return null;
+        }
+        ForClause forClause = (ForClause) firstClause;
+        for (Clause clause = forClause.getNextClause(); clause != returnClause; clause = clause.getNextClause()) {
+            if (clause instanceof LetClause) {
+                if (bindsVariableAgain(((LetClause) clause).getVariableName(), forClause)) {
+                    return null;
+                }
+            } else if (clause instanceof CountClause) {
+                if (bindsVariableAgain(((CountClause) clause).getCountVariable().getVariableName(), forClause)) {
+                    return null;
+                }
+            } else if (!(clause instanceof OrderByClause)) {
+                return null;
+            }
+        }
+        if (!returnsOneItem(returnClause.getReturnExpr(), forClause)) {
+            return null;
+        }
+        return getCountedInput(forClause.getExpression());
+    }
+
+    private static boolean bindsVariableAgain(Name variableName, ForClause forClause) {
+        return variableName.equals(forClause.getVariableName())
+            || variableName.equals(forClause.getPositionalVariableName());
+    }
+
+    private static boolean returnsOneItem(Expression expression, ForClause forClause) {
+        if (expression instanceof VariableReferenceExpression) {
+            Name variableName = ((VariableReferenceExpression) expression).getVariableName();
+            return variableName.equals(forClause.getVariableName())
+                || variableName.equals(forClause.getPositionalVariableName());
+        }
+        if (expression instanceof ObjectConstructorExpression) {
+            ObjectConstructorExpression objectConstructor = (ObjectConstructorExpression) expression;
+            if (objectConstructor.isMergedConstructor()) {
+                return false;
+            }
+            for (Expression key : objectConstructor.getKeys()) {
+                if (!(key instanceof StringLiteralExpression)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return expression instanceof ArrayConstructorExpression
+            || expression instanceof StringLiteralExpression
+            || expression instanceof IntegerLiteralExpression
+            || expression instanceof DecimalLiteralExpression
+            || expression instanceof DoubleLiteralExpression
+            || expression instanceof BooleanLiteralExpression
+            || expression instanceof NullLiteralExpression;
+    }
+}
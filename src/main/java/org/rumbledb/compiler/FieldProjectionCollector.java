@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.GroupByClause;
+import org.rumbledb.expressions.flowr.GroupByVariableDeclaration;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.InlineFunctionExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+import org.rumbledb.items.parsing.FieldProjection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the paths of object fields accessed on the variable of a for clause in the rest of its FLWOR expression,
+ * such as $x.user.id or $x.ts, so that the input functions can omit the other fields.
+ *
+ * Variables are matched by name, so that a variable hiding the for variable only makes the projection larger. Any
+ * other use of the variable, including a lookup with a key that is not a literal, requires entire items.
+ */
+public class FieldProjectionCollector {
+
+    private Name variableName;
+    private FieldProjection projection;
+    private boolean requiresEntireItems;
+
+    private FieldProjectionCollector(Name variableName) {
+        this.variableName = variableName;
+        this.projection = new FieldProjection();
+        this.requiresEntireItems = false;
+    }
+
+    /**
+     * @param forClause a for clause.
+     * @return the fields accessed on the items bound to its variable, or null if entire items are needed.
+     */
+    public static FieldProjection getFieldProjection(ForClause forClause) {
+        FieldProjectionCollector collector = new FieldProjectionCollector(forClause.getVariableName());
+        collector.collectFromClauses(forClause.getNextClause());
+        if (collector.requiresEntireItems || collector.projection.isEmpty()) {
+            return null;
+        }
+        return collector.projection;
+    }
+
+    private void collectFromClauses(Clause clause) {
+        for (; clause != null && !this.requiresEntireItems; clause = clause.getNextClause()) {
+            if (clause instanceof GroupByClause) {
+                for (GroupByVariableDeclaration variable : ((GroupByClause) clause).getGroupVariables()) {
+                    // grouping on the variable itself uses its entire items
+                    if (variable.getExpression() == null && variable.getVariableName().equals(this.variableName)) {
+                        this.requiresEntireItems = true;
+                        return;
+                    }
+                }
+            }
+            for (Node child : clause.getChildren()) {
+                collect(child);
+            }
+        }
+    }
+
+    private void collect(Node node) {
+        if (node == null || this.requiresEntireItems) {
+            return;
+        }
+        if (node instanceof ObjectLookupExpression) {
+            List<String> path = new ArrayList<>();
+            Expression mainExpression = (Expression) node;
+            while (
+                mainExpression instanceof ObjectLookupExpression
+                    && ((ObjectLookupExpression) mainExpression)
+                        .getLookupExpression() instanceof StringLiteralExpression
+            ) {
+                ObjectLookupExpression lookup = (ObjectLookupExpression) mainExpression;
+                path.add(((StringLiteralExpression) lookup.getLookupExpression()).getValue());
+                mainExpression = lookup.getMainExpression();
+            }
+            if (!path.isEmpty() && isVariableReference(mainExpression)) {
+                Collections.reverse(path);
+                this.projection.addPath(path);
+                return;
+            }
+        }
+        if (isVariableReference(node)) {
+            this.requiresEntireItems = true;
+            return;
+        }
+        if (node instanceof FlworExpression) {
+            collectFromClauses(((FlworExpression) node).getReturnClause().getFirstClause());
+            return;
+        }
+        if (node instanceof InlineFunctionExpression) {
+            collect(((InlineFunctionExpression) node).getBody());
+            return;
+        }
+        for (Node child : node.getChildren()) {
+            collect(child);
+        }
+    }
+
+    private boolean isVariableReference(Node node) {
+        return node instanceof VariableReferenceExpression
+            && ((VariableReferenceExpression) node).getVariableName().equals(this.variableName);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.flowr.WhereClause;
+import org.rumbledb.expressions.logic.AndExpression;
+import org.rumbledb.expressions.logic.OrExpression;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.IntegerLiteralExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.runtime.functions.input.PartitionFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the comparisons of fields of the variable of a for clause with literals, such as $x.date eq "2020-06-01",
+ * in the where clauses that directly follow it, so that partitioned inputs can skip the directories of the
+ * partitions that these where clauses exclude.
+ *
+ * Where clauses are considered until a clause that is not a for, let or where clause, or that binds the variable
+ * again. Parts of a where clause that are not such comparisons, or combinations of them, are left unknown.
+ */
+public class PartitionFilterCollector {
+
+    private Name variableName;
+
+    private PartitionFilterCollector(Name variableName) {
+        this.variableName = variableName;
+    }
+
+    /**
+     * @param forClause a for clause.
+     * @return the condition that its where clauses impose on the partitions, or null if there is none.
+     */
+    public static PartitionFilter getPartitionFilter(ForClause forClause) {
+        // skipping items would change the positions, or the tuple kept when there are no items
+        if (forClause.getPositionalVariableName() != null || forClause.isAllowEmpty()) {
+            return null;
+        }
+        PartitionFilterCollector collector = new PartitionFilterCollector(forClause.getVariableName());
+        List<PartitionFilter> filters = new ArrayList<>();
+        for (Clause clause = forClause.getNextClause(); clause != null; clause = clause.getNextClause()) {
+            if (clause instanceof WhereClause) {
+                PartitionFilter filter = collector.getFilter(((WhereClause) clause).getWhereExpression());
+                if (filter != null) {
+                    filters.add(filter);
+                }
+            } else if (clause instanceof ForClause) {
+                ForClause nextForClause = (ForClause) clause;
+                if (
+                    collector.variableName.equals(nextForClause.getVariableName())
+                        || collector.variableName.equals(nextForClause.getPositionalVariableName())
+                ) {
+                    break;
+                }
+            } else if (clause instanceof LetClause) {
+                if (collector.variableName.equals(((LetClause) clause).getVariableName())) {
+                    break;
+                }
+            } else {
+                break;
+            }
+        }
+        if (filters.isEmpty()) {
+            return null;
+        }
+        return filters.size() == 1 ? filters.get(0) : PartitionFilter.and(filters);
+    }
+
+    private PartitionFilter getFilter(Expression expression) {
+        if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            List<PartitionFilter> filters = new ArrayList<>();
+            for (Node child : expression.getChildren()) {
+                PartitionFilter filter = getFilter((Expression) child);
+                if (filter != null) {
+                    filters.add(filter);
+                } else if (expression instanceof OrExpression) {
+                    return null;
+                }
+            }
+            if (filters.isEmpty()) {
+                return null;
+            }
+            if (filters.size() == 1) {
+                return filters.get(0);
+            }
+            return expression instanceof AndExpression ? PartitionFilter.and(filters) : PartitionFilter.or(filters);
+        }
+        if (expression instanceof ComparisonExpression) {
+            ComparisonExpression comparison = (ComparisonExpression) expression;
+            Expression left = (Expression) comparison.getChildren().get(0);
+            Expression right = (Expression) comparison.getChildren().get(1);
+            String key = getLookupKey(left);
+            Item literal = getLiteral(right);
+            if (key != null && literal != null) {
+                return PartitionFilter.comparison(key, comparison.getComparisonOperator(), literal, true);
+            }
+            key = getLookupKey(right);
+            literal = getLiteral(left);
+            if (key != null && literal != null) {
+                return PartitionFilter.comparison(key, comparison.getComparisonOperator(), literal, false);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the key looked up, if the expression is a lookup of a literal key on the variable, or null.
+     */
+    private String getLookupKey(Expression expression) {
+        if (!(expression instanceof ObjectLookupExpression)) {
+            return null;
+        }
+        ObjectLookupExpression lookup = (ObjectLookupExpression) expression;
+        if (
+            !(lookup.getLookupExpression() instanceof StringLiteralExpression)
+                || !(lookup.getMainExpression() instanceof VariableReferenceExpression)
+                || !((VariableReferenceExpression) lookup.getMainExpression()).getVariableName()
+                    .equals(this.variableName)
+        ) {
+            return null;
+        }
+        return ((StringLiteralExpression) lookup.getLookupExpression()).getValue();
+    }
+
+    private Item getLiteral(Expression expression) {
+        if (expression instanceof StringLiteralExpression) {
+            return ItemFactory.getInstance().createStringItem(((StringLiteralExpression) expression).getValue());
+        }
+        if (expression instanceof IntegerLiteralExpression) {
+            return ItemFactory.getInstance().createIntegerItem(((IntegerLiteralExpression) expression).getValue());
+        }
+        return null;
+    }
+}
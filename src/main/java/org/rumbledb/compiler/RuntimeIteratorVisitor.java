@@ -81,6 +81,7 @@ import org.rumbledb.expressions.primary.StringLiteralExpression;
 import org.rumbledb.expressions.primary.VariableReferenceExpression;
 import org.rumbledb.expressions.quantifiers.QuantifiedExpression;
 import org.rumbledb.items.FunctionItem;
+import org.rumbledb.items.parsing.FieldProjection;
 import org.rumbledb.runtime.CommaExpressionIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
@@ -91,6 +92,7 @@ import org.rumbledb.runtime.control.TypeswitchRuntimeIteratorCase;
 import org.rumbledb.runtime.control.TryCatchRuntimeIterator;
 import org.rumbledb.runtime.flwor.clauses.CountClauseSparkIterator;
 import org.rumbledb.runtime.flwor.clauses.ForClauseSparkIterator;
+import org.rumbledb.runtime.flwor.VariablePath;
 import org.rumbledb.runtime.flwor.clauses.GroupByClauseSparkIterator;
 import org.rumbledb.runtime.flwor.clauses.LetClauseSparkIterator;
 import org.rumbledb.runtime.flwor.clauses.OrderByClauseSparkIterator;
@@ -105,6 +107,11 @@ import org.rumbledb.runtime.functions.StaticUserDefinedFunctionCallIterator;
 import org.rumbledb.runtime.functions.base.BuiltinFunctionCatalogue;
 import org.rumbledb.runtime.functions.base.FunctionIdentifier;
 import org.rumbledb.runtime.functions.base.Functions;
+import org.rumbledb.runtime.functions.input.CountableInputIterator;
+import org.rumbledb.runtime.functions.input.PartitionFilter;
+import org.rumbledb.runtime.functions.input.PartitionedInputIterator;
+import org.rumbledb.runtime.functions.input.ProjectableInputIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.CountFunctionIterator;
 import org.rumbledb.runtime.operational.AdditiveOperationIterator;
 import org.rumbledb.runtime.operational.AndOperationIterator;
 import org.rumbledb.runtime.typing.CastIterator;
@@ -116,6 +123,7 @@ import org.rumbledb.runtime.operational.NotOperationIterator;
 import org.rumbledb.runtime.operational.OrOperationIterator;
 import org.rumbledb.runtime.operational.RangeOperationIterator;
 import org.rumbledb.runtime.operational.StringConcatIterator;
+import org.rumbledb.runtime.operational.TypePromotionIterator;
 import org.rumbledb.runtime.typing.TreatIterator;
 import org.rumbledb.runtime.operational.UnaryOperationIterator;
 import org.rumbledb.runtime.postfix.ArrayLookupIterator;
@@ -136,18 +144,27 @@ import org.rumbledb.runtime.quantifiers.QuantifiedExpressionIterator;
 import org.rumbledb.runtime.quantifiers.QuantifiedExpressionVarIterator;
 import org.rumbledb.types.SequenceType;
 
+import sparksoniq.jsoniq.ExecutionMode;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator> {
 
     private VisitorConfig visitorConfig;
+    // the group by clause aggregating paths on the variables that the visited expressions use only through them
+    private GroupByClauseSparkIterator aggregatingGroupByClause;
+    private Set<Name> aggregatedVariables;
 
     public RuntimeIteratorVisitor() {
         this.visitorConfig = VisitorConfig.runtimeIteratorVisitorConfig;
+        this.aggregatingGroupByClause = null;
+        this.aggregatedVariables = Collections.emptySet();
     }
 
     @Override
@@ -198,6 +215,8 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
     // region FLOWR
     @Override
     public RuntimeIterator visitFlowrExpression(FlworExpression expression, RuntimeIterator argument) {
+        GroupByClauseSparkIterator outerAggregatingGroupByClause = this.aggregatingGroupByClause;
+        Set<Name> outerAggregatedVariables = this.aggregatedVariables;
         RuntimeTupleIterator previous = this.visitFlowrClause(
             expression.getReturnClause().getPreviousClause(),
             argument
@@ -212,9 +231,93 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
                 expression.getReturnClause().getMetadata()
         );
         runtimeIterator.setStaticContext(expression.getStaticContext());
+        this.aggregatingGroupByClause = outerAggregatingGroupByClause;
+        this.aggregatedVariables = outerAggregatedVariables;
         return runtimeIterator;
     }
 
+    /**
+     * Lets an input function iterated over by a for clause omit the fields that the FLWOR expression does not access.
+     */
+    private static void pushDownFieldProjection(ForClause forClause, RuntimeIterator assignmentIterator) {
+        RuntimeIterator inputIterator = getInputIterator(assignmentIterator);
+        if (!(inputIterator instanceof ProjectableInputIterator)) {
+            return;
+        }
+        FieldProjection projection = FieldProjectionCollector.getFieldProjection(forClause);
+        if (projection != null) {
+            ((ProjectableInputIterator) inputIterator).setFieldProjection(projection);
+        }
+    }
+
+    /**
+     * Lets a partitioned input iterated over by a for clause skip the partitions that the where clauses exclude.
+     */
+    private static void pushDownPartitionFilter(ForClause forClause, RuntimeIterator assignmentIterator) {
+        RuntimeIterator inputIterator = getInputIterator(assignmentIterator);
+        if (!(inputIterator instanceof PartitionedInputIterator)) {
+            return;
+        }
+        PartitionFilter filter = PartitionFilterCollector.getPartitionFilter(forClause);
+        if (filter != null) {
+            ((PartitionedInputIterator) inputIterator).setPartitionFilter(filter);
+        }
+    }
+
+    /**
+     * Determines whether the order of the tuples of a clause is irrelevant, i.e., whether a later order by clause
+     * sorts them again or a later group by clause groups them, with no count clause in between.
+     */
+    private static boolean isTupleOrderIrrelevant(Clause clause) {
+        for (Clause next = clause.getNextClause(); next != null; next = next.getNextClause()) {
+            if (next instanceof OrderByClause) {
+                // a stable order by clause keeps the order of the tuples with equal keys
+                return !((OrderByClause) next).isStable();
+            }
+            if (next instanceof GroupByClause) {
+                return true;
+            }
+            if (next instanceof CountClause) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lets a count clause number the tuples with the item counts of an input function, instead of counting the tuples
+     * first, if it directly follows the first for clause iterating over it, possibly with let clauses in between, so
+     * that there is exactly one tuple for each item.
+     */
+    private void pushDownCountedInput(
+            CountClauseSparkIterator countClauseIterator,
+            CountClause countClause,
+            RuntimeIterator argument
+    ) {
+        Clause previousClause = countClause.getPreviousClause();
+        while (previousClause instanceof LetClause) {
+            previousClause = previousClause.getPreviousClause();
+        }
+        if (!(previousClause instanceof ForClause) || previousClause.getPreviousClause() != null) {
+            return;
+        }
+        ForClause forClause = (ForClause) previousClause;
+        if (forClause.isAllowEmpty() || forClause.getPositionalVariableName() != null) {
+            return;
+        }
+        RuntimeIterator inputIterator = this.visit(forClause.getExpression(), argument);
+        if (inputIterator instanceof CountableInputIterator) {
+            countClauseIterator.setCountedInput(inputIterator);
+        }
+    }
+
+    private static RuntimeIterator getInputIterator(RuntimeIterator assignmentIterator) {
+        if (assignmentIterator instanceof TypePromotionIterator) {
+            return assignmentIterator.getChildren().get(0);
+        }
+        return assignmentIterator;
+    }
+
     private RuntimeTupleIterator visitFlowrClause(
             Clause clause,
             RuntimeIterator argument
@@ -226,13 +329,17 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
         if (clause instanceof ForClause) {
             ForClause forClause = (ForClause) clause;
             RuntimeIterator assignmentIterator = this.visit(forClause.getExpression(), argument);
-            return new ForClauseSparkIterator(
+            pushDownFieldProjection(forClause, assignmentIterator);
+            pushDownPartitionFilter(forClause, assignmentIterator);
+            ForClauseSparkIterator forClauseIterator = new ForClauseSparkIterator(
                     previousIterator,
                     forClause.getVariableName(),
                     assignmentIterator,
                     forClause.getHighestExecutionMode(this.visitorConfig),
                     clause.getMetadata()
             );
+            forClauseIterator.setTupleOrderIrrelevant(isTupleOrderIrrelevant(forClause));
+            return forClauseIterator;
         } else if (clause instanceof LetClause) {
             LetClause letClause = (LetClause) clause;
             RuntimeIterator assignmentIterator = this.visit(letClause.getExpression(), argument);
@@ -262,12 +369,21 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
                     )
                 );
             }
-            return new GroupByClauseSparkIterator(
+            GroupByClauseSparkIterator groupByClauseIterator = new GroupByClauseSparkIterator(
                     previousIterator,
                     groupingExpressions,
                     clause.getHighestExecutionMode(this.visitorConfig),
                     clause.getMetadata()
             );
+            if (groupByClauseIterator.isDataFrame()) {
+                this.aggregatingGroupByClause = groupByClauseIterator;
+                this.aggregatedVariables = AggregatedPathCollector.getAggregatedVariables((GroupByClause) clause);
+                this.aggregatedVariables.retainAll(previousIterator.getVariablesBoundInCurrentFLWORExpression());
+            } else {
+                this.aggregatingGroupByClause = null;
+                this.aggregatedVariables = Collections.emptySet();
+            }
+            return groupByClauseIterator;
         } else if (clause instanceof OrderByClause) {
             List<OrderByClauseAnnotatedChildIterator> expressionsWithIterator = new ArrayList<>();
             for (OrderByClauseSortingKey orderExpr : ((OrderByClause) clause).getSortingKeys()) {
@@ -295,12 +411,14 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
                     clause.getMetadata()
             );
         } else if (clause instanceof CountClause) {
-            return new CountClauseSparkIterator(
+            CountClauseSparkIterator countClauseIterator = new CountClauseSparkIterator(
                     previousIterator,
                     this.visit(((CountClause) clause).getCountVariable(), argument),
                     clause.getHighestExecutionMode(this.visitorConfig),
                     clause.getMetadata()
             );
+            pushDownCountedInput(countClauseIterator, (CountClause) clause, argument);
+            return countClauseIterator;
         }
         throw new OurBadException("Clause unrecognized.");
     }
@@ -463,7 +581,14 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
             paramNameToSequenceTypes.put(paramEntry.getKey(), paramEntry.getValue());
         }
         SequenceType returnType = expression.getReturnType();
+        // function bodies do not see the variables bound to aggregated paths
+        GroupByClauseSparkIterator outerAggregatingGroupByClause = this.aggregatingGroupByClause;
+        Set<Name> outerAggregatedVariables = this.aggregatedVariables;
+        this.aggregatingGroupByClause = null;
+        this.aggregatedVariables = Collections.emptySet();
         RuntimeIterator bodyIterator = this.visit(expression.getBody(), argument);
+        this.aggregatingGroupByClause = outerAggregatingGroupByClause;
+        this.aggregatedVariables = outerAggregatedVariables;
         FunctionItem function = new FunctionItem(
                 expression.getName(),
                 paramNameToSequenceTypes,
@@ -486,6 +611,8 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
         for (Expression arg : expression.getArguments()) {
             if (arg == null) {
                 arguments.add(null);
+            } else if (arguments.isEmpty() && isAggregatedPath(expression)) {
+                arguments.add(visitAggregatedPath(expression));
             } else {
                 RuntimeIterator argumentIterator = this.visit(arg, argument);
                 arguments.add(argumentIterator);
@@ -512,9 +639,68 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
             );
         }
         runtimeIterator.setStaticContext(expression.getStaticContext());
+        if (getInputIterator(runtimeIterator) instanceof CountFunctionIterator) {
+            pushDownCount(
+                (CountFunctionIterator) getInputIterator(runtimeIterator),
+                expression,
+                arguments.get(0),
+                argument
+            );
+        }
         return runtimeIterator;
     }
 
+    private boolean isAggregatedPath(FunctionCallExpression expression) {
+        if (AggregatedPathCollector.getAggregate(expression) == null) {
+            return false;
+        }
+        VariablePath path = AggregatedPathCollector.getPath(expression.getArguments().get(0));
+        return path != null && this.aggregatedVariables.contains(path.getVariableName());
+    }
+
+    /**
+     * Lets the group by clause aggregate the path given to sum(), avg(), min() or max(), such as $x.amount, and
+     * references the variable it binds to the aggregate instead, on which the function returns the same result.
+     */
+    private RuntimeIterator visitAggregatedPath(FunctionCallExpression expression) {
+        Expression pathExpression = expression.getArguments().get(0);
+        Name aggregateVariableName = this.aggregatingGroupByClause.addAggregatedPath(
+            AggregatedPathCollector.getPath(pathExpression),
+            AggregatedPathCollector.getAggregate(expression)
+        );
+        RuntimeIterator runtimeIterator = new VariableReferenceIterator(
+                aggregateVariableName,
+                SequenceType.MOST_GENERAL_SEQUENCE_TYPE,
+                ExecutionMode.LOCAL,
+                pathExpression.getMetadata()
+        );
+        runtimeIterator.setStaticContext(pathExpression.getStaticContext());
+        return runtimeIterator;
+    }
+
+    /**
+     * Lets the count function count the items of an input function without creating them, if its argument returns
+     * one item for each of them.
+     */
+    private void pushDownCount(
+            CountFunctionIterator countIterator,
+            FunctionCallExpression countExpression,
+            RuntimeIterator argumentIterator,
+            RuntimeIterator argument
+    ) {
+        Expression argumentExpression = countExpression.getArguments().get(0);
+        FunctionCallExpression inputExpression = CountedInputFinder.getCountedInput(argumentExpression);
+        if (inputExpression == null) {
+            return;
+        }
+        RuntimeIterator inputIterator = getInputIterator(
+            inputExpression == argumentExpression ? argumentIterator : this.visit(inputExpression, argument)
+        );
+        if (inputIterator instanceof CountableInputIterator) {
+            countIterator.setCountedInput(inputIterator);
+        }
+    }
+
     @Override
     public RuntimeIterator visitNamedFunctionRef(
             NamedFunctionReferenceExpression expression,
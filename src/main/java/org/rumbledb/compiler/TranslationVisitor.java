@@ -55,6 +55,7 @@ import org.rumbledb.expressions.control.TypeSwitchExpression;
 import org.rumbledb.expressions.control.TypeswitchCase;
 import org.rumbledb.expressions.flowr.Clause;
 import org.rumbledb.expressions.flowr.CountClause;
+import org.rumbledb.expressions.flowr.FLWOR_CLAUSES;
 import org.rumbledb.expressions.flowr.FlworExpression;
 import org.rumbledb.expressions.flowr.GroupByVariableDeclaration;
 import org.rumbledb.expressions.flowr.ForClause;
@@ -391,6 +392,16 @@ public class TranslationVisitor extends org.rumbledb.parser.JsoniqBaseVisitor<No
         }
 
         Expression returnExpr = (Expression) this.visitExprSingle(ctx.return_expr);
+        if (returnExpr instanceof FlworExpression && isMergeableIntoPreviousClauses((FlworExpression) returnExpr)) {
+            // the clauses of the nested expression are evaluated once for all tuples rather than once per tuple,
+            // e.g., so that a for clause over a big sequence is joined with the tuples or broadcast against them
+            ReturnClause nestedReturnClause = ((FlworExpression) returnExpr).getReturnClause();
+            previousFLWORClause.chainWith(nestedReturnClause.getFirstClause());
+            return new FlworExpression(
+                    nestedReturnClause,
+                    createMetadataFromContext(ctx)
+            );
+        }
         ReturnClause returnClause = new ReturnClause(
                 returnExpr,
                 generateMetadata(ctx.getStop())
@@ -403,6 +414,31 @@ public class TranslationVisitor extends org.rumbledb.parser.JsoniqBaseVisitor<No
         );
     }
 
+    /**
+     * A FLWOR expression returned by a FLWOR expression is equivalent to its clauses following those of the outer
+     * expression, as long as it only has for, let and where clauses. Group by, order by and count clauses would apply
+     * to the tuples of all outer tuples instead of those of each outer tuple.
+     *
+     * @param expression the returned FLWOR expression.
+     * @return true if the clauses of the expression can follow the clauses of the outer expression.
+     */
+    private static boolean isMergeableIntoPreviousClauses(FlworExpression expression) {
+        for (
+                Clause clause = expression.getReturnClause().getFirstClause();
+                clause.getClauseType() != FLWOR_CLAUSES.RETURN;
+                clause = clause.getNextClause()
+        ) {
+            if (
+                clause.getClauseType() != FLWOR_CLAUSES.FOR
+                    && clause.getClauseType() != FLWOR_CLAUSES.LET
+                    && clause.getClauseType() != FLWOR_CLAUSES.WHERE
+            ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public Node visitForClause(JsoniqParser.ForClauseContext ctx) {
         ForClause clause = null;
@@ -1080,7 +1116,7 @@ public class TranslationVisitor extends org.rumbledb.parser.JsoniqBaseVisitor<No
         }
 
         Name name = parseName(ctx.fn_name, true);
-        int arity = ((IntegerLiteralExpression) literal).getValue();
+        int arity = ((IntegerLiteralExpression) literal).getValue().intValue();
         return new NamedFunctionReferenceExpression(
                 new FunctionIdentifier(name, arity),
                 createMetadataFromContext(ctx)
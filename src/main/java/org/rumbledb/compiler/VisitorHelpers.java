@@ -17,16 +17,21 @@ import org.rumbledb.exceptions.DuplicateFunctionIdentifierException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.exceptions.ParsingException;
+import org.rumbledb.expressions.Expression;
 import org.rumbledb.expressions.Node;
 import org.rumbledb.expressions.module.LibraryModule;
 import org.rumbledb.expressions.module.MainModule;
 import org.rumbledb.expressions.module.Module;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.ObjectConstructorExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
 import org.rumbledb.parser.JsoniqLexer;
 import org.rumbledb.parser.JsoniqParser;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.functions.base.FunctionIdentifier;
 import org.rumbledb.runtime.functions.base.Functions;
 import org.rumbledb.runtime.functions.input.FileSystemUtil;
+import org.rumbledb.runtime.functions.input.InputSample;
 
 import sparksoniq.jsoniq.ExecutionMode;
 
@@ -178,6 +183,47 @@ public class VisitorHelpers {
 
     }
 
+    /**
+     * @param node the root of an expression tree.
+     * @return true if an input function in the tree reads a sample of its input, so that the result is approximate.
+     */
+    public static boolean readsSample(Node node) {
+        if (node instanceof FunctionCallExpression && readsSample((FunctionCallExpression) node)) {
+            return true;
+        }
+        for (Node child : node.getChildren()) {
+            if (child != null && readsSample(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean readsSample(FunctionCallExpression functionCall) {
+        if (!InputSample.isSampledInputFunction(functionCall.getFunctionIdentifier())) {
+            return false;
+        }
+        // options given literally without a fraction or a size, such as a schema, read the whole input
+        List<Expression> arguments = functionCall.getArguments();
+        Expression options = arguments.get(arguments.size() - 1);
+        if (
+            !(options instanceof ObjectConstructorExpression)
+                || ((ObjectConstructorExpression) options).isMergedConstructor()
+        ) {
+            return true;
+        }
+        for (Expression key : ((ObjectConstructorExpression) options).getKeys()) {
+            if (!(key instanceof StringLiteralExpression)) {
+                return true;
+            }
+            String option = ((StringLiteralExpression) key).getValue();
+            if (option.equals("fraction") || option.equals("size")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static DynamicContext createDynamicContext(Node node, RumbleRuntimeConfiguration configuration) {
         DynamicContextVisitor visitor = new DynamicContextVisitor(configuration);
         return visitor.visit(node, null);
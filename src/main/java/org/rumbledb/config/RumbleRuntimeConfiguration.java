@@ -81,6 +81,63 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
         }
     }
 
+    /**
+     * @return the format of the output written to the output path: json for JSON lines, or parquet, avro or csv.
+     */
+    public String getOutputFormat() {
+        if (this.arguments.containsKey("output-format")) {
+            return this.arguments.get("output-format").toLowerCase();
+        } else {
+            return "json";
+        }
+    }
+
+    /**
+     * @return the schema of the output written in a typed format, in the syntax of annotate(), or null if the schema
+     *         is inferred.
+     */
+    public String getOutputSchema() {
+        if (this.arguments.containsKey("output-schema")) {
+            return this.arguments.get("output-schema");
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return the directory whose new files are read by a streaming query, or null if the query is not streaming.
+     */
+    public String getStreamingInput() {
+        if (this.arguments.containsKey("streaming-input")) {
+            return this.arguments.get("streaming-input");
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return the directory in which a streaming query records the files it has read, or null for the default.
+     */
+    public String getCheckpointLocation() {
+        if (this.arguments.containsKey("checkpoint-location")) {
+            return this.arguments.get("checkpoint-location");
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return once if a streaming query only reads the files that are new when it starts, or otherwise the interval
+     *         in seconds at which it looks for new files.
+     */
+    public String getStreamingTrigger() {
+        if (this.arguments.containsKey("streaming-trigger")) {
+            return this.arguments.get("streaming-trigger").toLowerCase();
+        } else {
+            return "60";
+        }
+    }
+
     public int getPort() {
         if (this.arguments.containsKey("port")) {
             return Integer.parseInt(this.arguments.get("port"));
@@ -129,6 +186,35 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
         }
     }
 
+    /**
+     * Files up to this size in bytes are read directly by the input functions rather than through a Spark job, which
+     * takes much longer to schedule than reading them. 0 disables reading files directly.
+     *
+     * @return the size threshold.
+     */
+    public long getLocalFileSizeThreshold() {
+        if (this.arguments.containsKey("local-file-threshold")) {
+            return Long.parseLong(this.arguments.get("local-file-threshold"));
+        } else {
+            return 1024 * 1024;
+        }
+    }
+
+    /**
+     * The schemas that Spark infers for structured-json-file() and csv-file() are cached in this directory, so that
+     * the files are not scanned again to infer them on later runs. "none" disables the cache.
+     *
+     * @return the location of the schema cache, or null if schemas are not cached.
+     */
+    public String getSchemaCacheLocation() {
+        if (this.arguments.containsKey("schema-cache")) {
+            String location = this.arguments.get("schema-cache");
+            return location.equals("none") ? null : location;
+        } else {
+            return System.getProperty("java.io.tmpdir") + "/rumble-schema-cache";
+        }
+    }
+
     public String getExternalVariableValue(Name name) {
         for (String s : this.arguments.keySet()) {
             if (s.equals("variable:" + name)) {
@@ -138,6 +224,20 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
         return null;
     }
 
+    public void setExternalVariableValue(Name name, String value) {
+        this.arguments.put("variable:" + name, value);
+    }
+
+    /**
+     * @param url a path passed to an input function.
+     * @return true if the path is the list of the new files of the current micro-batch of a streaming query, which
+     *         the external variable $input is bound to.
+     */
+    public boolean isStreamingBatchInput(String url) {
+        return getStreamingInput() != null
+            && url.equals(getExternalVariableValue(Name.createVariableInNoNamespace("input")));
+    }
+
     public boolean isShell() {
         if (this.arguments.containsKey("shell")) {
             return this.arguments.get("shell").equals("yes");
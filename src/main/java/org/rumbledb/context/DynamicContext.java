@@ -27,6 +27,7 @@ import com.esotericsoftware.kryo.io.Output;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.storage.StorageLevel;
 import org.rumbledb.api.Item;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.exceptions.ExceptionMetadata;
@@ -38,7 +39,6 @@ import sparksoniq.jsoniq.tuple.FlworTuple;
 import sparksoniq.spark.SparkSessionManager;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -54,6 +54,7 @@ public class DynamicContext implements Serializable, KryoSerializable {
     private Map<Name, Dataset<Row>> dataFrameVariableValues;
     private DynamicContext parent;
     private RumbleRuntimeConfiguration conf;
+    private transient List<JavaRDD<?>> persistedRDDs; // only in the context of the query
 
     public DynamicContext() {
         this.parent = null;
@@ -246,11 +247,10 @@ public class DynamicContext implements Serializable, KryoSerializable {
             return this.localVariableCounts.get(varName);
         }
         if (this.dataFrameVariableValues.containsKey(varName)) {
-            return ItemFactory.getInstance()
-                .createIntegerItem((int) this.dataFrameVariableValues.get(varName).count());
+            return ItemFactory.getInstance().createIntegerItem(this.dataFrameVariableValues.get(varName).count());
         }
         if (this.rddVariableValues.containsKey(varName)) {
-            return ItemFactory.getInstance().createIntegerItem((int) this.rddVariableValues.get(varName).count());
+            return ItemFactory.getInstance().createIntegerItem(this.rddVariableValues.get(varName).count());
         }
         if (this.localVariableValues.containsKey(varName)) {
             return ItemFactory.getInstance().createIntegerItem(this.localVariableValues.get(varName).size());
@@ -276,6 +276,42 @@ public class DynamicContext implements Serializable, KryoSerializable {
         this.dataFrameVariableValues.clear();
     }
 
+    /**
+     * Caches an intermediate result that is computed more than once until the query finishes. The RDD is registered
+     * with the context of the query, which all contexts descend from.
+     *
+     * @param rdd the RDD to cache.
+     */
+    public void persistUntilQueryFinishes(JavaRDD<?> rdd) {
+        if (this.parent != null) {
+            this.parent.persistUntilQueryFinishes(rdd);
+            return;
+        }
+        rdd.persist(StorageLevel.MEMORY_AND_DISK());
+        if (this.persistedRDDs == null) {
+            this.persistedRDDs = new ArrayList<>();
+        }
+        this.persistedRDDs.add(rdd);
+    }
+
+    /**
+     * Releases the intermediate results cached while the query of this context ran. Must be called once the query
+     * has finished.
+     */
+    public void unpersistQueryResults() {
+        if (this.parent != null) {
+            this.parent.unpersistQueryResults();
+            return;
+        }
+        if (this.persistedRDDs == null) {
+            return;
+        }
+        for (JavaRDD<?> rdd : this.persistedRDDs) {
+            rdd.unpersist(false);
+        }
+        this.persistedRDDs.clear();
+    }
+
     @Override
     public void write(Kryo kryo, Output output) {
         kryo.writeObject(output, this.parent);
@@ -305,14 +341,7 @@ public class DynamicContext implements Serializable, KryoSerializable {
 
     public void setPosition(long position) {
         List<Item> list = new ArrayList<>();
-        Item item;
-        if (position < Integer.MAX_VALUE) {
-            item = ItemFactory.getInstance().createIntegerItem((int) position);
-
-        } else {
-            item = ItemFactory.getInstance().createDecimalItem(new BigDecimal(position));
-        }
-        list.add(item);
+        list.add(ItemFactory.getInstance().createIntegerItem(position));
         this.localVariableValues.put(Name.CONTEXT_POSITION, list);
     }
 
@@ -328,13 +357,7 @@ public class DynamicContext implements Serializable, KryoSerializable {
 
     public void setLast(long last) {
         List<Item> list = new ArrayList<>();
-        Item item;
-        if (last < Integer.MAX_VALUE) {
-            item = ItemFactory.getInstance().createIntegerItem((int) last);
-        } else {
-            item = ItemFactory.getInstance().createDecimalItem(new BigDecimal(last));
-        }
-        list.add(item);
+        list.add(ItemFactory.getInstance().createIntegerItem(last));
         this.localVariableValues.put(Name.CONTEXT_COUNT, list);
     }
 
@@ -21,6 +21,7 @@
 package org.rumbledb.expressions.primary;
 
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,14 +32,14 @@ import org.rumbledb.expressions.Node;
 
 public class IntegerLiteralExpression extends Expression {
 
-    private int value;
+    private BigInteger value;
 
-    public IntegerLiteralExpression(int value, ExceptionMetadata metadata) {
+    public IntegerLiteralExpression(BigInteger value, ExceptionMetadata metadata) {
         super(metadata);
         this.value = value;
     }
 
-    public int getValue() {
+    public BigInteger getValue() {
         return this.value;
     }
 
@@ -23,9 +23,9 @@ package org.rumbledb.items;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import org.apache.commons.text.StringEscapeUtils;
 import org.rumbledb.api.Item;
 import org.rumbledb.types.ItemType;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -81,25 +81,25 @@ public class ArrayItem extends JsonItem {
 
     @Override
     public String serialize() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("[");
+        return serializeWithStringBuilder();
+    }
+
+    @Override
+    public void serialize(Appendable sink) throws IOException {
+        sink.append("[");
 
         String separator = " ";
         for (Item item : this.arrayItems) {
-            sb.append(separator);
+            sink.append(separator);
             separator = ", ";
-            boolean isStringValue = item.isString();
-            if (isStringValue) {
-                sb.append("\"");
-                sb.append(StringEscapeUtils.escapeJson(item.serialize()));
-                sb.append("\"");
+            if (item.isString()) {
+                serializeJSONString(item.serialize(), sink);
             } else {
-                sb.append(item.serialize());
+                item.serialize(sink);
             }
         }
 
-        sb.append(" ]");
-        return sb.toString();
+        sink.append(" ]");
     }
 
     @Override
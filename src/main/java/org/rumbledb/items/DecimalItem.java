@@ -101,7 +101,7 @@ public class DecimalItem extends AtomicItem {
             return this;
         }
         if (itemType.equals(ItemType.integerItem)) {
-            return ItemFactory.getInstance().createIntegerItem(this.castToIntegerValue());
+            return ItemFactory.getInstance().createIntegerItem(this.getDecimalValue().toBigInteger());
         }
         if (itemType.equals(ItemType.stringItem)) {
             return ItemFactory.getInstance().createStringItem(String.valueOf(this.getDecimalValue()));
@@ -140,10 +140,7 @@ public class DecimalItem extends AtomicItem {
     }
 
     public int hashCode() {
-        if (getDecimalValue().stripTrailingZeros().scale() == 0) {
-            return getDecimalValue().intValue();
-        }
-        return getDecimalValue().hashCode();
+        return DoubleItem.hashCode(getDecimalValue().doubleValue());
     }
 
     @Override
@@ -225,7 +222,7 @@ public class DecimalItem extends AtomicItem {
     public Item idivide(Item other) {
         return ItemFactory.getInstance()
             .createIntegerItem(
-                this.getDecimalValue().divideToIntegralValue(other.castToDecimalValue()).intValueExact()
+                this.getDecimalValue().divideToIntegralValue(other.castToDecimalValue()).toBigIntegerExact()
             );
     }
 
@@ -35,6 +35,8 @@ import java.math.BigDecimal;
 public class DoubleItem extends AtomicItem {
 
     private static final long serialVersionUID = 1L;
+    // 2^53, above which doubles do not represent all integers
+    private static final double maximumExactInteger = 9007199254740992d;
     private double value;
 
     public DoubleItem() {
@@ -97,7 +99,7 @@ public class DoubleItem extends AtomicItem {
             return ItemFactory.getInstance().createDecimalItem(this.castToDecimalValue());
         }
         if (itemType.equals(ItemType.integerItem)) {
-            return ItemFactory.getInstance().createIntegerItem(this.castToIntegerValue());
+            return ItemFactory.getInstance().createIntegerItem(this.castToDecimalValue().toBigInteger());
         }
         if (itemType.equals(ItemType.stringItem)) {
             return ItemFactory.getInstance().createStringItem(String.valueOf(this.getDoubleValue()));
@@ -112,7 +114,7 @@ public class DoubleItem extends AtomicItem {
         } else if (itemType.equals(ItemType.decimalItem)) {
             return !Double.isInfinite(this.getValue());
         } else if (itemType.equals(ItemType.integerItem)) {
-            return !(Integer.MAX_VALUE < this.getValue()) && !(Integer.MIN_VALUE > this.getValue());
+            return !Double.isNaN(this.getValue()) && !Double.isInfinite(this.getValue());
         }
         return true;
     }
@@ -146,7 +148,22 @@ public class DoubleItem extends AtomicItem {
     }
 
     public int hashCode() {
-        return (int) Math.round(getDoubleValue());
+        return hashCode(getDoubleValue());
+    }
+
+    /**
+     * Numbers are hashed by their value as a double, so that integers, decimals and doubles that are equal have the
+     * same hash code. Integral values that doubles represent exactly are hashed like ints.
+     *
+     * @param value the number as a double.
+     * @return the hash code of the number.
+     */
+    static int hashCode(double value) {
+        // this also hashes -0.0 like 0.0, as the decimal 0 is equal to both
+        if (Math.abs(value) <= maximumExactInteger && value == Math.rint(value)) {
+            return (int) (long) value;
+        }
+        return Double.hashCode(value);
     }
 
     @Override
@@ -209,7 +226,7 @@ public class DoubleItem extends AtomicItem {
 
     @Override
     public Item idivide(Item other) {
-        return ItemFactory.getInstance().createIntegerItem((int) (this.getDoubleValue() / other.castToDoubleValue()));
+        return ItemFactory.getInstance().createIntegerItem((long) (this.getDoubleValue() / other.castToDoubleValue()));
     }
 
     @Override
@@ -31,42 +31,71 @@ import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.expressions.comparison.ComparisonExpression;
 import org.rumbledb.types.ItemType;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 
+/**
+ * An integer, stored in a long, or in a BigInteger if it does not fit in a long. Arithmetic is done on longs as long
+ * as the operands and the result fit in a long.
+ */
 public class IntegerItem extends AtomicItem {
 
 
     private static final long serialVersionUID = 1L;
-    private int value;
+    private long value;
+    // the value if it does not fit in a long, and null otherwise
+    private BigInteger bigValue;
 
     public IntegerItem() {
         super();
     }
 
-    public IntegerItem(int value) {
+    public IntegerItem(long value) {
         super();
         this.value = value;
     }
 
-    public int getValue() {
-        return this.value;
+    public IntegerItem(BigInteger value) {
+        super();
+        if (value.bitLength() < Long.SIZE) {
+            this.value = value.longValue();
+        } else {
+            this.bigValue = value;
+        }
     }
 
     @Override
     public int getIntegerValue() {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, getLongValue()));
+    }
+
+    @Override
+    public long getLongValue() {
+        if (this.bigValue != null) {
+            return this.bigValue.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
         return this.value;
     }
 
+    @Override
+    public BigInteger getBigIntegerValue() {
+        return this.bigValue != null ? this.bigValue : BigInteger.valueOf(this.value);
+    }
+
+    static boolean isLong(Item item) {
+        return item instanceof IntegerItem && ((IntegerItem) item).bigValue == null;
+    }
+
     @Override
     public boolean getEffectiveBooleanValue() {
-        return this.getIntegerValue() != 0;
+        return this.bigValue != null || this.value != 0;
     }
 
     public double castToDoubleValue() {
-        return new Integer(getIntegerValue()).doubleValue();
+        return this.bigValue != null ? this.bigValue.doubleValue() : (double) this.value;
     }
 
     public BigDecimal castToDecimalValue() {
-        return BigDecimal.valueOf(getIntegerValue());
+        return this.bigValue != null ? new BigDecimal(this.bigValue) : BigDecimal.valueOf(this.value);
     }
 
     public int castToIntegerValue() {
@@ -93,7 +122,7 @@ public class IntegerItem extends AtomicItem {
     @Override
     public Item castAs(ItemType itemType) {
         if (itemType.equals(ItemType.booleanItem)) {
-            return ItemFactory.getInstance().createBooleanItem(this.getIntegerValue() != 0);
+            return ItemFactory.getInstance().createBooleanItem(this.getEffectiveBooleanValue());
         }
         if (itemType.equals(ItemType.doubleItem)) {
             return ItemFactory.getInstance().createDoubleItem(this.castToDoubleValue());
@@ -105,7 +134,7 @@ public class IntegerItem extends AtomicItem {
             return this;
         }
         if (itemType.equals(ItemType.stringItem)) {
-            return ItemFactory.getInstance().createStringItem(String.valueOf(this.getIntegerValue()));
+            return ItemFactory.getInstance().createStringItem(this.serialize());
         }
         throw new ClassCastException();
     }
@@ -119,17 +148,29 @@ public class IntegerItem extends AtomicItem {
 
     @Override
     public String serialize() {
-        return String.valueOf(this.getValue());
+        return this.bigValue != null ? this.bigValue.toString() : String.valueOf(this.value);
     }
 
     @Override
     public void write(Kryo kryo, Output output) {
-        output.writeInt(this.getValue());
+        output.writeBoolean(this.bigValue != null);
+        if (this.bigValue != null) {
+            byte[] bytes = this.bigValue.toByteArray();
+            output.writeInt(bytes.length, true);
+            output.writeBytes(bytes);
+        } else {
+            output.writeLong(this.value, false);
+        }
     }
 
     @Override
     public void read(Kryo kryo, Input input) {
-        this.value = input.readInt();
+        if (input.readBoolean()) {
+            this.bigValue = new BigInteger(input.readBytes(input.readInt(true)));
+        } else {
+            this.value = input.readLong(false);
+            this.bigValue = null;
+        }
     }
 
     public boolean equals(Object otherItem) {
@@ -141,12 +182,29 @@ public class IntegerItem extends AtomicItem {
     }
 
     public int hashCode() {
-        return getIntegerValue();
+        // the same as the hash code of the equal decimals and doubles
+        return DoubleItem.hashCode(castToDoubleValue());
     }
 
     @Override
     public int compareTo(Item other) {
-        return other.isNull() ? 1 : Integer.compare(this.getIntegerValue(), other.castToIntegerValue());
+        if (other.isNull()) {
+            return 1;
+        }
+        if (this.bigValue == null && isLong(other)) {
+            return Long.compare(this.value, other.getLongValue());
+        }
+        if (other.isInteger()) {
+            return this.getBigIntegerValue().compareTo(other.getBigIntegerValue());
+        }
+        if (other.isDecimal()) {
+            return this.castToDecimalValue().compareTo(other.getDecimalValue());
+        }
+        if (other.isDouble()) {
+            // like for doubles, NaN is greater than all numbers and infinities are compared as such
+            return Double.compare(this.castToDoubleValue(), other.getDoubleValue());
+        }
+        return Long.compare(this.getLongValue(), other.castToIntegerValue());
     }
 
     @Override
@@ -177,7 +235,14 @@ public class IntegerItem extends AtomicItem {
         if (other.isDecimal()) {
             return ItemFactory.getInstance().createDecimalItem(this.castToDecimalValue().add(other.getDecimalValue()));
         }
-        return ItemFactory.getInstance().createIntegerItem(this.getIntegerValue() + other.castToIntegerValue());
+        if (this.bigValue == null && isLong(other)) {
+            try {
+                return ItemFactory.getInstance().createIntegerItem(Math.addExact(this.value, other.getLongValue()));
+            } catch (ArithmeticException e) {
+                // the sum does not fit in a long
+            }
+        }
+        return ItemFactory.getInstance().createIntegerItem(this.getBigIntegerValue().add(other.getBigIntegerValue()));
     }
 
     @Override
@@ -189,7 +254,16 @@ public class IntegerItem extends AtomicItem {
             return ItemFactory.getInstance()
                 .createDecimalItem(this.castToDecimalValue().subtract(other.getDecimalValue()));
         }
-        return ItemFactory.getInstance().createIntegerItem(this.getIntegerValue() - other.castToIntegerValue());
+        if (this.bigValue == null && isLong(other)) {
+            try {
+                return ItemFactory.getInstance()
+                    .createIntegerItem(Math.subtractExact(this.value, other.getLongValue()));
+            } catch (ArithmeticException e) {
+                // the difference does not fit in a long
+            }
+        }
+        return ItemFactory.getInstance()
+            .createIntegerItem(this.getBigIntegerValue().subtract(other.getBigIntegerValue()));
     }
 
     @Override
@@ -209,7 +283,16 @@ public class IntegerItem extends AtomicItem {
             return ItemFactory.getInstance()
                 .createDayTimeDurationItem(other.getDurationValue().multipliedBy(this.getIntegerValue()));
         }
-        return ItemFactory.getInstance().createIntegerItem(this.getIntegerValue() * other.castToIntegerValue());
+        if (this.bigValue == null && isLong(other)) {
+            try {
+                return ItemFactory.getInstance()
+                    .createIntegerItem(Math.multiplyExact(this.value, other.getLongValue()));
+            } catch (ArithmeticException e) {
+                // the product does not fit in a long
+            }
+        }
+        return ItemFactory.getInstance()
+            .createIntegerItem(this.getBigIntegerValue().multiply(other.getBigIntegerValue()));
     }
 
     @Override
@@ -220,10 +303,18 @@ public class IntegerItem extends AtomicItem {
         if (other.equals(ItemFactory.getInstance().createIntegerItem(0))) {
             throw new DivisionByZeroException(ExceptionMetadata.EMPTY_METADATA);
         }
+        if (
+            this.bigValue == null
+                && isLong(other)
+                && this.value % other.getLongValue() == 0
+                && !(this.value == Long.MIN_VALUE && other.getLongValue() == -1)
+        ) {
+            return ItemFactory.getInstance().createIntegerItem(this.value / other.getLongValue());
+        }
         BigDecimal bdResult = this.castToDecimalValue()
             .divide(other.castToDecimalValue(), 10, BigDecimal.ROUND_HALF_UP);
         if (bdResult.stripTrailingZeros().scale() <= 0) {
-            return ItemFactory.getInstance().createIntegerItem(bdResult.intValueExact());
+            return ItemFactory.getInstance().createIntegerItem(bdResult.toBigIntegerExact());
         } else {
             return ItemFactory.getInstance().createDecimalItem(bdResult);
         }
@@ -241,12 +332,27 @@ public class IntegerItem extends AtomicItem {
         if (other.equals(ItemFactory.getInstance().createIntegerItem(0))) {
             throw new DivisionByZeroException(ExceptionMetadata.EMPTY_METADATA);
         }
-        return ItemFactory.getInstance().createIntegerItem(this.getIntegerValue() % other.castToIntegerValue());
+        if (this.bigValue == null && isLong(other)) {
+            return ItemFactory.getInstance().createIntegerItem(this.value % other.getLongValue());
+        }
+        return ItemFactory.getInstance()
+            .createIntegerItem(this.getBigIntegerValue().remainder(other.getBigIntegerValue()));
     }
 
     @Override
     public Item idivide(Item other) {
-        return ItemFactory.getInstance().createIntegerItem(this.getIntegerValue() / other.castToIntegerValue());
+        if (!other.isInteger()) {
+            return ItemFactory.getInstance().createIntegerItem(this.getLongValue() / other.castToIntegerValue());
+        }
+        if (
+            this.bigValue == null
+                && isLong(other)
+                && !(this.value == Long.MIN_VALUE && other.getLongValue() == -1)
+        ) {
+            return ItemFactory.getInstance().createIntegerItem(this.value / other.getLongValue());
+        }
+        return ItemFactory.getInstance()
+            .createIntegerItem(this.getBigIntegerValue().divide(other.getBigIntegerValue()));
     }
 
     @Override
@@ -6,6 +6,7 @@ import org.rumbledb.api.Item;
 import org.rumbledb.exceptions.ExceptionMetadata;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.List;
 import java.util.Map;
 
@@ -40,13 +41,17 @@ public class ItemFactory {
         return this.nullItem;
     }
 
-    public Item createIntegerItem(int i) {
+    public Item createIntegerItem(long i) {
         if (i == 0) {
             return this.zeroItem;
         }
         return new IntegerItem(i);
     }
 
+    public Item createIntegerItem(BigInteger i) {
+        return new IntegerItem(i);
+    }
+
     public Item createDecimalItem(BigDecimal d) {
         return new DecimalItem(d);
     }
@@ -123,4 +128,8 @@ public class ItemFactory {
         return new ObjectItem(keyValuePairs);
     }
 
+    public Item createLazyObjectItem(byte[] json, ExceptionMetadata itemMetadata) {
+        return new LazyObjectItem(json, itemMetadata);
+    }
+
 }
@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.ObjectMap;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.OurBadException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes items with Kryo in a compact format, in which each item starts with a tag giving its type, so that the
+ * members of arrays and the values of objects are written without the classes Kryo would write for them.
+ *
+ * Integers and the unscaled values of decimals are written as variable-length numbers, dates, times and date-times
+ * as milliseconds since the epoch, and durations as a number of months and a number of milliseconds. Objects are
+ * written as their shape, followed by their values. Strings and object keys are written once in each serialized
+ * value, and then as their number in its string table.
+ *
+ * Binary items and unparsed objects are written with their own serialization, which is already compact, and function
+ * items with Kryo.
+ */
+public class ItemSerializer extends Serializer<Item> {
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte STRING = 3;
+    private static final byte STRING_REFERENCE = 4;
+    private static final byte INTEGER = 5;
+    private static final byte BIG_INTEGER = 6;
+    private static final byte DECIMAL = 7;
+    private static final byte BIG_DECIMAL = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte ARRAY = 10;
+    private static final byte OBJECT = 11;
+    private static final byte LAZY_OBJECT = 12;
+    private static final byte DATE_TIME = 13;
+    private static final byte DATE = 14;
+    private static final byte TIME = 15;
+    private static final byte DURATION = 16;
+    private static final byte YEAR_MONTH_DURATION = 17;
+    private static final byte DAY_TIME_DURATION = 18;
+    private static final byte BASE64_BINARY = 19;
+    private static final byte HEX_BINARY = 20;
+    private static final byte ANY_URI = 21;
+    private static final byte OTHER = 22;
+
+    private static final int HAS_TIME_ZONE = 1;
+    private static final int NAMED_TIME_ZONE = 2;
+
+    /**
+     * Longer strings are not added to the string table, as they are seldom repeated.
+     */
+    private static final int maximumTableStringLength = 256;
+    private static final Object writtenStringsKey = new Object();
+    private static final Object readStringsKey = new Object();
+
+    @Override
+    public void write(Kryo kryo, Output output, Item item) {
+        writeItem(kryo, output, item);
+    }
+
+    @Override
+    public Item read(Kryo kryo, Input input, Class<Item> type) {
+        return readItem(kryo, input);
+    }
+
+    /**
+     * Writes an item and its tag.
+     *
+     * @param kryo the Kryo instance.
+     * @param output the output.
+     * @param item the item.
+     */
+    public static void writeItem(Kryo kryo, Output output, Item item) {
+        if (item instanceof StringItem) {
+            writeStringItem(kryo, output, item.getStringValue());
+        } else if (item instanceof IntegerItem) {
+            if (IntegerItem.isLong(item)) {
+                output.writeByte(INTEGER);
+                output.writeLong(item.getLongValue(), false);
+            } else {
+                byte[] bytes = item.getBigIntegerValue().toByteArray();
+                output.writeByte(BIG_INTEGER);
+                output.writeInt(bytes.length, true);
+                output.writeBytes(bytes);
+            }
+        } else if (item instanceof DecimalItem) {
+            writeDecimal(output, item.getDecimalValue());
+        } else if (item instanceof DoubleItem) {
+            output.writeByte(DOUBLE);
+            output.writeDouble(item.getDoubleValue());
+        } else if (item instanceof BooleanItem) {
+            output.writeByte(item.getBooleanValue() ? TRUE : FALSE);
+        } else if (item instanceof NullItem) {
+            output.writeByte(NULL);
+        } else if (item instanceof LazyObjectItem) {
+            output.writeByte(LAZY_OBJECT);
+            item.write(kryo, output);
+        } else if (item instanceof ObjectItem) {
+            output.writeByte(OBJECT);
+            ObjectShape.write(kryo, output, ((ObjectItem) item).getShape());
+            for (Item value : item.getValues()) {
+                writeItem(kryo, output, value);
+            }
+        } else if (item instanceof ArrayItem) {
+            output.writeByte(ARRAY);
+            output.writeInt(item.getSize(), true);
+            for (Item member : item.getItems()) {
+                writeItem(kryo, output, member);
+            }
+        } else if (item instanceof DateTimeItem) {
+            writeDateTime(kryo, output, DATE_TIME, item);
+        } else if (item instanceof DateItem) {
+            writeDateTime(kryo, output, DATE, item);
+        } else if (item instanceof TimeItem) {
+            writeDateTime(kryo, output, TIME, item);
+        } else if (item instanceof YearMonthDurationItem) {
+            output.writeByte(YEAR_MONTH_DURATION);
+            writePeriod(output, item.getDurationValue());
+        } else if (item instanceof DayTimeDurationItem) {
+            output.writeByte(DAY_TIME_DURATION);
+            writePeriod(output, item.getDurationValue());
+        } else if (item instanceof DurationItem) {
+            output.writeByte(DURATION);
+            writePeriod(output, item.getDurationValue());
+        } else if (item instanceof Base64BinaryItem) {
+            output.writeByte(BASE64_BINARY);
+            item.write(kryo, output);
+        } else if (item instanceof HexBinaryItem) {
+            output.writeByte(HEX_BINARY);
+            item.write(kryo, output);
+        } else if (item instanceof AnyURIItem) {
+            output.writeByte(ANY_URI);
+            writeString(kryo, output, item.getStringValue());
+        } else {
+            output.writeByte(OTHER);
+            kryo.writeClassAndObject(output, item);
+        }
+    }
+
+    /**
+     * Reads an item written with {@link #writeItem(Kryo, Output, Item)}.
+     *
+     * @param kryo the Kryo instance.
+     * @param input the input.
+     * @return the item.
+     */
+    public static Item readItem(Kryo kryo, Input input) {
+        ItemFactory factory = ItemFactory.getInstance();
+        byte tag = input.readByte();
+        switch (tag) {
+            case NULL:
+                return factory.createNullItem();
+            case TRUE:
+                return factory.createBooleanItem(true);
+            case FALSE:
+                return factory.createBooleanItem(false);
+            case STRING:
+                return factory.createStringItem(addReadString(kryo, input.readString()));
+            case STRING_REFERENCE:
+                return factory.createStringItem(getReadStrings(kryo).get(input.readInt(true) - 1));
+            case INTEGER:
+                return factory.createIntegerItem(input.readLong(false));
+            case BIG_INTEGER:
+                return factory.createIntegerItem(new BigInteger(input.readBytes(input.readInt(true))));
+            case DECIMAL:
+                return factory.createDecimalItem(BigDecimal.valueOf(input.readLong(false), input.readInt(false)));
+            case BIG_DECIMAL:
+                BigInteger unscaledValue = new BigInteger(input.readBytes(input.readInt(true)));
+                return factory.createDecimalItem(new BigDecimal(unscaledValue, input.readInt(false)));
+            case DOUBLE:
+                return factory.createDoubleItem(input.readDouble());
+            case ARRAY:
+                int size = input.readInt(true);
+                List<Item> members = new ArrayList<>(size);
+                for (int i = 0; i < size; ++i) {
+                    members.add(readItem(kryo, input));
+                }
+                return factory.createArrayItem(members);
+            case OBJECT:
+                ObjectShape shape = ObjectShape.read(kryo, input);
+                List<Item> values = new ArrayList<>(shape.size());
+                for (int i = 0; i < shape.size(); ++i) {
+                    values.add(readItem(kryo, input));
+                }
+                return new ObjectItem(shape, values);
+            case LAZY_OBJECT:
+                return readWithItem(kryo, input, new LazyObjectItem());
+            case DATE_TIME:
+            case DATE:
+            case TIME:
+                return readDateTime(kryo, input, tag);
+            case DURATION:
+                return factory.createDurationItem(readPeriod(input));
+            case YEAR_MONTH_DURATION:
+                return factory.createYearMonthDurationItem(readPeriod(input));
+            case DAY_TIME_DURATION:
+                return factory.createDayTimeDurationItem(readPeriod(input));
+            case BASE64_BINARY:
+                return readWithItem(kryo, input, new Base64BinaryItem());
+            case HEX_BINARY:
+                return readWithItem(kryo, input, new HexBinaryItem());
+            case ANY_URI:
+                return factory.createAnyURIItem(readString(kryo, input));
+            case OTHER:
+                return (Item) kryo.readClassAndObject(input);
+            default:
+                throw new OurBadException("Unknown item tag " + tag + " in serialized items.");
+        }
+    }
+
+    private static Item readWithItem(Kryo kryo, Input input, Item item) {
+        item.read(kryo, input);
+        return item;
+    }
+
+    private static void writeDecimal(Output output, BigDecimal value) {
+        BigInteger unscaledValue = value.unscaledValue();
+        if (unscaledValue.bitLength() < 64) {
+            output.writeByte(DECIMAL);
+            output.writeLong(unscaledValue.longValue(), false);
+        } else {
+            byte[] bytes = unscaledValue.toByteArray();
+            output.writeByte(BIG_DECIMAL);
+            output.writeInt(bytes.length, true);
+            output.writeBytes(bytes);
+        }
+        output.writeInt(value.scale(), false);
+    }
+
+    /**
+     * Writes the milliseconds since the epoch, followed by flags telling whether the time zone was given and whether
+     * it is named, and by the name of the time zone, or its offset if it is fixed.
+     */
+    private static void writeDateTime(Kryo kryo, Output output, byte tag, Item item) {
+        DateTime value = item.getDateTimeValue();
+        DateTimeZone zone = value.getZone();
+        output.writeByte(tag);
+        output.writeLong(value.getMillis(), false);
+        output.writeByte((item.hasTimeZone() ? HAS_TIME_ZONE : 0) | (zone.isFixed() ? 0 : NAMED_TIME_ZONE));
+        if (zone.isFixed()) {
+            output.writeInt(zone.getOffset(0L), false);
+        } else {
+            writeString(kryo, output, zone.getID());
+        }
+    }
+
+    private static Item readDateTime(Kryo kryo, Input input, byte tag) {
+        long millis = input.readLong(false);
+        byte flags = input.readByte();
+        DateTimeZone zone = (flags & NAMED_TIME_ZONE) != 0
+            ? DateTimeZone.forID(readString(kryo, input))
+            : DateTimeZone.forOffsetMillis(input.readInt(false));
+        DateTime value = new DateTime(millis, zone);
+        boolean hasTimeZone = (flags & HAS_TIME_ZONE) != 0;
+        switch (tag) {
+            case DATE:
+                return ItemFactory.getInstance().createDateItem(value, hasTimeZone);
+            case TIME:
+                return ItemFactory.getInstance().createTimeItem(value, hasTimeZone);
+            default:
+                return ItemFactory.getInstance().createDateTimeItem(value, hasTimeZone);
+        }
+    }
+
+    /**
+     * Writes the years and months of a period as a number of months, and its other fields as a number of
+     * milliseconds, with 24-hour days as in the normalization of durations.
+     */
+    private static void writePeriod(Output output, Period value) {
+        output.writeInt(value.getYears() * 12 + value.getMonths(), false);
+        long millis = value.getWeeks() * (long) DateTimeConstants.MILLIS_PER_WEEK
+            + value.getDays() * (long) DateTimeConstants.MILLIS_PER_DAY
+            + value.getHours() * (long) DateTimeConstants.MILLIS_PER_HOUR
+            + value.getMinutes() * (long) DateTimeConstants.MILLIS_PER_MINUTE
+            + value.getSeconds() * (long) DateTimeConstants.MILLIS_PER_SECOND
+            + value.getMillis();
+        output.writeLong(millis, false);
+    }
+
+    private static Period readPeriod(Input input) {
+        int months = input.readInt(false);
+        long millis = input.readLong(false);
+        int days = (int) (millis / DateTimeConstants.MILLIS_PER_DAY);
+        return new Period(0, months, 0, days, 0, 0, 0, (int) (millis % DateTimeConstants.MILLIS_PER_DAY));
+    }
+
+    private static void writeStringItem(Kryo kryo, Output output, String value) {
+        Integer number = getWrittenStrings(kryo).get(value);
+        if (number != null) {
+            output.writeByte(STRING_REFERENCE);
+            output.writeInt(number, true);
+            return;
+        }
+        output.writeByte(STRING);
+        output.writeString(value);
+        addWrittenString(kryo, value);
+    }
+
+    /**
+     * Writes a string, or its number if it was already written in the same serialized value.
+     *
+     * @param kryo the Kryo instance.
+     * @param output the output.
+     * @param value the string.
+     */
+    public static void writeString(Kryo kryo, Output output, String value) {
+        Integer number = getWrittenStrings(kryo).get(value);
+        if (number != null) {
+            output.writeInt(number, true);
+            return;
+        }
+        output.writeInt(0, true);
+        output.writeString(value);
+        addWrittenString(kryo, value);
+    }
+
+    /**
+     * Reads a string written with {@link #writeString(Kryo, Output, String)}.
+     *
+     * @param kryo the Kryo instance.
+     * @param input the input.
+     * @return the string.
+     */
+    public static String readString(Kryo kryo, Input input) {
+        int number = input.readInt(true);
+        if (number != 0) {
+            return getReadStrings(kryo).get(number - 1);
+        }
+        return addReadString(kryo, input.readString());
+    }
+
+    // the string tables are kept in the graph context of Kryo, which is cleared after each serialized value
+    @SuppressWarnings("unchecked")
+    private static ObjectMap<String, Integer> getWrittenStrings(Kryo kryo) {
+        ObjectMap<Object, Object> context = kryo.getGraphContext();
+        ObjectMap<String, Integer> writtenStrings = (ObjectMap<String, Integer>) context.get(writtenStringsKey);
+        if (writtenStrings == null) {
+            writtenStrings = new ObjectMap<>();
+            context.put(writtenStringsKey, writtenStrings);
+        }
+        return writtenStrings;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> getReadStrings(Kryo kryo) {
+        ObjectMap<Object, Object> context = kryo.getGraphContext();
+        List<String> readStrings = (List<String>) context.get(readStringsKey);
+        if (readStrings == null) {
+            readStrings = new ArrayList<>();
+            context.put(readStringsKey, readStrings);
+        }
+        return readStrings;
+    }
+
+    private static void addWrittenString(Kryo kryo, String value) {
+        if (value.length() <= maximumTableStringLength) {
+            ObjectMap<String, Integer> writtenStrings = getWrittenStrings(kryo);
+            writtenStrings.put(value, writtenStrings.size + 1);
+        }
+    }
+
+    private static String addReadString(Kryo kryo, String value) {
+        if (value.length() <= maximumTableStringLength) {
+            getReadStrings(kryo).add(value);
+        }
+        return value;
+    }
+}
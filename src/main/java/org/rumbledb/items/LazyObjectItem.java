@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.jsoniter.JsonIterator;
+import com.jsoniter.ValueType;
+import com.jsoniter.any.Any;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.ParsingException;
+import org.rumbledb.items.parsing.ItemParser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An object read from JSON text, which is only parsed as far as needed. Looking up a key scans the text up to this
+ * key and converts its value alone, nested objects being lazy as well. The object is parsed entirely the first time
+ * its keys or values are listed, it is serialized or modified.
+ *
+ * The text is checked to be a complete object when it is first scanned, but duplicate keys are only reported when
+ * the object is parsed entirely.
+ */
+public class LazyObjectItem extends ObjectItem {
+
+    private static final long serialVersionUID = 1L;
+    private byte[] json;
+    private ExceptionMetadata metadata;
+    private ObjectItem object;
+
+    private transient Any lazyObject;
+    private transient Map<String, Item> valuesByKey;
+
+    public LazyObjectItem() {
+        super();
+    }
+
+    public LazyObjectItem(byte[] json, ExceptionMetadata metadata) {
+        super();
+        this.json = json;
+        this.metadata = metadata;
+    }
+
+    private ObjectItem getObject() {
+        if (this.object == null) {
+            this.object = (ObjectItem) ItemParser.getItemFromObject(JsonIterator.parse(this.json), this.metadata);
+            this.json = null;
+            this.lazyObject = null;
+            this.valuesByKey = null;
+        }
+        return this.object;
+    }
+
+    @Override
+    public List<String> getKeys() {
+        return getObject().getKeys();
+    }
+
+    @Override
+    public List<Item> getValues() {
+        return getObject().getValues();
+    }
+
+    @Override
+    public Item getItemByKey(String key) {
+        if (this.object != null) {
+            return this.object.getItemByKey(key);
+        }
+        if (this.valuesByKey == null) {
+            this.valuesByKey = new HashMap<>();
+        }
+        if (this.valuesByKey.containsKey(key)) {
+            return this.valuesByKey.get(key);
+        }
+        Item value;
+        try {
+            if (this.lazyObject == null) {
+                this.lazyObject = JsonIterator.deserialize(this.json);
+            }
+            Any lazyValue = this.lazyObject.get(key);
+            value = lazyValue.valueType() == ValueType.INVALID
+                ? null
+                : ItemParser.getItemFromAny(lazyValue, this.metadata);
+        } catch (ParsingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ParsingException(ItemParser.malformedJSONMessage, this.metadata);
+        }
+        this.valuesByKey.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void putItemByKey(String key, Item value) {
+        getObject().putItemByKey(key, value);
+    }
+
+    @Override
+    public String serialize() {
+        return getObject().serialize();
+    }
+
+    @Override
+    public void serialize(Appendable sink) throws IOException {
+        getObject().serialize(sink);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output) {
+        // the text is usually more compact than the items, as long as the object was not parsed
+        output.writeBoolean(this.object == null);
+        if (this.object == null) {
+            output.writeInt(this.json.length, true);
+            output.writeBytes(this.json);
+        } else {
+            this.object.write(kryo, output);
+        }
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input) {
+        this.metadata = ExceptionMetadata.EMPTY_METADATA;
+        if (input.readBoolean()) {
+            this.json = input.readBytes(input.readInt(true));
+        } else {
+            this.object = new ObjectItem();
+            this.object.read(kryo, input);
+        }
+    }
+}
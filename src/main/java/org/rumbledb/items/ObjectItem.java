@@ -23,13 +23,11 @@ package org.rumbledb.items;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import org.apache.commons.text.StringEscapeUtils;
 import org.rumbledb.api.Item;
-import org.rumbledb.exceptions.DuplicateObjectKeyException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.types.ItemType;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -38,18 +36,23 @@ public class ObjectItem extends JsonItem {
 
     private static final long serialVersionUID = 1L;
     private List<Item> values;
-    private List<String> keys;
+    private ObjectShape shape;
 
     public ObjectItem() {
         super();
-        this.keys = new ArrayList<>();
+        this.shape = ObjectShape.EMPTY;
         this.values = new ArrayList<>();
     }
 
     public ObjectItem(List<String> keys, List<Item> values, ExceptionMetadata itemMetadata) {
         super();
-        checkForDuplicateKeys(keys, itemMetadata);
-        this.keys = keys;
+        this.shape = ObjectShape.getShape(keys, itemMetadata);
+        this.values = values;
+    }
+
+    ObjectItem(ObjectShape shape, List<Item> values) {
+        super();
+        this.shape = shape;
         this.values = values;
     }
 
@@ -82,13 +85,13 @@ public class ObjectItem extends JsonItem {
             }
         }
 
-        this.keys = keyList;
+        this.shape = ObjectShape.getShape(keyList, ExceptionMetadata.EMPTY_METADATA);
         this.values = valueList;
     }
 
     @Override
     public List<String> getKeys() {
-        return this.keys;
+        return this.shape.getKeys();
     }
 
     @Override
@@ -96,31 +99,20 @@ public class ObjectItem extends JsonItem {
         return this.values;
     }
 
-    private void checkForDuplicateKeys(List<String> keys, ExceptionMetadata metadata) {
-        HashMap<String, Integer> frequencies = new HashMap<>();
-        for (String key : keys) {
-            if (frequencies.containsKey(key)) {
-                throw new DuplicateObjectKeyException(key, metadata);
-            } else {
-                frequencies.put(key, 1);
-            }
-        }
+    ObjectShape getShape() {
+        return this.shape;
     }
 
     @Override
     public Item getItemByKey(String s) {
-        if (this.keys.contains(s)) {
-            return this.values.get(this.keys.indexOf(s));
-        } else {
-            return null;
-        }
+        int position = this.shape.getPosition(s);
+        return position == -1 ? null : this.values.get(position);
     }
 
     @Override
     public void putItemByKey(String s, Item value) {
-        this.keys.add(s);
+        this.shape = this.shape.getShapeWithKey(s, ExceptionMetadata.EMPTY_METADATA);
         this.values.add(value);
-        checkForDuplicateKeys(this.keys, ExceptionMetadata.EMPTY_METADATA);
     }
 
     @Override
@@ -135,41 +127,42 @@ public class ObjectItem extends JsonItem {
 
     @Override
     public String serialize() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{ ");
-        for (int i = 0; i < this.keys.size(); ++i) {
-            String key = this.keys.get(i);
+        return serializeWithStringBuilder();
+    }
+
+    @Override
+    public void serialize(Appendable sink) throws IOException {
+        List<String> keys = this.shape.getKeys();
+        sink.append("{ ");
+        for (int i = 0; i < keys.size(); ++i) {
             Item value = this.values.get(i);
-            boolean isStringValue = value.isString();
-            sb.append("\"").append(StringEscapeUtils.escapeJson(key)).append("\"").append(" : ");
-            if (isStringValue) {
-                sb.append("\"");
-                sb.append(StringEscapeUtils.escapeJson(value.serialize()));
-                sb.append("\"");
+            serializeJSONString(keys.get(i), sink);
+            sink.append(" : ");
+            if (value.isString()) {
+                serializeJSONString(value.serialize(), sink);
             } else {
-                sb.append(value.serialize());
+                value.serialize(sink);
             }
 
-            if (i < this.keys.size() - 1) {
-                sb.append(", ");
+            if (i < keys.size() - 1) {
+                sink.append(", ");
             } else {
-                sb.append(" ");
+                sink.append(" ");
             }
         }
-        sb.append("}");
-        return sb.toString();
+        sink.append("}");
     }
 
     @Override
     public void write(Kryo kryo, Output output) {
-        kryo.writeObject(output, this.keys);
+        ObjectShape.write(kryo, output, this.shape);
         kryo.writeObject(output, this.values);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public void read(Kryo kryo, Input input) {
-        this.keys = kryo.readObject(input, ArrayList.class);
+        this.shape = ObjectShape.read(kryo, input);
         this.values = kryo.readObject(input, ArrayList.class);
     }
 
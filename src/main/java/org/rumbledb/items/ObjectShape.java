@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.ObjectMap;
+import org.rumbledb.exceptions.DuplicateObjectKeyException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The keys of an object, in order. A shape is shared by all the objects with the same keys in the same order, which
+ * only hold their values, so that the keys of the objects of a data set are only stored, checked for duplicates and
+ * indexed once.
+ *
+ * Shapes are interned up to a maximum number, beyond which objects with new keys, for example keys computed from the
+ * data, get shapes of their own, which are garbage collected with them.
+ */
+public class ObjectShape implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int maximumNumberOfShapes = 10000;
+    /**
+     * The keys of shapes with more keys than this are looked up in an index rather than compared one by one.
+     */
+    private static final int keyIndexThreshold = 8;
+    private static final Map<List<String>, ObjectShape> shapes = new ConcurrentHashMap<>();
+    private static final Object writtenShapesKey = new Object();
+    private static final Object readShapesKey = new Object();
+
+    public static final ObjectShape EMPTY = getShape(Collections.emptyList(), ExceptionMetadata.EMPTY_METADATA);
+
+    private final List<String> keys;
+    // an open addressing hash table with the positions of the keys plus one (0 for a free slot), or null for shapes
+    // that do not need one
+    private final transient int[] keyIndex;
+    // the shapes with one more key, for interned shapes
+    private final transient Map<String, ObjectShape> transitions;
+
+    private ObjectShape(List<String> keys, boolean interned, ExceptionMetadata metadata) {
+        this.keys = Collections.unmodifiableList(keys);
+        if (keys.size() > keyIndexThreshold) {
+            this.keyIndex = buildKeyIndex(metadata);
+        } else {
+            this.keyIndex = null;
+            checkForDuplicateKeys(metadata);
+        }
+        this.transitions = interned ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Returns the shape of objects with the given keys.
+     *
+     * @param keys the keys, in order, which are copied.
+     * @param metadata the metadata for errors.
+     * @return the shape.
+     * @throws DuplicateObjectKeyException if a key appears more than once.
+     */
+    public static ObjectShape getShape(List<String> keys, ExceptionMetadata metadata) {
+        ObjectShape shape = shapes.get(keys);
+        if (shape != null) {
+            return shape;
+        }
+        boolean interned = shapes.size() < maximumNumberOfShapes;
+        shape = new ObjectShape(new ArrayList<>(keys), interned, metadata);
+        if (interned) {
+            ObjectShape existingShape = shapes.putIfAbsent(shape.keys, shape);
+            if (existingShape != null) {
+                return existingShape;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Returns the shape of objects with the keys of this shape followed by another key.
+     *
+     * @param key the key added.
+     * @param metadata the metadata for errors.
+     * @return the shape.
+     * @throws DuplicateObjectKeyException if the key is already a key of this shape.
+     */
+    public ObjectShape getShapeWithKey(String key, ExceptionMetadata metadata) {
+        if (getPosition(key) != -1) {
+            throw new DuplicateObjectKeyException(key, metadata);
+        }
+        ObjectShape shape = this.transitions == null ? null : this.transitions.get(key);
+        if (shape == null) {
+            List<String> keys = new ArrayList<>(this.keys.size() + 1);
+            keys.addAll(this.keys);
+            keys.add(key);
+            shape = getShape(keys, metadata);
+            if (this.transitions != null && shape.transitions != null) {
+                this.transitions.putIfAbsent(key, shape);
+            }
+        }
+        return shape;
+    }
+
+    public List<String> getKeys() {
+        return this.keys;
+    }
+
+    public int size() {
+        return this.keys.size();
+    }
+
+    /**
+     * @param key a key.
+     * @return the position of the key, or -1 if it is not a key of this shape.
+     */
+    public int getPosition(String key) {
+        int[] index = this.keyIndex;
+        if (index == null) {
+            return this.keys.indexOf(key);
+        }
+        int mask = index.length - 1;
+        for (int slot = hash(key) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int position = index[slot] - 1;
+            if (this.keys.get(position).equals(key)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private void checkForDuplicateKeys(ExceptionMetadata metadata) {
+        for (int i = 1; i < this.keys.size(); ++i) {
+            String key = this.keys.get(i);
+            for (int j = 0; j < i; ++j) {
+                if (key.equals(this.keys.get(j))) {
+                    throw new DuplicateObjectKeyException(key, metadata);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the index of the keys, with at least twice as many slots as keys so that probe sequences stay short, and
+     * checks for duplicate keys at the same time.
+     */
+    private int[] buildKeyIndex(ExceptionMetadata metadata) {
+        int[] index = new int[Integer.highestOneBit(2 * this.keys.size() - 1) << 1];
+        int mask = index.length - 1;
+        for (int position = 0; position < this.keys.size(); ++position) {
+            String key = this.keys.get(position);
+            int slot = hash(key) & mask;
+            while (index[slot] != 0) {
+                if (this.keys.get(index[slot] - 1).equals(key)) {
+                    throw new DuplicateObjectKeyException(key, metadata);
+                }
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = position + 1;
+        }
+        return index;
+    }
+
+    private static int hash(String key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private Object readResolve() {
+        return getShape(this.keys, ExceptionMetadata.EMPTY_METADATA);
+    }
+
+    /**
+     * Writes a shape, as a number if it was already written with the same object graph, so that the keys of the
+     * objects of a sequence are written only once.
+     *
+     * @param kryo the Kryo instance.
+     * @param output the output.
+     * @param shape the shape.
+     */
+    @SuppressWarnings("unchecked")
+    public static void write(Kryo kryo, Output output, ObjectShape shape) {
+        ObjectMap<Object, Object> context = kryo.getGraphContext();
+        ObjectMap<ObjectShape, Integer> writtenShapes = (ObjectMap<ObjectShape, Integer>) context.get(writtenShapesKey);
+        if (writtenShapes == null) {
+            writtenShapes = new ObjectMap<>();
+            context.put(writtenShapesKey, writtenShapes);
+        }
+        Integer number = writtenShapes.get(shape);
+        if (number != null) {
+            output.writeInt(number, true);
+            return;
+        }
+        writtenShapes.put(shape, writtenShapes.size + 1);
+        output.writeInt(0, true);
+        output.writeInt(shape.keys.size(), true);
+        for (String key : shape.keys) {
+            ItemSerializer.writeString(kryo, output, key);
+        }
+    }
+
+    /**
+     * Reads a shape written with {@link #write(Kryo, Output, ObjectShape)}.
+     *
+     * @param kryo the Kryo instance.
+     * @param input the input.
+     * @return the shape.
+     */
+    @SuppressWarnings("unchecked")
+    public static ObjectShape read(Kryo kryo, Input input) {
+        ObjectMap<Object, Object> context = kryo.getGraphContext();
+        List<ObjectShape> readShapes = (List<ObjectShape>) context.get(readShapesKey);
+        if (readShapes == null) {
+            readShapes = new ArrayList<>();
+            context.put(readShapesKey, readShapes);
+        }
+        int number = input.readInt(true);
+        if (number != 0) {
+            return readShapes.get(number - 1);
+        }
+        int size = input.readInt(true);
+        List<String> keys = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            keys.add(ItemSerializer.readString(kryo, input));
+        }
+        ObjectShape shape = getShape(keys, ExceptionMetadata.EMPTY_METADATA);
+        readShapes.add(shape);
+        return shape;
+    }
+}
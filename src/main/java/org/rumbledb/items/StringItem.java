@@ -29,6 +29,7 @@ import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.expressions.comparison.ComparisonExpression;
 import org.rumbledb.types.ItemType;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 
 public class StringItem extends AtomicItem {
 
@@ -91,7 +92,7 @@ public class StringItem extends AtomicItem {
             return ItemFactory.getInstance().createDecimalItem(new BigDecimal(this.getStringValue()));
         }
         if (itemType.equals(ItemType.integerItem)) {
-            return ItemFactory.getInstance().createIntegerItem(Integer.parseInt(this.getStringValue()));
+            return ItemFactory.getInstance().createIntegerItem(new BigInteger(this.getStringValue()));
         }
         if (itemType.equals(ItemType.nullItem)) {
             return ItemFactory.getInstance().createNullItem();
@@ -154,7 +155,7 @@ public class StringItem extends AtomicItem {
         }
         try {
             if (itemType.equals(ItemType.integerItem)) {
-                Integer.parseInt(this.getValue());
+                new BigInteger(this.getValue());
             } else if (itemType.equals(ItemType.anyURIItem)) {
                 AnyURIItem.parseAnyURIString(this.getValue());
             } else if (itemType.equals(ItemType.decimalItem)) {
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items.parsing;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of the objects read from an input that a query actually accesses. Each field is mapped to the
+ * projection of its value, or to null if its value is needed entirely.
+ *
+ * A projection only applies to objects. The members of an array are projected like the array itself, since
+ * object lookups are what reaches into them.
+ */
+public class FieldProjection implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private Map<String, FieldProjection> fields;
+
+    public FieldProjection() {
+        this.fields = new HashMap<>();
+    }
+
+    /**
+     * Adds a path of object lookups, such as [user, id] for $x.user.id. The value at the end of the path is needed
+     * entirely.
+     *
+     * @param path the keys of the lookups, from the outermost object.
+     */
+    public void addPath(List<String> path) {
+        String field = path.get(0);
+        if (path.size() == 1) {
+            this.fields.put(field, null);
+            return;
+        }
+        if (this.fields.containsKey(field)) {
+            FieldProjection projection = this.fields.get(field);
+            if (projection != null) {
+                projection.addPath(path.subList(1, path.size()));
+            }
+            return;
+        }
+        FieldProjection projection = new FieldProjection();
+        projection.addPath(path.subList(1, path.size()));
+        this.fields.put(field, projection);
+    }
+
+    public boolean isEmpty() {
+        return this.fields.isEmpty();
+    }
+
+    public Set<String> getFields() {
+        return this.fields.keySet();
+    }
+
+    public boolean containsField(String field) {
+        return this.fields.containsKey(field);
+    }
+
+    /**
+     * @param field a field contained in this projection.
+     * @return the projection of the value of the field, or null if it is needed entirely.
+     */
+    public FieldProjection getProjection(String field) {
+        return this.fields.get(field);
+    }
+}
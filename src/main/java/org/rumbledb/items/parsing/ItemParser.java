@@ -22,6 +22,7 @@ package org.rumbledb.items.parsing;
 
 import com.jsoniter.JsonIterator;
 import com.jsoniter.ValueType;
+import com.jsoniter.any.Any;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.spark.ml.linalg.DenseVector;
 import org.apache.spark.ml.linalg.SparseVector;
@@ -49,6 +50,8 @@ import sparksoniq.spark.SparkSessionManager;
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.Instant;
@@ -61,25 +64,33 @@ public class ItemParser implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final DataType vectorType = new VectorUDT();
     public static final DataType decimalType = new DecimalType(30, 15); // 30 and 15 are arbitrary
+    public static final String malformedJSONMessage =
+        "An error happened while parsing JSON. JSON is not well-formed! Hint: if you use json-file(), it must be in the JSON Lines format, with one value per line. If this is not the case, consider using json-doc().";
 
     public static Item getItemFromObject(JsonIterator object, ExceptionMetadata metadata) {
+        return getItemFromObject(object, metadata, null);
+    }
+
+    /**
+     * Parses a JSON value, skipping the fields of objects that are not in the projection. Skipped values are only
+     * scanned for their end, so they are not checked to be well-formed.
+     *
+     * @param object the JSON iterator positioned on the value.
+     * @param metadata the metadata for errors.
+     * @param projection the fields to keep, or null to keep all of them.
+     * @return the item.
+     */
+    public static Item getItemFromObject(
+            JsonIterator object,
+            ExceptionMetadata metadata,
+            FieldProjection projection
+    ) {
         try {
             if (object.whatIsNext().equals(ValueType.STRING)) {
                 return ItemFactory.getInstance().createStringItem(object.readString());
             }
             if (object.whatIsNext().equals(ValueType.NUMBER)) {
-                String number = object.readNumberAsString();
-                if (number.contains("E") || number.contains("e")) {
-                    return ItemFactory.getInstance().createDoubleItem(Double.parseDouble(number));
-                }
-                if (number.contains(".") || number.length() >= 12) {
-                    return ItemFactory.getInstance().createDecimalItem(new BigDecimal(number));
-                }
-                try {
-                    return ItemFactory.getInstance().createIntegerItem(Integer.parseInt(number));
-                } catch (NumberFormatException e) {
-                    return ItemFactory.getInstance().createDecimalItem(new BigDecimal(number));
-                }
+                return getItemFromNumber(object.readNumberAsString());
             }
             if (object.whatIsNext().equals(ValueType.BOOLEAN)) {
                 return ItemFactory.getInstance().createBooleanItem(object.readBoolean());
@@ -87,7 +98,7 @@ public class ItemParser implements Serializable {
             if (object.whatIsNext().equals(ValueType.ARRAY)) {
                 List<Item> values = new ArrayList<>();
                 while (object.readArray()) {
-                    values.add(getItemFromObject(object, metadata));
+                    values.add(getItemFromObject(object, metadata, projection));
                 }
                 return ItemFactory.getInstance().createArrayItem(values);
             }
@@ -96,8 +107,14 @@ public class ItemParser implements Serializable {
                 List<Item> values = new ArrayList<>();
                 String s;
                 while ((s = object.readObject()) != null) {
+                    if (projection != null && !projection.containsField(s)) {
+                        object.skip();
+                        continue;
+                    }
                     keys.add(s);
-                    values.add(getItemFromObject(object, metadata));
+                    values.add(
+                        getItemFromObject(object, metadata, projection == null ? null : projection.getProjection(s))
+                    );
                 }
                 return ItemFactory.getInstance()
                     .createObjectItem(keys, values, metadata);
@@ -108,10 +125,68 @@ public class ItemParser implements Serializable {
             }
             throw new ParsingException("Invalid value found while parsing. JSON is not well-formed!", metadata);
         } catch (Exception e) {
-            throw new ParsingException(
-                    "An error happened while parsing JSON. JSON is not well-formed! Hint: if you use json-file(), it must be in the JSON Lines format, with one value per line. If this is not the case, consider using json-doc().",
-                    metadata
-            );
+            throw new ParsingException(malformedJSONMessage, metadata);
+        }
+    }
+
+    private static Item getItemFromNumber(String number) {
+        if (number.contains("E") || number.contains("e")) {
+            return ItemFactory.getInstance().createDoubleItem(Double.parseDouble(number));
+        }
+        if (number.contains(".")) {
+            return ItemFactory.getInstance().createDecimalItem(new BigDecimal(number));
+        }
+        // integers with up to 18 digits fit in a long
+        if (number.length() <= 18) {
+            return ItemFactory.getInstance().createIntegerItem(Long.parseLong(number));
+        }
+        return ItemFactory.getInstance().createIntegerItem(new BigInteger(number));
+    }
+
+    /**
+     * Parses a JSON value, leaving an object unparsed until its values are looked up.
+     *
+     * @param json the JSON text.
+     * @param metadata the metadata for errors.
+     * @return a lazy object item if the value is an object, the item otherwise.
+     */
+    public static Item getLazyItemFromString(String json, ExceptionMetadata metadata) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        JsonIterator object = JsonIterator.parse(bytes);
+        try {
+            if (object.whatIsNext().equals(ValueType.OBJECT)) {
+                return ItemFactory.getInstance().createLazyObjectItem(bytes, metadata);
+            }
+        } catch (Exception e) {
+            throw new ParsingException(malformedJSONMessage, metadata);
+        }
+        return getItemFromObject(object, metadata);
+    }
+
+    /**
+     * Converts a value found in a lazily parsed JSON object. Nested objects are lazy as well.
+     *
+     * @param value the value.
+     * @param metadata the metadata for errors.
+     * @return the item.
+     */
+    public static Item getItemFromAny(Any value, ExceptionMetadata metadata) {
+        switch (value.valueType()) {
+            case STRING:
+                return ItemFactory.getInstance().createStringItem(value.toString());
+            case NUMBER:
+                return getItemFromNumber(value.toString().trim());
+            case BOOLEAN:
+                return ItemFactory.getInstance().createBooleanItem(value.toBoolean());
+            case NULL:
+                return ItemFactory.getInstance().createNullItem();
+            case ARRAY:
+                return getItemFromObject(JsonIterator.parse(value.toString()), metadata);
+            case OBJECT:
+                return ItemFactory.getInstance()
+                    .createLazyObjectItem(value.toString().trim().getBytes(StandardCharsets.UTF_8), metadata);
+            default:
+                throw new ParsingException("Invalid value found while parsing. JSON is not well-formed!", metadata);
         }
     }
 
@@ -135,6 +210,20 @@ public class ItemParser implements Serializable {
         return ItemFactory.getInstance().createObjectItem(keys, values, metadata);
     }
 
+    /**
+     * Converts a single value of a DataFrame column to an item.
+     *
+     * @param value the value, as returned by Spark for a column of the given type. It must not be null.
+     * @param fieldType the type of the column.
+     * @param metadata the metadata used for errors.
+     * @return the corresponding item.
+     */
+    public static Item getItemFromValue(Object value, DataType fieldType, ExceptionMetadata metadata) {
+        List<Item> values = new ArrayList<>(1);
+        addValue(null, 0, value, fieldType, values, metadata);
+        return values.get(0);
+    }
+
     private static void addValue(
             Row row,
             int i,
@@ -194,13 +283,13 @@ public class ItemParser implements Serializable {
             }
             values.add(ItemFactory.getInstance().createDecimalItem(value));
         } else if (fieldType.equals(DataTypes.LongType)) {
-            BigDecimal value;
+            long value;
             if (row != null) {
-                value = new BigDecimal(row.getLong(i));
+                value = row.getLong(i);
             } else {
-                value = new BigDecimal((Long) o);
+                value = (Long) o;
             }
-            values.add(ItemFactory.getInstance().createDecimalItem(value));
+            values.add(ItemFactory.getInstance().createIntegerItem(value));
         } else if (fieldType.equals(DataTypes.NullType)) {
             values.add(ItemFactory.getInstance().createNullItem());
         } else if (fieldType.equals(DataTypes.ShortType)) {
@@ -338,13 +427,17 @@ public class ItemParser implements Serializable {
         if (DataTypes.BooleanType.equals(dataType)) {
             return ItemType.booleanItem.getName();
         }
-        if (DataTypes.IntegerType.equals(dataType) || DataTypes.ShortType.equals(dataType)) {
+        if (
+            DataTypes.IntegerType.equals(dataType)
+                || DataTypes.ShortType.equals(dataType)
+                || DataTypes.LongType.equals(dataType)
+        ) {
             return ItemType.integerItem.getName();
         }
         if (DataTypes.DoubleType.equals(dataType) || DataTypes.FloatType.equals(dataType)) {
             return ItemType.doubleItem.getName();
         }
-        if (dataType.equals(decimalType) || DataTypes.LongType.equals(dataType)) {
+        if (dataType.equals(decimalType)) {
             return ItemType.decimalItem.getName();
         }
         if (DataTypes.StringType.equals(dataType)) {
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items.parsing;
+
+import com.jsoniter.JsonIterator;
+import org.apache.commons.io.IOUtils;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.ParsingException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the members of a JSON array read from an input stream, so that only one member at a time is held in
+ * memory. The stream is scanned for the commas separating the members, and each member is parsed on its own. If the
+ * value is not an array, it is parsed entirely and there are no members. The stream is closed once all members are
+ * read.
+ *
+ * The streaming mode of the JSON parser is not used, as it can only be enabled before any JSON is parsed.
+ */
+public class JSONArrayMemberIterator implements Iterator<Item>, Closeable {
+
+    private static final int bufferSize = 64 * 1024;
+
+    private InputStream stream;
+    private ExceptionMetadata metadata;
+    private ByteArrayOutputStream member;
+    private boolean isLastMember;
+    private boolean hasNext;
+
+    public JSONArrayMemberIterator(InputStream stream, ExceptionMetadata metadata) {
+        this.stream = new BufferedInputStream(stream, bufferSize);
+        this.metadata = metadata;
+        this.member = new ByteArrayOutputStream();
+        try {
+            int b = skipWhitespace();
+            if (b == '[') {
+                this.isLastMember = !readMember();
+                // the array is empty if there is nothing before its closing bracket
+                this.hasNext = !this.isLastMember || !isBlank(this.member.toByteArray());
+            } else if (b == -1) {
+                throw new ParsingException(ItemParser.malformedJSONMessage, metadata);
+            } else {
+                // not an array: it is only parsed to report malformed JSON
+                this.member.write(b);
+                IOUtils.copy(this.stream, this.member);
+                ItemParser.getItemFromObject(JsonIterator.parse(this.member.toByteArray()), metadata);
+                this.hasNext = false;
+            }
+        } catch (IOException e) {
+            close();
+            throw new ParsingException(ItemParser.malformedJSONMessage, metadata);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        if (!this.hasNext) {
+            close();
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int b = this.stream.read();
+        while (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+            b = this.stream.read();
+        }
+        return b;
+    }
+
+    private static boolean isBlank(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next member into the member buffer, up to the comma or closing bracket that follows it.
+     *
+     * @return true if a comma follows the member, false if the closing bracket does.
+     */
+    private boolean readMember() throws IOException {
+        this.member.reset();
+        boolean inString = false;
+        int depth = 0;
+        int b = this.stream.read();
+        while (b != -1) {
+            if (inString) {
+                if (b == '\\') {
+                    this.member.write(b);
+                    b = this.stream.read();
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '[' || b == '{') {
+                ++depth;
+            } else if ((b == ']' || b == '}') && depth > 0) {
+                --depth;
+            } else if (b == ']' && depth == 0) {
+                return false;
+            } else if (b == ',' && depth == 0) {
+                return true;
+            }
+            this.member.write(b);
+            b = this.stream.read();
+        }
+        throw new ParsingException(ItemParser.malformedJSONMessage, this.metadata);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.hasNext;
+    }
+
+    @Override
+    public Item next() {
+        if (!this.hasNext) {
+            throw new NoSuchElementException();
+        }
+        Item result;
+        try {
+            result = ItemParser.getItemFromObject(JsonIterator.parse(this.member.toByteArray()), this.metadata);
+            if (this.isLastMember) {
+                this.hasNext = false;
+            } else {
+                this.isLastMember = !readMember();
+            }
+        } catch (IOException e) {
+            close();
+            throw new ParsingException(ItemParser.malformedJSONMessage, this.metadata);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        if (!this.hasNext) {
+            close();
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        this.hasNext = false;
+        try {
+            this.stream.close();
+        } catch (IOException e) {
+            // the members are already read
+        }
+    }
+}
@@ -31,9 +31,15 @@ public class JSONSyntaxToItemMapper implements FlatMapFunction<Iterator<String>,
 
     private static final long serialVersionUID = 1L;
     private final ExceptionMetadata metadata;
+    private final FieldProjection projection;
 
     public JSONSyntaxToItemMapper(ExceptionMetadata metadata) {
+        this(metadata, null);
+    }
+
+    public JSONSyntaxToItemMapper(ExceptionMetadata metadata, FieldProjection projection) {
         this.metadata = metadata;
+        this.projection = projection;
     }
 
     @Override
@@ -46,8 +52,18 @@ public class JSONSyntaxToItemMapper implements FlatMapFunction<Iterator<String>,
 
             @Override
             public Item next() {
+                if (JSONSyntaxToItemMapper.this.projection == null) {
+                    return ItemParser.getLazyItemFromString(
+                        stringIterator.next(),
+                        JSONSyntaxToItemMapper.this.metadata
+                    );
+                }
                 JsonIterator object = JsonIterator.parse(stringIterator.next());
-                return ItemParser.getItemFromObject(object, JSONSyntaxToItemMapper.this.metadata);
+                return ItemParser.getItemFromObject(
+                    object,
+                    JSONSyntaxToItemMapper.this.metadata,
+                    JSONSyntaxToItemMapper.this.projection
+                );
             }
 
             @Override
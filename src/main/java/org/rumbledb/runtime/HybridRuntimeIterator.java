@@ -96,8 +96,13 @@ public abstract class HybridRuntimeIterator extends RuntimeIterator {
         }
         if (this.result == null) {
             this.currentResultIndex = 0;
-            JavaRDD<Item> rdd = this.getRDD(this.currentDynamicContextForLocalExecution);
-            this.result = SparkSessionManager.collectRDDwithLimit(rdd, this.getMetadata());
+            this.result = getLocalResult(this.currentDynamicContextForLocalExecution);
+            if (this.result == null) {
+                JavaRDD<Item> rdd = this.getRDD(this.currentDynamicContextForLocalExecution);
+                this.result = SparkSessionManager.collectRDDwithLimit(rdd, this.getMetadata());
+            } else {
+                SparkSessionManager.checkCollectLimit(this.result.size(), getMetadata());
+            }
             this.hasNext = !this.result.isEmpty();
         }
         return this.hasNext;
@@ -144,6 +149,17 @@ public abstract class HybridRuntimeIterator extends RuntimeIterator {
 
     protected abstract JavaRDD<Item> getRDDAux(DynamicContext context);
 
+    /**
+     * Lets an iterator in RDD mode that is consumed locally produce its items without a Spark job, for example if its
+     * input is small.
+     *
+     * @param context the dynamic context.
+     * @return the items, or null if the RDD must be collected.
+     */
+    public List<Item> getLocalResult(DynamicContext context) {
+        return null;
+    }
+
     protected abstract void openLocal();
 
     protected abstract void closeLocal();
@@ -40,6 +40,7 @@ import sparksoniq.jsoniq.ExecutionMode;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -215,6 +216,16 @@ public abstract class RuntimeIterator implements RuntimeIteratorInterface, KryoS
         return this.highestExecutionMode;
     }
 
+    /**
+     * Returns the child iterators, in the order in which they were passed to the constructor.
+     * This allows clauses to inspect the structure of an expression, e.g., to translate it to native Spark SQL.
+     *
+     * @return the list of child iterators.
+     */
+    public List<RuntimeIterator> getChildren() {
+        return Collections.unmodifiableList(this.children);
+    }
+
     public boolean isRDD() {
         if (this.highestExecutionMode == ExecutionMode.UNSET) {
             throw new OurBadException("isRDD field in iterator without execution mode being set.");
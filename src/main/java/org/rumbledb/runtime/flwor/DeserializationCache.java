@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.flwor;
+
+import org.apache.spark.TaskContext;
+import org.rumbledb.api.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the sequences of items most recently serialized to or deserialized from the columns of FLWOR data frames,
+ * so that the same bytes, which recur for example in the columns of grouped or joined tuples, or when a clause
+ * reads the column written by the previous clause, are not deserialized again.
+ *
+ * Each thread has its own cache, which is cleared whenever the thread starts running another Spark task, so that it
+ * is shared by the clauses evaluated in the same task. Nothing is cached outside of Spark tasks, for example on the
+ * driver, as the cache would then never be cleared. The sequences are looked up with a fingerprint computed from
+ * a sample of their bytes, and then compared byte by byte. The least recently used ones are evicted first.
+ */
+public class DeserializationCache {
+
+    private static final int maximumNumberOfEntries = 256;
+    /**
+     * Sequences serialized in more bytes than this are not kept, as they take more memory than they save time.
+     */
+    private static final int maximumNumberOfBytes = 1 << 16;
+    /**
+     * The maximum number of bytes hashed by the fingerprint.
+     */
+    private static final int sampleSize = 64;
+
+    private static final ThreadLocal<DeserializationCache> caches = ThreadLocal.withInitial(
+        DeserializationCache::new
+    );
+
+    /**
+     * Used outside of Spark tasks: it never finds nor keeps anything.
+     */
+    private static final DeserializationCache disabledCache = new DeserializationCache();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private final Map<Long, Entry> entries;
+    private long taskAttemptId;
+
+    private DeserializationCache() {
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maximumNumberOfEntries;
+            }
+        };
+        this.taskAttemptId = -1;
+    }
+
+    /**
+     * Returns the cache of the current thread, after clearing it if it was used by another Spark task.
+     *
+     * @return the cache, which is disabled if the current thread is not running a Spark task.
+     */
+    public static DeserializationCache getInstance() {
+        TaskContext taskContext = TaskContext.get();
+        if (taskContext == null) {
+            return disabledCache;
+        }
+        DeserializationCache cache = caches.get();
+        if (cache.taskAttemptId != taskContext.taskAttemptId()) {
+            cache.entries.clear();
+            cache.taskAttemptId = taskContext.taskAttemptId();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns a copy of the sequence serialized in the given bytes, as callers reuse their lists.
+     *
+     * @param bytes the serialized sequence.
+     * @return the sequence, or null if it is not in the cache.
+     */
+    public List<Item> get(byte[] bytes) {
+        if (this == disabledCache) {
+            return null;
+        }
+        if (bytes.length <= maximumNumberOfBytes) {
+            Entry entry = this.entries.get(fingerprint(bytes));
+            if (entry != null && Arrays.equals(entry.bytes, bytes)) {
+                hits.increment();
+                return new ArrayList<>(entry.items);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Adds a sequence to the cache, which keeps its own copy of it.
+     *
+     * @param bytes the serialized sequence.
+     * @param items the sequence.
+     */
+    public void put(byte[] bytes, List<Item> items) {
+        if (this != disabledCache && bytes.length <= maximumNumberOfBytes) {
+            this.entries.put(fingerprint(bytes), new Entry(bytes, new ArrayList<>(items)));
+        }
+    }
+
+    /**
+     * @return the number of sequences found in the caches of all the threads of this JVM since it started.
+     */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of sequences looked up in Spark tasks but not found in the caches of all the threads of this
+     *         JVM since it started.
+     */
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Hashes the length and at most sampleSize bytes evenly spread over the whole array, including the last one, with
+     * the 64-bit FNV-1a function.
+     */
+    private static long fingerprint(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L ^ bytes.length;
+        int step = Math.max(1, (bytes.length + sampleSize - 1) / sampleSize);
+        for (int i = bytes.length - 1; i >= 0; i -= step) {
+            hash = (hash ^ bytes[i]) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static class Entry {
+        private final byte[] bytes;
+        private final List<Item> items;
+
+        private Entry(byte[] bytes, List<Item> items) {
+            this.bytes = bytes;
+            this.items = items;
+        }
+    }
+}
@@ -23,11 +23,11 @@ package org.rumbledb.runtime.flwor;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
-import org.apache.spark.sql.expressions.UserDefinedFunction;
-import org.apache.spark.sql.expressions.Window;
+import org.apache.spark.sql.types.ArrayType;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructField;
@@ -36,6 +36,9 @@ import org.rumbledb.api.Item;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.context.Name;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.items.AnyURIItem;
 import org.rumbledb.items.ArrayItem;
 import org.rumbledb.items.Base64BinaryItem;
 import org.rumbledb.items.BooleanItem;
@@ -49,48 +52,49 @@ import org.rumbledb.items.FunctionItem;
 import org.rumbledb.items.HexBinaryItem;
 import org.rumbledb.items.IntegerItem;
 import org.rumbledb.items.ItemFactory;
+import org.rumbledb.items.ItemSerializer;
+import org.rumbledb.items.LazyObjectItem;
 import org.rumbledb.items.NullItem;
 import org.rumbledb.items.ObjectItem;
 import org.rumbledb.items.StringItem;
 import org.rumbledb.items.TimeItem;
 import org.rumbledb.items.YearMonthDurationItem;
+import org.rumbledb.items.parsing.ItemParser;
+import org.rumbledb.runtime.flwor.closures.ZipWithIndexClosure;
+import org.rumbledb.runtime.flwor.closures.ZipWithPartitionOffsetsClosure;
 import org.rumbledb.runtime.functions.base.FunctionIdentifier;
 import org.rumbledb.types.ItemType;
 import org.rumbledb.types.SequenceType;
 
+import scala.collection.JavaConversions;
+import scala.collection.Seq;
 import scala.collection.mutable.WrappedArray;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.apache.spark.sql.functions.col;
-import static org.apache.spark.sql.functions.count;
-import static org.apache.spark.sql.functions.first;
-import static org.apache.spark.sql.functions.lit;
-import static org.apache.spark.sql.functions.monotonically_increasing_id;
-import static org.apache.spark.sql.functions.spark_partition_id;
-import static org.apache.spark.sql.functions.sum;
-import static org.apache.spark.sql.functions.udf;
-
 public class FlworDataFrameUtils {
 
-    private static ThreadLocal<byte[]> lastBytesCache = ThreadLocal.withInitial(() -> null);
-
-    private static ThreadLocal<List<Item>> lastObjectItemCache = ThreadLocal.withInitial(() -> null);
-
+    /**
+     * Registers the classes serialized in the columns of FLWOR data frames. Items, except function items, are
+     * serialized with {@link ItemSerializer}.
+     *
+     * @param kryo the Kryo instance used for the columns.
+     */
     public static void registerKryoClassesKryo(Kryo kryo) {
+        ItemSerializer itemSerializer = new ItemSerializer();
         kryo.register(Item.class);
-        kryo.register(ArrayItem.class);
-        kryo.register(ObjectItem.class);
-        kryo.register(StringItem.class);
-        kryo.register(IntegerItem.class);
-        kryo.register(DoubleItem.class);
-        kryo.register(DecimalItem.class);
-        kryo.register(NullItem.class);
-        kryo.register(BooleanItem.class);
+        kryo.register(ArrayItem.class, itemSerializer);
+        kryo.register(ObjectItem.class, itemSerializer);
+        kryo.register(LazyObjectItem.class, itemSerializer);
+        kryo.register(StringItem.class, itemSerializer);
+        kryo.register(IntegerItem.class, itemSerializer);
+        kryo.register(DoubleItem.class, itemSerializer);
+        kryo.register(DecimalItem.class, itemSerializer);
+        kryo.register(NullItem.class, itemSerializer);
+        kryo.register(BooleanItem.class, itemSerializer);
 
         kryo.register(FunctionItem.class);
         kryo.register(FunctionIdentifier.class);
@@ -99,16 +103,17 @@ public class FlworDataFrameUtils {
         kryo.register(SequenceType.Arity.class);
         kryo.register(ItemType.class);
 
-        kryo.register(DurationItem.class);
-        kryo.register(YearMonthDurationItem.class);
-        kryo.register(DayTimeDurationItem.class);
+        kryo.register(DurationItem.class, itemSerializer);
+        kryo.register(YearMonthDurationItem.class, itemSerializer);
+        kryo.register(DayTimeDurationItem.class, itemSerializer);
 
-        kryo.register(DateTimeItem.class);
-        kryo.register(DateItem.class);
-        kryo.register(TimeItem.class);
+        kryo.register(DateTimeItem.class, itemSerializer);
+        kryo.register(DateItem.class, itemSerializer);
+        kryo.register(TimeItem.class, itemSerializer);
 
-        kryo.register(Base64BinaryItem.class);
-        kryo.register(HexBinaryItem.class);
+        kryo.register(Base64BinaryItem.class, itemSerializer);
+        kryo.register(HexBinaryItem.class, itemSerializer);
+        kryo.register(AnyURIItem.class, itemSerializer);
 
         kryo.register(ArrayList.class);
 
@@ -125,10 +130,8 @@ public class FlworDataFrameUtils {
         output.clear();
         kryo.writeClassAndObject(output, toSerialize);
         byte[] serializedBytes = output.toBytes();
-        if (toSerialize.size() == 1 && toSerialize.get(0).isObject()) {
-            lastBytesCache.set(serializedBytes);
-            lastObjectItemCache.set(toSerialize);
-        }
+        // the next clause usually reads the column written by this one
+        DeserializationCache.getInstance().put(serializedBytes, toSerialize);
         return serializedBytes;
     }
 
@@ -171,6 +174,7 @@ public class FlworDataFrameUtils {
         Map<String, List<String>> result = new HashMap<>();
         result.put("byte[]", new ArrayList<>());
         result.put("Long", new ArrayList<>());
+        result.put("Row", new ArrayList<>());
         StructField[] columns = inputSchema.fields();
         for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
             if (columnIndex == duplicateVariableIndex) {
@@ -182,6 +186,8 @@ public class FlworDataFrameUtils {
                 result.get("byte[]").add(var);
             } else if (type.equals(DataTypes.LongType)) {
                 result.get("Long").add(var);
+            } else {
+                result.get("Row").add(var);
             }
         }
         return result;
@@ -192,11 +198,16 @@ public class FlworDataFrameUtils {
     ) {
         String udfBinarySQL = FlworDataFrameUtils.getSQL(columnNamesByType.get("byte[]"), false);
         String udfLongSQL = FlworDataFrameUtils.getSQL(columnNamesByType.get("Long"), false);
+        // native columns have different types and are passed in a struct, which cannot be empty
+        String udfNativeSQL = columnNamesByType.get("Row").isEmpty()
+            ? "null"
+            : "struct(" + FlworDataFrameUtils.getSQL(columnNamesByType.get("Row"), false) + ")";
 
         return String.format(
-            "array(%s), array(%s)",
+            "array(%s), array(%s), %s",
             udfBinarySQL,
-            udfLongSQL
+            udfLongSQL,
+            udfNativeSQL
         );
     }
 
@@ -244,6 +255,23 @@ public class FlworDataFrameUtils {
         }
     }
 
+    public static void prepareDynamicContext(
+            DynamicContext context,
+            Map<String, List<String>> columnNamesByType,
+            List<List<Item>> deserializedParams,
+            List<Item> counts,
+            List<List<Item>> nativeParams
+    ) {
+        prepareDynamicContext(
+            context,
+            columnNamesByType.get("byte[]"),
+            columnNamesByType.get("Long"),
+            deserializedParams,
+            counts
+        );
+        prepareDynamicContext(context, columnNamesByType.get("Row"), nativeParams);
+    }
+
     /**
      * @param columnNames schema specifies the columns to be used in the query
      * @param trailingComma boolean field to have a trailing comma
@@ -274,8 +302,9 @@ public class FlworDataFrameUtils {
      * @param trailingComma field to have a trailing comma
      * @param serializerUdfName name of the serializer function
      * @param groupbyVariableNames names of group by variables
-     * @param dependencies variable dependencies of the group by clause
+     * @param dependencies variables used after the group by clause, the other non-grouping variables are dropped
      * @param columnNamesByType mapping from types(eg. Long) to columnNames(eg. [testColumn1, testColumn2])
+     * @param aggregateUdfNames names of the aggregate functions computing non-grouping columns, by column name
      * @return comma separated variables to be used in spark SQL
      */
     public static String getGroupbyProjectSQL(
@@ -285,7 +314,8 @@ public class FlworDataFrameUtils {
             String serializerUdfName,
             List<Name> groupbyVariableNames,
             Map<Name, DynamicContext.VariableDependency> dependencies,
-            Map<String, List<String>> columnNamesByType
+            Map<String, List<String>> columnNamesByType,
+            Map<String, String> aggregateUdfNames
     ) {
         String[] columnNames = inputSchema.fieldNames();
         StringBuilder queryColumnString = new StringBuilder();
@@ -295,22 +325,54 @@ public class FlworDataFrameUtils {
             }
 
             String columnName = columnNames[columnIndex];
+            if (
+                !dependencies.containsKey(Name.createVariableInNoNamespace(columnName))
+                    && !isProcessingGroupingColumn(groupbyVariableNames, columnName)
+            ) {
+                // the variable is not used after grouping
+                continue;
+            }
 
+            if (queryColumnString.length() > 0) {
+                queryColumnString.append(",");
+            }
             if (isCountPreComputed(columnNamesByType, columnName)) {
                 queryColumnString.append("sum(`");
                 queryColumnString.append(columnName);
                 queryColumnString.append("`)");
-            } else if (shouldCalculateCount(dependencies, columnName)) {
-                queryColumnString.append("count(`");
-                queryColumnString.append(columnName);
-                queryColumnString.append("`)");
             } else if (isProcessingGroupingColumn(groupbyVariableNames, columnName)) {
                 // rows that end up in the same group have the same value for the grouping column
                 // return a single instance of this value in the grouping column
-                queryColumnString.append(serializerUdfName);
-                queryColumnString.append("(array(first(`");
+                if (columnNamesByType.get("Row").contains(columnName)) {
+                    queryColumnString.append("first(`");
+                    queryColumnString.append(columnName);
+                    queryColumnString.append("`)");
+                } else {
+                    queryColumnString.append(serializerUdfName);
+                    queryColumnString.append("(array(first(`");
+                    queryColumnString.append(columnName);
+                    queryColumnString.append("`)))");
+                }
+            } else if (aggregateUdfNames.containsKey(columnName)) {
+                // only an aggregate of the column values is needed
+                queryColumnString.append(aggregateUdfNames.get(columnName));
+                queryColumnString.append("(`");
                 queryColumnString.append(columnName);
-                queryColumnString.append("`)))");
+                queryColumnString.append("`)");
+            } else if (columnNamesByType.get("Row").contains(columnName)) {
+                DataType columnType = inputSchema.fields()[columnIndex].dataType();
+                boolean isSequenceColumn = columnType instanceof ArrayType;
+                if (shouldCalculateCount(dependencies, columnName)) {
+                    // the empty sequence is stored as null and is thus not counted
+                    queryColumnString.append(isSequenceColumn ? "sum(size(`" : "count(`");
+                    queryColumnString.append(columnName);
+                    queryColumnString.append(isSequenceColumn ? "`))" : "`)");
+                } else {
+                    // native values are aggregated into a native sequence, skipping empty sequences
+                    queryColumnString.append(isSequenceColumn ? "flatten(collect_list(`" : "collect_list(`");
+                    queryColumnString.append(columnName);
+                    queryColumnString.append(isSequenceColumn ? "`))" : "`)");
+                }
             } else {
                 // aggregate the column values for each row in the group
                 queryColumnString.append(serializerUdfName);
@@ -322,10 +384,9 @@ public class FlworDataFrameUtils {
             queryColumnString.append(" as `");
             queryColumnString.append(columnName);
             queryColumnString.append("`");
-
-            if (trailingComma || columnIndex != (columnNames.length - 1)) {
-                queryColumnString.append(",");
-            }
+        }
+        if (trailingComma) {
+            queryColumnString.append(",");
         }
 
         return queryColumnString.toString();
@@ -352,15 +413,29 @@ public class FlworDataFrameUtils {
         return groupbyVariableNames.contains(Name.createVariableInNoNamespace(columnName));
     }
 
-    private static Object deserializeByteArray(byte[] toDeserialize, Kryo kryo, Input input) {
-        byte[] bytes = lastBytesCache.get();
-        if (bytes != null) {
-            if (Arrays.equals(bytes, toDeserialize)) {
-                return lastObjectItemCache.get();
-            }
+    @SuppressWarnings("unchecked")
+    private static List<Item> deserializeByteArray(byte[] toDeserialize, Kryo kryo, Input input) {
+        DeserializationCache cache = DeserializationCache.getInstance();
+        List<Item> cached = cache.get(toDeserialize);
+        if (cached != null) {
+            return cached;
         }
         input.setBuffer(toDeserialize);
-        return kryo.readClassAndObject(input);
+        List<Item> deserialized = (List<Item>) kryo.readClassAndObject(input);
+        cache.put(toDeserialize, deserialized);
+        return deserialized;
+    }
+
+    /**
+     * Deserializes a single variable column.
+     *
+     * @param serializedParam the serialized value of the column.
+     * @param kryo the Kryo instance used for deserialization.
+     * @param input the Kryo input used for deserialization.
+     * @return the sequence of items bound to the variable.
+     */
+    public static List<Item> deserializeItemList(byte[] serializedParam, Kryo kryo, Input input) {
+        return deserializeByteArray(serializedParam, kryo, input);
     }
 
     public static void deserializeWrappedParameters(
@@ -371,9 +446,7 @@ public class FlworDataFrameUtils {
     ) {
         Object[] serializedParams = (Object[]) wrappedParameters.array();
         for (Object serializedParam : serializedParams) {
-            @SuppressWarnings("unchecked")
-            List<Item> deserializedParam = (List<Item>) deserializeByteArray((byte[]) serializedParam, kryo, input);
-            deserializedParams.add(deserializedParam);
+            deserializedParams.add(deserializeByteArray((byte[]) serializedParam, kryo, input));
         }
     }
 
@@ -398,20 +471,126 @@ public class FlworDataFrameUtils {
         return RowFactory.create(newRowColumns.toArray());
     }
 
-    @SuppressWarnings("unchecked")
     public static List<Item> deserializeRowField(Row row, int columnIndex, Kryo kryo, Input input) {
         Object o = row.get(columnIndex);
         if (o instanceof Long) {
             List<Item> result = new ArrayList<>(1);
-            result.add(ItemFactory.getInstance().createIntegerItem(((Long) o).intValue()));
+            result.add(ItemFactory.getInstance().createIntegerItem((Long) o));
             return result;
+        } else if (o instanceof byte[]) {
+            return deserializeByteArray((byte[]) o, kryo, input);
         } else {
-            byte[] bytes = (byte[]) o;
-            input.setBuffer(bytes);
-            return (List<Item>) kryo.readClassAndObject(input);
+            return getItemsFromNativeValue(o, row.schema().fields()[columnIndex].dataType());
         }
     }
 
+    /**
+     * Native columns store a variable with a Spark type instead of a serialized sequence of items. An atomic or
+     * struct column stores a single item, or null for the empty sequence. An array column stores a sequence of such
+     * items.
+     *
+     * @param dataType the type of a variable column.
+     * @return true if the column is a native column.
+     */
+    public static boolean isNativeType(DataType dataType) {
+        return !dataType.equals(DataTypes.BinaryType) && !dataType.equals(DataTypes.LongType);
+    }
+
+    /**
+     * @param value the value of a native variable column.
+     * @param dataType the type of the column.
+     * @return the sequence of items bound to the variable.
+     */
+    public static List<Item> getItemsFromNativeValue(Object value, DataType dataType) {
+        List<Item> result = new ArrayList<>();
+        if (value == null) {
+            return result;
+        }
+        if (dataType instanceof ArrayType) {
+            DataType elementType = ((ArrayType) dataType).elementType();
+            for (Object element : JavaConversions.seqAsJavaList((Seq<?>) value)) {
+                if (element != null) {
+                    result.add(ItemParser.getItemFromValue(element, elementType, ExceptionMetadata.EMPTY_METADATA));
+                }
+            }
+            return result;
+        }
+        result.add(ItemParser.getItemFromValue(value, dataType, ExceptionMetadata.EMPTY_METADATA));
+        return result;
+    }
+
+    /**
+     * Deserializes the native variable columns passed to a UDF as a struct.
+     *
+     * @param nativeParameters the struct of native columns, or null if there are none.
+     * @param deserializedParams the list to which the sequences of items bound to the variables are appended.
+     */
+    public static void deserializeNativeParameters(Row nativeParameters, List<List<Item>> deserializedParams) {
+        if (nativeParameters == null) {
+            return;
+        }
+        StructField[] fields = nativeParameters.schema().fields();
+        for (int columnIndex = 0; columnIndex < fields.length; columnIndex++) {
+            deserializedParams.add(
+                getItemsFromNativeValue(nativeParameters.get(columnIndex), fields[columnIndex].dataType())
+            );
+        }
+    }
+
+    /**
+     * Determines the native column type with which a sequence of atomic items, each bound to a different tuple, can
+     * be stored.
+     *
+     * @param items the items.
+     * @return the Spark type of the items, or null if they cannot be stored in the same native column.
+     */
+    public static DataType getNativeTypeOfItems(List<Item> items) {
+        DataType result = null;
+        for (Item item : items) {
+            DataType itemType;
+            if (item.isString()) {
+                itemType = DataTypes.StringType;
+            } else if (item.isInteger()) {
+                if (item.getLongValue() != item.getIntegerValue()) {
+                    return null;
+                }
+                itemType = DataTypes.IntegerType;
+            } else if (item.isDouble()) {
+                itemType = DataTypes.DoubleType;
+            } else if (item.isBoolean()) {
+                itemType = DataTypes.BooleanType;
+            } else {
+                return null;
+            }
+            if (result != null && !result.equals(itemType)) {
+                return null;
+            }
+            result = itemType;
+        }
+        return result;
+    }
+
+    /**
+     * @param item an atomic item.
+     * @param dataType the native type of the item, as determined by getNativeTypeOfItems.
+     * @return the value of the item in a native column of this type.
+     */
+    public static Object getNativeValueOfItem(Item item, DataType dataType) {
+        if (dataType.equals(DataTypes.StringType)) {
+            return item.getStringValue();
+        }
+        if (dataType.equals(DataTypes.IntegerType)) {
+            return item.getIntegerValue();
+        }
+        if (dataType.equals(DataTypes.DoubleType)) {
+            return item.getDoubleValue();
+        }
+        if (dataType.equals(DataTypes.BooleanType)) {
+            return item.getBooleanValue();
+        }
+        throw new OurBadException("Unexpected native column type: " + dataType);
+    }
+
     public static List<Object> deserializeEntireRow(Row row, Kryo kryo, Input input) {
         ArrayList<Object> deserializedColumnObjects = new ArrayList<>();
         for (int columnIndex = 0; columnIndex < row.length(); columnIndex++) {
@@ -424,47 +603,46 @@ public class FlworDataFrameUtils {
     }
 
     /**
-     * Algorithm taken from following link and adapted to Java with minor improvements.
-     * https://stackoverflow.com/a/48454000/10707488
+     * Appends the position of each row as a new column. If the number of rows of each partition is known, the
+     * positions are assigned while streaming through the partitions. Otherwise, they are assigned with
+     * RDD.zipWithIndex, which counts the rows of all partitions but the last one in a job first. The rows are then
+     * cached until the query finishes, so that they are not computed twice, unless there is only one partition and
+     * thus no such job.
      *
      * @param df - df to perform the operation on
      * @param offset - starting offset for the first index
      * @param indexName - name of the index column
-     * @return returns DataFrame with the added 'indexName' column containing indices
+     * @param partitionCounts - the number of rows of each partition, or null if they are not known
+     * @param context - the dynamic context of the query
+     * @return returns DataFrame with the added 'indexName' column containing indices, replacing any existing column
+     *         with that name
      */
-    public static Dataset<Row> zipWithIndex(Dataset<Row> df, Long offset, String indexName) {
-        Dataset<Row> dfWithPartitionId = df
-            .withColumn("partition_id", spark_partition_id())
-            .withColumn("inc_id", monotonically_increasing_id());
-
-        dfWithPartitionId.persist();
-
-        Object partitionOffsetsObject = dfWithPartitionId
-            .groupBy("partition_id")
-            .agg(count(lit(1)).alias("cnt"), first("inc_id").alias("inc_id"))
-            .orderBy("partition_id")
-            .select(
-                col("partition_id"),
-                sum("cnt").over(Window.orderBy("partition_id"))
-                    .minus(col("cnt"))
-                    .minus(col("inc_id"))
-                    .plus(lit(offset).alias("cnt"))
-            )
-            .collect();
-        Row[] partitionOffsetsArray = ((Row[]) partitionOffsetsObject);
-        Map<Integer, Long> partitionOffsets = new HashMap<>();
-        for (Row row : partitionOffsetsArray) {
-            partitionOffsets.put(row.getInt(0), row.getLong(1));
+    public static Dataset<Row> zipWithIndex(
+            Dataset<Row> df,
+            Long offset,
+            String indexName,
+            long[] partitionCounts,
+            DynamicContext context
+    ) {
+        // as with withColumn, an existing column with the same name is replaced
+        df = df.drop(indexName);
+        StructType schemaWithIndex = df.schema().add(indexName, DataTypes.LongType, false);
+        JavaRDD<Row> rows = df.javaRDD();
+        JavaRDD<Row> rowsWithIndex;
+        if (partitionCounts != null && partitionCounts.length == rows.getNumPartitions()) {
+            long[] partitionOffsets = new long[partitionCounts.length];
+            long partitionOffset = offset;
+            for (int partition = 0; partition < partitionCounts.length; partition++) {
+                partitionOffsets[partition] = partitionOffset;
+                partitionOffset += partitionCounts[partition];
+            }
+            rowsWithIndex = rows.mapPartitionsWithIndex(new ZipWithPartitionOffsetsClosure(partitionOffsets), true);
+        } else {
+            if (rows.getNumPartitions() > 1) {
+                context.persistUntilQueryFinishes(rows);
+            }
+            rowsWithIndex = rows.zipWithIndex().map(new ZipWithIndexClosure(offset));
         }
-
-        UserDefinedFunction getPartitionOffset = udf(
-            (partitionId) -> partitionOffsets.get(partitionId),
-            DataTypes.LongType
-        );
-
-        return dfWithPartitionId
-            .withColumn("partition_offset", getPartitionOffset.apply(col("partition_id")))
-            .withColumn(indexName, col("partition_offset").plus(col("inc_id")))
-            .drop("partition_id", "partition_offset", "inc_id");
+        return df.sparkSession().createDataFrame(rowsWithIndex, schemaWithIndex);
     }
 }
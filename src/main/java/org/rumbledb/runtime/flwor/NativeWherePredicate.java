@@ -0,0 +1,708 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.rumbledb.api.Item;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+import org.rumbledb.runtime.RuntimeIterator;
+import org.rumbledb.runtime.flwor.udfs.WhereClauseExtractOperandsUDF;
+import org.rumbledb.runtime.functions.sequences.aggregate.CountFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.EmptyFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.ExistsFunctionIterator;
+import org.rumbledb.runtime.operational.AndOperationIterator;
+import org.rumbledb.runtime.operational.ComparisonOperationIterator;
+import org.rumbledb.runtime.operational.NotOperationIterator;
+import org.rumbledb.runtime.operational.OrOperationIterator;
+import org.rumbledb.runtime.operational.TypePromotionIterator;
+import org.rumbledb.runtime.primary.AtomicRuntimeIterator;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.expr;
+import static org.apache.spark.sql.functions.isnan;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.not;
+import static org.apache.spark.sql.functions.udf;
+import static org.apache.spark.sql.functions.when;
+
+/**
+ * Translates a where clause expression into a native Spark SQL predicate, so that the expression does not need to be
+ * evaluated by a runtime iterator for every tuple and Catalyst can see the filter.
+ *
+ * Supported expressions are and, or, not, exists and empty as well as value comparisons between a literal and either
+ * an object lookup path starting at a variable of the current FLWOR ($x.a.b) or the count of such a path. The
+ * values of all paths starting at the same variable are extracted with a single deserialization of the variable
+ * column, while variables stored in native atomic columns, as well as paths on variables stored in native struct
+ * columns, are compared directly as (nested) column references. If a value cannot be compared
+ * natively with exactly the same semantics as the comparison iterator (type mismatches, sequences of more than one
+ * item, precision issues...), the tuple is instead evaluated with the provided fallback, which normally is the where
+ * clause UDF. The fallback is thus also responsible for throwing
+ * errors.
+ */
+public class NativeWherePredicate {
+
+    public static final int EMPTY_KIND = 0;
+    public static final int NULL_KIND = 1;
+    public static final int VALUE_KIND = 2;
+    public static final int FALLBACK_KIND = 3;
+
+    private static final String extractedColumnPrefix = "#where-operands-";
+    private static final double maximumExactLongLiteral = 9007199254740992.0; // 2^53
+
+    public enum ValueFamily {
+        NONE,
+        COUNT,
+        STRING,
+        NUMERIC,
+        BOOLEAN
+    }
+
+    /**
+     * A path (or the count of a path) whose value is extracted from a variable column for native comparison.
+     */
+    public static class Operand implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final VariablePath path;
+        private final int index;
+        private ValueFamily family;
+
+        private Operand(VariablePath path, ValueFamily family, int index) {
+            this.path = path;
+            this.family = family;
+            this.index = index;
+        }
+
+        public ValueFamily getFamily() {
+            return this.family;
+        }
+
+        public String getKindFieldName() {
+            return this.index + "-kind";
+        }
+
+        public String getValueFieldName() {
+            return this.index + "-value";
+        }
+
+        public DataType getValueType() {
+            switch (this.family) {
+                case COUNT:
+                    return DataTypes.LongType;
+                case STRING:
+                    return DataTypes.StringType;
+                case NUMERIC:
+                    return DataTypes.DoubleType;
+                default:
+                    return DataTypes.BooleanType;
+            }
+        }
+
+        /**
+         * Extracts the kind and the native value of this operand.
+         *
+         * @param variableValue the items bound to the variable the path starts from.
+         * @param result the list to which the kind and the value are appended.
+         */
+        public void extract(List<Item> variableValue, List<Object> result) {
+            List<Item> items = this.path.evaluate(variableValue);
+            if (this.family == ValueFamily.COUNT) {
+                result.add(VALUE_KIND);
+                result.add((long) items.size());
+                return;
+            }
+            if (items.isEmpty()) {
+                result.add(EMPTY_KIND);
+                result.add(null);
+                return;
+            }
+            if (this.family == ValueFamily.NONE) {
+                result.add(VALUE_KIND);
+                result.add(null);
+                return;
+            }
+            if (items.size() > 1) {
+                result.add(FALLBACK_KIND);
+                result.add(null);
+                return;
+            }
+            Item item = items.get(0);
+            if (item.isNull()) {
+                result.add(NULL_KIND);
+                result.add(null);
+                return;
+            }
+            Object value = extractValue(item);
+            result.add(value == null ? FALLBACK_KIND : VALUE_KIND);
+            result.add(value);
+        }
+
+        private Object extractValue(Item item) {
+            switch (this.family) {
+                case STRING:
+                    if (!item.isString()) {
+                        return null;
+                    }
+                    return item.getStringValue();
+                case BOOLEAN:
+                    return item.isBoolean() ? item.getBooleanValue() : null;
+                case NUMERIC:
+                    if (item.isInteger()) {
+                        // integers beyond 2^53 are not exactly represented as doubles
+                        double integerValue = item.castToDoubleValue();
+                        return Math.abs(integerValue) < maximumExactLongLiteral ? integerValue : null;
+                    }
+                    double value;
+                    if (item.isDouble()) {
+                        value = item.getDoubleValue();
+                        if (Double.isNaN(value) || Double.doubleToRawLongBits(value) == Long.MIN_VALUE) {
+                            // NaN and negative zero are ordered differently by Spark.
+                            return null;
+                        }
+                    } else if (item.isDecimal()) {
+                        value = item.getDecimalValue().doubleValue();
+                        if (!isExactlyRepresentable(item.getDecimalValue(), value)) {
+                            return null;
+                        }
+                    } else {
+                        return null;
+                    }
+                    return value;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * The operands extracted from a single variable column.
+     */
+    private static class VariableOperands {
+
+        private final Name variableName;
+        private final String extractedColumnName;
+        private final Map<VariablePath, Operand> pathOperands;
+        private final Map<VariablePath, Operand> countOperands;
+        private final List<Operand> operands;
+
+        private VariableOperands(Name variableName, int index) {
+            this.variableName = variableName;
+            this.extractedColumnName = extractedColumnPrefix + index;
+            this.pathOperands = new HashMap<>();
+            this.countOperands = new HashMap<>();
+            this.operands = new ArrayList<>();
+        }
+
+        private Operand getOperand(VariablePath path, boolean isCount) {
+            Map<VariablePath, Operand> map = isCount ? this.countOperands : this.pathOperands;
+            Operand operand = map.get(path);
+            if (operand == null) {
+                operand = new Operand(path, isCount ? ValueFamily.COUNT : ValueFamily.NONE, this.operands.size());
+                map.put(path, operand);
+                this.operands.add(operand);
+            }
+            return operand;
+        }
+
+        private Column getKindColumn(Operand operand) {
+            return col("`" + this.extractedColumnName + "`").getField(operand.getKindFieldName());
+        }
+
+        private Column getValueColumn(Operand operand) {
+            return col("`" + this.extractedColumnName + "`").getField(operand.getValueFieldName());
+        }
+
+        private StructType getExtractedSchema() {
+            List<StructField> fields = new ArrayList<>();
+            for (Operand operand : this.operands) {
+                fields.add(DataTypes.createStructField(operand.getKindFieldName(), DataTypes.IntegerType, false));
+                fields.add(DataTypes.createStructField(operand.getValueFieldName(), operand.getValueType(), true));
+            }
+            return DataTypes.createStructType(fields);
+        }
+    }
+
+    private final Set<Name> binaryVariables;
+    private final Set<Name> countVariables;
+    private final Map<Name, DataType> nativeVariables;
+    private final Map<Name, VariableOperands> variableOperands;
+    private final List<Column> nativeFallbackConditions;
+    private final DynamicContext context;
+    private Column predicate;
+
+    private NativeWherePredicate(DynamicContext context) {
+        this.binaryVariables = new HashSet<>();
+        this.countVariables = new HashSet<>();
+        this.nativeVariables = new HashMap<>();
+        this.context = context;
+        this.variableOperands = new LinkedHashMap<>();
+        this.nativeFallbackConditions = new ArrayList<>();
+    }
+
+    /**
+     * Attempts to translate the expression of a where clause to a native predicate.
+     *
+     * @param expression the where clause expression.
+     * @param inputSchema the schema of the tuple DataFrame, in which variables are stored as serialized items
+     *        (binary columns), as pre-computed counts (long columns) or as native columns.
+     * @param context the dynamic context in which literals are evaluated.
+     * @return the native predicate, or null if the expression is not supported.
+     */
+    public static NativeWherePredicate compile(
+            RuntimeIterator expression,
+            StructType inputSchema,
+            DynamicContext context
+    ) {
+        NativeWherePredicate result = new NativeWherePredicate(context);
+        for (StructField field : inputSchema.fields()) {
+            Name variableName = Name.createVariableInNoNamespace(field.name());
+            if (field.dataType().equals(DataTypes.BinaryType)) {
+                result.binaryVariables.add(variableName);
+            } else if (field.dataType().equals(DataTypes.LongType)) {
+                result.countVariables.add(variableName);
+            } else {
+                result.nativeVariables.put(variableName, field.dataType());
+            }
+        }
+        result.predicate = result.translate(expression);
+        if (result.predicate == null) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Filters a tuple DataFrame with this predicate.
+     *
+     * @param df the DataFrame to filter, with the schema this predicate was compiled against.
+     * @param fallbackSQL a boolean SQL expression evaluating the where clause on the tuple, used for the tuples that
+     *        cannot be evaluated natively.
+     * @return the filtered DataFrame, with the same schema.
+     */
+    public Dataset<Row> filter(Dataset<Row> df, String fallbackSQL) {
+        List<String> extractedColumnNames = new ArrayList<>();
+        Column fallbackCondition = null;
+        for (Column isFallback : this.nativeFallbackConditions) {
+            fallbackCondition = fallbackCondition == null ? isFallback : fallbackCondition.or(isFallback);
+        }
+        for (VariableOperands operands : this.variableOperands.values()) {
+            UserDefinedFunction extractUDF = udf(
+                new WhereClauseExtractOperandsUDF(operands.operands),
+                operands.getExtractedSchema()
+            ).asNondeterministic(); // prevents Catalyst from evaluating the UDF once per field reference
+            df = df.withColumn(
+                operands.extractedColumnName,
+                extractUDF.apply(col("`" + operands.variableName + "`"))
+            );
+            extractedColumnNames.add(operands.extractedColumnName);
+            for (Operand operand : operands.operands) {
+                if (operand.family == ValueFamily.NONE || operand.family == ValueFamily.COUNT) {
+                    continue;
+                }
+                Column isFallback = operands.getKindColumn(operand).equalTo(FALLBACK_KIND);
+                fallbackCondition = fallbackCondition == null ? isFallback : fallbackCondition.or(isFallback);
+            }
+        }
+        Column condition = this.predicate;
+        if (fallbackCondition != null) {
+            condition = when(fallbackCondition, expr(fallbackSQL)).otherwise(this.predicate);
+        }
+        df = df.filter(condition);
+        for (String extractedColumnName : extractedColumnNames) {
+            df = df.drop(extractedColumnName);
+        }
+        return df;
+    }
+
+    /**
+     * Function calls are wrapped in a type promotion iterator checking their return type. The builtin functions
+     * supported here always return a single boolean or integer, so the check can be skipped.
+     *
+     * @param iterator an iterator of the where clause expression.
+     * @return the function call iterator if the iterator checks the type of a supported function, the iterator
+     *         itself otherwise.
+     */
+    private static RuntimeIterator unwrapTypePromotion(RuntimeIterator iterator) {
+        if (!(iterator instanceof TypePromotionIterator)) {
+            return iterator;
+        }
+        RuntimeIterator child = iterator.getChildren().get(0);
+        if (
+            child instanceof ExistsFunctionIterator
+                || child instanceof EmptyFunctionIterator
+                || child instanceof CountFunctionIterator
+        ) {
+            return child;
+        }
+        return iterator;
+    }
+
+    private Column translate(RuntimeIterator iterator) {
+        iterator = unwrapTypePromotion(iterator);
+        if (iterator instanceof AndOperationIterator || iterator instanceof OrOperationIterator) {
+            Column left = translate(iterator.getChildren().get(0));
+            Column right = translate(iterator.getChildren().get(1));
+            if (left == null || right == null) {
+                return null;
+            }
+            return iterator instanceof AndOperationIterator ? left.and(right) : left.or(right);
+        }
+        if (iterator instanceof NotOperationIterator) {
+            Column child = translate(iterator.getChildren().get(0));
+            return child == null ? null : not(child);
+        }
+        if (iterator instanceof ExistsFunctionIterator || iterator instanceof EmptyFunctionIterator) {
+            NativeOperand nativeOperand = getNativeOperand(iterator.getChildren().get(0));
+            if (nativeOperand != null) {
+                Column isEmpty = nativeOperand.kind.equalTo(EMPTY_KIND);
+                return iterator instanceof EmptyFunctionIterator ? isEmpty : not(isEmpty);
+            }
+            VariablePath path = VariablePath.recognize(iterator.getChildren().get(0), this.binaryVariables);
+            if (path == null) {
+                return null;
+            }
+            VariableOperands operands = getVariableOperands(path.getVariableName());
+            Column isEmpty = operands.getKindColumn(operands.getOperand(path, false)).equalTo(EMPTY_KIND);
+            return iterator instanceof EmptyFunctionIterator ? isEmpty : not(isEmpty);
+        }
+        if (iterator instanceof ComparisonOperationIterator) {
+            return translateComparison((ComparisonOperationIterator) iterator);
+        }
+        return null;
+    }
+
+    private Column translateComparison(ComparisonOperationIterator iterator) {
+        ComparisonExpression.ComparisonOperator operator = iterator.getComparisonOperator();
+        if (!operator.isValueComparison()) {
+            return null;
+        }
+        RuntimeIterator left = unwrapTypePromotion(iterator.getChildren().get(0));
+        RuntimeIterator right = unwrapTypePromotion(iterator.getChildren().get(1));
+        boolean literalIsLeft = left instanceof AtomicRuntimeIterator;
+        RuntimeIterator literalIterator = literalIsLeft ? left : right;
+        RuntimeIterator operandIterator = literalIsLeft ? right : left;
+        if (!(literalIterator instanceof AtomicRuntimeIterator)) {
+            return null;
+        }
+        Item literal = literalIterator.materializeFirstItemOrNull(this.context);
+        if (literal == null) {
+            return null;
+        }
+        ValueFamily literalFamily = getLiteralFamily(literal);
+        if (literalFamily == null) {
+            return null;
+        }
+        if (
+            literalFamily == ValueFamily.STRING
+                && operator != ComparisonExpression.ComparisonOperator.VC_EQ
+                && operator != ComparisonExpression.ComparisonOperator.VC_NE
+                && hasCharactersOrderedDifferentlyInUTF8(literal.getStringValue())
+        ) {
+            return null;
+        }
+        boolean literalIsIntegral = literal.isInteger()
+            || (literal.isNumeric() && literal.castToDoubleValue() == Math.rint(literal.castToDoubleValue()));
+        if (literalIsLeft) {
+            operator = flip(operator);
+        }
+
+        Object nativeLiteral = getNativeLiteral(literal, literalFamily);
+        Column kind;
+        Column value;
+        NativeOperand nativeOperand = getNativeOperand(operandIterator);
+        boolean isCount = operandIterator instanceof CountFunctionIterator;
+        if (isCount) {
+            if (literalFamily != ValueFamily.NUMERIC) {
+                return null;
+            }
+            RuntimeIterator countedIterator = operandIterator.getChildren().get(0);
+            VariablePath countedPath = VariablePath.recognize(countedIterator, this.countVariables);
+            if (countedPath != null && countedPath.getKeys().isEmpty()) {
+                // the count was pre-computed in a long column.
+                kind = lit(VALUE_KIND);
+                value = col("`" + countedPath.getVariableName() + "`");
+            } else {
+                VariablePath path = VariablePath.recognize(countedIterator, this.binaryVariables);
+                if (path == null) {
+                    return null;
+                }
+                VariableOperands operands = getVariableOperands(path.getVariableName());
+                Operand operand = operands.getOperand(path, true);
+                kind = operands.getKindColumn(operand);
+                value = operands.getValueColumn(operand);
+            }
+        } else if (nativeOperand != null) {
+            DataType type = nativeOperand.type;
+            if (getNativeFamily(type) != literalFamily) {
+                return null;
+            }
+            value = nativeOperand.value;
+            kind = nativeOperand.kind;
+            if (type.equals(DataTypes.LongType)) {
+                // long values beyond 2^53 are not exactly represented as doubles, so they are only compared, as longs,
+                // with integral literals.
+                if (!literalIsIntegral || Math.abs(literal.castToDoubleValue()) >= maximumExactLongLiteral) {
+                    return null;
+                }
+                nativeLiteral = (long) literal.castToDoubleValue();
+            }
+            if (type.equals(DataTypes.DoubleType)) {
+                // NaN and negative zero are ordered differently by Spark.
+                kind = when(isnan(value).or(value.equalTo(0.0)), lit(FALLBACK_KIND)).otherwise(kind);
+                this.nativeFallbackConditions.add(kind.equalTo(FALLBACK_KIND));
+            }
+        } else {
+            VariablePath path = VariablePath.recognize(operandIterator, this.binaryVariables);
+            if (path == null) {
+                return null;
+            }
+            VariableOperands operands = getVariableOperands(path.getVariableName());
+            Operand operand = operands.getOperand(path, false);
+            if (operand.family == ValueFamily.NONE) {
+                operand.family = literalFamily;
+            } else if (operand.family != literalFamily) {
+                return null;
+            }
+            kind = operands.getKindColumn(operand);
+            value = operands.getValueColumn(operand);
+        }
+
+        Column literalColumn = lit(nativeLiteral);
+        Column comparison;
+        // null is smaller than any other atomic item.
+        boolean nullResult;
+        switch (operator) {
+            case VC_EQ:
+                comparison = value.equalTo(literalColumn);
+                nullResult = false;
+                break;
+            case VC_NE:
+                comparison = value.notEqual(literalColumn);
+                nullResult = true;
+                break;
+            case VC_LT:
+                comparison = value.lt(literalColumn);
+                nullResult = true;
+                break;
+            case VC_LE:
+                comparison = value.leq(literalColumn);
+                nullResult = true;
+                break;
+            case VC_GT:
+                comparison = value.gt(literalColumn);
+                nullResult = false;
+                break;
+            case VC_GE:
+                comparison = value.geq(literalColumn);
+                nullResult = false;
+                break;
+            default:
+                return null;
+        }
+        // a comparison with an empty sequence returns the empty sequence, the effective boolean value of which is
+        // false.
+        return when(kind.equalTo(VALUE_KIND), comparison)
+            .when(kind.equalTo(NULL_KIND), lit(nullResult))
+            .otherwise(lit(false));
+    }
+
+    /**
+     * A value read directly from a native column, together with its kind.
+     */
+    private static class NativeOperand {
+
+        private final Column value;
+        private final Column kind;
+        private final DataType type;
+
+        private NativeOperand(Column value, Column kind, DataType type) {
+            this.value = value;
+            this.kind = kind;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Recognizes operands that can be read from native columns without deserialization: references to variables
+     * stored in native atomic columns, and object lookup paths ($x.a.b) on variables stored in struct columns, which
+     * become nested field references.
+     *
+     * @param iterator an operand of the where clause expression.
+     * @return the native operand, or null if the operand is not stored natively.
+     */
+    private NativeOperand getNativeOperand(RuntimeIterator iterator) {
+        VariablePath path = VariablePath.recognize(iterator, this.nativeVariables.keySet());
+        if (path == null) {
+            return null;
+        }
+        DataType type = this.nativeVariables.get(path.getVariableName());
+        Column value = col("`" + path.getVariableName() + "`");
+        if (path.getKeys().isEmpty()) {
+            if (type instanceof ArrayType) {
+                // sequences of more than one item are not supported
+                return null;
+            }
+            return new NativeOperand(value, when(value.isNull(), lit(EMPTY_KIND)).otherwise(lit(VALUE_KIND)), type);
+        }
+        // looking up a key in a null struct, which is either the empty sequence or a null item, returns nothing.
+        Column isEmpty = value.isNull();
+        for (int i = 0; i < path.getKeys().size(); i++) {
+            String key = path.getKeys().get(i);
+            if (!(type instanceof StructType) || !isObjectStruct((StructType) type)) {
+                return null;
+            }
+            StructType structType = (StructType) type;
+            if (!Arrays.asList(structType.fieldNames()).contains(key)) {
+                return null;
+            }
+            if (i > 0) {
+                isEmpty = isEmpty.or(value.isNull());
+            }
+            value = value.getField(key);
+            type = structType.apply(key).dataType();
+        }
+        return new NativeOperand(
+                value,
+                when(isEmpty, lit(EMPTY_KIND)).when(value.isNull(), lit(NULL_KIND)).otherwise(lit(VALUE_KIND)),
+                type
+        );
+    }
+
+    private static boolean isObjectStruct(StructType type) {
+        String[] fieldNames = type.fieldNames();
+        // see ItemParser.getItemFromRow
+        return !(fieldNames.length == 1 && fieldNames[0].equals(SparkSessionManager.atomicJSONiqItemColumnName));
+    }
+
+    private static ValueFamily getNativeFamily(DataType type) {
+        if (DataTypes.StringType.equals(type)) {
+            return ValueFamily.STRING;
+        }
+        if (
+            DataTypes.IntegerType.equals(type) || DataTypes.LongType.equals(type) || DataTypes.DoubleType.equals(type)
+        ) {
+            return ValueFamily.NUMERIC;
+        }
+        if (DataTypes.BooleanType.equals(type)) {
+            return ValueFamily.BOOLEAN;
+        }
+        return null;
+    }
+
+    private VariableOperands getVariableOperands(Name variableName) {
+        VariableOperands operands = this.variableOperands.get(variableName);
+        if (operands == null) {
+            operands = new VariableOperands(variableName, this.variableOperands.size());
+            this.variableOperands.put(variableName, operands);
+        }
+        return operands;
+    }
+
+    private static ValueFamily getLiteralFamily(Item literal) {
+        if (literal.isString()) {
+            return ValueFamily.STRING;
+        }
+        if (literal.isBoolean()) {
+            return ValueFamily.BOOLEAN;
+        }
+        if (literal.isInteger()) {
+            return Math.abs(literal.castToDoubleValue()) < maximumExactLongLiteral ? ValueFamily.NUMERIC : null;
+        }
+        if (literal.isDouble()) {
+            double value = literal.getDoubleValue();
+            if (Double.isNaN(value) || Double.doubleToRawLongBits(value) == Long.MIN_VALUE) {
+                return null;
+            }
+            return ValueFamily.NUMERIC;
+        }
+        if (literal.isDecimal()) {
+            BigDecimal value = literal.getDecimalValue();
+            return isExactlyRepresentable(value, value.doubleValue()) ? ValueFamily.NUMERIC : null;
+        }
+        return null;
+    }
+
+    private static Object getNativeLiteral(Item literal, ValueFamily family) {
+        switch (family) {
+            case STRING:
+                return literal.getStringValue();
+            case BOOLEAN:
+                return literal.getBooleanValue();
+            default:
+                return literal.castToDoubleValue();
+        }
+    }
+
+    private static ComparisonExpression.ComparisonOperator flip(ComparisonExpression.ComparisonOperator operator) {
+        switch (operator) {
+            case VC_LT:
+                return ComparisonExpression.ComparisonOperator.VC_GT;
+            case VC_LE:
+                return ComparisonExpression.ComparisonOperator.VC_GE;
+            case VC_GT:
+                return ComparisonExpression.ComparisonOperator.VC_LT;
+            case VC_GE:
+                return ComparisonExpression.ComparisonOperator.VC_LE;
+            default:
+                return operator;
+        }
+    }
+
+    private static boolean isExactlyRepresentable(BigDecimal decimal, double value) {
+        return !Double.isInfinite(value) && new BigDecimal(value).compareTo(decimal) == 0;
+    }
+
+    /**
+     * Java orders strings by UTF-16 code units, Spark by UTF-8 bytes. Both orders only differ between surrogate
+     * pairs and characters from U+E000 on, so they agree as long as one of the compared strings has neither.
+     */
+    private static boolean hasCharactersOrderedDifferentlyInUTF8(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) >= '\uD800') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor;
+
+import org.joda.time.Instant;
+import org.rumbledb.api.Item;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes atomic items as byte arrays whose unsigned lexicographic order is the order of the items, so that order by
+ * clauses can sort tuples without knowing the types of the sorting keys in advance.
+ *
+ * The first byte of a key is the family of the item: items of different families cannot be compared, except numbers.
+ * Numbers are encoded by their exact value. Doubles have a family of their own because, like their items, they are
+ * compared with integers and decimals as doubles, which getDoubleValue() recovers from the keys.
+ */
+public class SortKeyEncoder {
+
+    public static final byte BOOLEAN_FAMILY = 1;
+    public static final byte NUMERIC_FAMILY = 2;
+    public static final byte STRING_FAMILY = 3;
+    public static final byte ANY_URI_FAMILY = 4;
+    public static final byte DURATION_FAMILY = 5;
+    public static final byte DATE_TIME_FAMILY = 6;
+    public static final byte DATE_FAMILY = 7;
+    public static final byte TIME_FAMILY = 8;
+    public static final byte DOUBLE_FAMILY = 9;
+
+    // classes of numbers, in ascending order
+    private static final byte NEGATIVE_INFINITY = 0;
+    private static final byte NEGATIVE = 1;
+    private static final byte ZERO = 2;
+    private static final byte POSITIVE = 3;
+    private static final byte POSITIVE_INFINITY = 4;
+    private static final byte NOT_A_NUMBER = 5;
+
+    /**
+     * @param item an atomic item, other than null or a binary.
+     * @return the sort key of the item, or null if items of its type cannot be ordered.
+     */
+    public static byte[] encode(Item item) {
+        if (item.isBoolean()) {
+            return new byte[] { BOOLEAN_FAMILY, (byte) (item.getBooleanValue() ? 1 : 0) };
+        }
+        if (item.isNumeric()) {
+            return encodeNumber(item);
+        }
+        if (item.isString()) {
+            return encodeString(STRING_FAMILY, item.getStringValue());
+        }
+        if (item.isAnyURI()) {
+            return encodeString(ANY_URI_FAMILY, item.getStringValue());
+        }
+        if (item.isDuration() || item.isYearMonthDuration() || item.isDayTimeDuration()) {
+            return encodeLong(DURATION_FAMILY, item.getDurationValue().toDurationFrom(Instant.now()).getMillis());
+        }
+        if (item.isDateTime()) {
+            return encodeLong(DATE_TIME_FAMILY, item.getDateTimeValue().getMillis());
+        }
+        if (item.isDate()) {
+            return encodeLong(DATE_FAMILY, item.getDateTimeValue().getMillis());
+        }
+        if (item.isTime()) {
+            return encodeLong(TIME_FAMILY, item.getDateTimeValue().getMillis());
+        }
+        return null;
+    }
+
+    public static byte getFamily(byte[] key) {
+        return key[0];
+    }
+
+    public static boolean isNumericFamily(byte family) {
+        return family == NUMERIC_FAMILY || family == DOUBLE_FAMILY;
+    }
+
+    /**
+     * @param key the key of a number.
+     * @return the number as a double, the value of a double exactly.
+     */
+    public static double getDoubleValue(byte[] key) {
+        switch (key[1]) {
+            case NEGATIVE_INFINITY:
+                return Double.NEGATIVE_INFINITY;
+            case ZERO:
+                return 0;
+            case POSITIVE_INFINITY:
+                return Double.POSITIVE_INFINITY;
+            case NOT_A_NUMBER:
+                return Double.NaN;
+            default:
+                break;
+        }
+        boolean isNegative = key[1] == NEGATIVE;
+        int exponent = ByteBuffer.wrap(key, 2, 4).getInt() ^ Integer.MIN_VALUE;
+        if (isNegative) {
+            exponent = -exponent;
+        }
+        StringBuilder digits = new StringBuilder();
+        for (int i = 6; i < key.length - (isNegative ? 1 : 0); i++) {
+            digits.append((char) (isNegative ? '9' - key[i] + '0' : key[i]));
+        }
+        BigDecimal value = new BigDecimal(new BigInteger(digits.toString()), digits.length() - exponent);
+        return isNegative ? -value.doubleValue() : value.doubleValue();
+    }
+
+    /**
+     * Compares two keys of the same family.
+     *
+     * @param key1 the first key.
+     * @param key2 the second key.
+     * @return a negative number, zero or a positive number if the first key is smaller than, equal to or greater
+     *         than the second key.
+     */
+    public static int compare(byte[] key1, byte[] key2) {
+        int length = Math.min(key1.length, key2.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (key1[i] & 0xff) - (key2[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return key1.length - key2.length;
+    }
+
+    private static byte[] encodeString(byte family, String value) {
+        // UTF-16 code units in big-endian order compare like Java strings
+        byte[] characters = value.getBytes(StandardCharsets.UTF_16BE);
+        byte[] result = new byte[characters.length + 1];
+        result[0] = family;
+        System.arraycopy(characters, 0, result, 1, characters.length);
+        return result;
+    }
+
+    private static byte[] encodeLong(byte family, long value) {
+        return ByteBuffer.allocate(9).put(family).putLong(value ^ Long.MIN_VALUE).array();
+    }
+
+    private static byte[] encodeNumber(Item item) {
+        BigDecimal value;
+        byte family = NUMERIC_FAMILY;
+        if (item.isDouble()) {
+            family = DOUBLE_FAMILY;
+            double doubleValue = item.getDoubleValue();
+            if (Double.isNaN(doubleValue)) {
+                return new byte[] { family, NOT_A_NUMBER };
+            }
+            if (Double.isInfinite(doubleValue)) {
+                return new byte[] { family, doubleValue > 0 ? POSITIVE_INFINITY : NEGATIVE_INFINITY };
+            }
+            value = new BigDecimal(doubleValue);
+        } else {
+            value = item.castToDecimalValue();
+        }
+        if (value.signum() == 0) {
+            return new byte[] { family, ZERO };
+        }
+
+        // the value is 0.d1d2...dn * 10^exponent with d1 != 0 and dn != 0
+        boolean isNegative = value.signum() < 0;
+        value = value.abs().stripTrailingZeros();
+        String digits = value.unscaledValue().toString();
+        int exponent = value.precision() - value.scale();
+
+        ByteBuffer buffer = ByteBuffer.allocate(digits.length() + (isNegative ? 7 : 6));
+        buffer.put(family);
+        buffer.put(isNegative ? NEGATIVE : POSITIVE);
+        // the greater the exponent, the greater the magnitude
+        buffer.putInt((isNegative ? -exponent : exponent) ^ Integer.MIN_VALUE);
+        for (int i = 0; i < digits.length(); i++) {
+            char digit = digits.charAt(i);
+            buffer.put((byte) (isNegative ? '9' - digit + '0' : digit));
+        }
+        if (isNegative) {
+            // a negative number with a prefix of the digits of another one is greater
+            buffer.put((byte) 0xff);
+        }
+        return buffer.array();
+    }
+}
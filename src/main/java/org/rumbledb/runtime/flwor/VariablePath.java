@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.context.Name;
+import org.rumbledb.runtime.RuntimeIterator;
+import org.rumbledb.runtime.postfix.ObjectLookupIterator;
+import org.rumbledb.runtime.primary.StringRuntimeIterator;
+import org.rumbledb.runtime.primary.VariableReferenceIterator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A path of object lookups with literal keys starting at a variable, such as $x.user.id.
+ * Paths can be recognized statically on runtime iterators, and evaluated on the deserialized value of a variable
+ * column with the same semantics as a chain of object lookup iterators.
+ */
+public class VariablePath implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final Name variableName;
+    private final List<String> keys;
+
+    public VariablePath(Name variableName, List<String> keys) {
+        this.variableName = variableName;
+        this.keys = new ArrayList<>(keys);
+    }
+
+    /**
+     * Recognizes a path on a runtime iterator, i.e., a variable reference followed by zero or more object lookups
+     * with string literal keys.
+     *
+     * @param iterator the iterator to analyze.
+     * @param variables the variables a path is allowed to start from.
+     * @return the path, or null if the iterator is not a path starting from one of the variables.
+     */
+    public static VariablePath recognize(RuntimeIterator iterator, Set<Name> variables) {
+        List<String> keys = new ArrayList<>();
+        RuntimeIterator current = iterator;
+        while (current instanceof ObjectLookupIterator) {
+            RuntimeIterator lookupIterator = current.getChildren().get(1);
+            if (!(lookupIterator instanceof StringRuntimeIterator)) {
+                return null;
+            }
+            keys.add(lookupIterator.materializeFirstItemOrNull(null).getStringValue());
+            current = current.getChildren().get(0);
+        }
+        if (!(current instanceof VariableReferenceIterator)) {
+            return null;
+        }
+        Name variableName = ((VariableReferenceIterator) current).getVariableName();
+        if (!variables.contains(variableName)) {
+            return null;
+        }
+        Collections.reverse(keys);
+        return new VariablePath(variableName, keys);
+    }
+
+    public Name getVariableName() {
+        return this.variableName;
+    }
+
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(this.keys);
+    }
+
+    /**
+     * Evaluates the path on the value of its variable. Like object lookup, non-object items and objects that do
+     * not have the key are skipped.
+     *
+     * @param variableValue the sequence of items bound to the variable.
+     * @return the sequence of items the path evaluates to.
+     */
+    public List<Item> evaluate(List<Item> variableValue) {
+        List<Item> current = variableValue;
+        for (String key : this.keys) {
+            List<Item> next = new ArrayList<>(current.size());
+            for (Item item : current) {
+                if (item.isObject()) {
+                    Item value = item.getItemByKey(key);
+                    if (value != null) {
+                        next.add(value);
+                    }
+                }
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof VariablePath)) {
+            return false;
+        }
+        VariablePath otherPath = (VariablePath) other;
+        return this.variableName.equals(otherPath.variableName) && this.keys.equals(otherPath.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.variableName.hashCode() * 31 + this.keys.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("$");
+        sb.append(this.variableName);
+        for (String key : this.keys) {
+            sb.append(".").append(key);
+        }
+        return sb.toString();
+    }
+}
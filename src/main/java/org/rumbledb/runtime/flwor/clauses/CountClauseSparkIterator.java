@@ -22,7 +22,6 @@ package org.rumbledb.runtime.flwor.clauses;
 
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
-import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
@@ -34,7 +33,7 @@ import org.rumbledb.items.ItemFactory;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
-import org.rumbledb.runtime.flwor.udfs.CountClauseSerializeUDF;
+import org.rumbledb.runtime.functions.input.CountableInputIterator;
 import org.rumbledb.runtime.primary.VariableReferenceIterator;
 import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.jsoniq.tuple.FlworTuple;
@@ -53,6 +52,7 @@ public class CountClauseSparkIterator extends RuntimeTupleIterator {
     private Name variableName;
     private FlworTuple nextLocalTupleResult;
     private int currentCountIndex;
+    private RuntimeIterator countedInput;
 
     public CountClauseSparkIterator(
             RuntimeTupleIterator child,
@@ -65,6 +65,14 @@ public class CountClauseSparkIterator extends RuntimeTupleIterator {
         this.currentCountIndex = 1; // indices start at 1 in JSONiq
     }
 
+    /**
+     * @param countedInput an input function returning exactly one item for each tuple of the child clause, in the
+     *        same partitions.
+     */
+    public void setCountedInput(RuntimeIterator countedInput) {
+        this.countedInput = countedInput;
+    }
+
     @Override
     public void open(DynamicContext context) {
         super.open(context);
@@ -124,21 +132,24 @@ public class CountClauseSparkIterator extends RuntimeTupleIterator {
 
         String selectSQL = FlworDataFrameUtils.getSQL(allColumns, true);
 
-        Dataset<Row> dfWithIndex = FlworDataFrameUtils.zipWithIndex(df, 1L, this.variableName.toString());
-
-        df.sparkSession()
-            .udf()
-            .register(
-                "serializeCountIndex",
-                new CountClauseSerializeUDF(),
-                DataTypes.BinaryType
-            );
-
+        long[] partitionCounts = null;
+        if (this.countedInput != null) {
+            partitionCounts = ((CountableInputIterator) this.countedInput).countPerPartition(context);
+        }
+        Dataset<Row> dfWithIndex = FlworDataFrameUtils.zipWithIndex(
+            df,
+            1L,
+            this.variableName.toString(),
+            partitionCounts,
+            context
+        );
+
+        // the count variable is stored natively as an integer
         dfWithIndex.createOrReplaceTempView("input");
         dfWithIndex = dfWithIndex.sparkSession()
             .sql(
                 String.format(
-                    "select %s serializeCountIndex(`%s`) as `%s` from input",
+                    "select %s cast(`%s` as int) as `%s` from input",
                     selectSQL,
                     this.variableName,
                     this.variableName
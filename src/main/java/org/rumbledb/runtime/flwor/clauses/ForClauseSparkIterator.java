@@ -20,9 +20,15 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
+import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
@@ -30,26 +36,43 @@ import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.context.Name;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
 import org.rumbledb.exceptions.IteratorFlowException;
 import org.rumbledb.exceptions.JobWithinAJobException;
+import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.VariablePath;
 import org.rumbledb.runtime.flwor.closures.ForClauseLocalTupleToRowClosure;
 import org.rumbledb.runtime.flwor.closures.ForClauseSerializeClosure;
+import org.rumbledb.runtime.flwor.udfs.ForClauseJoinKeysUDF;
 import org.rumbledb.runtime.flwor.udfs.ForClauseUDF;
+import org.rumbledb.runtime.operational.AndOperationIterator;
+import org.rumbledb.runtime.operational.ComparisonOperationIterator;
 import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.jsoniq.tuple.FlworTuple;
 import sparksoniq.spark.SparkSessionManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
+import static org.apache.spark.sql.functions.array;
+import static org.apache.spark.sql.functions.broadcast;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.explode;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.monotonically_increasing_id;
+import static org.apache.spark.sql.functions.struct;
+import static org.apache.spark.sql.functions.udf;
+
 public class ForClauseSparkIterator extends RuntimeTupleIterator {
 
 
@@ -60,6 +83,14 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
     private DynamicContext tupleContext; // re-use same DynamicContext object for efficiency
     private FlworTuple nextLocalTupleResult;
     private FlworTuple inputTuple; // tuple received from child, used for tuple creation
+    private boolean isTupleOrderIrrelevant;
+
+    // larger sequences are not inlined into the query plan
+    private static final int maximumNativeLiteralSequenceLength = 1000;
+
+    private static final String joinKeysColumnPrefix = "#join-keys-";
+    private static final String tupleIndexColumnName = "#tuple-index";
+    private static final String expressionPositionColumnName = "#expression-position";
 
     public ForClauseSparkIterator(
             RuntimeTupleIterator child,
@@ -72,6 +103,17 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
         this.variableName = variableName;
         this.assignmentIterator = assignmentIterator;
         this.dependencies = this.assignmentIterator.getVariableDependencies();
+        this.isTupleOrderIrrelevant = false;
+    }
+
+    /**
+     * Lets this clause produce its tuples in any order, when a later clause, such as an order by clause, does not
+     * depend on their order.
+     *
+     * @param isTupleOrderIrrelevant whether the order of the tuples of this clause is irrelevant.
+     */
+    public void setTupleOrderIrrelevant(boolean isTupleOrderIrrelevant) {
+        this.isTupleOrderIrrelevant = isTupleOrderIrrelevant;
     }
 
     @Override
@@ -165,6 +207,26 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
     public Dataset<Row> getDataFrame(
             DynamicContext context,
             Map<Name, DynamicContext.VariableDependency> parentProjection
+    ) {
+        return getDataFrame(context, parentProjection, null);
+    }
+
+    /**
+     * Computes the DataFrame of this clause, knowing that a where clause filters it with a predicate. If the
+     * expression is a big sequence and the predicate contains equalities between the variables of the child clause
+     * and the variable of this clause, the tuples are joined on these equalities instead of computing a Cartesian
+     * product.
+     *
+     * @param context the dynamic context.
+     * @param parentProjection the projection needed by the parent clause.
+     * @param filteringPredicate the predicate the parent clause filters the tuples with, or null. The tuples are
+     *        not filtered by it, so the parent clause must still apply it.
+     * @return the DataFrame of this clause.
+     */
+    public Dataset<Row> getDataFrame(
+            DynamicContext context,
+            Map<Name, DynamicContext.VariableDependency> parentProjection,
+            RuntimeIterator filteringPredicate
     ) {
         // if it's a starting clause
         if (this.child == null) {
@@ -173,13 +235,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
 
         if (this.child.isDataFrame()) {
             if (this.assignmentIterator.isRDD()) {
-                Set<Name> intersection = new HashSet<>(
-                        this.assignmentIterator.getVariableDependencies().keySet()
-                );
-                intersection.retainAll(getVariablesBoundInCurrentFLWORExpression());
-                boolean expressionUsesVariablesOfCurrentFlwor = !intersection.isEmpty();
-
-                if (expressionUsesVariablesOfCurrentFlwor) {
+                if (expressionUsesVariablesOfCurrentFlwor()) {
                     throw new JobWithinAJobException(
                             "A for clause expression cannot produce a big sequence of items for a big number of tuples, as this would lead to a data flow explosion.",
                             getMetadata()
@@ -195,6 +251,13 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
                 String expressionDFTableName = "expression";
 
                 Dataset<Row> inputDF = this.child.getDataFrame(context, getProjection(parentProjection));
+                if (filteringPredicate != null) {
+                    Dataset<Row> joinedDF = getEquiJoinDataFrame(inputDF, expressionDF, filteringPredicate);
+                    if (joinedDF != null) {
+                        return joinedDF;
+                    }
+                }
+
                 StructType inputSchema = inputDF.schema();
                 int duplicateVariableIndex = Arrays.asList(inputSchema.fieldNames())
                     .indexOf(this.variableName.toString());
@@ -230,6 +293,14 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
             StructType inputSchema = df.schema();
             int duplicateVariableIndex = Arrays.asList(inputSchema.fieldNames()).indexOf(this.variableName.toString());
             List<String> allColumns = FlworDataFrameUtils.getColumnNames(inputSchema, duplicateVariableIndex, null);
+
+            if (!expressionUsesVariablesOfCurrentFlwor()) {
+                Dataset<Row> nativeDF = getDataFrameWithNativeVariable(df, allColumns, context);
+                if (nativeDF != null) {
+                    return nativeDF;
+                }
+            }
+
             Map<String, List<String>> UDFcolumnsByType = FlworDataFrameUtils.getColumnNamesByType(
                 inputSchema,
                 -1,
@@ -262,7 +333,12 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
 
         // if child is locally evaluated
         // assignmentIterator is definitely an RDD if execution flows here
-        Dataset<Row> df = null;
+        if (!expressionUsesVariablesOfCurrentFlwor()) {
+            return getDataFrameFromLocalTuplesAndRDDExpression(context);
+        }
+
+        // the expression is evaluated once per tuple, and the resulting RDDs are combined in a single union
+        List<JavaRDD<Row>> rowRDDs = new ArrayList<>();
         this.child.open(context);
         this.tupleContext = new DynamicContext(context); // assign current context as parent
         StructType schema = null;
@@ -277,18 +353,330 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
                 schema = generateSchema();
             }
 
-            JavaRDD<Row> rowRDD = expressionRDD.map(
-                new ForClauseLocalTupleToRowClosure(this.inputTuple, getMetadata())
-            );
+            rowRDDs.add(expressionRDD.map(new ForClauseLocalTupleToRowClosure(this.inputTuple, getMetadata())));
+        }
+        this.child.close();
+        if (rowRDDs.isEmpty()) {
+            return null;
+        }
+        JavaRDD<Row> rowRDD = rowRDDs.size() == 1
+            ? rowRDDs.get(0)
+            : SparkSessionManager.getInstance()
+                .getJavaSparkContext()
+                .union(rowRDDs.get(0), rowRDDs.subList(1, rowRDDs.size()));
+        return SparkSessionManager.getInstance().getOrCreateSession().createDataFrame(rowRDD, schema);
+    }
 
-            if (df == null) {
-                df = SparkSessionManager.getInstance().getOrCreateSession().createDataFrame(rowRDD, schema);
-            } else {
-                df = df.union(SparkSessionManager.getInstance().getOrCreateSession().createDataFrame(rowRDD, schema));
+    /**
+     * If the expression does not depend on the tuples of the child clause, it is evaluated only once. The local
+     * tuples are turned into a small DataFrame that is broadcast and cross joined with the items of the expression,
+     * so that the number of tasks and the size of the plan do not grow with the number of tuples. As the join streams
+     * the items of the expression, the joined rows are sorted back by tuple and by position in the expression, unless
+     * the order of the tuples is irrelevant, which spares the shuffle of the whole product.
+     *
+     * @param context the dynamic context.
+     * @return the DataFrame of this clause.
+     */
+    private Dataset<Row> getDataFrameFromLocalTuplesAndRDDExpression(DynamicContext context) {
+        Kryo kryo = new Kryo();
+        kryo.setReferences(false);
+        FlworDataFrameUtils.registerKryoClassesKryo(kryo);
+        Output output = new Output(128, -1);
+
+        List<Name> tupleColumnNames = null;
+        List<Row> tupleRows = new ArrayList<>();
+        this.child.open(context);
+        while (this.child.hasNext()) {
+            FlworTuple tuple = this.child.next();
+            if (tupleColumnNames == null) {
+                tupleColumnNames = new ArrayList<>(tuple.getLocalKeys());
+                tupleColumnNames.remove(this.variableName);
+            }
+            Object[] serializedColumns = new Object[tupleColumnNames.size() + 1];
+            for (int columnIndex = 0; columnIndex < tupleColumnNames.size(); columnIndex++) {
+                serializedColumns[columnIndex] = FlworDataFrameUtils.serializeItemList(
+                    tuple.getLocalValue(tupleColumnNames.get(columnIndex), getMetadata()),
+                    kryo,
+                    output
+                );
             }
+            serializedColumns[tupleColumnNames.size()] = (long) tupleRows.size();
+            tupleRows.add(RowFactory.create(serializedColumns));
         }
         this.child.close();
-        return df;
+        if (tupleColumnNames == null) {
+            tupleColumnNames = new ArrayList<>(this.child.getVariablesBoundInCurrentFLWORExpression());
+            tupleColumnNames.remove(this.variableName);
+        }
+
+        List<StructField> fields = new ArrayList<>();
+        for (Name columnName : tupleColumnNames) {
+            // all columns store items serialized to binary format
+            fields.add(DataTypes.createStructField(columnName.toString(), DataTypes.BinaryType, true));
+        }
+        fields.add(DataTypes.createStructField(tupleIndexColumnName, DataTypes.LongType, false));
+        Dataset<Row> tuplesDF = SparkSessionManager.getInstance()
+            .getOrCreateSession()
+            .createDataFrame(tupleRows, DataTypes.createStructType(fields));
+        Dataset<Row> expressionDF = getDataFrameFromRDDExpression(context);
+
+        List<Column> columns = new ArrayList<>();
+        for (Name columnName : tupleColumnNames) {
+            columns.add(tuplesDF.col("`" + columnName + "`"));
+        }
+        columns.add(expressionDF.col("`" + this.variableName + "`"));
+        if (tupleRows.size() <= 1 || this.isTupleOrderIrrelevant) {
+            return expressionDF.crossJoin(broadcast(tuplesDF)).select(columns.toArray(new Column[0]));
+        }
+        // the ids increase with the partitions and the rows within them, without running a job to count them
+        expressionDF = expressionDF.withColumn(expressionPositionColumnName, monotonically_increasing_id());
+        return expressionDF.crossJoin(broadcast(tuplesDF))
+            .orderBy(tuplesDF.col("`" + tupleIndexColumnName + "`"), expressionDF.col(expressionPositionColumnName))
+            .select(columns.toArray(new Column[0]));
+    }
+
+    /**
+     * Joins the tuples of the child clause with the items of the expression on the equalities between the two found
+     * in the predicate, such as $a.id eq $b.customer for a predicate filtering on "for $b in ...". Both sides are
+     * mapped to join keys with the same semantics as eq, so that Spark can use a hash or sort-merge join. As the
+     * join does not keep the order of the tuples, the joined rows are sorted back into it, unless it is irrelevant.
+     *
+     * @param inputDF the DataFrame of the child clause.
+     * @param expressionDF the DataFrame of the expression, with the variable of this clause as only column.
+     * @param predicate the predicate the tuples are filtered with afterwards.
+     * @return the joined DataFrame, or null if the predicate contains no such equality.
+     */
+    private Dataset<Row> getEquiJoinDataFrame(
+            Dataset<Row> inputDF,
+            Dataset<Row> expressionDF,
+            RuntimeIterator predicate
+    ) {
+        StructType inputSchema = inputDF.schema();
+        Set<Name> inputVariables = new HashSet<>();
+        for (StructField field : inputSchema.fields()) {
+            Name variable = Name.createVariableInNoNamespace(field.name());
+            if (field.dataType().equals(DataTypes.BinaryType) && !variable.equals(this.variableName)) {
+                inputVariables.add(variable);
+            }
+        }
+        List<VariablePath> inputKeys = new ArrayList<>();
+        List<VariablePath> expressionKeys = new ArrayList<>();
+        List<ExceptionMetadata> keyMetadata = new ArrayList<>();
+        collectEquiJoinKeys(predicate, inputVariables, inputKeys, expressionKeys, keyMetadata);
+        if (inputKeys.isEmpty()) {
+            return null;
+        }
+
+        // keys on the same variable are computed together, so that each variable is deserialized only once
+        Map<Name, List<Integer>> inputKeyIndicesByVariable = new LinkedHashMap<>();
+        for (int keyIndex = 0; keyIndex < inputKeys.size(); keyIndex++) {
+            inputKeyIndicesByVariable
+                .computeIfAbsent(inputKeys.get(keyIndex).getVariableName(), v -> new ArrayList<>())
+                .add(keyIndex);
+        }
+        if (!this.isTupleOrderIrrelevant) {
+            inputDF = inputDF.withColumn(tupleIndexColumnName, monotonically_increasing_id());
+        }
+        Column[] inputKeyColumns = new Column[inputKeys.size()];
+        Column[] inputFamilyColumns = new Column[inputKeys.size()];
+        List<String> inputKeyColumnNames = new ArrayList<>();
+        for (Map.Entry<Name, List<Integer>> entry : inputKeyIndicesByVariable.entrySet()) {
+            List<VariablePath> paths = new ArrayList<>();
+            List<ExceptionMetadata> pathMetadata = new ArrayList<>();
+            for (int keyIndex : entry.getValue()) {
+                paths.add(inputKeys.get(keyIndex));
+                pathMetadata.add(keyMetadata.get(keyIndex));
+            }
+            String keyColumnName = joinKeysColumnPrefix + entry.getKey();
+            inputDF = inputDF.withColumn(
+                keyColumnName,
+                getJoinKeysUDF(paths, DataTypes.BinaryType, pathMetadata).apply(col("`" + entry.getKey() + "`"))
+            );
+            inputKeyColumnNames.add(keyColumnName);
+            for (int i = 0; i < paths.size(); i++) {
+                inputKeyColumns[entry.getValue().get(i)] = inputDF.col("`" + keyColumnName + "`").getField("key" + i);
+                inputFamilyColumns[entry.getValue().get(i)] = inputDF.col("`" + keyColumnName + "`")
+                    .getField("family" + i);
+            }
+        }
+
+        DataType expressionType = expressionDF.schema().apply(this.variableName.toString()).dataType();
+        String expressionKeyColumnName = joinKeysColumnPrefix + "expression";
+        String expressionValueColumnName = joinKeysColumnPrefix + "value";
+        expressionDF = expressionDF.select(
+            col("`" + this.variableName + "`").as(expressionValueColumnName),
+            getJoinKeysUDF(expressionKeys, expressionType, keyMetadata).apply(col("`" + this.variableName + "`"))
+                .as(expressionKeyColumnName)
+        );
+        if (!this.isTupleOrderIrrelevant) {
+            expressionDF = expressionDF.withColumn(expressionPositionColumnName, monotonically_increasing_id());
+        }
+
+        Column[] expressionFamilyColumns = new Column[expressionKeys.size()];
+        for (int keyIndex = 0; keyIndex < expressionKeys.size(); keyIndex++) {
+            expressionFamilyColumns[keyIndex] = expressionDF.col("`" + expressionKeyColumnName + "`")
+                .getField("family" + keyIndex);
+        }
+        checkJoinKeyFamilies(inputDF, inputFamilyColumns, expressionDF, expressionFamilyColumns, keyMetadata);
+
+        Column joinCondition = null;
+        for (int keyIndex = 0; keyIndex < inputKeyColumns.length; keyIndex++) {
+            Column equality = inputKeyColumns[keyIndex].equalTo(
+                expressionDF.col("`" + expressionKeyColumnName + "`").getField("key" + keyIndex)
+            );
+            joinCondition = joinCondition == null ? equality : joinCondition.and(equality);
+        }
+        Dataset<Row> joinedDF = inputDF.join(expressionDF, joinCondition, "inner");
+        if (!this.isTupleOrderIrrelevant) {
+            joinedDF = joinedDF.orderBy(
+                inputDF.col("`" + tupleIndexColumnName + "`"),
+                expressionDF.col("`" + expressionPositionColumnName + "`")
+            );
+        }
+
+        int duplicateVariableIndex = Arrays.asList(inputSchema.fieldNames()).indexOf(this.variableName.toString());
+        List<Column> columnsToSelect = new ArrayList<>();
+        for (String columnName : FlworDataFrameUtils.getColumnNames(inputSchema, duplicateVariableIndex, null)) {
+            columnsToSelect.add(inputDF.col("`" + columnName + "`"));
+        }
+        columnsToSelect.add(expressionDF.col("`" + expressionValueColumnName + "`").as(this.variableName.toString()));
+        return joinedDF.select(columnsToSelect.toArray(new Column[0]));
+    }
+
+    /**
+     * Raises the error of eq if a join key of the input and the same join key of the expression have items of
+     * different families, which the where clause would fail to compare but which the join would never pair. The
+     * families of each side are collected with a distinct query before the join.
+     */
+    private static void checkJoinKeyFamilies(
+            Dataset<Row> inputDF,
+            Column[] inputFamilyColumns,
+            Dataset<Row> expressionDF,
+            Column[] expressionFamilyColumns,
+            List<ExceptionMetadata> keyMetadata
+    ) {
+        List<Row> inputFamilies = inputDF.select(inputFamilyColumns).distinct().collectAsList();
+        List<Row> expressionFamilies = expressionDF.select(expressionFamilyColumns).distinct().collectAsList();
+        for (int keyIndex = 0; keyIndex < keyMetadata.size(); keyIndex++) {
+            for (Row inputRow : inputFamilies) {
+                for (Row expressionRow : expressionFamilies) {
+                    String inputFamily = inputRow.getString(keyIndex);
+                    String expressionFamily = expressionRow.getString(keyIndex);
+                    if (inputFamily != null && expressionFamily != null && !inputFamily.equals(expressionFamily)) {
+                        throw new UnexpectedTypeException(
+                                "Invalid args for comparison: a "
+                                    + inputFamily
+                                    + " can not be compared for equality to a "
+                                    + expressionFamily,
+                                keyMetadata.get(keyIndex)
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the equalities between a path on an input variable and a path on the variable of this clause that the
+     * predicate is a conjunction of. Other conjuncts are ignored.
+     */
+    private void collectEquiJoinKeys(
+            RuntimeIterator predicate,
+            Set<Name> inputVariables,
+            List<VariablePath> inputKeys,
+            List<VariablePath> expressionKeys,
+            List<ExceptionMetadata> keyMetadata
+    ) {
+        if (predicate instanceof AndOperationIterator) {
+            for (RuntimeIterator conjunct : predicate.getChildren()) {
+                collectEquiJoinKeys(conjunct, inputVariables, inputKeys, expressionKeys, keyMetadata);
+            }
+            return;
+        }
+        if (
+            !(predicate instanceof ComparisonOperationIterator)
+                || ((ComparisonOperationIterator) predicate)
+                    .getComparisonOperator() != ComparisonExpression.ComparisonOperator.VC_EQ
+        ) {
+            return;
+        }
+        Set<Name> expressionVariables = Collections.singleton(this.variableName);
+        RuntimeIterator left = predicate.getChildren().get(0);
+        RuntimeIterator right = predicate.getChildren().get(1);
+        VariablePath inputKey = VariablePath.recognize(left, inputVariables);
+        VariablePath expressionKey = VariablePath.recognize(right, expressionVariables);
+        if (inputKey == null || expressionKey == null) {
+            inputKey = VariablePath.recognize(right, inputVariables);
+            expressionKey = VariablePath.recognize(left, expressionVariables);
+        }
+        if (inputKey != null && expressionKey != null) {
+            inputKeys.add(inputKey);
+            expressionKeys.add(expressionKey);
+            keyMetadata.add(predicate.getMetadata());
+        }
+    }
+
+    private static UserDefinedFunction getJoinKeysUDF(
+            List<VariablePath> paths,
+            DataType variableType,
+            List<ExceptionMetadata> metadata
+    ) {
+        List<StructField> fields = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            fields.add(DataTypes.createStructField("key" + i, DataTypes.StringType, true));
+            fields.add(DataTypes.createStructField("family" + i, DataTypes.StringType, true));
+        }
+        // prevents Catalyst from evaluating the UDF once per field reference
+        return udf(
+            new ForClauseJoinKeysUDF(paths, variableType, metadata),
+            DataTypes.createStructType(fields)
+        ).asNondeterministic();
+    }
+
+    private boolean expressionUsesVariablesOfCurrentFlwor() {
+        Set<Name> intersection = new HashSet<>(this.assignmentIterator.getVariableDependencies().keySet());
+        intersection.retainAll(getVariablesBoundInCurrentFLWORExpression());
+        return !intersection.isEmpty();
+    }
+
+    /**
+     * If the expression does not depend on the tuples, it is evaluated only once. If it returns a small sequence of
+     * atomic items of the same type, the variable is stored in a native column of this type.
+     *
+     * @param df the DataFrame of the child clause.
+     * @param allColumns the columns of the child clause to keep.
+     * @param context the dynamic context in which the expression is evaluated.
+     * @return the DataFrame with the variable as a native column, or null if the items cannot be stored natively.
+     */
+    private Dataset<Row> getDataFrameWithNativeVariable(
+            Dataset<Row> df,
+            List<String> allColumns,
+            DynamicContext context
+    ) {
+        List<Item> items = new ArrayList<>();
+        this.assignmentIterator.open(context);
+        while (this.assignmentIterator.hasNext() && items.size() <= maximumNativeLiteralSequenceLength) {
+            items.add(this.assignmentIterator.next());
+        }
+        this.assignmentIterator.close();
+        if (items.isEmpty() || items.size() > maximumNativeLiteralSequenceLength) {
+            return null;
+        }
+        DataType nativeType = FlworDataFrameUtils.getNativeTypeOfItems(items);
+        if (nativeType == null) {
+            return null;
+        }
+
+        Column[] values = new Column[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            values[i] = lit(FlworDataFrameUtils.getNativeValueOfItem(items.get(i), nativeType));
+        }
+        List<Column> columns = new ArrayList<>();
+        for (String columnName : allColumns) {
+            columns.add(col("`" + columnName + "`"));
+        }
+        columns.add(explode(array(values)).as(this.variableName.toString()));
+        return df.select(columns.toArray(new Column[0]));
     }
 
     private StructType generateSchema() {
@@ -306,11 +694,39 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
     }
 
     private Dataset<Row> getDataFrameFromRDDExpression(DynamicContext context) {
+        if (this.assignmentIterator.isDataFrame()) {
+            Dataset<Row> columnarDF = getDataFrameFromDataFrameExpression(context);
+            if (columnarDF != null) {
+                return columnarDF;
+            }
+        }
         // create initial RDD from expression
         JavaRDD<Item> expressionRDD = this.assignmentIterator.getRDD(context);
         return getDataFrameFromItemRDD(expressionRDD);
     }
 
+    /**
+     * Keeps the rows of a DataFrame expression, such as parquet-file(), columnar: the columns are nested in a struct
+     * column storing the variable natively, instead of converting each row to an object item and serializing it.
+     * Object lookups on the variable can then be compiled to native field references.
+     *
+     * @param context the dynamic context.
+     * @return the DataFrame with the variable as only column, or null if the DataFrame has no columns.
+     */
+    private Dataset<Row> getDataFrameFromDataFrameExpression(DynamicContext context) {
+        Dataset<Row> expressionDF = this.assignmentIterator.getDataFrame(context);
+        String[] fieldNames = expressionDF.schema().fieldNames();
+        if (fieldNames.length == 0) {
+            return null;
+        }
+        Column[] fields = new Column[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fields[i] = col("`" + fieldNames[i] + "`");
+        }
+        // a single atomic column is nested as well, so that null values are not mistaken for empty sequences
+        return expressionDF.select(struct(fields).as(this.variableName.toString()));
+    }
+
     private Dataset<Row> getDataFrameFromItemRDD(JavaRDD<Item> expressionRDD) {
         // define a schema
         List<StructField> fields = new ArrayList<>();
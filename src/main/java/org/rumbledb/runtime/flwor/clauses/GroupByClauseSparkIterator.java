@@ -24,6 +24,7 @@ import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.DecimalType;
 import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
@@ -37,9 +38,13 @@ import org.rumbledb.exceptions.NonAtomicKeyException;
 import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
+import org.rumbledb.items.parsing.ItemParser;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.VariablePath;
 import org.rumbledb.runtime.flwor.expression.GroupByClauseSparkIteratorExpression;
+import org.rumbledb.runtime.flwor.udfs.GroupClauseAggregateUDAF;
 import org.rumbledb.runtime.flwor.udfs.GroupClauseCreateColumnsUDF;
+import org.rumbledb.runtime.flwor.udfs.GroupClauseNativeAggregateUDF;
 import org.rumbledb.runtime.flwor.udfs.GroupClauseSerializeAggregateResultsUDF;
 import org.rumbledb.runtime.flwor.udfs.LetClauseUDF;
 import sparksoniq.jsoniq.ExecutionMode;
@@ -51,6 +56,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,6 +69,8 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
     private List<FlworTuple> localTupleResults;
     private int resultIndex;
     private Map<Name, DynamicContext.VariableDependency> dependencies;
+    private Map<Name, VariablePath> aggregatedPaths;
+    private Map<Name, DynamicContext.VariableDependency> pathAggregates;
 
     public GroupByClauseSparkIterator(
             RuntimeTupleIterator child,
@@ -72,6 +80,8 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
     ) {
         super(child, executionMode, iteratorMetadata);
         this.groupingExpressions = groupingExpressions;
+        this.aggregatedPaths = new LinkedHashMap<>();
+        this.pathAggregates = new LinkedHashMap<>();
         this.dependencies = new TreeMap<>();
         for (GroupByClauseSparkIteratorExpression e : this.groupingExpressions) {
             if (e.getExpression() != null) {
@@ -85,6 +95,31 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
         }
     }
 
+    /**
+     * Lets this clause aggregate a path on a non-grouping variable, such as $x.amount for sum($x.amount), instead of
+     * the following clauses aggregating it on the gathered items of the variable.
+     *
+     * @param path the path on a non-grouping variable.
+     * @param aggregate the aggregate function applied to the path, SUM, AVG, MIN or MAX.
+     * @return the name of the variable this clause binds to the aggregate, the sequence of at most one item on which
+     *         the function returns the same as on the path.
+     */
+    public Name addAggregatedPath(VariablePath path, DynamicContext.VariableDependency aggregate) {
+        for (Map.Entry<Name, VariablePath> entry : this.aggregatedPaths.entrySet()) {
+            if (entry.getValue().equals(path) && this.pathAggregates.get(entry.getKey()) == aggregate) {
+                return entry.getKey();
+            }
+        }
+        String localName = aggregate.name().toLowerCase() + "(" + path + ")";
+        if (this.aggregatedPaths.containsKey(Name.createVariableInNoNamespace(localName))) {
+            localName += "#" + this.aggregatedPaths.size();
+        }
+        Name variableName = Name.createVariableInNoNamespace(localName);
+        this.aggregatedPaths.put(variableName, path);
+        this.pathAggregates.put(variableName, aggregate);
+        return variableName;
+    }
+
     @Override
     public void open(DynamicContext context) {
         super.open(context);
@@ -361,6 +396,31 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
             appendedGroupingColumnsName
         );
 
+        Map<String, String> aggregateUDFNames = new HashMap<>();
+        for (StructField field : inputSchema.fields()) {
+            Name variableName = Name.createVariableInNoNamespace(field.name());
+            DynamicContext.VariableDependency dependency = parentProjection.get(variableName);
+            if (
+                dependency == null
+                    || dependency == DynamicContext.VariableDependency.FULL
+                    || variableAccessNames.contains(variableName)
+                    || field.dataType().equals(DataTypes.LongType)
+                    || (dependency == DynamicContext.VariableDependency.COUNT
+                        && FlworDataFrameUtils.isNativeType(field.dataType()))
+            ) {
+                // grouping keys, pre-computed counts and native columns to count are aggregated in SQL
+                continue;
+            }
+            String aggregateUDFName = "groupClauseAggregate" + aggregateUDFNames.size();
+            df.sparkSession()
+                .udf()
+                .register(
+                    aggregateUDFName,
+                    new GroupClauseAggregateUDAF(dependency, null, field.dataType(), getMetadata())
+                );
+            aggregateUDFNames.put(field.name(), aggregateUDFName);
+        }
+
         String projectSQL = FlworDataFrameUtils.getGroupbyProjectSQL(
             inputSchema,
             -1,
@@ -368,20 +428,160 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
             serializerUDFName,
             variableAccessNames,
             parentProjection,
-            UDFcolumnsByType
+            UDFcolumnsByType,
+            aggregateUDFNames
         );
 
+        StringBuilder aggregatedPathsSQL = new StringBuilder();
+        int aggregatedPathIndex = 0;
+        for (Map.Entry<Name, VariablePath> entry : this.aggregatedPaths.entrySet()) {
+            if (!parentProjection.containsKey(entry.getKey())) {
+                continue;
+            }
+            aggregatedPathsSQL.append(", ");
+            aggregatedPathsSQL.append(
+                getAggregatedPathExpression(
+                    df,
+                    entry.getValue(),
+                    this.pathAggregates.get(entry.getKey()),
+                    inputSchema.fields()[inputSchema.fieldIndex(entry.getValue().getVariableName().toString())],
+                    aggregatedPathIndex++
+                )
+            );
+            aggregatedPathsSQL.append(" as `");
+            aggregatedPathsSQL.append(entry.getKey());
+            aggregatedPathsSQL.append("`");
+        }
+
         return df.sparkSession()
             .sql(
                 String.format(
-                    "select %s from (%s) group by `%s`",
+                    "select %s%s from (%s) group by `%s`",
                     projectSQL,
+                    aggregatedPathsSQL,
                     createColumnsSQL,
                     appendedGroupingColumnsName
                 )
             );
     }
 
+    /**
+     * Aggregates a path on a non-grouping variable. Paths to integer and decimal fields of a native column are
+     * aggregated with Spark functions, the other paths with an aggregate function evaluating the path on each item.
+     *
+     * @return the SQL expression computing the serialized aggregate.
+     */
+    private String getAggregatedPathExpression(
+            Dataset<Row> df,
+            VariablePath path,
+            DynamicContext.VariableDependency aggregate,
+            StructField field,
+            int aggregateIndex
+    ) {
+        String aggregateUDFName = "groupClauseAggregatePath" + aggregateIndex;
+        DataType nativeType = getNativeLeafType(field.dataType(), path.getKeys());
+        if (nativeType == null) {
+            df.sparkSession()
+                .udf()
+                .register(
+                    aggregateUDFName,
+                    new GroupClauseAggregateUDAF(aggregate, path, field.dataType(), getMetadata())
+                );
+            return aggregateUDFName + "(`" + field.name() + "`)";
+        }
+        df.sparkSession()
+            .udf()
+            .register(
+                aggregateUDFName,
+                new GroupClauseNativeAggregateUDF(aggregate, nativeType, getMetadata()),
+                DataTypes.BinaryType
+            );
+        return aggregateUDFName
+            + "("
+            + getNativeAggregateExpression(field.name(), path.getKeys(), aggregate, nativeType)
+            + ")";
+    }
+
+    /**
+     * @return the type of the integer or decimal field at the end of the path in a native column, or null if the
+     *         path does not lead to such a field.
+     */
+    private static DataType getNativeLeafType(DataType columnType, List<String> keys) {
+        DataType type = columnType;
+        for (String key : keys) {
+            if (!(type instanceof StructType)) {
+                return null;
+            }
+            StructField keyField = null;
+            for (StructField structField : ((StructType) type).fields()) {
+                if (structField.name().equalsIgnoreCase(key)) {
+                    if (keyField != null || !structField.name().equals(key)) {
+                        // Spark resolves fields case-insensitively
+                        return null;
+                    }
+                    keyField = structField;
+                }
+            }
+            if (keyField == null) {
+                return null;
+            }
+            type = keyField.dataType();
+        }
+        if (
+            type.equals(DataTypes.IntegerType)
+                || type.equals(DataTypes.LongType)
+                || type.equals(DataTypes.ShortType)
+                || type.equals(ItemParser.decimalType)
+        ) {
+            return type;
+        }
+        return null;
+    }
+
+    /**
+     * Aggregates a path to an integer or decimal field with Spark functions, summing exactly as decimals. Null
+     * values, on which the JSONiq functions fail, are counted separately, and so are the values for the average.
+     *
+     * @return a struct of the aggregate value, the number of values and the number of null values.
+     */
+    private static String getNativeAggregateExpression(
+            String columnName,
+            List<String> keys,
+            DynamicContext.VariableDependency aggregate,
+            DataType nativeType
+    ) {
+        StringBuilder value = new StringBuilder("`").append(columnName).append("`");
+        StringBuilder isNull = new StringBuilder();
+        for (String key : keys) {
+            // a lookup on a null value returns the empty sequence, not null
+            isNull.append(value).append(" is not null and ");
+            value.append(".`").append(key).append("`");
+        }
+        isNull.append(value).append(" is null");
+        String aggregateValue;
+        switch (aggregate) {
+            case SUM:
+            case AVG:
+                int scale = nativeType instanceof DecimalType ? ((DecimalType) nativeType).scale() : 0;
+                aggregateValue = String.format("sum(cast(%s as decimal(38, %d)))", value, scale);
+                break;
+            case MIN:
+                aggregateValue = String.format("min(%s)", value);
+                break;
+            case MAX:
+                aggregateValue = String.format("max(%s)", value);
+                break;
+            default:
+                throw new OurBadException("Unexpected aggregate on a path in group by clause: " + aggregate);
+        }
+        return String.format(
+            "struct(%s as `value`, count(%s) as `count`, sum(if(%s, 1L, 0L)) as `nulls`)",
+            aggregateValue,
+            value,
+            isNull
+        );
+    }
+
     public Map<Name, DynamicContext.VariableDependency> getVariableDependencies() {
         Map<Name, DynamicContext.VariableDependency> result = new TreeMap<>();
         for (GroupByClauseSparkIteratorExpression iterator : this.groupingExpressions) {
@@ -403,6 +603,7 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
         for (GroupByClauseSparkIteratorExpression iterator : this.groupingExpressions) {
             result.add(iterator.getVariableName());
         }
+        result.addAll(this.aggregatedPaths.keySet());
         result.addAll(this.child.getVariablesBoundInCurrentFLWORExpression());
         return result;
     }
@@ -431,6 +632,13 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
             projection.remove(iterator.getVariableName());
         }
 
+        // aggregated paths need the items of their variable.
+        for (Map.Entry<Name, VariablePath> entry : this.aggregatedPaths.entrySet()) {
+            if (projection.remove(entry.getKey()) != null) {
+                projection.put(entry.getValue().getVariableName(), DynamicContext.VariableDependency.FULL);
+            }
+        }
+
         // add the variable dependencies needed by this for clause's expression.
         for (GroupByClauseSparkIteratorExpression iterator : this.groupingExpressions) {
             if (iterator.getExpression() == null) {
@@ -20,9 +20,9 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
-import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
@@ -34,15 +34,14 @@ import org.rumbledb.exceptions.IteratorFlowException;
 import org.rumbledb.exceptions.JobWithinAJobException;
 import org.rumbledb.exceptions.NonAtomicKeyException;
 import org.rumbledb.exceptions.OurBadException;
-import org.rumbledb.exceptions.RumbleException;
 import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.closures.OrderByClauseSortKeyClosure;
+import org.rumbledb.runtime.flwor.closures.OrderByClauseSortKeyComparator;
 import org.rumbledb.runtime.flwor.expression.OrderByClauseAnnotatedChildIterator;
 import org.rumbledb.runtime.flwor.udfs.OrderClauseCreateColumnsUDF;
-import org.rumbledb.runtime.flwor.udfs.OrderClauseDetermineTypeUDF;
-import org.rumbledb.types.ItemType;
 import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.jsoniq.tuple.FlworKey;
 import sparksoniq.jsoniq.tuple.FlworKeyComparator;
@@ -50,17 +49,13 @@ import sparksoniq.jsoniq.tuple.FlworTuple;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
-import static org.rumbledb.items.parsing.ItemParser.decimalType;
-
 public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
 
-    public static final String StringFlagForEmptySequence = "empty-sequence";
     private static final long serialVersionUID = 1L;
     @SuppressWarnings("unused")
     private final boolean isStable;
@@ -222,9 +217,6 @@ public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
         }
 
         Dataset<Row> df = this.child.getDataFrame(context, getProjection(parentProjection));
-        if (df.count() == 0) {
-            return df;
-        }
         StructType inputSchema = df.schema();
 
         List<String> allColumns = FlworDataFrameUtils.getColumnNames(inputSchema);
@@ -234,185 +226,49 @@ public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
             this.dependencies
         );
 
-        df.sparkSession()
-            .udf()
-            .register(
-                "determineOrderingDataType",
-                new OrderClauseDetermineTypeUDF(this.expressionsWithIterator, context, UDFcolumnsByType),
-                DataTypes.createArrayType(DataTypes.StringType)
+        // Every expression is sorted on an int column for empty/null/value ordering and on a binary column with the
+        // value encoded so that its byte order is the item order, whatever the type of the items
+        List<StructField> typedFields = new ArrayList<>();
+        List<Boolean> ascending = new ArrayList<>();
+        for (int columnIndex = 0; columnIndex < this.expressionsWithIterator.size(); columnIndex++) {
+            typedFields.add(
+                DataTypes.createStructField(columnIndex + "-nullEmptyCheckField", DataTypes.IntegerType, false)
             );
-
-
-        String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumnsByType);
-
-        df.createOrReplaceTempView("input");
-        df.sparkSession().table("input").cache();
-        Dataset<Row> columnTypesDf = df.sparkSession()
-            .sql(
-                String.format(
-                    "select distinct(determineOrderingDataType(%s)) as `distinct-types` from input",
-                    UDFParameters
-                )
-            );
-        Object columnTypesObject = columnTypesDf.collect();
-        Row[] columnTypesOfRows = ((Row[]) columnTypesObject);
-
-        // Every column represents an order by expression
-        // Check that every column contains a matching atomic type in all rows (nulls and empty-sequences are allowed)
-        Map<Integer, String> typesForAllColumns = new LinkedHashMap<>();
-        for (Row columnTypesOfRow : columnTypesOfRows) {
-            List<Object> columnsTypesOfRowAsList = columnTypesOfRow.getList(0);
-            for (int columnIndex = 0; columnIndex < columnsTypesOfRowAsList.size(); columnIndex++) {
-                String columnType = (String) columnsTypesOfRowAsList.get(columnIndex);
-
-                if (!columnType.equals(StringFlagForEmptySequence) && !columnType.equals(ItemType.nullItem.getName())) {
-                    String currentColumnType = typesForAllColumns.get(columnIndex);
-                    if (currentColumnType == null) {
-                        typesForAllColumns.put(columnIndex, columnType);
-                    } else if (
-                        (currentColumnType.equals(ItemType.integerItem.getName())
-                            || currentColumnType.equals(ItemType.doubleItem.getName())
-                            || currentColumnType.equals(ItemType.decimalItem.getName()))
-                            && (columnType.equals(ItemType.integerItem.getName())
-                                || columnType.equals(ItemType.doubleItem.getName())
-                                || columnType.equals(ItemType.decimalItem.getName()))
-                    ) {
-                        // the numeric type calculation is identical to Item::getNumericResultType()
-                        if (
-                            currentColumnType.equals(ItemType.doubleItem.getName())
-                                || columnType.equals(ItemType.doubleItem.getName())
-                        ) {
-                            typesForAllColumns.put(columnIndex, ItemType.doubleItem.getName());
-                        } else if (
-                            currentColumnType.equals(ItemType.decimalItem.getName())
-                                || columnType.equals(ItemType.decimalItem.getName())
-                        ) {
-                            typesForAllColumns.put(columnIndex, ItemType.decimalItem.getName());
-                        } else {
-                            // do nothing, type is already set to integer
-                        }
-                    } else if (
-                        (currentColumnType.equals(ItemType.dayTimeDurationItem.getName())
-                            || currentColumnType.equals(ItemType.yearMonthDurationItem.getName())
-                            || currentColumnType.equals(ItemType.durationItem.getName()))
-                            && (columnType.equals(ItemType.dayTimeDurationItem.getName())
-                                || columnType.equals(ItemType.yearMonthDurationItem.getName())
-                                || columnType.equals(ItemType.durationItem.getName()))
-                    ) {
-                        typesForAllColumns.put(columnIndex, ItemType.durationItem.getName());
-                    } else if (!currentColumnType.equals(columnType)) {
-                        throw new UnexpectedTypeException(
-                                "Order by variable must contain values of a single type.",
-                                getMetadata()
-                        );
-                    }
-                }
-            }
-        }
-
-
-        List<StructField> typedFields = new ArrayList<>(); // Determine the return type for ordering UDF
-        StringBuilder orderingSQL = new StringBuilder(); // Prepare the SQL statement for the order by query
-        String appendedOrderingColumnsName = "ordering_columns";
-        for (int columnIndex = 0; columnIndex < typesForAllColumns.size(); columnIndex++) {
-            String columnTypeString = typesForAllColumns.get(columnIndex);
-            String columnName;
-            DataType columnType;
-
-            // every expression contains an int column for null/empty check
-            columnName = columnIndex + "-nullEmptyCheckField";
-            typedFields.add(DataTypes.createStructField(columnName, DataTypes.IntegerType, false));
-
-            // create fields for the given value types
-            columnName = columnIndex + "-valueField";
-            if (columnTypeString.equals(ItemType.booleanItem.getName())) {
-                columnType = DataTypes.BooleanType;
-            } else if (columnTypeString.equals(ItemType.stringItem.getName())) {
-                columnType = DataTypes.StringType;
-            } else if (columnTypeString.equals(ItemType.integerItem.getName())) {
-                columnType = DataTypes.IntegerType;
-            } else if (columnTypeString.equals(ItemType.doubleItem.getName())) {
-                columnType = DataTypes.DoubleType;
-            } else if (columnTypeString.equals(ItemType.decimalItem.getName())) {
-                columnType = decimalType;
-                // columnType = DataTypes.createDecimalType();
-            } else if (
-                columnTypeString.equals(ItemType.durationItem.getName())
-                    || columnTypeString.equals(ItemType.yearMonthDurationItem.getName())
-                    || columnTypeString.equals(ItemType.dayTimeDurationItem.getName())
-                    || columnTypeString.equals(ItemType.dateTimeItem.getName())
-                    || columnTypeString.equals(ItemType.dateItem.getName())
-                    || columnTypeString.equals(ItemType.timeItem.getName())
-            ) {
-                columnType = DataTypes.LongType;
-            } else {
-                throw new RumbleException(
-                        "Unexpected ordering type found while determining UDF return type."
-                );
-            }
-
-            typedFields.add(DataTypes.createStructField(columnName, columnType, true));
-
-            OrderByClauseAnnotatedChildIterator expressionWithIterator = this.expressionsWithIterator.get(columnIndex);
-            // accessing the created ordering row as "`ordering_columns`.`0-nullEmptyCheckField` (desc)"
-            // prepare sql for expression's 1st column
-            orderingSQL.append("`");
-            orderingSQL.append(appendedOrderingColumnsName);
-            orderingSQL.append("`.`");
-            orderingSQL.append(columnIndex);
-            orderingSQL.append("-nullEmptyCheckField`");
-            if (expressionWithIterator.isAscending()) {
-                orderingSQL.append(", ");
-            } else {
-                orderingSQL.append(" desc, ");
-            }
-
-            // prepare sql for expression's 2nd column
-            orderingSQL.append("`");
-            orderingSQL.append(appendedOrderingColumnsName);
-            orderingSQL.append("`.`");
-            orderingSQL.append(columnIndex);
-            orderingSQL.append("-valueField`");
-            if (columnIndex != typesForAllColumns.size() - 1) {
-                if (expressionWithIterator.isAscending()) {
-                    orderingSQL.append(", ");
-                } else {
-                    orderingSQL.append(" desc, ");
-                }
-            } else {
-                if (!expressionWithIterator.isAscending()) {
-                    orderingSQL.append(" desc");
-                }
-            }
+            typedFields.add(DataTypes.createStructField(columnIndex + "-valueField", DataTypes.BinaryType, true));
+            ascending.add(this.expressionsWithIterator.get(columnIndex).isAscending());
         }
 
         df.sparkSession()
             .udf()
             .register(
                 "createOrderingColumns",
-                new OrderClauseCreateColumnsUDF(
-                        this.expressionsWithIterator,
-                        context,
-                        typesForAllColumns,
-                        UDFcolumnsByType
-                ),
+                new OrderClauseCreateColumnsUDF(this.expressionsWithIterator, context, UDFcolumnsByType),
                 DataTypes.createStructType(typedFields)
             );
 
-        String selectSQL = FlworDataFrameUtils.getSQL(allColumns, true);
-        String projectSQL = selectSQL.substring(0, selectSQL.length() - 1); // remove trailing comma
+        String selectSQL = FlworDataFrameUtils.getSQL(allColumns, false);
+        String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumnsByType);
 
-        return df.sparkSession()
+        df.createOrReplaceTempView("input");
+        JavaRDD<Row> keyedRDD = df.sparkSession()
             .sql(
                 String.format(
-                    "select %s from (select %s createOrderingColumns(%s) as `%s` from input order by %s)",
-                    projectSQL,
-                    selectSQL,
+                    "select createOrderingColumns(%s) as `ordering_columns`, %s from input",
                     UDFParameters,
-                    appendedOrderingColumnsName,
-                    orderingSQL
+                    selectSQL
                 )
-            );
+            )
+            .javaRDD();
+
+        // the comparator raises an error when values of different types are compared, in the same job as the sort
+        JavaRDD<Row> sortedRDD = keyedRDD.mapToPair(new OrderByClauseSortKeyClosure())
+            .sortByKey(
+                new OrderByClauseSortKeyComparator(ascending, getMetadata()),
+                true,
+                keyedRDD.getNumPartitions()
+            )
+            .values();
+        return df.sparkSession().createDataFrame(sortedRDD, inputSchema);
     }
 
     public Map<Name, DynamicContext.VariableDependency> getVariableDependencies() {
@@ -20,6 +20,7 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -34,15 +35,25 @@ import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.runtime.HybridRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
+import org.rumbledb.runtime.flwor.closures.ReturnClauseCopyClosure;
+import org.rumbledb.runtime.flwor.closures.ReturnClauseCopyComparator;
 import org.rumbledb.runtime.flwor.closures.ReturnFlatMapClosure;
 import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.jsoniq.tuple.FlworTuple;
 import sparksoniq.spark.SparkSessionManager;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
+import static org.apache.spark.sql.functions.broadcast;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.monotonically_increasing_id;
+
 public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
 
     private static final long serialVersionUID = 1L;
@@ -51,6 +62,9 @@ public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
     private RuntimeIterator expression;
     private Item nextResult;
 
+    private static final String tupleIndexColumnName = "#tuple-index";
+    private static final String positionColumnName = "#position";
+
     public ReturnClauseSparkIterator(
             RuntimeTupleIterator child,
             RuntimeIterator expression,
@@ -72,25 +86,35 @@ public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
                         getMetadata()
                 );
 
+            if (!expressionUsesVariablesOfCurrentFlwor()) {
+                // the expression is the same for every tuple, so it is evaluated only once
+                long tupleCount = countChildTuples(context);
+                if (tupleCount == 0) {
+                    return SparkSessionManager.getInstance().getJavaSparkContext().emptyRDD();
+                }
+                return copyRDD(this.expression.getRDD(context), tupleCount);
+            }
+
+            List<JavaRDD<Item>> results = new ArrayList<>();
             this.child.open(context);
-            JavaRDD<Item> result = null;
             while (this.child.hasNext()) {
                 FlworTuple tuple = this.child.next();
                 // We need a fresh context every time, because the evaluation of RDD is lazy.
                 DynamicContext dynamicContext = new DynamicContext(context);
                 dynamicContext.setBindingsFromTuple(tuple, getMetadata()); // assign new variables from new tuple
-
-                JavaRDD<Item> intermediateResult = this.expression.getRDD(dynamicContext);
-                if (result == null) {
-                    result = intermediateResult;
-                } else {
-                    result = result.union(intermediateResult);
-                }
+                results.add(this.expression.getRDD(dynamicContext));
             }
-            if (result == null) {
+            this.child.close();
+            if (results.isEmpty()) {
                 return SparkSessionManager.getInstance().getJavaSparkContext().emptyRDD();
             }
-            return result;
+            if (results.size() == 1) {
+                return results.get(0);
+            }
+            // a single union keeps the lineage flat, however many tuples there are
+            return SparkSessionManager.getInstance()
+                .getJavaSparkContext()
+                .union(results.get(0), results.subList(1, results.size()));
         }
 
         Dataset<Row> df = this.child.getDataFrame(context, expression.getVariableDependencies());
@@ -107,26 +131,29 @@ public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
                         "A return clause expression cannot produce a big sequence of items for a big number of tuples, as this would lead to a data flow explosion.",
                         getMetadata()
                 );
-            // context
+            if (!expressionUsesVariablesOfCurrentFlwor()) {
+                // the expression is the same for every tuple, so it is evaluated only once
+                long tupleCount = countChildTuples(context);
+                if (tupleCount == 0) {
+                    return SparkSessionManager.getInstance().getOrCreateSession().emptyDataFrame();
+                }
+                return copyDataFrame(this.expression.getDataFrame(context), tupleCount);
+            }
+
+            List<Dataset<Row>> results = new ArrayList<>();
             this.child.open(context);
-            Dataset<Row> result = null;
             while (this.child.hasNext()) {
                 FlworTuple tuple = this.child.next();
                 // We need a fresh context every time, because the evaluation of RDD is lazy.
                 DynamicContext dynamicContext = new DynamicContext(context);
                 dynamicContext.setBindingsFromTuple(tuple, getMetadata()); // assign new variables from new tuple
-
-                Dataset<Row> intermediateResult = this.expression.getDataFrame(dynamicContext);
-                if (result == null) {
-                    result = intermediateResult;
-                } else {
-                    result = result.union(intermediateResult);
-                }
+                results.add(this.expression.getDataFrame(dynamicContext));
             }
-            if (result == null) {
+            this.child.close();
+            if (results.isEmpty()) {
                 return SparkSessionManager.getInstance().getOrCreateSession().emptyDataFrame();
             }
-            return result;
+            return unionAll(results, 0, results.size());
         }
 
         throw new OurBadException(
@@ -135,6 +162,76 @@ public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
         );
     }
 
+    private long countChildTuples(DynamicContext context) {
+        long tupleCount = 0;
+        this.child.open(context);
+        while (this.child.hasNext()) {
+            this.child.next();
+            tupleCount++;
+        }
+        this.child.close();
+        return tupleCount;
+    }
+
+    /**
+     * Repeats the items of an RDD once per tuple. Instead of a union of as many copies as there are tuples, each item
+     * is emitted once per tuple and the copies are sorted back in the order of the tuples, so that the number of tasks
+     * does not grow with the number of tuples.
+     *
+     * @param rdd the items the expression evaluates to for every tuple.
+     * @param tupleCount the number of tuples.
+     * @return the items repeated once per tuple.
+     */
+    private static JavaRDD<Item> copyRDD(JavaRDD<Item> rdd, long tupleCount) {
+        if (tupleCount == 1) {
+            return rdd;
+        }
+        return JavaPairRDD.fromJavaRDD(rdd.mapPartitionsWithIndex(new ReturnClauseCopyClosure(tupleCount), false))
+            .sortByKey(new ReturnClauseCopyComparator(), true, rdd.getNumPartitions())
+            .values();
+    }
+
+    /**
+     * Repeats the rows of a DataFrame once per tuple, by cross joining them with the broadcast indices of the tuples
+     * and sorting the copies back in the order of the tuples.
+     *
+     * @param df the rows the expression evaluates to for every tuple.
+     * @param tupleCount the number of tuples.
+     * @return the rows repeated once per tuple.
+     */
+    private static Dataset<Row> copyDataFrame(Dataset<Row> df, long tupleCount) {
+        if (tupleCount == 1) {
+            return df;
+        }
+        Dataset<Row> tupleIndices = df.sparkSession().range(tupleCount).toDF(tupleIndexColumnName);
+        return df.withColumn(positionColumnName, monotonically_increasing_id())
+            .crossJoin(broadcast(tupleIndices))
+            .orderBy(col(tupleIndexColumnName), col(positionColumnName))
+            .drop(tupleIndexColumnName, positionColumnName);
+    }
+
+    /**
+     * Unions the DataFrames pairwise, so that the depth of the plan grows logarithmically with their number.
+     *
+     * @param dataFrames the DataFrames to union, in order.
+     * @param from the index of the first DataFrame to union.
+     * @param to the index after the last DataFrame to union.
+     * @return the union of the DataFrames.
+     */
+    private static Dataset<Row> unionAll(List<Dataset<Row>> dataFrames, int from, int to) {
+        if (to - from == 1) {
+            return dataFrames.get(from);
+        }
+        int middle = (from + to) / 2;
+        return unionAll(dataFrames, from, middle).union(unionAll(dataFrames, middle, to));
+    }
+
+    private boolean expressionUsesVariablesOfCurrentFlwor() {
+        Set<Name> intersection = new HashSet<>(this.expression.getVariableDependencies().keySet());
+        intersection.retainAll(this.child.getVariablesBoundInCurrentFLWORExpression());
+        return !intersection.isEmpty();
+    }
+
     @Override
     protected boolean hasNextLocal() {
         return this.hasNext;
@@ -33,6 +33,7 @@ import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.NativeWherePredicate;
 import org.rumbledb.runtime.flwor.udfs.WhereClauseUDF;
 import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.jsoniq.tuple.FlworTuple;
@@ -129,7 +130,17 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
             );
         }
 
-        Dataset<Row> df = this.child.getDataFrame(context, getProjection(parentProjection));
+        Dataset<Row> df;
+        if (this.child instanceof ForClauseSparkIterator) {
+            // the for clause may join on the predicate, which is applied afterwards in any case
+            df = ((ForClauseSparkIterator) this.child).getDataFrame(
+                context,
+                getProjection(parentProjection),
+                this.expression
+            );
+        } else {
+            df = this.child.getDataFrame(context, getProjection(parentProjection));
+        }
         StructType inputSchema = df.schema();
 
         Map<String, List<String>> UDFcolumnsByType = FlworDataFrameUtils.getColumnNamesByType(
@@ -148,6 +159,11 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
 
         String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumnsByType);
 
+        NativeWherePredicate nativePredicate = NativeWherePredicate.compile(this.expression, inputSchema, context);
+        if (nativePredicate != null) {
+            return nativePredicate.filter(df, String.format("whereClauseUDF(%s)", UDFParameters));
+        }
+
         df.createOrReplaceTempView("input");
         df = df.sparkSession()
             .sql(
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor.closures;
+
+import org.apache.spark.api.java.function.PairFunction;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import scala.Tuple2;
+
+public class OrderByClauseSortKeyClosure implements PairFunction<Row, Row, Row> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param row a tuple, with its sort keys prepended as a struct column.
+     * @return the sort keys and the tuple without them
+     */
+    @Override
+    public Tuple2<Row, Row> call(Row row) {
+        Object[] values = new Object[row.length() - 1];
+        for (int columnIndex = 1; columnIndex < row.length(); columnIndex++) {
+            values[columnIndex - 1] = row.get(columnIndex);
+        }
+        return new Tuple2<>(row.getStruct(0), RowFactory.create(values));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor.closures;
+
+import org.apache.spark.sql.Row;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.UnexpectedTypeException;
+import org.rumbledb.runtime.flwor.SortKeyEncoder;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compares the sort keys created by the order by clause. For each ordering expression, a key consists of an int
+ * ordering empty sequences, nulls and values, and of the encoded value, if any. Comparing values of different
+ * families is a type error, except for doubles and other numbers, which are compared as doubles like their items.
+ */
+public class OrderByClauseSortKeyComparator implements Comparator<Row>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int valueOrderIndex = 3;
+    private List<Boolean> ascending;
+    private ExceptionMetadata metadata;
+
+    public OrderByClauseSortKeyComparator(List<Boolean> ascending, ExceptionMetadata metadata) {
+        this.ascending = ascending;
+        this.metadata = metadata;
+    }
+
+    @Override
+    public int compare(Row key1, Row key2) {
+        for (int expressionIndex = 0; expressionIndex < this.ascending.size(); expressionIndex++) {
+            int orderIndex1 = key1.getInt(2 * expressionIndex);
+            int orderIndex2 = key2.getInt(2 * expressionIndex);
+            int result = Integer.compare(orderIndex1, orderIndex2);
+            if (result == 0 && orderIndex1 == valueOrderIndex) {
+                byte[] value1 = (byte[]) key1.get(2 * expressionIndex + 1);
+                byte[] value2 = (byte[]) key2.get(2 * expressionIndex + 1);
+                byte family1 = SortKeyEncoder.getFamily(value1);
+                byte family2 = SortKeyEncoder.getFamily(value2);
+                if (family1 == family2) {
+                    result = SortKeyEncoder.compare(value1, value2);
+                } else if (SortKeyEncoder.isNumericFamily(family1) && SortKeyEncoder.isNumericFamily(family2)) {
+                    result = Double.compare(
+                        SortKeyEncoder.getDoubleValue(value1),
+                        SortKeyEncoder.getDoubleValue(value2)
+                    );
+                } else {
+                    throw new UnexpectedTypeException(
+                            "Order by variable must contain values of a single type.",
+                            this.metadata
+                    );
+                }
+            }
+            if (result != 0) {
+                return this.ascending.get(expressionIndex) ? result : -result;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+package org.rumbledb.runtime.flwor.closures;
+
+import org.apache.spark.api.java.function.Function2;
+import org.rumbledb.api.Item;
+import scala.Tuple2;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Emits each item of a partition once per tuple, keyed by the index of the tuple and by the position of the item, so
+ * that sorting by key puts the copies in the order of the tuples. Like Spark's monotonically increasing ids, positions
+ * increase with the partitions and with the items within them, without running a job to count them.
+ */
+public class ReturnClauseCopyClosure
+        implements
+            Function2<Integer, Iterator<Item>, Iterator<Tuple2<Tuple2<Long, Long>, Item>>> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int positionBits = 33;
+    private long tupleCount;
+
+    public ReturnClauseCopyClosure(long tupleCount) {
+        this.tupleCount = tupleCount;
+    }
+
+    @Override
+    public Iterator<Tuple2<Tuple2<Long, Long>, Item>> call(Integer partitionIndex, Iterator<Item> items) {
+        long firstPosition = ((long) partitionIndex) << positionBits;
+        long tupleCount = this.tupleCount;
+        return new Iterator<Tuple2<Tuple2<Long, Long>, Item>>() {
+            private Item item;
+            private long position = firstPosition - 1;
+            private long tupleIndex = tupleCount;
+
+            @Override
+            public boolean hasNext() {
+                return this.tupleIndex < tupleCount || items.hasNext();
+            }
+
+            @Override
+            public Tuple2<Tuple2<Long, Long>, Item> next() {
+                if (this.tupleIndex == tupleCount) {
+                    if (!items.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    this.item = items.next();
+                    this.position++;
+                    this.tupleIndex = 0;
+                }
+                return new Tuple2<>(new Tuple2<>(this.tupleIndex++, this.position), this.item);
+            }
+        };
+    }
+}
@@ -24,6 +24,7 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
@@ -72,7 +73,8 @@ public class ReturnFlatMapClosure implements FlatMapFunction<Row, Item> {
             Name field = Name.createVariableInNoNamespace(columnNames[columnIndex]);
             if (dependencies.containsKey(field)) {
                 List<Item> i = FlworDataFrameUtils.deserializeRowField(row, columnIndex, this.kryo, this.input); // rowColumns.get(columnIndex);
-                if (dependencies.get(field).equals(DynamicContext.VariableDependency.COUNT)) {
+                if (this.oldSchema.fields()[columnIndex].dataType().equals(DataTypes.LongType)) {
+                    // the count was pre-computed
                     this.context.addVariableCount(field, i.get(0));
                 } else {
                     this.context.addVariableValue(field, i);
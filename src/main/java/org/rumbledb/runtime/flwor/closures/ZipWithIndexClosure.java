@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor.closures;
+
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import scala.Tuple2;
+
+public class ZipWithIndexClosure implements Function<Tuple2<Row, Long>, Row> {
+
+    private static final long serialVersionUID = 1L;
+    private long offset;
+
+    public ZipWithIndexClosure(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @param rowWithIndex a row and its zero-based position in the input.
+     * @return the row with its position, starting at the offset, appended as a last column
+     */
+    @Override
+    public Row call(Tuple2<Row, Long> rowWithIndex) {
+        Row row = rowWithIndex._1();
+        Object[] values = new Object[row.length() + 1];
+        for (int columnIndex = 0; columnIndex < row.length(); columnIndex++) {
+            values[columnIndex] = row.get(columnIndex);
+        }
+        values[row.length()] = rowWithIndex._2() + this.offset;
+        return RowFactory.create(values);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor.closures;
+
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+
+import java.util.Iterator;
+
+public class ZipWithPartitionOffsetsClosure implements Function2<Integer, Iterator<Row>, Iterator<Row>> {
+
+    private static final long serialVersionUID = 1L;
+    private long[] partitionOffsets;
+
+    public ZipWithPartitionOffsetsClosure(long[] partitionOffsets) {
+        this.partitionOffsets = partitionOffsets;
+    }
+
+    /**
+     * @param partitionIndex the index of the partition.
+     * @param rows the rows of the partition.
+     * @return the rows with their positions, starting at the offset of the partition, appended as a last column
+     */
+    @Override
+    public Iterator<Row> call(Integer partitionIndex, Iterator<Row> rows) {
+        long partitionOffset = this.partitionOffsets[partitionIndex];
+        return new Iterator<Row>() {
+            private long position = partitionOffset;
+
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                Row row = rows.next();
+                Object[] values = new Object[row.length() + 1];
+                for (int columnIndex = 0; columnIndex < row.length(); columnIndex++) {
+                    values[columnIndex] = row.get(columnIndex);
+                }
+                values[row.length()] = this.position++;
+                return RowFactory.create(values);
+            }
+        };
+    }
+}
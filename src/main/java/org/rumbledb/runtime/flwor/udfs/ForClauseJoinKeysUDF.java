@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor.udfs;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.api.java.UDF1;
+import org.apache.spark.sql.types.DataType;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.NonAtomicKeyException;
+import org.rumbledb.exceptions.UnexpectedTypeException;
+import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.VariablePath;
+
+import java.io.IOException;
+import java.util.List;
+
+public class ForClauseJoinKeysUDF implements UDF1<Object, Row> {
+    private static final long serialVersionUID = 1L;
+    private List<VariablePath> paths;
+    private DataType variableType;
+    private List<ExceptionMetadata> metadata;
+
+    private Object[] keys;
+
+    private transient Kryo kryo;
+    private transient Input input;
+
+    public ForClauseJoinKeysUDF(
+            List<VariablePath> paths,
+            DataType variableType,
+            List<ExceptionMetadata> metadata
+    ) {
+        this.paths = paths;
+        this.variableType = variableType;
+        this.metadata = metadata;
+        this.keys = new Object[2 * paths.size()];
+
+        this.kryo = new Kryo();
+        this.kryo.setReferences(false);
+        FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
+        this.input = new Input();
+    }
+
+    @Override
+    public Row call(Object variableColumnValue) {
+        List<Item> variableValue = FlworDataFrameUtils.isNativeType(this.variableType)
+            ? FlworDataFrameUtils.getItemsFromNativeValue(variableColumnValue, this.variableType)
+            : FlworDataFrameUtils.deserializeItemList((byte[]) variableColumnValue, this.kryo, this.input);
+        for (int keyIndex = 0; keyIndex < this.paths.size(); keyIndex++) {
+            List<Item> items = this.paths.get(keyIndex).evaluate(variableValue);
+            this.keys[2 * keyIndex] = getJoinKey(items, this.metadata.get(keyIndex));
+            this.keys[2 * keyIndex + 1] = getJoinKeyFamily(items);
+        }
+        return RowFactory.create(this.keys.clone());
+    }
+
+    /**
+     * Encodes a value so that values that are equal with the eq operator have the same key. Join keys are only used
+     * to find candidate pairs of tuples, which are then filtered by the where clause itself, so different values may
+     * share a key. Sequences that eq rejects raise the same errors as eq.
+     *
+     * @param items the sequence of items a key path evaluates to.
+     * @param metadata the metadata of the equality, for errors.
+     * @return the key, or null if the sequence is empty and thus cannot be equal to anything.
+     */
+    public static String getJoinKey(List<Item> items, ExceptionMetadata metadata) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        if (items.size() > 1) {
+            throw new UnexpectedTypeException(
+                    "Invalid args. Value comparison can't be performed on sequences with more than 1 items",
+                    metadata
+            );
+        }
+        Item item = items.get(0);
+        if (item.isArray()) {
+            throw new NonAtomicKeyException("Invalid args. Comparison can't be performed on array type", metadata);
+        }
+        if (item.isObject()) {
+            throw new NonAtomicKeyException("Invalid args. Comparison can't be performed on object type", metadata);
+        }
+        if (item.isFunction()) {
+            throw new NonAtomicKeyException("Invalid args. Comparison can't be performed on function type", metadata);
+        }
+        if (item.isNull()) {
+            return "null";
+        }
+        if (item.isString() || item.isAnyURI()) {
+            return "s" + item.getStringValue();
+        }
+        if (item.isNumeric()) {
+            // numbers that are equal have the same value as doubles, and thus the same truncated value
+            return "n" + (long) item.castToDoubleValue();
+        }
+        if (item.isBoolean()) {
+            return "b" + item.getBooleanValue();
+        }
+        if (item.isDateTime() || item.isDate() || item.isTime()) {
+            return "d" + item.getDateTimeValue().getMillis();
+        }
+        // durations and binaries all share the same key
+        return "o";
+    }
+
+    /**
+     * Returns the family of a join key. Items of different families cannot be compared with eq and never have the
+     * same key, so that the join would drop their pairs instead of raising the error of eq. Items that eq cannot
+     * compare but that share a family also share a key, and are compared by the where clause after the join.
+     *
+     * @param items the sequence of atomic items, at most one, a key path evaluates to.
+     * @return the family, or null if the sequence is empty or null, which can be compared with anything.
+     */
+    public static String getJoinKeyFamily(List<Item> items) {
+        if (items.isEmpty() || items.get(0).isNull()) {
+            return null;
+        }
+        Item item = items.get(0);
+        if (item.isString() || item.isAnyURI()) {
+            return "string";
+        }
+        if (item.isNumeric()) {
+            return "number";
+        }
+        if (item.isBoolean()) {
+            return "boolean";
+        }
+        if (item.isDateTime()) {
+            return "dateTime";
+        }
+        if (item.isDate()) {
+            return "date";
+        }
+        if (item.isTime()) {
+            return "time";
+        }
+        return "other";
+    }
+
+    private void readObject(java.io.ObjectInputStream in)
+            throws IOException,
+                ClassNotFoundException {
+        in.defaultReadObject();
+
+        this.kryo = new Kryo();
+        this.kryo.setReferences(false);
+        FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
+        this.input = new Input();
+    }
+}
@@ -23,7 +23,8 @@ package org.rumbledb.runtime.flwor.udfs;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import org.apache.spark.sql.api.java.UDF2;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.api.java.UDF3;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.items.ItemFactory;
@@ -36,7 +37,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-public class ForClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Long>, List<byte[]>> {
+public class ForClauseUDF implements UDF3<WrappedArray<byte[]>, WrappedArray<Long>, Row, List<byte[]>> {
     /**
      *
      */
@@ -45,6 +46,7 @@ public class ForClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
     private RuntimeIterator expression;
     private List<List<Item>> deserializedParams;
     private List<Item> longParams;
+    private List<List<Item>> nativeParams;
     private DynamicContext context;
     private List<Item> nextResult;
     private List<byte[]> results;
@@ -63,6 +65,7 @@ public class ForClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
 
         this.deserializedParams = new ArrayList<>();
         this.longParams = new ArrayList<>();
+        this.nativeParams = new ArrayList<>();
 
         this.context = new DynamicContext(context);
         this.nextResult = new ArrayList<>();
@@ -77,8 +80,14 @@ public class ForClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
 
 
     @Override
-    public List<byte[]> call(WrappedArray<byte[]> wrappedParameters, WrappedArray<Long> wrappedParametersLong) {
+    public List<byte[]> call(
+            WrappedArray<byte[]> wrappedParameters,
+            WrappedArray<Long> wrappedParametersLong,
+            Row nativeParameters
+    ) {
         this.deserializedParams.clear();
+        this.longParams.clear();
+        this.nativeParams.clear();
         this.context.removeAllVariables();
         this.results.clear();
 
@@ -88,21 +97,22 @@ public class ForClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
             this.kryo,
             this.input
         );
+        FlworDataFrameUtils.deserializeNativeParameters(nativeParameters, this.nativeParams);
 
         // Long parameters correspond to pre-computed counts, when a materialization of the
         // actual sequence was avoided upfront.
         Object[] longParams = (Object[]) wrappedParametersLong.array();
         for (Object longParam : longParams) {
-            Item count = ItemFactory.getInstance().createIntegerItem(((Long) longParam).intValue());
+            Item count = ItemFactory.getInstance().createIntegerItem((Long) longParam);
             this.longParams.add(count);
         }
 
         FlworDataFrameUtils.prepareDynamicContext(
             this.context,
-            this.columnNamesByType.get("byte[]"),
-            this.columnNamesByType.get("Long"),
+            this.columnNamesByType,
             this.deserializedParams,
-            this.longParams
+            this.longParams,
+            this.nativeParams
         );
 
         // apply expression in the dynamic context
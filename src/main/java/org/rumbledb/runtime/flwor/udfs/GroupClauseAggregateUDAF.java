@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor.udfs;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.expressions.MutableAggregationBuffer;
+import org.apache.spark.sql.expressions.UserDefinedAggregateFunction;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.rumbledb.api.Item;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.InvalidArgumentTypeException;
+import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.items.ItemComparatorForSequences;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.VariablePath;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregates the values of a non-grouping variable in each group, when the clauses after the group by clause only
+ * use this variable through count(), sum(), avg(), min() or max(). Instead of collecting all values of a group, each
+ * partition keeps a fixed-size accumulator per group, which Spark merges after the shuffle.
+ *
+ * The result of count is a pre-computed count. For the other functions, the result is the serialized sequence of
+ * at most one item on which the function returns the same as on all values of the group: the sum, the average, or
+ * the minimum or maximum item.
+ *
+ * If a path is given, such as $x.amount, the function is applied to the items that the path returns on the values of
+ * the variable instead.
+ */
+public class GroupClauseAggregateUDAF extends UserDefinedAggregateFunction {
+
+    private static final long serialVersionUID = 1L;
+    private DynamicContext.VariableDependency aggregate;
+    private VariablePath path;
+    private DataType inputType;
+    private ExceptionMetadata metadata;
+
+    private transient Kryo kryo;
+    private transient Output output;
+    private transient Input input;
+    private transient ItemComparatorForSequences comparator;
+
+    public GroupClauseAggregateUDAF(
+            DynamicContext.VariableDependency aggregate,
+            VariablePath path,
+            DataType inputType,
+            ExceptionMetadata metadata
+    ) {
+        if (aggregate == DynamicContext.VariableDependency.FULL) {
+            throw new OurBadException("Unexpected aggregate in group by clause: " + aggregate);
+        }
+        this.aggregate = aggregate;
+        this.path = path;
+        this.inputType = inputType;
+        this.metadata = metadata;
+
+        this.kryo = new Kryo();
+        this.kryo.setReferences(false);
+        FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
+        this.output = new Output(128, -1);
+        this.input = new Input();
+        this.comparator = new ItemComparatorForSequences();
+    }
+
+    @Override
+    public StructType inputSchema() {
+        return DataTypes.createStructType(
+            Collections.singletonList(DataTypes.createStructField("value", this.inputType, true))
+        );
+    }
+
+    @Override
+    public StructType bufferSchema() {
+        List<StructField> fields = new ArrayList<>();
+        switch (this.aggregate) {
+            case COUNT:
+                fields.add(DataTypes.createStructField("count", DataTypes.LongType, false));
+                break;
+            case SUM:
+            case AVG:
+                // decimals are exact and unbounded, unlike Spark decimals
+                fields.add(DataTypes.createStructField("sum", DataTypes.StringType, false));
+                fields.add(DataTypes.createStructField("count", DataTypes.LongType, false));
+                break;
+            default:
+                fields.add(DataTypes.createStructField("value", DataTypes.BinaryType, true));
+        }
+        return DataTypes.createStructType(fields);
+    }
+
+    @Override
+    public DataType dataType() {
+        return this.aggregate == DynamicContext.VariableDependency.COUNT
+            ? DataTypes.LongType
+            : DataTypes.BinaryType;
+    }
+
+    @Override
+    public boolean deterministic() {
+        return true;
+    }
+
+    @Override
+    public void initialize(MutableAggregationBuffer buffer) {
+        switch (this.aggregate) {
+            case COUNT:
+                buffer.update(0, 0L);
+                break;
+            case SUM:
+            case AVG:
+                buffer.update(0, BigDecimal.ZERO.toString());
+                buffer.update(1, 0L);
+                break;
+            default:
+                buffer.update(0, null);
+        }
+    }
+
+    @Override
+    public void update(MutableAggregationBuffer buffer, Row row) {
+        List<Item> items;
+        if (this.inputType.equals(DataTypes.BinaryType)) {
+            items = FlworDataFrameUtils.deserializeItemList((byte[]) row.get(0), this.kryo, this.input);
+        } else {
+            items = FlworDataFrameUtils.getItemsFromNativeValue(row.get(0), this.inputType);
+        }
+        if (this.path != null) {
+            items = this.path.evaluate(items);
+        }
+        switch (this.aggregate) {
+            case COUNT:
+                buffer.update(0, buffer.getLong(0) + items.size());
+                break;
+            case SUM:
+            case AVG:
+                if (items.isEmpty()) {
+                    return;
+                }
+                BigDecimal sum = new BigDecimal(buffer.getString(0));
+                for (Item item : items) {
+                    if (!item.isNumeric()) {
+                        throw new InvalidArgumentTypeException(
+                                (this.aggregate == DynamicContext.VariableDependency.SUM ? "Sum" : "Average")
+                                    + " expression has non numeric args "
+                                    + item.serialize(),
+                                this.metadata
+                        );
+                    }
+                    sum = sum.add(item.castToDecimalValue());
+                }
+                buffer.update(0, sum.toString());
+                buffer.update(1, buffer.getLong(1) + items.size());
+                break;
+            default:
+                if (items.isEmpty()) {
+                    return;
+                }
+                Item extremum = buffer.isNullAt(0) ? null : deserializeItem((byte[]) buffer.get(0));
+                for (Item item : items) {
+                    if (extremum == null || isBetter(item, extremum)) {
+                        extremum = item;
+                    }
+                }
+                buffer.update(0, serializeItem(extremum));
+        }
+    }
+
+    @Override
+    public void merge(MutableAggregationBuffer buffer, Row other) {
+        switch (this.aggregate) {
+            case COUNT:
+                buffer.update(0, buffer.getLong(0) + other.getLong(0));
+                break;
+            case SUM:
+            case AVG:
+                BigDecimal sum = new BigDecimal(buffer.getString(0)).add(new BigDecimal(other.getString(0)));
+                buffer.update(0, sum.toString());
+                buffer.update(1, buffer.getLong(1) + other.getLong(1));
+                break;
+            default:
+                if (other.isNullAt(0)) {
+                    return;
+                }
+                if (
+                    buffer.isNullAt(0)
+                        || isBetter(deserializeItem((byte[]) other.get(0)), deserializeItem((byte[]) buffer.get(0)))
+                ) {
+                    buffer.update(0, other.get(0));
+                }
+        }
+    }
+
+    @Override
+    public Object evaluate(Row buffer) {
+        List<Item> result = new ArrayList<>();
+        switch (this.aggregate) {
+            case COUNT:
+                return buffer.getLong(0);
+            case SUM:
+                if (buffer.getLong(1) > 0) {
+                    result.add(ItemFactory.getInstance().createDecimalItem(new BigDecimal(buffer.getString(0))));
+                }
+                break;
+            case AVG:
+                if (buffer.getLong(1) > 0) {
+                    BigDecimal sum = new BigDecimal(buffer.getString(0));
+                    result.add(
+                        ItemFactory.getInstance().createDecimalItem(sum.divide(new BigDecimal(buffer.getLong(1))))
+                    );
+                }
+                break;
+            default:
+                if (!buffer.isNullAt(0)) {
+                    return buffer.get(0);
+                }
+        }
+        return FlworDataFrameUtils.serializeItemList(result, this.kryo, this.output);
+    }
+
+    /**
+     * Like Collections.max and Collections.min, keeps the first of several equal extrema.
+     */
+    private boolean isBetter(Item item, Item extremum) {
+        int comparison;
+        try {
+            comparison = this.comparator.compare(item, extremum);
+        } catch (RumbleException e) {
+            throw new InvalidArgumentTypeException(
+                    (this.aggregate == DynamicContext.VariableDependency.MAX ? "Max" : "Min")
+                        + " expression input error. Input has to be non-null atomics of matching types: "
+                        + e.getMessage(),
+                    this.metadata
+            );
+        }
+        return this.aggregate == DynamicContext.VariableDependency.MAX ? comparison > 0 : comparison < 0;
+    }
+
+    private byte[] serializeItem(Item item) {
+        List<Item> items = new ArrayList<>();
+        items.add(item);
+        return FlworDataFrameUtils.serializeItemList(items, this.kryo, this.output);
+    }
+
+    private Item deserializeItem(byte[] bytes) {
+        return FlworDataFrameUtils.deserializeItemList(bytes, this.kryo, this.input).get(0);
+    }
+
+    private void readObject(java.io.ObjectInputStream in)
+            throws IOException,
+                ClassNotFoundException {
+        in.defaultReadObject();
+
+        this.kryo = new Kryo();
+        this.kryo.setReferences(false);
+        FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
+        this.output = new Output(128, -1);
+        this.input = new Input();
+        this.comparator = new ItemComparatorForSequences();
+    }
+}
@@ -24,7 +24,7 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
-import org.apache.spark.sql.api.java.UDF2;
+import org.apache.spark.sql.api.java.UDF3;
 import org.joda.time.Instant;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
@@ -40,7 +40,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-public class GroupClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Long>, Row> {
+public class GroupClauseCreateColumnsUDF implements UDF3<WrappedArray<byte[]>, WrappedArray<Long>, Row, Row> {
 
     private static final long serialVersionUID = 1L;
     private List<Name> variableNames;
@@ -48,6 +48,7 @@ public class GroupClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
 
     private List<List<Item>> deserializedParams;
     private List<Item> longParams;
+    private List<List<Item>> nativeParams;
     private DynamicContext parentContext;
     private DynamicContext context;
     private List<Object> results;
@@ -67,6 +68,7 @@ public class GroupClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
 
         this.deserializedParams = new ArrayList<>();
         this.longParams = new ArrayList<>();
+        this.nativeParams = new ArrayList<>();
         this.parentContext = context;
         this.context = new DynamicContext(this.parentContext);
         this.results = new ArrayList<>();
@@ -79,8 +81,14 @@ public class GroupClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
     }
 
     @Override
-    public Row call(WrappedArray<byte[]> wrappedParameters, WrappedArray<Long> wrappedParametersLong) {
+    public Row call(
+            WrappedArray<byte[]> wrappedParameters,
+            WrappedArray<Long> wrappedParametersLong,
+            Row nativeParameters
+    ) {
         this.deserializedParams.clear();
+        this.longParams.clear();
+        this.nativeParams.clear();
         this.results.clear();
 
         FlworDataFrameUtils.deserializeWrappedParameters(
@@ -89,12 +97,13 @@ public class GroupClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
             this.kryo,
             this.input
         );
+        FlworDataFrameUtils.deserializeNativeParameters(nativeParameters, this.nativeParams);
 
         // Long parameters correspond to pre-computed counts, when a materialization of the
         // actual sequence was avoided upfront.
         Object[] longParams = (Object[]) wrappedParametersLong.array();
         for (Object longParam : longParams) {
-            Item count = ItemFactory.getInstance().createIntegerItem(((Long) longParam).intValue());
+            Item count = ItemFactory.getInstance().createIntegerItem((Long) longParam);
             this.longParams.add(count);
         }
 
@@ -113,22 +122,13 @@ public class GroupClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
 
             // prepare dynamic context
             this.context.removeAllVariables();
-            for (int columnIndex = 0; columnIndex < this.columnNamesByType.get("byte[]").size(); columnIndex++) {
-                this.context.addVariableValue(
-                    Name.createVariableInNoNamespace(
-                        this.columnNamesByType.get("byte[]").get(columnIndex)
-                    ),
-                    this.deserializedParams.get(columnIndex)
-                );
-            }
-            for (int columnIndex = 0; columnIndex < this.columnNamesByType.get("Long").size(); columnIndex++) {
-                this.context.addVariableCount(
-                    Name.createVariableInNoNamespace(
-                        this.columnNamesByType.get("Long").get(columnIndex)
-                    ),
-                    this.longParams.get(columnIndex)
-                );
-            }
+            FlworDataFrameUtils.prepareDynamicContext(
+                this.context,
+                this.columnNamesByType,
+                this.deserializedParams,
+                this.longParams,
+                this.nativeParams
+            );
 
             boolean isEmptySequence = true;
             List<Item> items = this.context.getLocalVariableValue(
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.flwor.udfs;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.api.java.UDF1;
+import org.apache.spark.sql.types.DataType;
+import org.rumbledb.api.Item;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.InvalidArgumentTypeException;
+import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.items.parsing.ItemParser;
+import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes the aggregate of a path to an integer or decimal field, such as sum($x.amount), computed by Spark as a
+ * struct of the aggregate value, the number of values and the number of null values. The result is the sequence of
+ * at most one item on which the function returns the same as on all values of the group, as in
+ * GroupClauseAggregateUDAF.
+ */
+public class GroupClauseNativeAggregateUDF implements UDF1<Row, byte[]> {
+
+    private static final long serialVersionUID = 1L;
+    private DynamicContext.VariableDependency aggregate;
+    private DataType nativeType;
+    private ExceptionMetadata metadata;
+
+    private transient Kryo kryo;
+    private transient Output output;
+
+    public GroupClauseNativeAggregateUDF(
+            DynamicContext.VariableDependency aggregate,
+            DataType nativeType,
+            ExceptionMetadata metadata
+    ) {
+        this.aggregate = aggregate;
+        this.nativeType = nativeType;
+        this.metadata = metadata;
+
+        this.kryo = new Kryo();
+        this.kryo.setReferences(false);
+        FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
+        this.output = new Output(128, -1);
+    }
+
+    @Override
+    public byte[] call(Row aggregateResult) {
+        List<Item> result = new ArrayList<>(1);
+        Item value = getAggregate(aggregateResult);
+        if (value != null) {
+            result.add(value);
+        }
+        return FlworDataFrameUtils.serializeItemList(result, this.kryo, this.output);
+    }
+
+    /**
+     * @return the aggregate computed by Spark, or null if the path has no values.
+     */
+    private Item getAggregate(Row aggregateResult) {
+        long count = aggregateResult.getLong(1);
+        long nulls = aggregateResult.getLong(2);
+        switch (this.aggregate) {
+            case SUM:
+            case AVG:
+                boolean isSum = this.aggregate == DynamicContext.VariableDependency.SUM;
+                if (nulls > 0) {
+                    throw new InvalidArgumentTypeException(
+                            (isSum ? "Sum" : "Average") + " expression has non numeric args null",
+                            this.metadata
+                    );
+                }
+                if (count == 0) {
+                    return null;
+                }
+                BigDecimal sum = aggregateResult.getDecimal(0);
+                return ItemFactory.getInstance()
+                    .createDecimalItem(isSum ? sum : sum.divide(new BigDecimal(count)));
+            case MIN:
+            case MAX:
+                if (nulls > 0) {
+                    // like in the min and max functions, a single item is not compared
+                    if (count + nulls > 1) {
+                        throw new InvalidArgumentTypeException(
+                                (this.aggregate == DynamicContext.VariableDependency.MAX ? "Max" : "Min")
+                                    + " expression input error. Input has to be non-null atomics of matching types",
+                                this.metadata
+                        );
+                    }
+                    return ItemFactory.getInstance().createNullItem();
+                }
+                if (count == 0) {
+                    return null;
+                }
+                return ItemParser.getItemFromValue(aggregateResult.get(0), this.nativeType, this.metadata);
+            default:
+                throw new OurBadException("Unexpected aggregate on a path in group by clause: " + this.aggregate);
+        }
+    }
+
+    private void readObject(java.io.ObjectInputStream in)
+            throws IOException,
+                ClassNotFoundException {
+        in.defaultReadObject();
+
+        this.kryo = new Kryo();
+        this.kryo.setReferences(false);
+        FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
+        this.output = new Output(128, -1);
+    }
+}
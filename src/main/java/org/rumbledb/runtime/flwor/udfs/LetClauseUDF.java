@@ -23,7 +23,8 @@ package org.rumbledb.runtime.flwor.udfs;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import org.apache.spark.sql.api.java.UDF2;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.api.java.UDF3;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.items.ItemFactory;
@@ -36,7 +37,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-public class LetClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Long>, byte[]> {
+public class LetClauseUDF implements UDF3<WrappedArray<byte[]>, WrappedArray<Long>, Row, byte[]> {
 
     private static final long serialVersionUID = 1L;
     private RuntimeIterator expression;
@@ -45,6 +46,7 @@ public class LetClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
 
     private List<List<Item>> deserializedParams;
     private List<Item> longParams;
+    private List<List<Item>> nativeParams;
     private DynamicContext parentContext;
     private DynamicContext context;
     private List<Item> nextResult;
@@ -62,6 +64,7 @@ public class LetClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
 
         this.deserializedParams = new ArrayList<>();
         this.longParams = new ArrayList<>();
+        this.nativeParams = new ArrayList<>();
         this.parentContext = context;
         this.context = new DynamicContext(this.parentContext);
         this.nextResult = new ArrayList<>();
@@ -77,9 +80,14 @@ public class LetClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
 
 
     @Override
-    public byte[] call(WrappedArray<byte[]> wrappedParameters, WrappedArray<Long> wrappedParametersLong) {
+    public byte[] call(
+            WrappedArray<byte[]> wrappedParameters,
+            WrappedArray<Long> wrappedParametersLong,
+            Row nativeParameters
+    ) {
         this.deserializedParams.clear();
         this.longParams.clear();
+        this.nativeParams.clear();
         this.context.removeAllVariables();
         this.nextResult.clear();
 
@@ -89,21 +97,22 @@ public class LetClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Lon
             this.kryo,
             this.input
         );
+        FlworDataFrameUtils.deserializeNativeParameters(nativeParameters, this.nativeParams);
 
         // Long parameters correspond to pre-computed counts, when a materialization of the
         // actual sequence was avoided upfront.
         Object[] longParams = (Object[]) wrappedParametersLong.array();
         for (Object longParam : longParams) {
-            Item count = ItemFactory.getInstance().createIntegerItem(((Long) longParam).intValue());
+            Item count = ItemFactory.getInstance().createIntegerItem((Long) longParam);
             this.longParams.add(count);
         }
 
         FlworDataFrameUtils.prepareDynamicContext(
             this.context,
-            this.columnNamesByType.get("byte[]"),
-            this.columnNamesByType.get("Long"),
+            this.columnNamesByType,
             this.deserializedParams,
-            this.longParams
+            this.longParams,
+            this.nativeParams
         );
 
         // apply expression in the dynamic context
@@ -24,19 +24,17 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
-import org.apache.spark.sql.api.java.UDF2;
-import org.joda.time.Instant;
+import org.apache.spark.sql.api.java.UDF3;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.context.Name;
-import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.expressions.flowr.OrderByClauseSortingKey;
 import org.rumbledb.items.ItemFactory;
-import org.rumbledb.items.NullItem;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.SortKeyEncoder;
 import org.rumbledb.runtime.flwor.expression.OrderByClauseAnnotatedChildIterator;
-import org.rumbledb.types.ItemType;
 import scala.collection.mutable.WrappedArray;
 
 import java.io.IOException;
@@ -45,17 +43,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-public class OrderClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Long>, Row> {
+public class OrderClauseCreateColumnsUDF implements UDF3<WrappedArray<byte[]>, WrappedArray<Long>, Row, Row> {
 
     private static final long serialVersionUID = 1L;
     private List<OrderByClauseAnnotatedChildIterator> expressionsWithIterator;
     private Map<Name, DynamicContext.VariableDependency> dependencies;
 
     private Map<String, List<String>> columnNamesByType;
-    private Map<Integer, String> allColumnTypes;
 
     private List<List<Item>> deserializedParams;
     private List<Item> longParams;
+    private List<List<Item>> nativeParams;
     private DynamicContext parentContext;
     private DynamicContext context;
     private List<Object> results;
@@ -66,14 +64,13 @@ public class OrderClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
     public OrderClauseCreateColumnsUDF(
             List<OrderByClauseAnnotatedChildIterator> expressionsWithIterator,
             DynamicContext context,
-            Map<Integer, String> allColumnTypes,
             Map<String, List<String>> columnNamesByType
     ) {
         this.expressionsWithIterator = expressionsWithIterator;
-        this.allColumnTypes = allColumnTypes;
 
         this.deserializedParams = new ArrayList<>();
         this.longParams = new ArrayList<>();
+        this.nativeParams = new ArrayList<>();
         this.parentContext = context;
         this.context = new DynamicContext(this.parentContext);
         this.results = new ArrayList<>();
@@ -91,8 +88,14 @@ public class OrderClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
     }
 
     @Override
-    public Row call(WrappedArray<byte[]> wrappedParameters, WrappedArray<Long> wrappedParametersLong) {
+    public Row call(
+            WrappedArray<byte[]> wrappedParameters,
+            WrappedArray<Long> wrappedParametersLong,
+            Row nativeParameters
+    ) {
         this.deserializedParams.clear();
+        this.longParams.clear();
+        this.nativeParams.clear();
         this.context.removeAllVariables();
         this.results.clear();
 
@@ -102,28 +105,25 @@ public class OrderClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
             this.kryo,
             this.input
         );
+        FlworDataFrameUtils.deserializeNativeParameters(nativeParameters, this.nativeParams);
 
         // Long parameters correspond to pre-computed counts, when a materialization of the
         // actual sequence was avoided upfront.
         Object[] longParams = (Object[]) wrappedParametersLong.array();
         for (Object longParam : longParams) {
-            Item count = ItemFactory.getInstance().createIntegerItem(((Long) longParam).intValue());
+            Item count = ItemFactory.getInstance().createIntegerItem((Long) longParam);
             this.longParams.add(count);
         }
 
         FlworDataFrameUtils.prepareDynamicContext(
             this.context,
-            this.columnNamesByType.get("byte[]"),
-            this.columnNamesByType.get("Long"),
+            this.columnNamesByType,
             this.deserializedParams,
-            this.longParams
+            this.longParams,
+            this.nativeParams
         );
 
-        for (int expressionIndex = 0; expressionIndex < this.expressionsWithIterator.size(); expressionIndex++) {
-            OrderByClauseAnnotatedChildIterator expressionWithIterator = this.expressionsWithIterator.get(
-                expressionIndex
-            );
-
+        for (OrderByClauseAnnotatedChildIterator expressionWithIterator : this.expressionsWithIterator) {
             // nulls and empty sequences have special ordering captured in the first sorting column
             // if non-null, non-empty-sequence value is given, the second column is used to sort the input
             // indices are assigned to each value type for the first column
@@ -134,70 +134,54 @@ public class OrderClauseCreateColumnsUDF implements UDF2<WrappedArray<byte[]>, W
                 emptySequenceOrderIndex = 4;
             }
 
-
             // apply expression in the dynamic context
             RuntimeIterator iterator = expressionWithIterator.getIterator();
             iterator.open(this.context);
-            boolean isEmptySequence = true;
-            while (iterator.hasNext()) {
-                isEmptySequence = false;
-                Item nextItem = iterator.next();
-                if (nextItem instanceof NullItem) {
-                    this.results.add(nullOrderIndex);
-                    this.results.add(null); // placeholder for valueColumn(2nd column)
-                } else {
-                    // any other atomic type
-                    this.results.add(valueOrderIndex);
-
-                    // extract type information for the sorting column
-                    String typeName = this.allColumnTypes.get(expressionIndex);
-                    try {
-                        if (typeName.equals(ItemType.booleanItem.getName())) {
-                            this.results.add(nextItem.getBooleanValue());
-                        } else if (typeName.equals(ItemType.stringItem.getName())) {
-                            this.results.add(nextItem.getStringValue());
-                        } else if (typeName.equals(ItemType.integerItem.getName())) {
-                            this.results.add(nextItem.castToIntegerValue());
-                        } else if (typeName.equals(ItemType.doubleItem.getName())) {
-                            this.results.add(nextItem.castToDoubleValue());
-                        } else if (typeName.equals(ItemType.decimalItem.getName())) {
-                            this.results.add(nextItem.castToDecimalValue());
-                        } else if (
-                            typeName.equals(ItemType.durationItem.getName())
-                                || typeName.equals(ItemType.yearMonthDurationItem.getName())
-                                || typeName.equals(ItemType.dayTimeDurationItem.getName())
-                        ) {
-                            this.results.add(
-                                nextItem.getDurationValue().toDurationFrom(Instant.now()).getMillis()
-                            );
-                        } else if (
-                            typeName.equals(ItemType.dateTimeItem.getName())
-                                || typeName.equals(ItemType.dateItem.getName())
-                                || typeName.equals(ItemType.timeItem.getName())
-                        ) {
-                            this.results.add(nextItem.getDateTimeValue().getMillis());
-                        } else {
-                            throw new OurBadException(
-                                    "Unexpected ordering type found while creating columns."
-                            );
-                        }
-                    } catch (RuntimeException e) {
-                        throw new OurBadException(
-                                "Invalid sort key: cannot compare item of type "
-                                    + typeName
-                                    + " with item of type "
-                                    + nextItem.getDynamicType().toString()
-                                    + "."
-                        );
-                    }
+            Item nextItem = null;
+            if (iterator.hasNext()) {
+                nextItem = iterator.next();
+                if (iterator.hasNext()) {
+                    throw new UnexpectedTypeException(
+                            "Can not order by variables with sequences of multiple items.",
+                            iterator.getMetadata()
+                    );
                 }
             }
-            if (isEmptySequence) {
+            iterator.close();
+
+            if (nextItem == null) {
                 this.results.add(emptySequenceOrderIndex);
                 this.results.add(null); // placeholder for valueColumn(2nd column)
+            } else if (nextItem.isNull()) {
+                this.results.add(nullOrderIndex);
+                this.results.add(null); // placeholder for valueColumn(2nd column)
+            } else if (nextItem.isArray() || nextItem.isObject()) {
+                throw new UnexpectedTypeException(
+                        "Order by variable can not contain arrays or objects.",
+                        iterator.getMetadata()
+                );
+            } else if (nextItem.isBinary()) {
+                String itemType = nextItem.getDynamicType().toString();
+                throw new UnexpectedTypeException(
+                        "\""
+                            + itemType
+                            + "\": invalid type: can not compare for equality to type \""
+                            + itemType
+                            + "\"",
+                        iterator.getMetadata()
+                );
+            } else {
+                // any other atomic type
+                byte[] sortKey = SortKeyEncoder.encode(nextItem);
+                if (sortKey == null) {
+                    throw new UnexpectedTypeException(
+                            "Can not order by items of type " + nextItem.getDynamicType().toString() + ".",
+                            iterator.getMetadata()
+                    );
+                }
+                this.results.add(valueOrderIndex);
+                this.results.add(sortKey);
             }
-            iterator.close();
-
         }
         return RowFactory.create(this.results.toArray());
     }
@@ -18,44 +18,49 @@
  *
  */
 
+
 package org.rumbledb.runtime.flwor.udfs;
 
 import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.Input;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.api.java.UDF1;
 import org.rumbledb.api.Item;
-import org.rumbledb.items.IntegerItem;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+import org.rumbledb.runtime.flwor.NativeWherePredicate;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class CountClauseSerializeUDF implements UDF1<Long, byte[]> {
-
-
+public class WhereClauseExtractOperandsUDF implements UDF1<byte[], Row> {
     private static final long serialVersionUID = 1L;
+    private List<NativeWherePredicate.Operand> operands;
 
-    private List<Item> nextResult;
+    private List<Object> values;
 
     private transient Kryo kryo;
-    private transient Output output;
+    private transient Input input;
 
-    public CountClauseSerializeUDF() {
-        this.nextResult = new ArrayList<>();
+    public WhereClauseExtractOperandsUDF(List<NativeWherePredicate.Operand> operands) {
+        this.operands = operands;
+        this.values = new ArrayList<>();
 
         this.kryo = new Kryo();
         this.kryo.setReferences(false);
         FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
-        this.output = new Output(128, -1);
+        this.input = new Input();
     }
 
     @Override
-    public byte[] call(Long countIndex) {
-        this.nextResult.clear();
-        this.nextResult.add(new IntegerItem(countIndex.intValue()));
-
-        return FlworDataFrameUtils.serializeItemList(this.nextResult, this.kryo, this.output);
+    public Row call(byte[] serializedParam) {
+        this.values.clear();
+        List<Item> variableValue = FlworDataFrameUtils.deserializeItemList(serializedParam, this.kryo, this.input);
+        for (NativeWherePredicate.Operand operand : this.operands) {
+            operand.extract(variableValue, this.values);
+        }
+        return RowFactory.create(this.values.toArray());
     }
 
     private void readObject(java.io.ObjectInputStream in)
@@ -66,6 +71,6 @@ public class CountClauseSerializeUDF implements UDF1<Long, byte[]> {
         this.kryo = new Kryo();
         this.kryo.setReferences(false);
         FlworDataFrameUtils.registerKryoClassesKryo(this.kryo);
-        this.output = new Output(128, -1);
+        this.input = new Input();
     }
 }
@@ -22,7 +22,8 @@ package org.rumbledb.runtime.flwor.udfs;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
-import org.apache.spark.sql.api.java.UDF2;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.api.java.UDF3;
 import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
@@ -36,7 +37,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-public class WhereClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<Long>, Boolean> {
+public class WhereClauseUDF implements UDF3<WrappedArray<byte[]>, WrappedArray<Long>, Row, Boolean> {
     private static final long serialVersionUID = 1L;
     private RuntimeIterator expression;
 
@@ -44,6 +45,7 @@ public class WhereClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<L
 
     private List<List<Item>> deserializedParams;
     private List<Item> longParams;
+    private List<List<Item>> nativeParams;
     private DynamicContext context;
     private DynamicContext parentContext;
 
@@ -60,6 +62,7 @@ public class WhereClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<L
 
         this.deserializedParams = new ArrayList<>();
         this.longParams = new ArrayList<>();
+        this.nativeParams = new ArrayList<>();
         this.parentContext = context;
         this.context = new DynamicContext(this.parentContext);
 
@@ -74,8 +77,14 @@ public class WhereClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<L
 
 
     @Override
-    public Boolean call(WrappedArray<byte[]> wrappedParameters, WrappedArray<Long> wrappedParametersLong) {
+    public Boolean call(
+            WrappedArray<byte[]> wrappedParameters,
+            WrappedArray<Long> wrappedParametersLong,
+            Row nativeParameters
+    ) {
         this.deserializedParams.clear();
+        this.longParams.clear();
+        this.nativeParams.clear();
         this.context.removeAllVariables();
 
         FlworDataFrameUtils.deserializeWrappedParameters(
@@ -84,21 +93,22 @@ public class WhereClauseUDF implements UDF2<WrappedArray<byte[]>, WrappedArray<L
             this.kryo,
             this.input
         );
+        FlworDataFrameUtils.deserializeNativeParameters(nativeParameters, this.nativeParams);
 
         // Long parameters correspond to pre-computed counts, when a materialization of the
         // actual sequence was avoided upfront.
         Object[] longParams = (Object[]) wrappedParametersLong.array();
         for (Object longParam : longParams) {
-            Item count = ItemFactory.getInstance().createIntegerItem(((Long) longParam).intValue());
+            Item count = ItemFactory.getInstance().createIntegerItem((Long) longParam);
             this.longParams.add(count);
         }
 
         FlworDataFrameUtils.prepareDynamicContext(
             this.context,
-            this.columnNamesByType.get("byte[]"),
-            this.columnNamesByType.get("Long"),
+            this.columnNamesByType,
             this.deserializedParams,
-            this.longParams
+            this.longParams,
+            this.nativeParams
         );
 
         // apply expression in the dynamic context
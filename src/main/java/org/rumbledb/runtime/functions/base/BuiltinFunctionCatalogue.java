@@ -55,6 +55,7 @@ import org.rumbledb.runtime.functions.durations.components.SecondsFromDurationFu
 import org.rumbledb.runtime.functions.durations.components.YearsFromDurationFunctionIterator;
 import org.rumbledb.runtime.functions.input.AvroFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.CSVFileFunctionIterator;
+import org.rumbledb.runtime.functions.input.JsonArrayFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.JsonFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.LibSVMFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.ParallelizeFunctionIterator;
@@ -279,16 +280,51 @@ public class BuiltinFunctionCatalogue {
         JsonFileFunctionIterator.class,
         BuiltinFunction.BuiltinFunctionExecutionMode.RDD
     );
+    static final BuiltinFunction json_file3 = createBuiltinFunction(
+        "json-file",
+        "string",
+        "integer?",
+        "object",
+        "item*",
+        JsonFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
+    /**
+     * function that parses the members of a JSON array making up a whole file, in parallel
+     */
+    static final BuiltinFunction json_array_file1 = createBuiltinFunction(
+        "json-array-file",
+        "string",
+        "item*",
+        JsonArrayFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
+    static final BuiltinFunction json_array_file2 = createBuiltinFunction(
+        "json-array-file",
+        "string",
+        "integer?",
+        "item*",
+        JsonArrayFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
     /**
      * function that parses a structured JSON lines file into a DataFrame
      */
-    static final BuiltinFunction structured_json_file = createBuiltinFunction(
+    static final BuiltinFunction structured_json_file1 = createBuiltinFunction(
         "structured-json-file",
         "string",
         "item*",
         StructuredJsonFileFunctionIterator.class,
         BuiltinFunction.BuiltinFunctionExecutionMode.DATAFRAME
     );
+    static final BuiltinFunction structured_json_file2 = createBuiltinFunction(
+        "structured-json-file",
+        "string",
+        "object",
+        "item*",
+        StructuredJsonFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.DATAFRAME
+    );
     /**
      * function that parses a libSVM formatted file into a DataFrame
      */
@@ -327,6 +363,15 @@ public class BuiltinFunctionCatalogue {
         TextFileFunctionIterator.class,
         BuiltinFunction.BuiltinFunctionExecutionMode.RDD
     );
+    static final BuiltinFunction text_file3 = createBuiltinFunction(
+        "text-file",
+        "string",
+        "integer?",
+        "object",
+        "item*",
+        TextFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
     /**
      * function that parallelizes item collections into a Spark RDD
      */
@@ -348,9 +393,17 @@ public class BuiltinFunctionCatalogue {
     /**
      * function that parses a parquet file
      */
-    static final BuiltinFunction parquet_file = createBuiltinFunction(
+    static final BuiltinFunction parquet_file1 = createBuiltinFunction(
+        "parquet-file",
+        "string",
+        "item*",
+        ParquetFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.DATAFRAME
+    );
+    static final BuiltinFunction parquet_file2 = createBuiltinFunction(
         "parquet-file",
         "string",
+        "object",
         "item*",
         ParquetFileFunctionIterator.class,
         BuiltinFunction.BuiltinFunctionExecutionMode.DATAFRAME
@@ -1804,14 +1857,20 @@ public class BuiltinFunctionCatalogue {
 
         builtinFunctions.put(json_file1.getIdentifier(), json_file1);
         builtinFunctions.put(json_file2.getIdentifier(), json_file2);
-        builtinFunctions.put(structured_json_file.getIdentifier(), structured_json_file);
+        builtinFunctions.put(json_file3.getIdentifier(), json_file3);
+        builtinFunctions.put(json_array_file1.getIdentifier(), json_array_file1);
+        builtinFunctions.put(json_array_file2.getIdentifier(), json_array_file2);
+        builtinFunctions.put(structured_json_file1.getIdentifier(), structured_json_file1);
+        builtinFunctions.put(structured_json_file2.getIdentifier(), structured_json_file2);
         builtinFunctions.put(libsvm_file.getIdentifier(), libsvm_file);
         builtinFunctions.put(json_doc.getIdentifier(), json_doc);
         builtinFunctions.put(text_file1.getIdentifier(), text_file1);
         builtinFunctions.put(text_file2.getIdentifier(), text_file2);
+        builtinFunctions.put(text_file3.getIdentifier(), text_file3);
         builtinFunctions.put(parallelizeFunction1.getIdentifier(), parallelizeFunction1);
         builtinFunctions.put(parallelizeFunction2.getIdentifier(), parallelizeFunction2);
-        builtinFunctions.put(parquet_file.getIdentifier(), parquet_file);
+        builtinFunctions.put(parquet_file1.getIdentifier(), parquet_file1);
+        builtinFunctions.put(parquet_file2.getIdentifier(), parquet_file2);
         builtinFunctions.put(csv_file1.getIdentifier(), csv_file1);
         builtinFunctions.put(csv_file2.getIdentifier(), csv_file2);
         builtinFunctions.put(root_file1.getIdentifier(), root_file1);
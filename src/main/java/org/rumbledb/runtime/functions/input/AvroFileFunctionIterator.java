@@ -29,6 +29,7 @@ import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.items.ObjectItem;
+import org.rumbledb.items.parsing.FieldProjection;
 import org.rumbledb.runtime.DataFrameRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import sparksoniq.jsoniq.ExecutionMode;
@@ -37,9 +38,10 @@ import sparksoniq.spark.SparkSessionManager;
 import java.net.URI;
 import java.util.List;
 
-public class AvroFileFunctionIterator extends DataFrameRuntimeIterator {
+public class AvroFileFunctionIterator extends DataFrameRuntimeIterator implements ProjectableInputIterator {
 
     private static final long serialVersionUID = 1L;
+    private FieldProjection projection;
 
     public AvroFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -49,6 +51,11 @@ public class AvroFileFunctionIterator extends DataFrameRuntimeIterator {
         super(arguments, executionMode, iteratorMetadata);
     }
 
+    @Override
+    public void setFieldProjection(FieldProjection projection) {
+        this.projection = projection;
+    }
+
     @Override
     public Dataset<Row> getDataFrame(DynamicContext context) {
         Item stringItem = this.children.get(0)
@@ -89,7 +96,10 @@ public class AvroFileFunctionIterator extends DataFrameRuntimeIterator {
                     }
                 }
             }
-            return dfr.format("avro").load(uri.toString());
+            return ProjectableInputIterator.selectProjectedColumns(
+                dfr.format("avro").load(uri.toString()),
+                this.projection
+            );
         } catch (Exception e) {
             if (e instanceof UnexpectedTypeException) {
                 throw new UnexpectedTypeException(e.getMessage(), this.getMetadata());
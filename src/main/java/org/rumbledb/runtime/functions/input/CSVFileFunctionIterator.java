@@ -21,26 +21,29 @@
 package org.rumbledb.runtime.functions.input;
 
 import org.apache.spark.sql.AnalysisException;
-import org.apache.spark.sql.DataFrameReader;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.items.ObjectItem;
+import org.rumbledb.items.parsing.FieldProjection;
 import org.rumbledb.runtime.DataFrameRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import sparksoniq.jsoniq.ExecutionMode;
-import sparksoniq.spark.SparkSessionManager;
 
 import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
+public class CSVFileFunctionIterator extends DataFrameRuntimeIterator implements ProjectableInputIterator {
 
     private static final long serialVersionUID = 1L;
+    private FieldProjection projection;
 
     public CSVFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -50,6 +53,11 @@ public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
         super(arguments, executionMode, iteratorMetadata);
     }
 
+    @Override
+    public void setFieldProjection(FieldProjection projection) {
+        this.projection = projection;
+    }
+
     @Override
     public Dataset<Row> getDataFrame(DynamicContext context) {
         Item stringItem = this.children.get(0)
@@ -61,23 +69,26 @@ public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
         }
         Item optionsObjectItem;
         try {
-            DataFrameReader dfr = SparkSessionManager.getInstance().getOrCreateSession().read();
+            Map<String, String> optionValues = new HashMap<>();
+            StructType schema = null;
             if (this.children.size() > 1 && ((optionsObjectItem = getObjectItem()) != null)) {
                 ObjectItem options = (ObjectItem) optionsObjectItem;
                 List<String> keys = options.getKeys();
                 List<Item> values = options.getValues();
                 for (int i = 0; i < keys.size(); i++) {
                     Item value = values.get(i);
-                    if (value.isBoolean()) {
-                        dfr.option(keys.get(i), value.getBooleanValue());
+                    if (keys.get(i).equals("schema")) {
+                        schema = SchemaCache.parseSchema(value, getMetadata());
+                    } else if (value.isBoolean()) {
+                        optionValues.put(keys.get(i), String.valueOf(value.getBooleanValue()));
                     } else if (value.isString()) {
-                        dfr.option(keys.get(i), value.getStringValue());
+                        optionValues.put(keys.get(i), value.getStringValue());
                     } else if (value.isInteger()) {
-                        dfr.option(keys.get(i), value.getIntegerValue());
+                        optionValues.put(keys.get(i), String.valueOf(value.getIntegerValue()));
                     } else if (value.isDecimal()) {
-                        dfr.option(keys.get(i), value.getDecimalValue().doubleValue());
+                        optionValues.put(keys.get(i), String.valueOf(value.getDecimalValue().doubleValue()));
                     } else if (value.isDouble()) {
-                        dfr.option(keys.get(i), value.getDoubleValue());
+                        optionValues.put(keys.get(i), String.valueOf(value.getDoubleValue()));
                     } else {
                         throw new UnexpectedTypeException(
                                 "Only boolean, string, and numeric types allowed as values",
@@ -86,7 +97,8 @@ public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
                     }
                 }
             }
-            return dfr.csv(uri.toString());
+            Dataset<Row> dataFrame = SchemaCache.read("csv", uri, optionValues, schema, getMetadata());
+            return ProjectableInputIterator.selectProjectedColumns(dataFrame, this.projection);
         } catch (Exception e) {
             if (e instanceof AnalysisException || e instanceof IllegalArgumentException) {
                 throw new CannotRetrieveResourceException("File " + url + " not found.", getMetadata());
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.rumbledb.context.DynamicContext;
+
+/**
+ * An input function that can count the items it returns without creating them, so that the count function does not
+ * parse or convert the whole input only to count it.
+ */
+public interface CountableInputIterator {
+
+    /**
+     * @param context the dynamic context.
+     * @return the number of items that the input function returns, or -1 if they cannot be counted without creating
+     *         them, for example because a sample of the input is read.
+     */
+    long count(DynamicContext context);
+
+    /**
+     * @param context the dynamic context.
+     * @return the number of items in each partition of the RDD that the input function returns, or null if they
+     *         cannot be counted without creating them.
+     */
+    long[] countPerPartition(DynamicContext context);
+}
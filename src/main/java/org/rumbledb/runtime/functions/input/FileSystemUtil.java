@@ -1,23 +1,36 @@
 package org.rumbledb.runtime.functions.input;
 
 import org.apache.hadoop.HadoopIllegalArgumentException;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CreateFlag;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
 import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Options;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
 import org.apache.hadoop.fs.UnsupportedFileSystemException;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.exceptions.RumbleException;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -127,6 +140,178 @@ public class FileSystemUtil {
         }
     }
 
+    public static long getLength(URI locator, ExceptionMetadata metadata) {
+        checkForAbsoluteAndNoWildcards(locator, metadata);
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            Path path = new Path(locator);
+            if (!fileContext.util().exists(path)) {
+                throw new CannotRetrieveResourceException("File does not exist: " + locator, metadata);
+            }
+            return fileContext.getFileStatus(path).getLen();
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the lines of a single file directly, which is much faster than a Spark job for small files.
+     *
+     * @param locator the file, or a pattern.
+     * @param threshold the maximum size of the file in bytes.
+     * @param metadata the metadata for errors.
+     * @return the lines of the file, or null if the locator is a pattern or a directory, or if the file is
+     *         compressed or larger than the threshold.
+     */
+    public static List<String> readLinesOfSmallFile(URI locator, long threshold, ExceptionMetadata metadata) {
+        if (threshold <= 0 || isPattern(locator)) {
+            return null;
+        }
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            Path path = new Path(locator);
+            FileStatus status;
+            try {
+                status = fileContext.getFileStatus(path);
+            } catch (FileNotFoundException e) {
+                return null;
+            }
+            if (!status.isFile() || status.getLen() > threshold) {
+                return null;
+            }
+            if (new CompressionCodecFactory(new Configuration()).getCodec(path) != null) {
+                return null;
+            }
+            List<String> lines = new ArrayList<>();
+            try (
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(fileContext.open(path), StandardCharsets.UTF_8)
+                )
+            ) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+            return lines;
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+            return null;
+        }
+    }
+
+    /**
+     * @param locator a file or a directory, or a pattern.
+     * @return true if the locator contains wildcards or alternatives, which only Spark resolves.
+     */
+    public static boolean isPattern(URI locator) {
+        return locator.toString().matches(".*[*?\\[{].*");
+    }
+
+    /**
+     * Resolves the new files of a micro-batch of a streaming query, which are passed to the input functions as a
+     * list of paths separated with commas, like in Spark. Other paths are not split, as commas are valid in them.
+     *
+     * @param base the base URI.
+     * @param urls the paths separated with commas.
+     * @param metadata the metadata for errors.
+     * @return the resolved paths separated with commas, which Spark reads as a list.
+     */
+    public static URI resolveURIList(URI base, String urls, ExceptionMetadata metadata) {
+        List<String> paths = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            URI uri = resolveURI(base, url, metadata);
+            if (!exists(uri, metadata)) {
+                throw new CannotRetrieveResourceException("File " + uri + " not found.", metadata);
+            }
+            paths.add(uri.toString());
+        }
+        return URI.create(String.join(",", paths));
+    }
+
+    public static List<String> readLines(URI locator, ExceptionMetadata metadata) {
+        List<String> lines = new ArrayList<>();
+        try (
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(getDataInputStream(locator, metadata), StandardCharsets.UTF_8)
+            )
+        ) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+            return null;
+        }
+    }
+
+    /**
+     * @param locator a directory.
+     * @param metadata the metadata for errors.
+     * @return the files in the directory, sorted, without the hidden files and the subdirectories.
+     */
+    public static List<URI> listFiles(URI locator, ExceptionMetadata metadata) {
+        checkForAbsoluteAndNoWildcards(locator, metadata);
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            List<URI> files = new ArrayList<>();
+            for (FileStatus status : fileContext.util().listStatus(new Path(locator))) {
+                if (status.isFile() && !isHidden(status.getPath().getName())) {
+                    files.add(status.getPath().toUri());
+                }
+            }
+            Collections.sort(files);
+            return files;
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the file or directory is ignored when reading a directory, like by Spark.
+     */
+    public static boolean isHidden(String name) {
+        return name.startsWith("_") || name.startsWith(".");
+    }
+
+    /**
+     * @param locator a file, a directory or a pattern.
+     * @param metadata the metadata for errors.
+     * @return the statuses of the files, sorted by path, including the files in subdirectories but not the hidden
+     *         files.
+     */
+    public static List<FileStatus> getFileStatuses(URI locator, ExceptionMetadata metadata) {
+        List<FileStatus> files = new ArrayList<>();
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            FileStatus[] statuses = fileContext.util().globStatus(new Path(locator));
+            if (statuses == null) {
+                return files;
+            }
+            for (FileStatus status : statuses) {
+                if (status.isFile()) {
+                    files.add(status);
+                    continue;
+                }
+                RemoteIterator<LocatedFileStatus> iterator = fileContext.util().listFiles(status.getPath(), true);
+                while (iterator.hasNext()) {
+                    LocatedFileStatus file = iterator.next();
+                    if (!isHidden(file.getPath().getName())) {
+                        files.add(file);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+        }
+        files.sort(Comparator.comparing(status -> status.getPath().toString()));
+        return files;
+    }
+
     public static String readContent(URI locator, ExceptionMetadata metadata) {
         FSDataInputStream inputStream = getDataInputStream(locator, metadata);
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
@@ -162,6 +347,55 @@ public class FileSystemUtil {
         }
     }
 
+    /**
+     * @param locator the file to create or overwrite.
+     * @param metadata the metadata for errors.
+     * @return a stream to write the content of the file to, which the caller closes.
+     */
+    public static FSDataOutputStream getDataOutputStream(URI locator, ExceptionMetadata metadata) {
+        checkForAbsoluteAndNoWildcards(locator, metadata);
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            return fileContext.create(new Path(locator), EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE));
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+            return null;
+        }
+    }
+
+    /**
+     * Renames a file, unless the destination already exists.
+     *
+     * @param source the file to rename.
+     * @param destination the new name of the file.
+     * @param metadata the metadata for errors.
+     * @return true if the file was renamed, false if the destination already exists.
+     */
+    public static boolean rename(URI source, URI destination, ExceptionMetadata metadata) {
+        checkForAbsoluteAndNoWildcards(source, metadata);
+        checkForAbsoluteAndNoWildcards(destination, metadata);
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            fileContext.rename(new Path(source), new Path(destination), Options.Rename.NONE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (Exception e) {
+            handleException(e, source, metadata);
+            return false;
+        }
+    }
+
+    public static void createDirectory(URI locator, ExceptionMetadata metadata) {
+        checkForAbsoluteAndNoWildcards(locator, metadata);
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            fileContext.mkdir(new Path(locator), FsPermission.getDirDefault(), true);
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+        }
+    }
+
     public static void append(URI locator, List<String> content, ExceptionMetadata metadata) {
         checkForAbsoluteAndNoWildcards(locator, metadata);
         try {
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.catalyst.catalog.ExternalCatalogUtils;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.items.ItemFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Discovers the partitions of a directory laid out like a Hive table, such as events/date=2020-06-01/region=eu/,
+ * where each level of subdirectories is named after a partition key and the value of the partition.
+ *
+ * Names starting with an underscore or a dot are hidden, as in Spark. Keys and values are unescaped like Hive
+ * escapes them, and the value __HIVE_DEFAULT_PARTITION__ stands for null.
+ */
+public class HivePartitioning {
+
+    public static final String defaultPartitionName = "__HIVE_DEFAULT_PARTITION__";
+
+    /**
+     * @param locator a file or a directory, or a pattern.
+     * @param metadata the metadata for errors.
+     * @return true if the locator is a directory with partition subdirectories.
+     */
+    public static boolean isPartitioned(URI locator, ExceptionMetadata metadata) {
+        if (FileSystemUtil.isPattern(locator)) {
+            return false;
+        }
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            Path path = new Path(locator);
+            return fileContext.getFileStatus(path).isDirectory()
+                && !getPartitionSubdirectories(fileContext, path).isEmpty();
+        } catch (IOException e) {
+            throw new CannotRetrieveResourceException(
+                    "I/O error while listing " + locator + " Cause: " + e.getMessage(),
+                    metadata
+            );
+        }
+    }
+
+    /**
+     * Lists the directories of the partitions, skipping the subdirectories of any partition that the filter excludes
+     * as soon as they are reached.
+     *
+     * @param root a partitioned directory.
+     * @param filter the condition on the partition values, or null.
+     * @param valueParser parses the value of a partition, given its key, into the item that the objects read will
+     *        contain, or into null if this item is not known.
+     * @param metadata the metadata for errors.
+     * @return the directories of the partitions that the filter does not exclude, which contain the files.
+     */
+    public static List<Path> getPartitionDirectories(
+            URI root,
+            PartitionFilter filter,
+            BiFunction<String, String, Item> valueParser,
+            ExceptionMetadata metadata
+    ) {
+        try {
+            List<Path> result = new ArrayList<>();
+            collectPartitionDirectories(
+                FileContext.getFileContext(),
+                new Path(root),
+                Collections.emptyMap(),
+                filter,
+                valueParser,
+                result
+            );
+            return result;
+        } catch (IOException e) {
+            throw new CannotRetrieveResourceException(
+                    "I/O error while listing the partitions of " + root + " Cause: " + e.getMessage(),
+                    metadata
+            );
+        }
+    }
+
+    private static void collectPartitionDirectories(
+            FileContext fileContext,
+            Path directory,
+            Map<String, Item> partitionValues,
+            PartitionFilter filter,
+            BiFunction<String, String, Item> valueParser,
+            List<Path> result
+    )
+            throws IOException {
+        List<FileStatus> subdirectories = getPartitionSubdirectories(fileContext, directory);
+        if (subdirectories.isEmpty()) {
+            result.add(directory);
+            return;
+        }
+        for (FileStatus subdirectory : subdirectories) {
+            String[] keyAndValue = getKeyAndValue(subdirectory.getPath().getName());
+            Map<String, Item> values = new HashMap<>(partitionValues);
+            Item value = valueParser.apply(keyAndValue[0], keyAndValue[1]);
+            if (value != null) {
+                values.put(keyAndValue[0], value);
+            }
+            if (filter != null && Boolean.FALSE.equals(filter.evaluate(values))) {
+                continue;
+            }
+            collectPartitionDirectories(fileContext, subdirectory.getPath(), values, filter, valueParser, result);
+        }
+    }
+
+    private static List<FileStatus> getPartitionSubdirectories(FileContext fileContext, Path directory)
+            throws IOException {
+        List<FileStatus> result = new ArrayList<>();
+        for (FileStatus status : fileContext.util().listStatus(directory)) {
+            String name = status.getPath().getName();
+            if (status.isDirectory() && !FileSystemUtil.isHidden(name) && name.indexOf('=') > 0) {
+                result.add(status);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param directory the directory of a partition, or one of its subdirectories.
+     * @param rootDepth the depth of the partitioned directory.
+     * @return the values of the partitions, from the outermost, as parsed by {@link #parseValue}.
+     */
+    public static Map<String, Item> getPartitionValues(Path directory, int rootDepth) {
+        List<String[]> keysAndValues = new ArrayList<>();
+        for (Path path = directory; path != null && path.depth() > rootDepth; path = path.getParent()) {
+            if (path.getName().indexOf('=') > 0) {
+                keysAndValues.add(getKeyAndValue(path.getName()));
+            }
+        }
+        Collections.reverse(keysAndValues);
+        Map<String, Item> result = new LinkedHashMap<>();
+        for (String[] keyAndValue : keysAndValues) {
+            result.put(keyAndValue[0], parseValue(keyAndValue[1]));
+        }
+        return result;
+    }
+
+    /**
+     * @param value the unescaped value of a partition.
+     * @return an integer item if the value is an integer in canonical form, a null item for the default partition,
+     *         and a string item otherwise.
+     */
+    public static Item parseValue(String value) {
+        if (value.equals(defaultPartitionName)) {
+            return ItemFactory.getInstance().createNullItem();
+        }
+        if (value.matches("-?(0|[1-9][0-9]{0,17})")) {
+            return ItemFactory.getInstance().createIntegerItem(Long.parseLong(value));
+        }
+        return ItemFactory.getInstance().createStringItem(value);
+    }
+
+    private static String[] getKeyAndValue(String name) {
+        int separator = name.indexOf('=');
+        return new String[] {
+            ExternalCatalogUtils.unescapePathName(name.substring(0, separator)),
+            ExternalCatalogUtils.unescapePathName(name.substring(separator + 1)) };
+    }
+}
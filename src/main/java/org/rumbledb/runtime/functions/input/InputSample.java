@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.rdd.PartitionPruningRDD;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.functions;
+import org.rumbledb.api.Item;
+import org.rumbledb.context.Name;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.UnexpectedTypeException;
+import org.rumbledb.runtime.functions.base.FunctionIdentifier;
+import scala.Tuple2;
+import scala.runtime.AbstractFunction1;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A sample of the input of an input function, given in an object with the fraction of the input to read, the number
+ * of items to read, or both, and a seed.
+ *
+ * The lines of text files are sampled by split: only a random subset of the splits is read, and the lines read are
+ * sampled before they are parsed, so that a fraction of 1% reads about 1% of the splits of a large input. A number of
+ * items is taken as a uniform sample without replacement, in a single pass. DataFrames are sampled with Spark.
+ */
+public class InputSample implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final List<FunctionIdentifier> sampledInputFunctions = Arrays.asList(
+        new FunctionIdentifier(Name.createVariableInRumbleNamespace("json-file"), 3),
+        new FunctionIdentifier(Name.createVariableInRumbleNamespace("text-file"), 3),
+        new FunctionIdentifier(Name.createVariableInRumbleNamespace("parquet-file"), 2),
+        new FunctionIdentifier(Name.createVariableInRumbleNamespace("structured-json-file"), 2)
+    );
+    private double fraction;
+    private int size;
+    private long seed;
+
+    private InputSample(double fraction, int size, long seed) {
+        this.fraction = fraction;
+        this.size = size;
+        this.seed = seed;
+    }
+
+    /**
+     * @param options an object with the keys fraction (a number between 0 and 1), size (a non-negative integer) and
+     *        seed (an integer), all optional.
+     * @param metadata the metadata for errors.
+     * @return the sample, or null if the whole input is read.
+     */
+    public static InputSample fromOptions(Item options, ExceptionMetadata metadata) {
+        return fromOptions(options, Collections.emptyList(), metadata);
+    }
+
+    /**
+     * @param options an object with the sampling options, as well as other options of the input function.
+     * @param otherOptions the keys of the other options of the input function, which are ignored.
+     * @param metadata the metadata for errors.
+     * @return the sample, or null if the whole input is read.
+     */
+    public static InputSample fromOptions(Item options, List<String> otherOptions, ExceptionMetadata metadata) {
+        double fraction = 1;
+        int size = -1;
+        long seed = new Random().nextLong();
+        List<String> keys = options.getKeys();
+        List<Item> values = options.getValues();
+        for (int i = 0; i < keys.size(); ++i) {
+            Item value = values.get(i);
+            switch (keys.get(i)) {
+                case "fraction":
+                    if (!value.isNumeric() || value.castToDoubleValue() < 0 || value.castToDoubleValue() > 1) {
+                        throw new UnexpectedTypeException(
+                                "The sampling fraction must be a number between 0 and 1.",
+                                metadata
+                        );
+                    }
+                    fraction = value.castToDoubleValue();
+                    break;
+                case "size":
+                    if (!value.isInteger() || value.getIntegerValue() < 0) {
+                        throw new UnexpectedTypeException(
+                                "The sample size must be a non-negative integer.",
+                                metadata
+                        );
+                    }
+                    size = value.getIntegerValue();
+                    break;
+                case "seed":
+                    if (!value.isInteger()) {
+                        throw new UnexpectedTypeException("The sampling seed must be an integer.", metadata);
+                    }
+                    seed = value.getIntegerValue();
+                    break;
+                default:
+                    if (otherOptions.contains(keys.get(i))) {
+                        break;
+                    }
+                    List<String> allOptions = new ArrayList<>(Arrays.asList("fraction", "size", "seed"));
+                    allOptions.addAll(otherOptions);
+                    throw new UnexpectedTypeException(
+                            "Unknown option "
+                                + keys.get(i)
+                                + ". The options are "
+                                + String.join(", ", allOptions)
+                                + ".",
+                            metadata
+                    );
+            }
+        }
+        if (fraction == 1 && size == -1) {
+            return null;
+        }
+        return new InputSample(fraction, size, seed);
+    }
+
+    /**
+     * @param identifier a function.
+     * @return true if the function is an input function called with sampling options.
+     */
+    public static boolean isSampledInputFunction(FunctionIdentifier identifier) {
+        return sampledInputFunctions.contains(identifier);
+    }
+
+    /**
+     * Samples the lines of text files, or any other RDD whose partitions are splits of the input.
+     *
+     * @param rdd the RDD, which is not computed yet.
+     * @return the sampled RDD, in which the partitions that are not selected are not computed at all.
+     */
+    public <T> JavaRDD<T> sample(JavaRDD<T> rdd) {
+        if (this.fraction < 1) {
+            int numberOfPartitions = rdd.getNumPartitions();
+            int numberOfSelectedPartitions = (int) Math.min(
+                numberOfPartitions,
+                Math.ceil(this.fraction * numberOfPartitions)
+            );
+            List<Integer> partitions = new ArrayList<>();
+            for (int i = 0; i < numberOfPartitions; ++i) {
+                partitions.add(i);
+            }
+            Collections.shuffle(partitions, new Random(this.seed));
+            Set<Integer> selectedPartitions = new HashSet<>(partitions.subList(0, numberOfSelectedPartitions));
+            rdd = new JavaRDD<>(
+                    PartitionPruningRDD.create(rdd.rdd(), new PartitionSelection(selectedPartitions)),
+                    rdd.classTag()
+            );
+            // the fraction of the lines of the selected splits that makes up the fraction of the input
+            double lineFraction = numberOfSelectedPartitions == 0
+                ? 0
+                : this.fraction * numberOfPartitions / numberOfSelectedPartitions;
+            if (lineFraction < 1) {
+                rdd = rdd.sample(false, lineFraction, this.seed);
+            }
+        }
+        if (this.size != -1) {
+            long seed = this.seed;
+            int size = this.size;
+            List<Tuple2<Double, T>> sample = rdd.mapPartitionsWithIndex(
+                (index, iterator) -> takeSmallestRandomKeys(iterator, size, new Random(seed + index)),
+                false
+            ).takeOrdered(size, new RandomKeyComparator<>());
+            List<T> items = new ArrayList<>();
+            for (Tuple2<Double, T> tuple : sample) {
+                items.add(tuple._2());
+            }
+            JavaSparkContext sparkContext = SparkSessionManager.getInstance().getJavaSparkContext();
+            rdd = sparkContext.parallelize(items);
+        }
+        return rdd;
+    }
+
+    public Dataset<Row> sample(Dataset<Row> dataFrame) {
+        if (this.fraction < 1) {
+            dataFrame = dataFrame.sample(false, this.fraction, this.seed);
+        }
+        if (this.size != -1) {
+            dataFrame = dataFrame.orderBy(functions.rand(this.seed)).limit(this.size);
+        }
+        return dataFrame;
+    }
+
+    /**
+     * Keeps the items of a partition with the smallest random keys, which are a uniform sample of the partition.
+     */
+    private static <T> Iterator<Tuple2<Double, T>> takeSmallestRandomKeys(
+            Iterator<T> iterator,
+            int size,
+            Random random
+    ) {
+        Comparator<Tuple2<Double, T>> comparator = new RandomKeyComparator<>();
+        PriorityQueue<Tuple2<Double, T>> largestKeyFirst = new PriorityQueue<>(
+                Math.max(1, size),
+                comparator.reversed()
+        );
+        while (iterator.hasNext()) {
+            Tuple2<Double, T> tuple = new Tuple2<>(random.nextDouble(), iterator.next());
+            if (largestKeyFirst.size() < size) {
+                largestKeyFirst.add(tuple);
+            } else if (size > 0 && comparator.compare(tuple, largestKeyFirst.peek()) < 0) {
+                largestKeyFirst.poll();
+                largestKeyFirst.add(tuple);
+            }
+        }
+        return largestKeyFirst.iterator();
+    }
+
+    private static class RandomKeyComparator<T> implements Comparator<Tuple2<Double, T>>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Tuple2<Double, T> first, Tuple2<Double, T> second) {
+            return Double.compare(first._1(), second._1());
+        }
+    }
+
+    private static class PartitionSelection extends AbstractFunction1<Object, Object> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private Set<Integer> selectedPartitions;
+
+        PartitionSelection(Set<Integer> selectedPartitions) {
+            this.selectedPartitions = selectedPartitions;
+        }
+
+        @Override
+        public Object apply(Object partition) {
+            return this.selectedPartitions.contains(partition);
+        }
+    }
+}
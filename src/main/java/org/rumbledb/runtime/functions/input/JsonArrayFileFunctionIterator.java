@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.rumbledb.api.Item;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.ParsingException;
+import org.rumbledb.items.parsing.ItemParser;
+import org.rumbledb.runtime.RDDRuntimeIterator;
+import org.rumbledb.runtime.RuntimeIterator;
+import sparksoniq.jsoniq.ExecutionMode;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the members of a JSON array that makes up a whole file, such as a large export, in parallel.
+ *
+ * The file is cut into splits, which are first scanned in parallel for the commas separating the members of the
+ * array (see {@link JsonArraySplitScan}). The driver then chains the scans to find, in each split, where the first
+ * member starting in it begins, and the members are parsed in parallel from there up to the next such member.
+ */
+public class JsonArrayFileFunctionIterator extends RDDRuntimeIterator {
+
+    private static final long serialVersionUID = 1L;
+    private static final long maximumSplitSize = 64 * 1024 * 1024;
+
+    public JsonArrayFileFunctionIterator(
+            List<RuntimeIterator> arguments,
+            ExecutionMode executionMode,
+            ExceptionMetadata iteratorMetadata
+    ) {
+        super(arguments, executionMode, iteratorMetadata);
+    }
+
+    @Override
+    public JavaRDD<Item> getRDDAux(DynamicContext context) {
+        RuntimeIterator urlIterator = this.children.get(0);
+        urlIterator.open(context);
+        String url = urlIterator.next().getStringValue();
+        urlIterator.close();
+        URI uri = FileSystemUtil.resolveURI(getStaticContext().getStaticBaseURI(), url, getMetadata());
+        if (!FileSystemUtil.exists(uri, getMetadata())) {
+            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
+        }
+        long length = FileSystemUtil.getLength(uri, getMetadata());
+        long arrayStart = getArrayStart(uri);
+
+        JavaSparkContext sparkContext = SparkSessionManager.getInstance().getJavaSparkContext();
+        int numberOfSplits;
+        if (this.children.size() == 1) {
+            numberOfSplits = (int) Math.max(sparkContext.defaultMinPartitions(), length / maximumSplitSize + 1);
+        } else {
+            RuntimeIterator partitionsIterator = this.children.get(1);
+            partitionsIterator.open(this.currentDynamicContextForLocalExecution);
+            numberOfSplits = Math.max(1, partitionsIterator.next().getIntegerValue());
+            partitionsIterator.close();
+        }
+        List<long[]> splits = new ArrayList<>();
+        for (int i = 0; i < numberOfSplits; ++i) {
+            splits.add(new long[] { length * i / numberOfSplits, length * (i + 1) / numberOfSplits });
+        }
+        List<JsonArraySplitScan> scans = sparkContext.parallelize(splits, numberOfSplits)
+            .map(new JsonArraySplitScanClosure(uri.toString(), getMetadata()))
+            .collect();
+
+        List<long[]> ranges = getMemberRanges(arrayStart, scans);
+        return sparkContext.parallelize(ranges, Math.max(1, ranges.size()))
+            .flatMap(new JsonArrayMembersClosure(uri.toString(), getMetadata()));
+    }
+
+    /**
+     * @return the position of the opening bracket of the array, which must be the first character of the file apart
+     *         from whitespace.
+     */
+    private long getArrayStart(URI uri) {
+        try (FSDataInputStream stream = FileSystemUtil.getDataInputStream(uri, getMetadata())) {
+            long position = 0;
+            int b = stream.read();
+            while (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                b = stream.read();
+                ++position;
+            }
+            if (b != '[') {
+                throw new ParsingException(
+                        "json-array-file expects the file to contain a JSON array: " + uri,
+                        getMetadata()
+                );
+            }
+            return position;
+        } catch (IOException e) {
+            throw new CannotRetrieveResourceException(
+                    "I/O error while reading " + uri + " Cause: " + e.getMessage(),
+                    getMetadata()
+            );
+        }
+    }
+
+    /**
+     * Chains the scans of the splits to find the members of the array. Each range starts right after the opening
+     * bracket or a comma, and stops at the comma of the last member starting in the same split, or at the closing
+     * bracket.
+     */
+    private List<long[]> getMemberRanges(long arrayStart, List<JsonArraySplitScan> scans) {
+        List<long[]> ranges = new ArrayList<>();
+        long rangeStart = arrayStart + 1;
+        int state = JsonArraySplitScan.OUTSIDE_STRING;
+        int depth = 0;
+        for (JsonArraySplitScan scan : scans) {
+            // the members of the array are at depth 1, within its brackets
+            long comma = scan.getFirstComma(state, 1 - depth);
+            long closingBracket = scan.getFirstClosingBracket(state, 1 - depth);
+            if (comma != -1 && (closingBracket == -1 || comma < closingBracket)) {
+                ranges.add(new long[] { rangeStart, comma });
+                rangeStart = comma + 1;
+            }
+            if (closingBracket != -1) {
+                ranges.add(new long[] { rangeStart, closingBracket });
+                return ranges;
+            }
+            depth += scan.getDepthDelta(state);
+            state = scan.getEndState(state);
+        }
+        throw new ParsingException(ItemParser.malformedJSONMessage, getMetadata());
+    }
+}
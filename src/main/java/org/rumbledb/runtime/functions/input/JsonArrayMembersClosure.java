@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.items.parsing.JSONArrayMemberIterator;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Parses the members of a JSON array that are found between two positions of a file, which are separated by commas.
+ */
+public class JsonArrayMembersClosure implements FlatMapFunction<long[], Item> {
+
+    private static final long serialVersionUID = 1L;
+    private String uri;
+    private ExceptionMetadata metadata;
+
+    public JsonArrayMembersClosure(String uri, ExceptionMetadata metadata) {
+        this.uri = uri;
+        this.metadata = metadata;
+    }
+
+    @Override
+    public Iterator<Item> call(long[] range) throws Exception {
+        FSDataInputStream stream = FileSystemUtil.getDataInputStream(new URI(this.uri), this.metadata);
+        stream.seek(range[0]);
+        // the members are parsed as an array of their own, which the brackets delimit
+        InputStream members = new SequenceInputStream(
+                Collections.enumeration(
+                    Arrays.asList(
+                        new ByteArrayInputStream(new byte[] { '[' }),
+                        new BoundedInputStream(stream, range[1] - range[0]),
+                        new ByteArrayInputStream(new byte[] { ']' })
+                    )
+                )
+        );
+        return new JSONArrayMemberIterator(members, this.metadata);
+    }
+}
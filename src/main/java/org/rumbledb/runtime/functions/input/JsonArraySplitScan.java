@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The structure of a split of a file containing a JSON array, found without knowing what precedes the split.
+ *
+ * A split may start inside a string, or right after a backslash inside a string, so it is scanned once for each of
+ * these states. Each scan tracks the nesting depth relative to the start of the split, and records the first comma
+ * and the first closing bracket at each depth. Once the splits before are known, this is enough to find where the
+ * first member of the top-level array starting in this split begins, or where the array ends.
+ */
+public class JsonArraySplitScan implements Serializable {
+
+    public static final int OUTSIDE_STRING = 0;
+    public static final int IN_STRING = 1;
+    public static final int IN_STRING_AFTER_BACKSLASH = 2;
+    private static final int numberOfStates = 3;
+
+    private static final long serialVersionUID = 1L;
+    private int[] states;
+    private int[] depths;
+    private List<Map<Integer, Long>> firstCommas;
+    private List<Map<Integer, Long>> firstClosingBrackets;
+
+    public JsonArraySplitScan() {
+        this.states = new int[numberOfStates];
+        this.depths = new int[numberOfStates];
+        this.firstCommas = new ArrayList<>();
+        this.firstClosingBrackets = new ArrayList<>();
+        for (int startState = 0; startState < numberOfStates; ++startState) {
+            this.states[startState] = startState;
+            this.firstCommas.add(new HashMap<>());
+            this.firstClosingBrackets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Scans the next bytes of the split.
+     *
+     * @param bytes a buffer containing the bytes.
+     * @param length the number of bytes to scan in the buffer.
+     * @param position the position of the first byte in the file.
+     */
+    public void scan(byte[] bytes, int length, long position) {
+        for (int startState = 0; startState < numberOfStates; ++startState) {
+            int state = this.states[startState];
+            int depth = this.depths[startState];
+            Map<Integer, Long> commas = this.firstCommas.get(startState);
+            Map<Integer, Long> closingBrackets = this.firstClosingBrackets.get(startState);
+            for (int i = 0; i < length; ++i) {
+                byte b = bytes[i];
+                if (state == IN_STRING_AFTER_BACKSLASH) {
+                    state = IN_STRING;
+                } else if (state == IN_STRING) {
+                    if (b == '\\') {
+                        state = IN_STRING_AFTER_BACKSLASH;
+                    } else if (b == '"') {
+                        state = OUTSIDE_STRING;
+                    }
+                } else if (b == '"') {
+                    state = IN_STRING;
+                } else if (b == '[' || b == '{') {
+                    ++depth;
+                } else if (b == ']' || b == '}') {
+                    if (b == ']') {
+                        closingBrackets.putIfAbsent(depth, position + i);
+                    }
+                    --depth;
+                } else if (b == ',') {
+                    commas.putIfAbsent(depth, position + i);
+                }
+            }
+            this.states[startState] = state;
+            this.depths[startState] = depth;
+        }
+    }
+
+    public int getEndState(int startState) {
+        return this.states[startState];
+    }
+
+    public int getDepthDelta(int startState) {
+        return this.depths[startState];
+    }
+
+    /**
+     * @param startState the state at the start of the split.
+     * @param depth the depth relative to the start of the split.
+     * @return the position of the first comma at this depth, or -1 if there is none.
+     */
+    public long getFirstComma(int startState, int depth) {
+        return this.firstCommas.get(startState).getOrDefault(depth, -1L);
+    }
+
+    /**
+     * @param startState the state at the start of the split.
+     * @param depth the depth relative to the start of the split, before the bracket.
+     * @return the position of the first closing bracket at this depth, or -1 if there is none.
+     */
+    public long getFirstClosingBracket(int startState, int depth) {
+        return this.firstClosingBrackets.get(startState).getOrDefault(depth, -1L);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.spark.api.java.function.Function;
+import org.rumbledb.exceptions.ExceptionMetadata;
+
+import java.net.URI;
+
+public class JsonArraySplitScanClosure implements Function<long[], JsonArraySplitScan> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int bufferSize = 64 * 1024;
+    private String uri;
+    private ExceptionMetadata metadata;
+
+    public JsonArraySplitScanClosure(String uri, ExceptionMetadata metadata) {
+        this.uri = uri;
+        this.metadata = metadata;
+    }
+
+    @Override
+    public JsonArraySplitScan call(long[] split) throws Exception {
+        JsonArraySplitScan scan = new JsonArraySplitScan();
+        byte[] buffer = new byte[bufferSize];
+        try (FSDataInputStream stream = FileSystemUtil.getDataInputStream(new URI(this.uri), this.metadata)) {
+            stream.seek(split[0]);
+            long position = split[0];
+            while (position < split[1]) {
+                int length = stream.read(buffer, 0, (int) Math.min(bufferSize, split[1] - position));
+                if (length < 0) {
+                    break;
+                }
+                scan.scan(buffer, length, position);
+                position += length;
+            }
+        }
+        return scan;
+    }
+}
@@ -20,11 +20,23 @@
 
 package org.rumbledb.runtime.functions.input;
 
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.TextInputFormat;
+import org.apache.spark.api.java.JavaHadoopRDD;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
 import org.rumbledb.api.Item;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.items.parsing.FieldProjection;
 import org.rumbledb.items.parsing.JSONSyntaxToItemMapper;
 import org.rumbledb.runtime.RDDRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
@@ -32,11 +44,23 @@ import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.spark.SparkSessionManager;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class JsonFileFunctionIterator extends RDDRuntimeIterator {
+public class JsonFileFunctionIterator extends RDDRuntimeIterator
+        implements
+            ProjectableInputIterator,
+            PartitionedInputIterator,
+            CountableInputIterator {
 
     private static final long serialVersionUID = 1L;
+    private FieldProjection projection;
+    private PartitionFilter partitionFilter;
+    private transient DynamicContext resolvedContext;
+    private transient URI resolvedURI;
+    private transient List<String> smallFileLines;
+    private transient boolean isFileList;
 
     public JsonFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -46,33 +70,229 @@ public class JsonFileFunctionIterator extends RDDRuntimeIterator {
         super(arguments, executionMode, iteratorMetadata);
     }
 
+    @Override
+    public void setFieldProjection(FieldProjection projection) {
+        this.projection = projection;
+    }
+
+    @Override
+    public void setPartitionFilter(PartitionFilter filter) {
+        this.partitionFilter = filter;
+    }
+
     @Override
     public JavaRDD<Item> getRDDAux(DynamicContext context) {
         JavaRDD<String> strings;
+        resolveFile(context);
+        URI uri = this.resolvedURI;
+        JavaSparkContext sparkContext = SparkSessionManager.getInstance().getJavaSparkContext();
+        InputSample sample = getSample();
+        if (!this.isFileList && HivePartitioning.isPartitioned(uri, getMetadata())) {
+            JavaRDD<Item> items = getPartitionedRDD(uri, sparkContext);
+            return sample == null ? items : sample.sample(items);
+        }
+        strings = getLines(sparkContext);
+        if (sample != null) {
+            // the lines are sampled before they are parsed
+            strings = sample.sample(strings);
+        }
+        return strings.mapPartitions(new JSONSyntaxToItemMapper(getMetadata(), this.projection));
+    }
+
+    /**
+     * @return the lines of the file, partitioned like the items read from them.
+     */
+    private JavaRDD<String> getLines(JavaSparkContext sparkContext) {
+        // small files are read directly, which is faster than letting Spark split them
+        List<String> lines = this.smallFileLines;
+        int partitions = getMinimumNumberOfPartitions();
+        if (partitions == -1) {
+            return lines != null ? sparkContext.parallelize(lines) : sparkContext.textFile(this.resolvedURI.toString());
+        }
+        if (lines != null) {
+            return sparkContext.parallelize(lines, partitions);
+        }
+        return sparkContext.textFile(this.resolvedURI.toString(), partitions);
+    }
+
+    /**
+     * Reads the files of the partitions that the partition filter does not exclude, and adds the values of the
+     * partitions to the objects read.
+     */
+    private JavaRDD<Item> getPartitionedRDD(URI uri, JavaSparkContext sparkContext) {
+        List<Path> directories = HivePartitioning.getPartitionDirectories(
+            uri,
+            this.partitionFilter,
+            (key, value) -> HivePartitioning.parseValue(value),
+            getMetadata()
+        );
+        if (directories.isEmpty()) {
+            return sparkContext.emptyRDD();
+        }
+        int partitions = getMinimumNumberOfPartitions();
+        if (partitions == -1) {
+            partitions = sparkContext.defaultMinPartitions();
+        }
+        JobConf jobConf = new JobConf(sparkContext.hadoopConfiguration());
+        FileInputFormat.setInputPaths(jobConf, directories.toArray(new Path[0]));
+        JavaHadoopRDD<LongWritable, Text> lines = (JavaHadoopRDD<LongWritable, Text>) sparkContext.hadoopRDD(
+            jobConf,
+            TextInputFormat.class,
+            LongWritable.class,
+            Text.class,
+            partitions
+        );
+        return lines.mapPartitionsWithInputSplit(
+            new PartitionedJsonLinesClosure(new Path(uri).depth(), getMetadata(), this.projection),
+            false
+        );
+    }
+
+    /**
+     * Reads a small file in the calling thread if the items are consumed locally, without any Spark job. A sample is
+     * always read with Spark.
+     */
+    @Override
+    public List<Item> getLocalResult(DynamicContext context) {
+        if (this.children.size() > 2) {
+            return null;
+        }
+        resolveFile(context);
+        List<String> lines = this.smallFileLines;
+        if (lines == null) {
+            return null;
+        }
+        List<Item> result = new ArrayList<>();
+        try {
+            new JSONSyntaxToItemMapper(getMetadata(), this.projection).call(lines.iterator())
+                .forEachRemaining(result::add);
+        } catch (RumbleException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OurBadException(e.getMessage(), getMetadata());
+        }
+        return result;
+    }
+
+    /**
+     * Counts the lines that are not blank, each of which is an item, without parsing them. Lines that are not
+     * well-formed are thus counted rather than reported.
+     */
+    @Override
+    public long count(DynamicContext context) {
+        resolveFile(context);
+        URI uri = this.resolvedURI;
+        if (getSample() != null || !this.isFileList && HivePartitioning.isPartitioned(uri, getMetadata())) {
+            return -1;
+        }
+        List<String> lines = this.smallFileLines;
+        if (lines != null) {
+            return lines.stream().filter(line -> !line.trim().isEmpty()).count();
+        }
+        JavaSparkContext sparkContext = SparkSessionManager.getInstance().getJavaSparkContext();
+        int partitions = getMinimumNumberOfPartitions();
+        JavaRDD<String> strings = partitions == -1
+            ? sparkContext.textFile(uri.toString())
+            : sparkContext.textFile(uri.toString(), partitions);
+        return strings.filter(line -> !line.trim().isEmpty()).count();
+    }
+
+    /**
+     * Counts the lines that are not blank in each partition of the lines that the items are read from, without
+     * parsing them.
+     */
+    @Override
+    public long[] countPerPartition(DynamicContext context) {
+        resolveFile(context);
+        if (
+            getSample() != null || !this.isFileList && HivePartitioning.isPartitioned(this.resolvedURI, getMetadata())
+        ) {
+            return null;
+        }
+        List<Long> counts = getLines(SparkSessionManager.getInstance().getJavaSparkContext()).mapPartitions(lines -> {
+            long count = 0;
+            while (lines.hasNext()) {
+                if (!lines.next().trim().isEmpty()) {
+                    count++;
+                }
+            }
+            return Collections.singletonList(count).iterator();
+        }).collect();
+        return counts.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return the minimum number of partitions, or -1 if it is not given.
+     */
+    private int getMinimumNumberOfPartitions() {
+        if (this.children.size() == 1) {
+            return -1;
+        }
+        Item partitions = this.children.get(1).materializeFirstItemOrNull(this.currentDynamicContextForLocalExecution);
+        return partitions == null ? -1 : partitions.getIntegerValue();
+    }
+
+    /**
+     * @return the sample to read, or null if the whole input is read.
+     */
+    private InputSample getSample() {
+        if (this.children.size() < 3) {
+            return null;
+        }
+        Item options = this.children.get(2).materializeFirstItemOrNull(this.currentDynamicContextForLocalExecution);
+        return InputSample.fromOptions(options, getMetadata());
+    }
+
+    @Override
+    public void open(DynamicContext context) {
+        this.resolvedContext = null;
+        super.open(context);
+    }
+
+    @Override
+    public void reset(DynamicContext context) {
+        this.resolvedContext = null;
+        super.reset(context);
+    }
+
+    @Override
+    public void close() {
+        this.resolvedContext = null;
+        this.smallFileLines = null;
+        super.close();
+    }
+
+    /**
+     * Resolves the URI of the file and reads the file if it is small, which sets resolvedURI and smallFileLines (null
+     * if the file is not small). This is done only once while the iterator is open, as both the local result and the
+     * RDD, if the local result is not available, need them.
+     */
+    private void resolveFile(DynamicContext context) {
+        if (context != null && context == this.resolvedContext) {
+            return;
+        }
         RuntimeIterator urlIterator = this.children.get(0);
         urlIterator.open(context);
         String url = urlIterator.next().getStringValue();
         urlIterator.close();
-        URI uri = FileSystemUtil.resolveURI(getStaticContext().getStaticBaseURI(), url, getMetadata());
-        if (!FileSystemUtil.exists(uri, getMetadata())) {
-            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
-        }
-
-        if (this.children.size() == 1) {
-            strings = SparkSessionManager.getInstance()
-                .getJavaSparkContext()
-                .textFile(uri.toString());
+        RumbleRuntimeConfiguration configuration = context.getRumbleRuntimeConfiguration();
+        this.isFileList = configuration != null && configuration.isStreamingBatchInput(url);
+        if (this.isFileList) {
+            // the new files of a micro-batch, which Spark reads as a list
+            this.resolvedURI = FileSystemUtil.resolveURIList(getStaticContext().getStaticBaseURI(), url, getMetadata());
+            this.smallFileLines = null;
         } else {
-            RuntimeIterator partitionsIterator = this.children.get(1);
-            partitionsIterator.open(this.currentDynamicContextForLocalExecution);
-            strings = SparkSessionManager.getInstance()
-                .getJavaSparkContext()
-                .textFile(
-                    uri.toString(),
-                    partitionsIterator.next().getIntegerValue()
-                );
-            partitionsIterator.close();
-        }
-        return strings.mapPartitions(new JSONSyntaxToItemMapper(getMetadata()));
+            this.resolvedURI = FileSystemUtil.resolveURI(getStaticContext().getStaticBaseURI(), url, getMetadata());
+            if (!FileSystemUtil.exists(this.resolvedURI, getMetadata())) {
+                throw new CannotRetrieveResourceException("File " + this.resolvedURI + " not found.", getMetadata());
+            }
+            this.smallFileLines = FileSystemUtil.readLinesOfSmallFile(
+                this.resolvedURI,
+                SparkSessionManager.LOCAL_FILE_SIZE_THRESHOLD,
+                getMetadata()
+            );
+        }
+        // the same context may be bound to other values once the iterator is closed
+        this.resolvedContext = this.isOpen && context == this.currentDynamicContextForLocalExecution ? context : null;
     }
 }
@@ -20,23 +20,45 @@
 
 package org.rumbledb.runtime.functions.input;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
 import org.apache.spark.sql.AnalysisException;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.items.parsing.FieldProjection;
 import org.rumbledb.runtime.DataFrameRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.spark.SparkSessionManager;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-public class ParquetFileFunctionIterator extends DataFrameRuntimeIterator {
+public class ParquetFileFunctionIterator extends DataFrameRuntimeIterator
+        implements
+            ProjectableInputIterator,
+            PartitionedInputIterator,
+            CountableInputIterator {
 
     private static final long serialVersionUID = 1L;
+    private FieldProjection projection;
+    private PartitionFilter partitionFilter;
 
     public ParquetFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -46,21 +68,30 @@ public class ParquetFileFunctionIterator extends DataFrameRuntimeIterator {
         super(arguments, executionMode, iteratorMetadata);
     }
 
+    @Override
+    public void setFieldProjection(FieldProjection projection) {
+        this.projection = projection;
+    }
+
+    @Override
+    public void setPartitionFilter(PartitionFilter filter) {
+        this.partitionFilter = filter;
+    }
+
     @Override
     public Dataset<Row> getDataFrame(DynamicContext context) {
-        RuntimeIterator urlIterator = this.children.get(0);
-        urlIterator.open(context);
-        String url = urlIterator.next().getStringValue();
-        urlIterator.close();
-        URI uri = FileSystemUtil.resolveURI(getStaticContext().getStaticBaseURI(), url, getMetadata());
-        if (!FileSystemUtil.exists(uri, getMetadata())) {
-            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
-        }
+        URI uri = getFileURI(context);
+        InputSample sample = getSample(context);
         try {
-            return SparkSessionManager.getInstance()
+            Dataset<Row> dataFrame = SparkSessionManager.getInstance()
                 .getOrCreateSession()
                 .read()
                 .parquet(uri.toString());
+            if (this.partitionFilter != null && HivePartitioning.isPartitioned(uri, getMetadata())) {
+                dataFrame = prunePartitions(uri, dataFrame);
+            }
+            dataFrame = ProjectableInputIterator.selectProjectedColumns(dataFrame, this.projection);
+            return sample == null ? dataFrame : sample.sample(dataFrame);
         } catch (Exception e) {
             if (e instanceof AnalysisException) {
                 throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
@@ -68,4 +99,108 @@ public class ParquetFileFunctionIterator extends DataFrameRuntimeIterator {
             throw e;
         }
     }
+
+    /**
+     * Sums the numbers of rows recorded in the footers of the files, without reading any row group. The footers are
+     * read in parallel, as there may be many files.
+     */
+    @Override
+    public long count(DynamicContext context) {
+        URI uri = getFileURI(context);
+        if (getSample(context) != null || this.partitionFilter != null) {
+            return -1;
+        }
+        List<FileStatus> files = FileSystemUtil.getFileStatuses(uri, getMetadata());
+        if (files.isEmpty()) {
+            // Spark reports that there is nothing to read
+            return -1;
+        }
+        Configuration configuration = SparkSessionManager.getInstance().getJavaSparkContext().hadoopConfiguration();
+        return files.parallelStream().mapToLong(file -> getRowCount(file, configuration)).sum();
+    }
+
+    /**
+     * Spark packs the row groups of the files into partitions by size, so the rows of each partition are not known.
+     */
+    @Override
+    public long[] countPerPartition(DynamicContext context) {
+        return null;
+    }
+
+    private long getRowCount(FileStatus file, Configuration configuration) {
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromStatus(file, configuration))) {
+            return reader.getRecordCount();
+        } catch (IOException e) {
+            RumbleException exception = new CannotRetrieveResourceException(
+                    "File " + file.getPath() + " cannot be read as a Parquet file. Cause: " + e.getMessage(),
+                    getMetadata()
+            );
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    private URI getFileURI(DynamicContext context) {
+        RuntimeIterator urlIterator = this.children.get(0);
+        urlIterator.open(context);
+        String url = urlIterator.next().getStringValue();
+        urlIterator.close();
+        URI uri = FileSystemUtil.resolveURI(getStaticContext().getStaticBaseURI(), url, getMetadata());
+        if (!FileSystemUtil.exists(uri, getMetadata())) {
+            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
+        }
+        return uri;
+    }
+
+    /**
+     * @return the sample to read, or null if the whole input is read.
+     */
+    private InputSample getSample(DynamicContext context) {
+        if (this.children.size() < 2) {
+            return null;
+        }
+        return InputSample.fromOptions(this.children.get(1).materializeFirstItemOrNull(context), getMetadata());
+    }
+
+    /**
+     * Reads only the partitions that the partition filter does not exclude. Spark infers the types of the partition
+     * values, so only the integers and strings, which are the same items in both cases, are compared. The schema of
+     * the whole input is kept, so that the types do not depend on the partitions read.
+     */
+    private Dataset<Row> prunePartitions(URI uri, Dataset<Row> dataFrame) {
+        StructType schema = dataFrame.schema();
+        List<Path> directories = HivePartitioning.getPartitionDirectories(
+            uri,
+            this.partitionFilter,
+            (key, value) -> parsePartitionValue(schema, key, value),
+            getMetadata()
+        );
+        SparkSession session = SparkSessionManager.getInstance().getOrCreateSession();
+        if (directories.isEmpty()) {
+            return session.createDataFrame(new ArrayList<Row>(), schema);
+        }
+        String[] paths = new String[directories.size()];
+        for (int i = 0; i < paths.length; ++i) {
+            paths[i] = directories.get(i).toString();
+        }
+        return session.read().schema(schema).option("basePath", uri.toString()).parquet(paths);
+    }
+
+    private static Item parsePartitionValue(StructType schema, String key, String value) {
+        if (value.equals(HivePartitioning.defaultPartitionName) || !Arrays.asList(schema.fieldNames()).contains(key)) {
+            return null;
+        }
+        DataType type = schema.apply(key).dataType();
+        if (type.equals(DataTypes.StringType)) {
+            return ItemFactory.getInstance().createStringItem(value);
+        }
+        if (type.equals(DataTypes.IntegerType) || type.equals(DataTypes.LongType)) {
+            try {
+                return ItemFactory.getInstance().createIntegerItem(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A condition on the partition values of the objects read from a partitioned directory, such as date=2020-06-01,
+ * which is implied by the where clauses of a FLWOR expression. A directory whose partition values make the condition
+ * false cannot contain any object that the query keeps, so it does not need to be read.
+ *
+ * The result of a condition is unknown whenever it depends on partitions that are not known yet, or when the
+ * comparison would raise an error at runtime.
+ */
+public abstract class PartitionFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param partitionValues the values of some or all partitions of a directory, by partition key.
+     * @return true or false, or null if the result is unknown.
+     */
+    public abstract Boolean evaluate(Map<String, Item> partitionValues);
+
+    /**
+     * @param key the partition key compared.
+     * @param comparisonOperator the comparison.
+     * @param literal the literal item compared with the partition value.
+     * @param isKeyOnTheLeft whether the partition value is the left operand.
+     * @return the condition that the comparison is true.
+     */
+    public static PartitionFilter comparison(
+            String key,
+            ComparisonExpression.ComparisonOperator comparisonOperator,
+            Item literal,
+            boolean isKeyOnTheLeft
+    ) {
+        return new Comparison(key, comparisonOperator, literal, isKeyOnTheLeft);
+    }
+
+    public static PartitionFilter and(List<PartitionFilter> filters) {
+        return new Combination(filters, true);
+    }
+
+    public static PartitionFilter or(List<PartitionFilter> filters) {
+        return new Combination(filters, false);
+    }
+
+    private static class Comparison extends PartitionFilter {
+
+        private static final long serialVersionUID = 1L;
+        private String key;
+        private ComparisonExpression.ComparisonOperator comparisonOperator;
+        private Item literal;
+        private boolean isKeyOnTheLeft;
+
+        private Comparison(
+                String key,
+                ComparisonExpression.ComparisonOperator comparisonOperator,
+                Item literal,
+                boolean isKeyOnTheLeft
+        ) {
+            this.key = key;
+            this.comparisonOperator = comparisonOperator;
+            this.literal = literal;
+            this.isKeyOnTheLeft = isKeyOnTheLeft;
+        }
+
+        @Override
+        public Boolean evaluate(Map<String, Item> partitionValues) {
+            Item value = partitionValues.get(this.key);
+            if (value == null) {
+                return null;
+            }
+            Item left = this.isKeyOnTheLeft ? value : this.literal;
+            Item right = this.isKeyOnTheLeft ? this.literal : value;
+            try {
+                // this is the very comparison that the where clause makes on the object
+                return left.compareItem(right, this.comparisonOperator, ExceptionMetadata.EMPTY_METADATA)
+                    .getBooleanValue();
+            } catch (RumbleException e) {
+                return null;
+            }
+        }
+    }
+
+    private static class Combination extends PartitionFilter {
+
+        private static final long serialVersionUID = 1L;
+        private List<PartitionFilter> filters;
+        // true for a conjunction, false for a disjunction
+        private boolean isConjunction;
+
+        private Combination(List<PartitionFilter> filters, boolean isConjunction) {
+            this.filters = filters;
+            this.isConjunction = isConjunction;
+        }
+
+        @Override
+        public Boolean evaluate(Map<String, Item> partitionValues) {
+            boolean isKnown = true;
+            for (PartitionFilter filter : this.filters) {
+                Boolean result = filter.evaluate(partitionValues);
+                if (result == null) {
+                    isKnown = false;
+                } else if (result != this.isConjunction) {
+                    return result;
+                }
+            }
+            return isKnown ? this.isConjunction : null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.spark.api.java.function.Function2;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.items.parsing.FieldProjection;
+import org.rumbledb.items.parsing.JSONSyntaxToItemMapper;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the JSON lines of a split of a file in a partitioned directory, and adds the values of the partitions of
+ * the file to the objects as fields. These fields take precedence over the fields of the same name in the file.
+ */
+public class PartitionedJsonLinesClosure
+        implements
+            Function2<InputSplit, Iterator<Tuple2<LongWritable, Text>>, Iterator<Item>> {
+
+    private static final long serialVersionUID = 1L;
+    private int rootDepth;
+    private ExceptionMetadata metadata;
+    private FieldProjection projection;
+
+    public PartitionedJsonLinesClosure(int rootDepth, ExceptionMetadata metadata, FieldProjection projection) {
+        this.rootDepth = rootDepth;
+        this.metadata = metadata;
+        this.projection = projection;
+    }
+
+    @Override
+    public Iterator<Item> call(InputSplit split, Iterator<Tuple2<LongWritable, Text>> records) throws Exception {
+        Map<String, Item> partitionValues = HivePartitioning.getPartitionValues(
+            ((FileSplit) split).getPath().getParent(),
+            this.rootDepth
+        );
+        if (this.projection != null) {
+            partitionValues.keySet().retainAll(this.projection.getFields());
+        }
+        Iterator<String> lines = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return records.next()._2().toString();
+            }
+        };
+        Iterator<Item> items = new JSONSyntaxToItemMapper(this.metadata, this.projection).call(lines);
+        if (partitionValues.isEmpty()) {
+            return items;
+        }
+        return new Iterator<Item>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public Item next() {
+                return addPartitionValues(items.next(), partitionValues);
+            }
+        };
+    }
+
+    private Item addPartitionValues(Item item, Map<String, Item> partitionValues) {
+        if (!item.isObject()) {
+            return item;
+        }
+        List<String> keys = new ArrayList<>();
+        List<Item> values = new ArrayList<>();
+        for (String key : item.getKeys()) {
+            if (!partitionValues.containsKey(key)) {
+                keys.add(key);
+                values.add(item.getItemByKey(key));
+            }
+        }
+        keys.addAll(partitionValues.keySet());
+        values.addAll(partitionValues.values());
+        return ItemFactory.getInstance().createObjectItem(keys, values, this.metadata);
+    }
+}
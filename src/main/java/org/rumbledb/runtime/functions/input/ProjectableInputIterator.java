@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.rumbledb.items.parsing.FieldProjection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An input function that can omit the fields of the objects it reads that the query does not access.
+ */
+public interface ProjectableInputIterator {
+
+    /**
+     * @param projection the fields accessed on the objects returned by the function.
+     */
+    void setFieldProjection(FieldProjection projection);
+
+    /**
+     * Selects the top-level columns needed by a projection. Nested fields are left to the data source.
+     *
+     * @param dataFrame the DataFrame read by the function.
+     * @param projection the fields accessed on its rows, or null if entire rows are needed.
+     * @return the DataFrame with the needed columns only.
+     */
+    static Dataset<Row> selectProjectedColumns(Dataset<Row> dataFrame, FieldProjection projection) {
+        if (projection == null) {
+            return dataFrame;
+        }
+        String[] columnNames = dataFrame.columns();
+        List<Column> columns = new ArrayList<>();
+        for (String columnName : columnNames) {
+            if (projection.containsField(columnName)) {
+                columns.add(dataFrame.col("`" + columnName.replace("`", "``") + "`"));
+            }
+        }
+        if (columns.size() == columnNames.length) {
+            return dataFrame;
+        }
+        return dataFrame.select(columns.toArray(new Column[0]));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.spark.sql.DataFrameReader;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.StructType;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.exceptions.UnexpectedTypeException;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the schemas that Spark infers for the files read by structured-json-file() and csv-file(), so that the files
+ * are not scanned again to infer the same schema on later runs.
+ *
+ * The schemas are stored as JSON files in the schema cache location, named after a hash of the format, the options,
+ * the path, and the paths, sizes and modification times of all the files read. A schema is thus inferred again as
+ * soon as any file is added, removed or modified.
+ */
+public class SchemaCache {
+
+    /**
+     * Reads files, with the schema given by the user, with the schema cached for them, or by inferring it and caching
+     * it.
+     *
+     * @param format the Spark data source, such as json or csv.
+     * @param uri the files to read.
+     * @param options the options of the data source.
+     * @param schema the schema given by the user, or null if it is to be inferred.
+     * @param metadata the metadata for errors.
+     * @return the data frame.
+     */
+    public static Dataset<Row> read(
+            String format,
+            URI uri,
+            Map<String, String> options,
+            StructType schema,
+            ExceptionMetadata metadata
+    ) {
+        DataFrameReader reader = SparkSessionManager.getInstance()
+            .getOrCreateSession()
+            .read()
+            .format(format)
+            .options(options);
+        if (schema != null) {
+            return reader.schema(schema).load(uri.toString());
+        }
+        String location = SparkSessionManager.SCHEMA_CACHE_LOCATION;
+        if (location == null) {
+            return reader.load(uri.toString());
+        }
+        URI cacheDirectory = FileSystemUtil.resolveURIAgainstWorkingDirectory(location, metadata);
+        URI cachedSchema = URI.create(
+            cacheDirectory.toString().replaceAll("/$", "") + "/" + getKey(format, uri, options, metadata) + ".json"
+        );
+        StructType cached = readSchema(cachedSchema, metadata);
+        if (cached != null) {
+            return reader.schema(cached).load(uri.toString());
+        }
+        Dataset<Row> dataFrame = reader.load(uri.toString());
+        try {
+            FileSystemUtil.createDirectory(cacheDirectory, metadata);
+            FileSystemUtil.write(
+                cachedSchema,
+                Collections.singletonList(dataFrame.schema().json()),
+                metadata
+            );
+        } catch (RumbleException e) {
+            // the schema is inferred again next time if it cannot be cached
+        }
+        return dataFrame;
+    }
+
+    /**
+     * Parses a schema given by the user as an option, in the DDL format of Spark, such as "id INT, name STRING".
+     *
+     * @param schema the schema, which must be a string.
+     * @param metadata the metadata for errors.
+     * @return the schema.
+     */
+    public static StructType parseSchema(Item schema, ExceptionMetadata metadata) {
+        if (!schema.isString()) {
+            throw new UnexpectedTypeException(
+                    "The schema must be a string, such as \"id INT, name STRING\".",
+                    metadata
+            );
+        }
+        try {
+            return StructType.fromDDL(schema.getStringValue());
+        } catch (Exception e) {
+            throw new UnexpectedTypeException(
+                    "Invalid schema " + schema.getStringValue() + ". Cause: " + e.getMessage(),
+                    metadata
+            );
+        }
+    }
+
+    private static StructType readSchema(URI cachedSchema, ExceptionMetadata metadata) {
+        try {
+            if (!FileSystemUtil.exists(cachedSchema, metadata)) {
+                return null;
+            }
+            DataType schema = DataType.fromJson(FileSystemUtil.readContent(cachedSchema, metadata));
+            return schema instanceof StructType ? (StructType) schema : null;
+        } catch (Exception e) {
+            // a schema that cannot be read, for example because it is being written, is inferred again
+            return null;
+        }
+    }
+
+    private static String getKey(String format, URI uri, Map<String, String> options, ExceptionMetadata metadata) {
+        StringBuilder key = new StringBuilder();
+        key.append(format).append('\n').append(uri).append('\n');
+        for (Map.Entry<String, String> option : new TreeMap<>(options).entrySet()) {
+            key.append(option.getKey()).append('=').append(option.getValue()).append('\n');
+        }
+        List<FileStatus> files = FileSystemUtil.getFileStatuses(uri, metadata);
+        for (FileStatus file : files) {
+            key.append(file.getPath())
+                .append(' ')
+                .append(file.getLen())
+                .append(' ')
+                .append(file.getModificationTime())
+                .append('\n');
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder();
+            for (byte b : hash) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new OurBadException("SHA-256 is not available.");
+        }
+    }
+}
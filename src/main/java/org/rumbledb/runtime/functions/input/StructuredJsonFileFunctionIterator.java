@@ -24,21 +24,25 @@ import org.apache.spark.SparkException;
 import org.apache.spark.sql.AnalysisException;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructType;
+import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.items.parsing.FieldProjection;
 import org.rumbledb.exceptions.RumbleException;
 import org.rumbledb.runtime.DataFrameRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import sparksoniq.jsoniq.ExecutionMode;
-import sparksoniq.spark.SparkSessionManager;
 
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 
-public class StructuredJsonFileFunctionIterator extends DataFrameRuntimeIterator {
+public class StructuredJsonFileFunctionIterator extends DataFrameRuntimeIterator implements ProjectableInputIterator {
 
     private static final long serialVersionUID = 1L;
+    private FieldProjection projection;
 
     public StructuredJsonFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -48,6 +52,11 @@ public class StructuredJsonFileFunctionIterator extends DataFrameRuntimeIterator
         super(arguments, executionMode, iteratorMetadata);
     }
 
+    @Override
+    public void setFieldProjection(FieldProjection projection) {
+        this.projection = projection;
+    }
+
     @Override
     public Dataset<Row> getDataFrame(DynamicContext context) {
         RuntimeIterator urlIterator = this.children.get(0);
@@ -58,12 +67,26 @@ public class StructuredJsonFileFunctionIterator extends DataFrameRuntimeIterator
         if (!FileSystemUtil.exists(uri, getMetadata())) {
             throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
         }
+        InputSample sample = null;
+        StructType schema = null;
+        if (this.children.size() > 1) {
+            Item options = this.children.get(1).materializeFirstItemOrNull(context);
+            sample = InputSample.fromOptions(options, Collections.singletonList("schema"), getMetadata());
+            Item schemaItem = options.getItemByKey("schema");
+            if (schemaItem != null) {
+                schema = SchemaCache.parseSchema(schemaItem, getMetadata());
+            }
+        }
         try {
-            return SparkSessionManager.getInstance()
-                .getOrCreateSession()
-                .read()
-                .option("mode", "FAILFAST")
-                .json(uri.toString());
+            Dataset<Row> dataFrame = SchemaCache.read(
+                "json",
+                uri,
+                Collections.singletonMap("mode", "FAILFAST"),
+                schema,
+                getMetadata()
+            );
+            dataFrame = ProjectableInputIterator.selectProjectedColumns(dataFrame, this.projection);
+            return sample == null ? dataFrame : sample.sample(dataFrame);
         } catch (Exception e) {
             if (e instanceof AnalysisException) {
                 throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
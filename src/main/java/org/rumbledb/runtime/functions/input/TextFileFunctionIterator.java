@@ -21,10 +21,14 @@
 package org.rumbledb.runtime.functions.input;
 
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
 import org.rumbledb.api.Item;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.exceptions.RumbleException;
 import org.rumbledb.items.parsing.StringToStringItemMapper;
 import org.rumbledb.runtime.RDDRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
@@ -32,11 +36,16 @@ import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.spark.SparkSessionManager;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 public class TextFileFunctionIterator extends RDDRuntimeIterator {
 
     private static final long serialVersionUID = 1L;
+    private transient DynamicContext resolvedContext;
+    private transient URI resolvedURI;
+    private transient List<String> smallFileLines;
+    private transient boolean isFileList;
 
     public TextFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -49,30 +58,124 @@ public class TextFileFunctionIterator extends RDDRuntimeIterator {
     @Override
     public JavaRDD<Item> getRDDAux(DynamicContext context) {
         JavaRDD<String> strings;
+        resolveFile(context);
+        URI uri = this.resolvedURI;
+        // small files are read directly, which is faster than letting Spark split them
+        List<String> lines = this.smallFileLines;
+
+        JavaSparkContext sparkContext = SparkSessionManager.getInstance().getJavaSparkContext();
+        int partitions = getMinimumNumberOfPartitions();
+        if (partitions == -1) {
+            strings = lines != null ? sparkContext.parallelize(lines) : sparkContext.textFile(uri.toString());
+        } else if (lines != null) {
+            strings = sparkContext.parallelize(lines, partitions);
+        } else {
+            strings = sparkContext.textFile(uri.toString(), partitions);
+        }
+        InputSample sample = getSample();
+        if (sample != null) {
+            strings = sample.sample(strings);
+        }
+        return strings.mapPartitions(new StringToStringItemMapper());
+    }
+
+    /**
+     * Reads a small file in the calling thread if the items are consumed locally, without any Spark job. A sample is
+     * always read with Spark.
+     */
+    @Override
+    public List<Item> getLocalResult(DynamicContext context) {
+        if (this.children.size() > 2) {
+            return null;
+        }
+        resolveFile(context);
+        List<String> lines = this.smallFileLines;
+        if (lines == null) {
+            return null;
+        }
+        List<Item> result = new ArrayList<>();
+        try {
+            new StringToStringItemMapper().call(lines.iterator()).forEachRemaining(result::add);
+        } catch (RumbleException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OurBadException(e.getMessage(), getMetadata());
+        }
+        return result;
+    }
+
+    /**
+     * @return the minimum number of partitions, or -1 if it is not given.
+     */
+    private int getMinimumNumberOfPartitions() {
+        if (this.children.size() == 1) {
+            return -1;
+        }
+        Item partitions = this.children.get(1).materializeFirstItemOrNull(this.currentDynamicContextForLocalExecution);
+        return partitions == null ? -1 : partitions.getIntegerValue();
+    }
+
+    /**
+     * @return the sample to read, or null if the whole input is read.
+     */
+    private InputSample getSample() {
+        if (this.children.size() < 3) {
+            return null;
+        }
+        Item options = this.children.get(2).materializeFirstItemOrNull(this.currentDynamicContextForLocalExecution);
+        return InputSample.fromOptions(options, getMetadata());
+    }
+
+    @Override
+    public void open(DynamicContext context) {
+        this.resolvedContext = null;
+        super.open(context);
+    }
+
+    @Override
+    public void reset(DynamicContext context) {
+        this.resolvedContext = null;
+        super.reset(context);
+    }
+
+    @Override
+    public void close() {
+        this.resolvedContext = null;
+        this.smallFileLines = null;
+        super.close();
+    }
+
+    /**
+     * Resolves the URI of the file and reads the file if it is small, which sets resolvedURI and smallFileLines (null
+     * if the file is not small). This is done only once while the iterator is open, as both the local result and the
+     * RDD, if the local result is not available, need them.
+     */
+    private void resolveFile(DynamicContext context) {
+        if (context != null && context == this.resolvedContext) {
+            return;
+        }
         RuntimeIterator urlIterator = this.children.get(0);
         urlIterator.open(context);
         String url = urlIterator.next().getStringValue();
         urlIterator.close();
-        URI uri = FileSystemUtil.resolveURI(getStaticContext().getStaticBaseURI(), url, getMetadata());
-        if (!FileSystemUtil.exists(uri, getMetadata())) {
-            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
-        }
-
-        if (this.children.size() == 1) {
-            strings = SparkSessionManager.getInstance()
-                .getJavaSparkContext()
-                .textFile(uri.toString());
+        RumbleRuntimeConfiguration configuration = context.getRumbleRuntimeConfiguration();
+        this.isFileList = configuration != null && configuration.isStreamingBatchInput(url);
+        if (this.isFileList) {
+            // the new files of a micro-batch, which Spark reads as a list
+            this.resolvedURI = FileSystemUtil.resolveURIList(getStaticContext().getStaticBaseURI(), url, getMetadata());
+            this.smallFileLines = null;
         } else {
-            RuntimeIterator partitionsIterator = this.children.get(1);
-            partitionsIterator.open(this.currentDynamicContextForLocalExecution);
-            strings = SparkSessionManager.getInstance()
-                .getJavaSparkContext()
-                .textFile(
-                    uri.toString(),
-                    partitionsIterator.next().getIntegerValue()
-                );
-            partitionsIterator.close();
+            this.resolvedURI = FileSystemUtil.resolveURI(getStaticContext().getStaticBaseURI(), url, getMetadata());
+            if (!FileSystemUtil.exists(this.resolvedURI, getMetadata())) {
+                throw new CannotRetrieveResourceException("File " + this.resolvedURI + " not found.", getMetadata());
+            }
+            this.smallFileLines = FileSystemUtil.readLinesOfSmallFile(
+                this.resolvedURI,
+                SparkSessionManager.LOCAL_FILE_SIZE_THRESHOLD,
+                getMetadata()
+            );
         }
-        return strings.mapPartitions(new StringToStringItemMapper());
+        // the same context may be bound to other values once the iterator is closed
+        this.resolvedContext = this.isOpen && context == this.currentDynamicContextForLocalExecution ? context : null;
     }
 }
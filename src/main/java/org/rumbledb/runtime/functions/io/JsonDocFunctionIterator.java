@@ -22,17 +22,21 @@
 package org.rumbledb.runtime.functions.io;
 
 import com.jsoniter.JsonIterator;
+import org.apache.commons.io.IOUtils;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.IteratorFlowException;
 import org.rumbledb.items.parsing.ItemParser;
+import org.rumbledb.items.parsing.JSONArrayMemberIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.functions.base.LocalFunctionCallIterator;
 import org.rumbledb.runtime.functions.input.FileSystemUtil;
 
 import sparksoniq.jsoniq.ExecutionMode;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
@@ -70,15 +74,45 @@ public class JsonDocFunctionIterator extends LocalFunctionCallIterator {
                     path.getStringValue(),
                     getMetadata()
                 );
-                InputStream is = FileSystemUtil.getDataInputStream(uri, getMetadata());
-                JsonIterator object = JsonIterator.parse(is, 1024);
+                // the streaming mode of the JSON parser cannot be enabled once JSON was parsed, so the text is read
+                byte[] json;
+                try (InputStream is = FileSystemUtil.getDataInputStream(uri, getMetadata())) {
+                    json = IOUtils.toByteArray(is);
+                }
+                JsonIterator object = JsonIterator.parse(json);
                 return ItemParser.getItemFromObject(object, getMetadata());
             } catch (IteratorFlowException e) {
                 throw new IteratorFlowException(e.getJSONiqErrorMessage(), getMetadata());
+            } catch (IOException e) {
+                throw new CannotRetrieveResourceException(
+                        "I/O error while reading " + path.getStringValue() + " Cause: " + e.getMessage(),
+                        getMetadata()
+                );
             }
         }
         throw new IteratorFlowException(RuntimeIterator.FLOW_EXCEPTION_MESSAGE + " json-doc function", getMetadata());
     }
 
+    /**
+     * Streams the members of the array in the document, for json-doc($path)[], instead of parsing the whole document
+     * into a single item.
+     *
+     * @param context the dynamic context in which the path is evaluated.
+     * @return the members of the array, none if the document is not an array, or null if there is no path.
+     */
+    public JSONArrayMemberIterator openArrayMembers(DynamicContext context) {
+        Item path = this.children.get(0).materializeFirstItemOrNull(context);
+        if (path == null) {
+            return null;
+        }
+        URI uri = FileSystemUtil.resolveURI(
+            getStaticContext().getStaticBaseURI(),
+            path.getStringValue(),
+            getMetadata()
+        );
+        InputStream is = FileSystemUtil.getDataInputStream(uri, getMetadata());
+        return new JSONArrayMemberIterator(is, getMetadata());
+    }
+
 
 }
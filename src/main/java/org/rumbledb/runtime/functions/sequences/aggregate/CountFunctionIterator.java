@@ -25,10 +25,10 @@ import org.rumbledb.context.DynamicContext;
 import org.rumbledb.context.Name;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.IteratorFlowException;
-import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.items.ItemFactory;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.functions.base.LocalFunctionCallIterator;
+import org.rumbledb.runtime.functions.input.CountableInputIterator;
 import org.rumbledb.runtime.primary.VariableReferenceIterator;
 import sparksoniq.jsoniq.ExecutionMode;
 
@@ -41,6 +41,7 @@ public class CountFunctionIterator extends LocalFunctionCallIterator {
      *
      */
     private static final long serialVersionUID = 1L;
+    private RuntimeIterator countedInput;
 
     public CountFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -50,6 +51,14 @@ public class CountFunctionIterator extends LocalFunctionCallIterator {
         super(arguments, executionMode, iteratorMetadata);
     }
 
+    /**
+     * @param countedInput an input function returning one item for each item of the argument, which can count them
+     *        without creating them.
+     */
+    public void setCountedInput(RuntimeIterator countedInput) {
+        this.countedInput = countedInput;
+    }
+
     @Override
     public Item next() {
         if (this.hasNext) {
@@ -64,25 +73,28 @@ public class CountFunctionIterator extends LocalFunctionCallIterator {
                 return this.currentDynamicContextForLocalExecution.getVariableCount(expr.getVariableName());
             }
 
-            if (!iterator.isRDD()) {
-                List<Item> results = iterator.materialize(this.currentDynamicContextForLocalExecution);
-                this.hasNext = false;
-                return ItemFactory.getInstance().createIntegerItem(results.size());
+            long count = -1;
+            if (this.countedInput != null) {
+                count = ((CountableInputIterator) this.countedInput).count(
+                    this.currentDynamicContextForLocalExecution
+                );
             }
 
-            long count;
-            if (iterator.isDataFrame()) {
-                count = iterator.getDataFrame(this.currentDynamicContextForLocalExecution).count();
-            } else {
-                count = iterator.getRDD(this.currentDynamicContextForLocalExecution).count();
+            if (count == -1) {
+                if (!iterator.isRDD()) {
+                    List<Item> results = iterator.materialize(this.currentDynamicContextForLocalExecution);
+                    this.hasNext = false;
+                    return ItemFactory.getInstance().createIntegerItem(results.size());
+                }
+
+                if (iterator.isDataFrame()) {
+                    count = iterator.getDataFrame(this.currentDynamicContextForLocalExecution).count();
+                } else {
+                    count = iterator.getRDD(this.currentDynamicContextForLocalExecution).count();
+                }
             }
             this.hasNext = false;
-            if (count > (long) Integer.MAX_VALUE) {
-                // TODO: handle too big x values
-                throw new OurBadException("The count value is too big to convert to integer type.");
-            } else {
-                return ItemFactory.getInstance().createIntegerItem((int) count);
-            }
+            return ItemFactory.getInstance().createIntegerItem(count);
         } else {
             throw new IteratorFlowException(
                     FLOW_EXCEPTION_MESSAGE + " count function",
@@ -108,7 +108,7 @@ public class SubsequenceFunctionIterator extends HybridRuntimeIterator {
                 )
             );
 
-        df = FlworDataFrameUtils.zipWithIndex(df, 1L, SparkSessionManager.temporaryColumnName);
+        df = FlworDataFrameUtils.zipWithIndex(df, 1L, SparkSessionManager.temporaryColumnName, null, dynamicContext);
 
         df.createOrReplaceTempView("input");
         df = df.sparkSession()
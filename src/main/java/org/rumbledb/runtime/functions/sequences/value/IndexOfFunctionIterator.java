@@ -61,7 +61,7 @@ public class IndexOfFunctionIterator extends HybridRuntimeIterator {
 
         JavaPairRDD<Item, Long> zippedRDD = childRDD.zipWithIndex();
         JavaPairRDD<Item, Long> filteredRDD = zippedRDD.filter((item) -> item._1().equals(this.search));
-        return filteredRDD.map((item) -> ItemFactory.getInstance().createIntegerItem(item._2.intValue() + 1));
+        return filteredRDD.map((item) -> ItemFactory.getInstance().createIntegerItem(item._2 + 1));
     }
 
     @Override
@@ -124,6 +124,10 @@ public class ComparisonOperationIterator extends LocalRuntimeIterator {
         this.rightIterator.close();
     }
 
+    public ComparisonExpression.ComparisonOperator getComparisonOperator() {
+        return this.comparisonOperator;
+    }
+
     /**
      * Function to compare two lists of items one by one with each other.
      *
@@ -38,9 +38,9 @@ public class RangeOperationIterator extends LocalRuntimeIterator {
     private static final long serialVersionUID = 1L;
     private RuntimeIterator leftIterator;
     private RuntimeIterator rightIterator;
-    private int left;
-    private int right;
-    private int index;
+    private long left;
+    private long right;
+    private long index;
 
     public RangeOperationIterator(
             RuntimeIterator leftIterator,
@@ -94,8 +94,8 @@ public class RangeOperationIterator extends LocalRuntimeIterator {
                 );
             }
             try {
-                this.left = left.castToIntegerValue();
-                this.right = right.castToIntegerValue();
+                this.left = left.getLongValue();
+                this.right = right.getLongValue();
             } catch (IteratorFlowException e) {
                 throw new IteratorFlowException(e.getJSONiqErrorMessage(), getMetadata());
             }
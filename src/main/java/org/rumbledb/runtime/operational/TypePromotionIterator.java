@@ -15,7 +15,9 @@ import org.rumbledb.types.SequenceType;
 
 import sparksoniq.jsoniq.ExecutionMode;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 public class TypePromotionIterator extends HybridRuntimeIterator {
 
@@ -98,7 +100,7 @@ public class TypePromotionIterator extends HybridRuntimeIterator {
 
         checkItemsSize(this.childIndex);
         if (!this.nextResult.isTypeOf(this.itemType)) {
-            checkTypePromotion();
+            this.nextResult = checkTypePromotion(this.nextResult);
         }
     }
 
@@ -160,14 +162,32 @@ public class TypePromotionIterator extends HybridRuntimeIterator {
         return childRDD.map(transformation);
     }
 
-    private void checkTypePromotion() {
-        if (this.nextResult.isFunction()) {
-            return;
+    @Override
+    public List<Item> getLocalResult(DynamicContext context) {
+        if (!(this.iterator instanceof HybridRuntimeIterator)) {
+            return null;
+        }
+        List<Item> items = ((HybridRuntimeIterator) this.iterator).getLocalResult(context);
+        if (items == null) {
+            return null;
+        }
+        checkEmptySequence(items.size());
+        checkItemsSize(items.size());
+        List<Item> result = new ArrayList<>(items.size());
+        for (Item item : items) {
+            result.add(item.isTypeOf(this.itemType) ? item : checkTypePromotion(item));
+        }
+        return result;
+    }
+
+    private Item checkTypePromotion(Item item) {
+        if (item.isFunction()) {
+            return item;
         }
-        if (!this.nextResult.canBePromotedTo(this.sequenceType.getItemType())) {
+        if (!item.canBePromotedTo(this.sequenceType.getItemType())) {
             throw new UnexpectedTypeException(
                     this.exceptionMessage
-                        + this.nextResult.getDynamicType().toString()
+                        + item.getDynamicType().toString()
                         + " cannot be promoted to type "
                         + this.sequenceTypeName
                         + this.sequenceType.getArity().getSymbol()
@@ -175,6 +195,6 @@ public class TypePromotionIterator extends HybridRuntimeIterator {
                     getMetadata()
             );
         }
-        this.nextResult = this.nextResult.promoteTo(this.sequenceType.getItemType());
+        return item.promoteTo(this.sequenceType.getItemType());
     }
 }
@@ -33,8 +33,11 @@ import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.IteratorFlowException;
 import org.rumbledb.items.ArrayItem;
+import org.rumbledb.items.parsing.JSONArrayMemberIterator;
 import org.rumbledb.runtime.HybridRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
+import org.rumbledb.runtime.functions.io.JsonDocFunctionIterator;
+import org.rumbledb.runtime.operational.TypePromotionIterator;
 import sparksoniq.jsoniq.ExecutionMode;
 import sparksoniq.spark.SparkSessionManager;
 
@@ -47,6 +50,7 @@ public class ArrayUnboxingIterator extends HybridRuntimeIterator {
     private static final long serialVersionUID = 1L;
     private RuntimeIterator iterator;
     private Queue<Item> nextResults; // queue that holds the results created by the current item in inspection
+    private JSONArrayMemberIterator streamedMembers; // members of json-doc($path)[], read one at a time
 
     public ArrayUnboxingIterator(
             RuntimeIterator arrayIterator,
@@ -59,11 +63,34 @@ public class ArrayUnboxingIterator extends HybridRuntimeIterator {
 
     @Override
     public void openLocal() {
-        this.iterator.open(this.currentDynamicContextForLocalExecution);
         this.nextResults = new LinkedList<>();
+        if (openStreamedMembers()) {
+            return;
+        }
+        this.iterator.open(this.currentDynamicContextForLocalExecution);
         setNextResult();
     }
 
+    /**
+     * Streams the members of the array in a JSON document, so that it does not need to fit in memory.
+     *
+     * @return true if the child is a call to json-doc.
+     */
+    private boolean openStreamedMembers() {
+        RuntimeIterator documentIterator = this.iterator;
+        if (documentIterator instanceof TypePromotionIterator) {
+            documentIterator = documentIterator.getChildren().get(0);
+        }
+        if (!(documentIterator instanceof JsonDocFunctionIterator)) {
+            return false;
+        }
+        this.streamedMembers = ((JsonDocFunctionIterator) documentIterator).openArrayMembers(
+            this.currentDynamicContextForLocalExecution
+        );
+        this.hasNext = this.streamedMembers != null && this.streamedMembers.hasNext();
+        return true;
+    }
+
     @Override
     protected boolean hasNextLocal() {
         return this.hasNext;
@@ -71,6 +98,11 @@ public class ArrayUnboxingIterator extends HybridRuntimeIterator {
 
     @Override
     public Item nextLocal() {
+        if (this.hasNext && this.streamedMembers != null) {
+            Item result = this.streamedMembers.next();
+            this.hasNext = this.streamedMembers.hasNext();
+            return result;
+        }
         if (this.hasNext) {
             Item result = this.nextResults.remove(); // save the result to be returned
             if (this.nextResults.isEmpty()) {
@@ -84,12 +116,22 @@ public class ArrayUnboxingIterator extends HybridRuntimeIterator {
 
     @Override
     protected void resetLocal(DynamicContext context) {
+        if (this.streamedMembers != null) {
+            this.streamedMembers.close();
+        }
+        if (openStreamedMembers()) {
+            return;
+        }
         this.iterator.reset(this.currentDynamicContextForLocalExecution);
         setNextResult();
     }
 
     @Override
     protected void closeLocal() {
+        if (this.streamedMembers != null) {
+            this.streamedMembers.close();
+            this.streamedMembers = null;
+        }
         this.iterator.close();
     }
 
@@ -27,13 +27,15 @@ import org.rumbledb.items.ItemFactory;
 import org.rumbledb.runtime.RuntimeIterator;
 import sparksoniq.jsoniq.ExecutionMode;
 
+import java.math.BigInteger;
+
 public class IntegerRuntimeIterator extends AtomicRuntimeIterator {
 
 
     private static final long serialVersionUID = 1L;
-    private int item;
+    private BigInteger item;
 
-    public IntegerRuntimeIterator(int value, ExecutionMode executionMode, ExceptionMetadata iteratorMetadata) {
+    public IntegerRuntimeIterator(BigInteger value, ExecutionMode executionMode, ExceptionMetadata iteratorMetadata) {
         super(null, executionMode, iteratorMetadata);
         this.item = value;
 
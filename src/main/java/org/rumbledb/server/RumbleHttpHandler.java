@@ -1,12 +1,16 @@
 package org.rumbledb.server;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -55,6 +59,18 @@ public class RumbleHttpHandler implements HttpHandler {
         stream.close();
     }
 
+    private void sendResponse(HttpExchange exchange, StatusCode code, Item response) throws IOException {
+        // the length of the response is not known in advance, so that it is sent in chunks
+        exchange.sendResponseHeaders(code.getCode(), 0);
+        try (
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)
+            )
+        ) {
+            response.serialize(writer);
+        }
+    }
+
     private String[] getCLIArguments(String query) throws UnsupportedEncodingException {
         Map<String, String> queryParameters = new HashMap<String, String>();
         if (query == null) {
@@ -80,6 +96,7 @@ public class RumbleHttpHandler implements HttpHandler {
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        Item output;
         try {
             URI uri = exchange.getRequestURI();
             validateRequest(exchange);
@@ -89,6 +106,8 @@ public class RumbleHttpHandler implements HttpHandler {
             RumbleRuntimeConfiguration configuration = new RumbleRuntimeConfiguration(args);
             validateConfiguration(exchange, configuration);
             SparkSessionManager.COLLECT_ITEM_LIMIT = configuration.getResultSizeCap();
+            SparkSessionManager.LOCAL_FILE_SIZE_THRESHOLD = configuration.getLocalFileSizeThreshold();
+            SparkSessionManager.SCHEMA_CACHE_LOCATION = configuration.getSchemaCacheLocation();
 
             JsoniqQueryExecutor translator = new JsoniqQueryExecutor(configuration);
             List<Item> items = null;
@@ -109,16 +128,39 @@ public class RumbleHttpHandler implements HttpHandler {
                 count = translator.runInteractive(JSONiqQuery, items);
             }
 
-            Item output = assembleResponse(configuration, items, count);
-
-            this.sendResponse(exchange, StatusCode.SUCCESS, output.serialize());
+            // errors must surface before the headers are sent, so lazy items are not left to the serialization
+            if (items != null) {
+                for (Item item : items) {
+                    materialize(item);
+                }
+            }
+            output = assembleResponse(configuration, items, count, translator.isResultApproximate());
         } catch (Exception e) {
-            Item output = handleException(e);
-            this.sendResponse(exchange, StatusCode.SUCCESS, output.serialize());
+            output = handleException(e);
         }
+        // the headers can only be sent once, so this is outside of the error handling
+        this.sendResponse(exchange, StatusCode.SUCCESS, output);
     }
 
 
+    /**
+     * Parses the lazy objects, such as those read from JSON lines, that an item contains, so that their errors are
+     * raised now rather than while the item is serialized.
+     *
+     * @param item the item to materialize.
+     */
+    private static void materialize(Item item) {
+        if (item.isObject()) {
+            for (Item value : item.getValues()) {
+                materialize(value);
+            }
+        } else if (item.isArray()) {
+            for (Item member : item.getItems()) {
+                materialize(member);
+            }
+        }
+    }
+
     private void validateRequest(HttpExchange exchange) throws IOException {
         if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("POST")) {
             this.sendResponse(
@@ -140,7 +182,12 @@ public class RumbleHttpHandler implements HttpHandler {
         }
     }
 
-    private static Item assembleResponse(RumbleRuntimeConfiguration configuration, List<Item> results, long count) {
+    private static Item assembleResponse(
+            RumbleRuntimeConfiguration configuration,
+            List<Item> results,
+            long count,
+            boolean isApproximate
+    ) {
         Item output = ItemFactory.getInstance().createObjectItem();
         if (configuration.getOutputPath() != null) {
             output.putItemByKey(
@@ -169,6 +216,9 @@ public class RumbleHttpHandler implements HttpHandler {
                     )
             );
         }
+        if (isApproximate) {
+            output.putItemByKey("approximate", ItemFactory.getInstance().createBooleanItem(true));
+        }
         return output;
     }
 
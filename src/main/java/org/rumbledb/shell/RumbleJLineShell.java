@@ -42,7 +42,6 @@ import sparksoniq.spark.SparkSessionManager;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class RumbleJLineShell {
     private static final String EXIT_COMMAND = "exit";
@@ -93,13 +92,14 @@ public class RumbleJLineShell {
         List<Item> results = new ArrayList<>();
         try {
             long count = this.jsoniqQueryExecutor.runInteractive(query, results);
-            String result = String.join(
-                "\n",
-                results.stream()
-                    .map(x -> x.serialize())
-                    .collect(Collectors.toList())
-            );
-            output(result);
+            StringBuilder result = new StringBuilder();
+            String separator = "";
+            for (Item item : results) {
+                result.append(separator);
+                separator = "\n";
+                item.serialize(result);
+            }
+            output(result.toString());
             if (count != -1) {
                 System.err.println(
                     "Warning! The output sequence contains "
@@ -109,6 +109,9 @@ public class RumbleJLineShell {
                         + " items. This value can be configured with the --result-size parameter at startup"
                 );
             }
+            if (this.jsoniqQueryExecutor.isResultApproximate()) {
+                System.err.println(JsoniqQueryExecutor.approximateResultWarning);
+            }
             long time = System.currentTimeMillis() - startTime;
             if (this.printTime) {
                 output("The query took " + time + " milliseconds to execute.");
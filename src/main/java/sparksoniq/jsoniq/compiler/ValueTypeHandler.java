@@ -31,6 +31,7 @@ import org.rumbledb.expressions.primary.NullLiteralExpression;
 import org.rumbledb.parser.JsoniqParser;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 
 
 public class ValueTypeHandler {
@@ -55,7 +56,7 @@ public class ValueTypeHandler {
     // TODO think of beter way to distinguish numeric literals
     private static Expression getNumericLiteral(String token, ExceptionMetadata metadataFromContext) {
         if (!token.contains(".") && !token.contains("e") && !token.contains("E")) {
-            return new IntegerLiteralExpression(Integer.parseInt(token), metadataFromContext);
+            return new IntegerLiteralExpression(new BigInteger(token), metadataFromContext);
         }
         if (!token.contains("e") && !token.contains("E")) {
             return new DecimalLiteralExpression(new BigDecimal(token), metadataFromContext);
@@ -3,7 +3,9 @@ package sparksoniq.spark;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructField;
@@ -52,6 +54,34 @@ public class DataFrameUtils {
         return SparkSessionManager.getInstance().getOrCreateSession().createDataFrame(rows, schema);
     }
 
+    /**
+     * Converts objects to a DataFrame with the schema that Spark infers for the same objects in JSON lines, so that
+     * for instance a field with values of several types is a string column.
+     */
+    public static Dataset<Row> convertItemRDDToDataFrameWithInferredSchema(JavaRDD<Item> itemRDD) {
+        SparkSession session = SparkSessionManager.getInstance().getOrCreateSession();
+        JavaRDD<String> objects = itemRDD.map(DataFrameUtils::serializeObject);
+        return session.read().json(session.createDataset(objects.rdd(), Encoders.STRING()));
+    }
+
+    public static Dataset<Row> convertLocalItemsToDataFrameWithInferredSchema(List<Item> items) {
+        SparkSession session = SparkSessionManager.getInstance().getOrCreateSession();
+        List<String> objects = new ArrayList<>();
+        for (Item item : items) {
+            objects.add(serializeObject(item));
+        }
+        return session.read().json(session.createDataset(objects, Encoders.STRING()));
+    }
+
+    private static String serializeObject(Item item) {
+        if (!item.isObject()) {
+            throw new MLInvalidDataFrameSchemaException(
+                    "Only objects can be converted to a DataFrame: " + item.serialize() + " is not an object."
+            );
+        }
+        return item.serialize();
+    }
+
     private static void validateSchemaAgainstAnItem(
             ObjectItem schemaItem,
             ObjectItem dataItem
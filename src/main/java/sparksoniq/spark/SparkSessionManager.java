@@ -27,6 +27,7 @@ import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.sql.SparkSession;
 import org.rumbledb.api.Item;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotMaterializeException;
 import org.rumbledb.exceptions.ExceptionMetadata;
@@ -36,6 +37,7 @@ import org.rumbledb.items.BooleanItem;
 import org.rumbledb.items.DecimalItem;
 import org.rumbledb.items.DoubleItem;
 import org.rumbledb.items.IntegerItem;
+import org.rumbledb.items.LazyObjectItem;
 import org.rumbledb.items.NullItem;
 import org.rumbledb.items.ObjectItem;
 import org.rumbledb.items.StringItem;
@@ -51,6 +53,10 @@ public class SparkSessionManager {
 
     private static final String APP_NAME = "jsoniq-on-spark";
     public static int COLLECT_ITEM_LIMIT = 0;
+    public static long LOCAL_FILE_SIZE_THRESHOLD = RumbleRuntimeConfiguration.getDefaultConfiguration()
+        .getLocalFileSizeThreshold();
+    public static String SCHEMA_CACHE_LOCATION = RumbleRuntimeConfiguration.getDefaultConfiguration()
+        .getSchemaCacheLocation();
     private static SparkSessionManager instance;
     private static Level LOG_LEVEL = Level.FATAL;
     private SparkConf configuration;
@@ -109,6 +115,7 @@ public class SparkSessionManager {
                 Item.class,
                 ArrayItem.class,
                 ObjectItem.class,
+                LazyObjectItem.class,
                 StringItem.class,
                 IntegerItem.class,
                 DoubleItem.class,
@@ -151,15 +158,7 @@ public class SparkSessionManager {
         if (SparkSessionManager.LIMIT_COLLECT()) {
             List<T> result = rdd.take(SparkSessionManager.COLLECT_ITEM_LIMIT + 1);
             if (result.size() == SparkSessionManager.COLLECT_ITEM_LIMIT + 1) {
-                long count = rdd.count();
-                throw new CannotMaterializeException(
-                        "Cannot materialize a sequence of "
-                            + count
-                            + " items because the limit is set to "
-                            + SparkSessionManager.COLLECT_ITEM_LIMIT
-                            + ". This value can be configured with the --result-size parameter at startup",
-                        metadata
-                );
+                checkCollectLimit(rdd.count(), metadata);
             }
             return result;
         } else {
@@ -167,6 +166,19 @@ public class SparkSessionManager {
         }
     }
 
+    public static void checkCollectLimit(long count, ExceptionMetadata metadata) {
+        if (SparkSessionManager.LIMIT_COLLECT() && count > SparkSessionManager.COLLECT_ITEM_LIMIT) {
+            throw new CannotMaterializeException(
+                    "Cannot materialize a sequence of "
+                        + count
+                        + " items because the limit is set to "
+                        + SparkSessionManager.COLLECT_ITEM_LIMIT
+                        + ". This value can be configured with the --result-size parameter at startup",
+                    metadata
+            );
+        }
+    }
+
     public static <T> long collectRDDwithLimitWarningOnly(JavaRDD<T> rdd, List<T> outputList) {
         outputList.clear();
         long count = -1;
@@ -185,8 +185,8 @@ public class RumbleMLUtils {
     }
 
     public static Item removeParameter(Item paramMapItem, String key, ExceptionMetadata metadata) {
-        List<String> keys = paramMapItem.getKeys();
-        List<Item> values = paramMapItem.getValues();
+        List<String> keys = new ArrayList<>(paramMapItem.getKeys());
+        List<Item> values = new ArrayList<>(paramMapItem.getValues());
         int indexToRemove = keys.indexOf(key);
         keys.remove(indexToRemove);
         values.remove(indexToRemove);
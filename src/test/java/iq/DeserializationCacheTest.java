@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package iq;
+
+import org.apache.spark.SparkConf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rumbledb.api.Rumble;
+import org.rumbledb.api.RumbleConf;
+import org.rumbledb.api.SequenceOfItems;
+import org.rumbledb.runtime.flwor.DeserializationCache;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DeserializationCacheTest {
+
+    @BeforeClass
+    public static void setupSparkSession() {
+        SparkConf sparkConfiguration = new SparkConf();
+        sparkConfiguration.setMaster("local[*]");
+        sparkConfiguration.set("spark.submit.deployMode", "client");
+        sparkConfiguration.set("spark.executor.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.extraClassPath", "lib/");
+        SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
+    }
+
+    @Test(timeout = 1000000)
+    public void testGroupBy() {
+        long hits = DeserializationCache.getHits();
+        long misses = DeserializationCache.getMisses();
+        SequenceOfItems items = new Rumble(new RumbleConf()).runQuery(
+            "for $i in parallelize(1 to 1000, 4) "
+                + "let $key := { \"remainder\" : $i mod 3 } "
+                + "group by $remainder := $key.remainder "
+                + "order by $remainder "
+                + "return [ $remainder, count($i), count($key) ]"
+        );
+        List<String> result = new ArrayList<>();
+        items.open();
+        while (items.hasNext()) {
+            result.add(items.next().serialize());
+        }
+        items.close();
+        Assert.assertEquals(Arrays.asList("[ 0, 333, 333 ]", "[ 1, 334, 334 ]", "[ 2, 333, 333 ]"), result);
+        // the group by clause reads the columns that the let clause has just written in the same tasks
+        Assert.assertTrue(DeserializationCache.getHits() > hits);
+        // but the grouped columns are read after a shuffle, in other tasks
+        Assert.assertTrue(DeserializationCache.getMisses() > misses);
+    }
+
+    @Test(timeout = 1000000)
+    public void testOutsideOfTasks() {
+        DeserializationCache cache = DeserializationCache.getInstance();
+        byte[] bytes = new byte[] { 1, 2, 3 };
+        cache.put(bytes, new ArrayList<>());
+        Assert.assertNull(cache.get(bytes));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package iq;
+
+import org.apache.spark.SparkConf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rumbledb.api.Rumble;
+import org.rumbledb.api.RumbleConf;
+import org.rumbledb.api.SequenceOfItems;
+import org.rumbledb.cli.JsoniqQueryExecutor;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class OutputFormatTest {
+
+    private static final String objectsQuery =
+        "for $i in parallelize(1 to 3) return { \"id\" : $i, \"name\" : \"n\" || $i, \"scores\" : [ $i, 2 * $i ] }";
+    private static final List<String> objects = Arrays.asList(
+        "{ \"id\" : 1, \"name\" : \"n1\", \"scores\" : [ 1, 2 ] }",
+        "{ \"id\" : 2, \"name\" : \"n2\", \"scores\" : [ 2, 4 ] }",
+        "{ \"id\" : 3, \"name\" : \"n3\", \"scores\" : [ 3, 6 ] }"
+    );
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setupSparkSession() {
+        SparkConf sparkConfiguration = new SparkConf();
+        sparkConfiguration.setMaster("local[*]");
+        sparkConfiguration.set("spark.submit.deployMode", "client");
+        sparkConfiguration.set("spark.executor.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.extraClassPath", "lib/");
+        SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
+    }
+
+    @Test(timeout = 1000000)
+    public void testParquet() throws IOException {
+        String output = write(objectsQuery, "--output-format", "parquet");
+        Assert.assertEquals(objects, read("for $o in parquet-file(\"" + output + "\") order by $o.id return $o"));
+    }
+
+    @Test(timeout = 1000000)
+    public void testAvro() throws IOException {
+        String output = write(objectsQuery, "--output-format", "avro");
+        Assert.assertEquals(objects, read("for $o in avro-file(\"" + output + "\") order by $o.id return $o"));
+    }
+
+    @Test(timeout = 1000000)
+    public void testCsv() throws IOException {
+        String output = write(objectsQuery, "--output-format", "csv");
+        // arrays are written as JSON, and all values are read back as strings
+        Assert.assertEquals(
+            Arrays.asList(
+                "{ \"id\" : \"1\", \"name\" : \"n1\", \"scores\" : \"[1,2]\" }",
+                "{ \"id\" : \"2\", \"name\" : \"n2\", \"scores\" : \"[2,4]\" }",
+                "{ \"id\" : \"3\", \"name\" : \"n3\", \"scores\" : \"[3,6]\" }"
+            ),
+            read("for $o in csv-file(\"" + output + "\", { \"header\" : true }) order by $o.id return $o")
+        );
+    }
+
+    @Test(timeout = 1000000)
+    public void testOutputSchema() throws IOException {
+        String output = write(
+            "({ \"id\" : 1, \"score\" : 2 }, { \"id\" : 2, \"score\" : 3.5 })",
+            "--output-format",
+            "parquet",
+            "--output-schema",
+            "{ \"id\" : \"integer\", \"score\" : \"double\" }"
+        );
+        Assert.assertEquals(
+            Arrays.asList("[ 1, true ]", "[ 2, true ]"),
+            read(
+                "for $o in parquet-file(\""
+                    + output
+                    + "\") order by $o.id return [ $o.id, $o.score instance of double ]"
+            )
+        );
+    }
+
+    @Test(timeout = 1000000)
+    public void testLocalOutput() throws IOException {
+        String output = write("for $i in 1 to 3 return { \"i\" : $i }");
+        Assert.assertEquals(
+            Arrays.asList("{ \"i\" : 1 }", "{ \"i\" : 2 }", "{ \"i\" : 3 }"),
+            Files.readAllLines(new File(output).toPath(), StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Runs a query with the command line executor, and returns the path its output is written to.
+     */
+    private String write(String query, String... arguments) throws IOException {
+        File queryFile = this.temporaryFolder.newFile();
+        Files.write(queryFile.toPath(), query.getBytes(StandardCharsets.UTF_8));
+        String output = new File(this.temporaryFolder.getRoot(), "output-" + queryFile.getName()).getPath();
+        List<String> allArguments = new ArrayList<>(
+                Arrays.asList("--query-path", queryFile.getPath(), "--output-path", output)
+        );
+        allArguments.addAll(Arrays.asList(arguments));
+        new JsoniqQueryExecutor(new RumbleRuntimeConfiguration(allArguments.toArray(new String[0]))).runQuery();
+        return output;
+    }
+
+    /**
+     * @return the serializations of the items that a query returns.
+     */
+    private static List<String> read(String query) {
+        SequenceOfItems items = new Rumble(new RumbleConf()).runQuery(query);
+        List<String> result = new ArrayList<>();
+        items.open();
+        while (items.hasNext()) {
+            result.add(items.next().serialize());
+        }
+        items.close();
+        return result;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package iq;
+
+import org.apache.spark.SparkConf;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rumbledb.cli.JsoniqQueryExecutor;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StreamingQueryTest {
+
+    private static final String countQuery = "declare variable $input external;\n"
+        + "declare variable $state external;\n"
+        + "for $o in (\n"
+        + "  for $event in json-file($input)\n"
+        + "  group by $country := $event.country\n"
+        + "  return { \"country\" : $country, \"count\" : count($event) },\n"
+        + "  json-file($state)\n"
+        + ")\n"
+        + "group by $country := $o.country\n"
+        + "order by $country\n"
+        + "return { \"country\" : $country, \"count\" : sum($o.count) }";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private File queryFile;
+    private File inputDirectory;
+    private File outputDirectory;
+
+    @BeforeClass
+    public static void setupSparkSession() {
+        SparkConf sparkConfiguration = new SparkConf();
+        sparkConfiguration.setMaster("local[*]");
+        sparkConfiguration.set("spark.submit.deployMode", "client");
+        sparkConfiguration.set("spark.executor.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.extraClassPath", "lib/");
+        SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
+    }
+
+    @Before
+    public void createDirectories() throws IOException {
+        this.queryFile = this.temporaryFolder.newFile("count.jq");
+        write(this.queryFile, countQuery);
+        this.inputDirectory = this.temporaryFolder.newFolder("input");
+        this.outputDirectory = new File(this.temporaryFolder.getRoot(), "output");
+    }
+
+    @Test(timeout = 1000000)
+    public void testMicroBatches() throws IOException {
+        write(
+            new File(this.inputDirectory, "a.json"),
+            "{ \"country\" : \"ch\" }\n{ \"country\" : \"fr\" }\n{ \"country\" : \"ch\" }"
+        );
+        runOnce();
+        Assert.assertEquals(
+            Arrays.asList("{ \"country\" : \"ch\", \"count\" : 2 }", "{ \"country\" : \"fr\", \"count\" : 1 }"),
+            readOutput(0)
+        );
+        // the files written by the task attempts are renamed to the part files
+        Assert.assertTrue(new File(this.outputDirectory, "0/part-00000").exists());
+        Assert.assertFalse(new File(this.outputDirectory, "0/_temporary").exists());
+
+        write(new File(this.inputDirectory, "b.json"), "{ \"country\" : \"de\" }\n{ \"country\" : \"ch\" }");
+        runOnce();
+        Assert.assertEquals(
+            Arrays.asList(
+                "{ \"country\" : \"ch\", \"count\" : 3 }",
+                "{ \"country\" : \"de\", \"count\" : 1 }",
+                "{ \"country\" : \"fr\", \"count\" : 1 }"
+            ),
+            readOutput(1)
+        );
+
+        // no micro-batch runs without new files
+        runOnce();
+        Assert.assertFalse(new File(this.outputDirectory, "2").exists());
+    }
+
+    @Test(timeout = 1000000)
+    public void testCheckpoint() throws IOException {
+        File checkpointDirectory = new File(this.temporaryFolder.getRoot(), "checkpoint");
+        File first = new File(this.inputDirectory, "a.json");
+        write(first, "{ \"country\" : \"ch\" }");
+        // hidden files are not read
+        write(new File(this.inputDirectory, "_b.json"), "{ \"country\" : \"fr\" }");
+        run("--checkpoint-location", checkpointDirectory.getPath());
+        File second = new File(this.inputDirectory, "c.json");
+        write(second, "{ \"country\" : \"de\" }");
+        run("--checkpoint-location", checkpointDirectory.getPath());
+
+        Assert.assertEquals(
+            Collections.singletonList(first),
+            readBatchFiles(new File(checkpointDirectory, "batches/0"))
+        );
+        Assert.assertEquals(
+            Collections.singletonList(second),
+            readBatchFiles(new File(checkpointDirectory, "batches/1"))
+        );
+        Assert.assertTrue(new File(checkpointDirectory, "commits/0").exists());
+        Assert.assertTrue(new File(checkpointDirectory, "commits/1").exists());
+        Assert.assertFalse(new File(this.outputDirectory, "_checkpoint").exists());
+    }
+
+    @Test(timeout = 1000000)
+    public void testRestartAfterFailure() throws IOException {
+        write(new File(this.inputDirectory, "a.json"), "{ \"country\" : \"ch\" }");
+        File malformed = new File(this.inputDirectory, "b.json");
+        write(malformed, "{ \"country\" : ");
+        try {
+            runOnce();
+            Assert.fail("The micro-batch should fail on the malformed file.");
+        } catch (Exception e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("not well-formed"));
+        }
+        File checkpointDirectory = new File(this.outputDirectory, "_checkpoint");
+        Assert.assertTrue(new File(checkpointDirectory, "batches/0").exists());
+        Assert.assertFalse(new File(checkpointDirectory, "commits/0").exists());
+
+        // the micro-batch that failed runs again on the same files, and a file added since is left for the next one
+        write(malformed, "{ \"country\" : \"fr\" }");
+        write(new File(this.inputDirectory, "c.json"), "{ \"country\" : \"ch\" }");
+        runOnce();
+        Assert.assertEquals(
+            Arrays.asList("{ \"country\" : \"ch\", \"count\" : 1 }", "{ \"country\" : \"fr\", \"count\" : 1 }"),
+            readOutput(0)
+        );
+        Assert.assertTrue(new File(checkpointDirectory, "commits/0").exists());
+        Assert.assertEquals(
+            Arrays.asList("{ \"country\" : \"ch\", \"count\" : 2 }", "{ \"country\" : \"fr\", \"count\" : 1 }"),
+            readOutput(1)
+        );
+    }
+
+    private void runOnce() throws IOException {
+        run();
+    }
+
+    private void run(String... arguments) throws IOException {
+        List<String> allArguments = new ArrayList<>(
+                Arrays.asList(
+                    "--query-path",
+                    this.queryFile.getPath(),
+                    "--streaming-input",
+                    this.inputDirectory.getPath(),
+                    "--output-path",
+                    this.outputDirectory.getPath(),
+                    "--streaming-trigger",
+                    "once"
+                )
+        );
+        allArguments.addAll(Arrays.asList(arguments));
+        RumbleRuntimeConfiguration configuration = new RumbleRuntimeConfiguration(
+                allArguments.toArray(new String[0])
+        );
+        new JsoniqQueryExecutor(configuration).runStreamingQuery();
+    }
+
+    /**
+     * @return the lines of the output files of a micro-batch, in the order of the files.
+     */
+    private List<String> readOutput(long batchId) throws IOException {
+        File[] files = new File(this.outputDirectory, Long.toString(batchId)).listFiles();
+        Assert.assertNotNull(files);
+        Arrays.sort(files);
+        List<String> lines = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().startsWith("part-")) {
+                lines.addAll(Files.readAllLines(file.toPath()));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return the files that the checkpoint records for a micro-batch.
+     */
+    private static List<File> readBatchFiles(File batchFile) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String line : Files.readAllLines(batchFile.toPath())) {
+            files.add(new File(URI.create(line)));
+        }
+        return files;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}